@@ -27,6 +27,7 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
+import java.util.zip.CRC32;
 
 public class ServerIndexConfig {
 
@@ -38,6 +39,7 @@ public class ServerIndexConfig {
 	private ConcurrentHashMap<String, FacetAs> facetAsMap;
 	private List<ZuliaServiceOuterClass.QueryRequest> warmingSearches;
 	private ConcurrentHashMap<String, Set<String>> fieldMappingToFields;
+	private long indexingChecksum;
 
 	public ServerIndexConfig(IndexSettings indexSettings) {
 		configure(indexSettings);
@@ -48,6 +50,15 @@ public class ServerIndexConfig {
 
 		populateAnalyzers();
 
+		CRC32 indexingChecksum = new CRC32();
+		for (FieldConfig fc : indexSettings.getFieldConfigList()) {
+			indexingChecksum.update(fc.toByteArray());
+		}
+		for (AnalyzerSettings analyzerSettings : indexSettings.getAnalyzerSettingsList()) {
+			indexingChecksum.update(analyzerSettings.toByteArray());
+		}
+		this.indexingChecksum = indexingChecksum.getValue();
+
 		this.indexFieldMapping = new ConcurrentHashMap<>();
 		this.sortFieldMapping = new ConcurrentHashMap<>();
 		this.facetAsMap = new ConcurrentHashMap<>();
@@ -202,6 +213,13 @@ public class ServerIndexConfig {
 		return indexSettings;
 	}
 
+	/**
+	 * @return a checksum of the field configs and analyzers, which changes when the same document would be indexed differently
+	 */
+	public long getIndexingChecksum() {
+		return indexingChecksum;
+	}
+
 	public boolean existingFacet(String facet) {
 		return facetAsMap.containsKey(facet);
 	}
@@ -210,6 +228,11 @@ public class ServerIndexConfig {
 		return facetAsMap.get(facet).getHierarchical();
 	}
 
+	public boolean isDocValuesFacet(String facet) {
+		FacetAs facetAs = facetAsMap.get(facet);
+		return facetAs != null && facetAs.getDocValues();
+	}
+
 	public AnalyzerSettings getAnalyzerSettingsByName(String textAnalyzerName) {
 		return analyzerMap.get(textAnalyzerName);
 	}
@@ -238,6 +261,26 @@ public class ServerIndexConfig {
 		return indexSettings.getRamBufferMB();
 	}
 
+	public int getRefreshIntervalMS() {
+		return indexSettings.getRefreshIntervalMS() != 0 ? indexSettings.getRefreshIntervalMS() : 1000;
+	}
+
+	public long getShardCommitBytes() {
+		return (indexSettings.getShardCommitMB() != 0 ? indexSettings.getShardCommitMB() : 256) * 1024L * 1024L;
+	}
+
+	public long getMaxTimeWithoutCommitMS() {
+		return (indexSettings.getMaxTimeWithoutCommit() != 0 ? indexSettings.getMaxTimeWithoutCommit() : 60) * 1000L;
+	}
+
+	public boolean isFilterCacheEnabled() {
+		return !indexSettings.getDisableFilterCache();
+	}
+
+	public int getFilterCacheMinFrequency() {
+		return indexSettings.getFilterCacheMinFrequency();
+	}
+
 	public boolean isCompressionEnabled() {
 		return !indexSettings.getDisableCompression();
 	}
@@ -0,0 +1,97 @@
+package io.zulia.client.command;
+
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import io.zulia.client.command.base.GrpcCommand;
+import io.zulia.client.command.base.MultiIndexRoutableCommand;
+import io.zulia.client.pool.ZuliaConnection;
+import io.zulia.client.result.BatchStoreResult;
+import io.zulia.message.ZuliaServiceGrpc.ZuliaServiceStub;
+import io.zulia.message.ZuliaServiceOuterClass.StoreRequest;
+import io.zulia.message.ZuliaServiceOuterClass.StoreResponse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Streams many stores to the server in a single call.  The server groups the documents by shard and indexes each group together, returning a response
+ * for each document that gives an error message if the document was not stored
+ */
+public class BatchStore extends GrpcCommand<BatchStoreResult> implements MultiIndexRoutableCommand {
+
+	private final List<Store> stores;
+
+	public BatchStore() {
+		this.stores = new ArrayList<>();
+	}
+
+	public BatchStore addStore(Store store) {
+		stores.add(store);
+		return this;
+	}
+
+	public BatchStore addStores(Collection<? extends Store> stores) {
+		this.stores.addAll(stores);
+		return this;
+	}
+
+	public List<Store> getStores() {
+		return stores;
+	}
+
+	@Override
+	public Collection<String> getIndexNames() {
+		Set<String> indexNames = new LinkedHashSet<>();
+		for (Store store : stores) {
+			indexNames.add(store.getIndexName());
+		}
+		return indexNames;
+	}
+
+	@Override
+	public BatchStoreResult execute(ZuliaConnection zuliaConnection) {
+		ZuliaServiceStub service = zuliaConnection.getAsyncService();
+
+		CompletableFuture<List<StoreResponse>> storeResponsesFuture = new CompletableFuture<>();
+		StreamObserver<StoreRequest> requestObserver = service.batchStore(new StreamObserver<>() {
+
+			private final List<StoreResponse> storeResponses = new ArrayList<>(stores.size());
+
+			@Override
+			public void onNext(StoreResponse storeResponse) {
+				storeResponses.add(storeResponse);
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				storeResponsesFuture.completeExceptionally(t);
+			}
+
+			@Override
+			public void onCompleted() {
+				storeResponsesFuture.complete(storeResponses);
+			}
+		});
+
+		for (Store store : stores) {
+			requestObserver.onNext(store.getRequest());
+		}
+		requestObserver.onCompleted();
+
+		try {
+			return new BatchStoreResult(storeResponsesFuture.join());
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof StatusRuntimeException statusRuntimeException) {
+				throw statusRuntimeException;
+			}
+			throw e;
+		}
+	}
+
+}
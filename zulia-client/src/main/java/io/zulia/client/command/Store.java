@@ -26,6 +26,8 @@ public class Store extends SimpleCommand<StoreRequest, StoreResult> implements S
 	private List<ZuliaBase.AssociatedDocument> associatedDocuments;
 	private List<ZuliaBase.ExternalDocument> externalDocuments;
 	private Boolean clearExistingAssociated;
+	private Boolean waitForVisibility;
+	private Boolean waitForCommit;
 
 	public Store(String uniqueId, String indexName) {
 		this.uniqueId = uniqueId;
@@ -112,6 +114,27 @@ public class Store extends SimpleCommand<StoreRequest, StoreResult> implements S
 		return this;
 	}
 
+	public Boolean isWaitForVisibility() {
+		return waitForVisibility;
+	}
+
+	public Store setWaitForVisibility(Boolean waitForVisibility) {
+		this.waitForVisibility = waitForVisibility;
+		return this;
+	}
+
+	public Boolean isWaitForCommit() {
+		return waitForCommit;
+	}
+
+	/**
+	 * Waits for the document to be committed to disk before the store returns instead of leaving the commit to the background commit policy
+	 */
+	public Store setWaitForCommit(Boolean waitForCommit) {
+		this.waitForCommit = waitForCommit;
+		return this;
+	}
+
 	@Override
 	public StoreRequest getRequest() {
 		StoreRequest.Builder storeRequestBuilder = StoreRequest.newBuilder();
@@ -128,6 +151,14 @@ public class Store extends SimpleCommand<StoreRequest, StoreResult> implements S
 		if (clearExistingAssociated != null) {
 			storeRequestBuilder.setClearExistingAssociated(clearExistingAssociated);
 		}
+
+		if (waitForVisibility != null) {
+			storeRequestBuilder.setWaitForVisibility(waitForVisibility);
+		}
+
+		if (waitForCommit != null) {
+			storeRequestBuilder.setWaitForCommit(waitForCommit);
+		}
 		return storeRequestBuilder.build();
 	}
 
@@ -48,6 +48,17 @@ public class UpdateIndex extends SimpleCommand<UpdateIndexRequest, UpdateIndexRe
 
 	private Boolean disableCompression;
 
+	private Integer searchSliceMaxDocs;
+	private Integer searchSliceMaxSegments;
+
+	private Integer refreshIntervalMS;
+
+	private Boolean disableFilterCache;
+	private Integer filterCacheMinFrequency;
+
+	private Integer shardCommitMB;
+	private Integer maxTimeWithoutCommit;
+
 	private final UpdateIndexSettings.Operation.Builder analyzerSettingsOperation = UpdateIndexSettings.Operation.newBuilder();
 	private List<ZuliaIndex.AnalyzerSettings> analyzerSettingsList = Collections.emptyList();
 
@@ -322,6 +333,69 @@ public class UpdateIndex extends SimpleCommand<UpdateIndexRequest, UpdateIndexRe
 		return this;
 	}
 
+	public Integer getSearchSliceMaxDocs() {
+		return searchSliceMaxDocs;
+	}
+
+	public UpdateIndex setSearchSliceMaxDocs(Integer searchSliceMaxDocs) {
+		this.searchSliceMaxDocs = searchSliceMaxDocs;
+		return this;
+	}
+
+	public Integer getSearchSliceMaxSegments() {
+		return searchSliceMaxSegments;
+	}
+
+	public UpdateIndex setSearchSliceMaxSegments(Integer searchSliceMaxSegments) {
+		this.searchSliceMaxSegments = searchSliceMaxSegments;
+		return this;
+	}
+
+	public Integer getRefreshIntervalMS() {
+		return refreshIntervalMS;
+	}
+
+	public UpdateIndex setRefreshIntervalMS(Integer refreshIntervalMS) {
+		this.refreshIntervalMS = refreshIntervalMS;
+		return this;
+	}
+
+	public Boolean getDisableFilterCache() {
+		return disableFilterCache;
+	}
+
+	public UpdateIndex setDisableFilterCache(Boolean disableFilterCache) {
+		this.disableFilterCache = disableFilterCache;
+		return this;
+	}
+
+	public Integer getFilterCacheMinFrequency() {
+		return filterCacheMinFrequency;
+	}
+
+	public UpdateIndex setFilterCacheMinFrequency(Integer filterCacheMinFrequency) {
+		this.filterCacheMinFrequency = filterCacheMinFrequency;
+		return this;
+	}
+
+	public Integer getShardCommitMB() {
+		return shardCommitMB;
+	}
+
+	public UpdateIndex setShardCommitMB(Integer shardCommitMB) {
+		this.shardCommitMB = shardCommitMB;
+		return this;
+	}
+
+	public Integer getMaxTimeWithoutCommit() {
+		return maxTimeWithoutCommit;
+	}
+
+	public UpdateIndex setMaxTimeWithoutCommit(Integer maxTimeWithoutCommit) {
+		this.maxTimeWithoutCommit = maxTimeWithoutCommit;
+		return this;
+	}
+
 	public Integer getNumberOfReplicas() {
 		return numberOfReplicas;
 	}
@@ -498,6 +572,41 @@ public class UpdateIndex extends SimpleCommand<UpdateIndexRequest, UpdateIndexRe
 			updateIndexSettings.setDisableCompression(disableCompression);
 		}
 
+		if (searchSliceMaxDocs != null) {
+			updateIndexSettings.setSetSearchSliceMaxDocs(true);
+			updateIndexSettings.setSearchSliceMaxDocs(searchSliceMaxDocs);
+		}
+
+		if (searchSliceMaxSegments != null) {
+			updateIndexSettings.setSetSearchSliceMaxSegments(true);
+			updateIndexSettings.setSearchSliceMaxSegments(searchSliceMaxSegments);
+		}
+
+		if (refreshIntervalMS != null) {
+			updateIndexSettings.setSetRefreshIntervalMS(true);
+			updateIndexSettings.setRefreshIntervalMS(refreshIntervalMS);
+		}
+
+		if (disableFilterCache != null) {
+			updateIndexSettings.setSetDisableFilterCache(true);
+			updateIndexSettings.setDisableFilterCache(disableFilterCache);
+		}
+
+		if (filterCacheMinFrequency != null) {
+			updateIndexSettings.setSetFilterCacheMinFrequency(true);
+			updateIndexSettings.setFilterCacheMinFrequency(filterCacheMinFrequency);
+		}
+
+		if (shardCommitMB != null) {
+			updateIndexSettings.setSetShardCommitMB(true);
+			updateIndexSettings.setShardCommitMB(shardCommitMB);
+		}
+
+		if (maxTimeWithoutCommit != null) {
+			updateIndexSettings.setSetMaxTimeWithoutCommit(true);
+			updateIndexSettings.setMaxTimeWithoutCommit(maxTimeWithoutCommit);
+		}
+
 		updateIndexSettings.setMetaUpdateOperation(metaDataOperation);
 		if (!metadata.isEmpty()) {
 			updateIndexSettings.setMetadata(ZuliaUtil.mongoDocumentToByteString(metadata));
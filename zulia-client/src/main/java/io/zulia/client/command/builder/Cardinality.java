@@ -0,0 +1,31 @@
+package io.zulia.client.command.builder;
+
+import io.zulia.message.ZuliaQuery.CardinalityRequest;
+
+/**
+ * Approximate number of distinct values of a facet or sortable field in the matching documents
+ */
+public class Cardinality {
+
+	private final CardinalityRequest.Builder cardinalityRequestBuilder;
+
+	public Cardinality(String field) {
+		cardinalityRequestBuilder = CardinalityRequest.newBuilder().setField(field);
+	}
+
+	/**
+	 * @param precision number of hash bits used to pick a sketch register from 4 to 18, default 14.  Each increase doubles the memory used and
+	 *                  reduces the standard error by about 30%
+	 */
+	public Cardinality setPrecision(int precision) {
+		if (precision < 4 || precision > 18) {
+			throw new IllegalArgumentException("Cardinality precision must be in the range [4, 18]");
+		}
+		cardinalityRequestBuilder.setPrecision(precision);
+		return this;
+	}
+
+	public CardinalityRequest getCardinalityRequest() {
+		return cardinalityRequestBuilder.build();
+	}
+}
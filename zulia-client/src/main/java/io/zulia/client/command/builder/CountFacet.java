@@ -31,6 +31,15 @@ public class CountFacet implements CountFacetBuilder {
 		return this;
 	}
 
+	/**
+	 * Returns exact counts for the top facets by asking shards for the counts of facets they did not return in a second round, allows a smaller top N
+	 * per shard
+	 */
+	public CountFacet setRefine(boolean refine) {
+		countRequestBuilder.setRefine(refine);
+		return this;
+	}
+
 	@Override
 	public CountRequest getFacetCount() {
 		return countRequestBuilder.build();
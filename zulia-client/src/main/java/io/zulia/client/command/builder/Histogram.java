@@ -0,0 +1,41 @@
+package io.zulia.client.command.builder;
+
+import io.zulia.message.ZuliaQuery.HistogramRequest;
+
+import java.time.Duration;
+
+/**
+ * Counts of matching documents in fixed width buckets of a sortable numeric or date field
+ */
+public class Histogram {
+
+	private final HistogramRequest.Builder histogramRequestBuilder;
+
+	public Histogram(String numericField, double interval) {
+		if (!(interval > 0)) {
+			throw new IllegalArgumentException("Histogram interval must be a number > 0");
+		}
+		histogramRequestBuilder = HistogramRequest.newBuilder().setNumericField(numericField).setInterval(interval);
+	}
+
+	public static Histogram forDate(String dateField, Duration interval) {
+		return new Histogram(dateField, interval.toMillis());
+	}
+
+	/**
+	 * @param offset buckets start at offset + n * interval, i.e. a time zone offset for a per day histogram
+	 */
+	public Histogram setOffset(double offset) {
+		histogramRequestBuilder.setOffset(offset);
+		return this;
+	}
+
+	public Histogram setMaxBuckets(int maxBuckets) {
+		histogramRequestBuilder.setMaxBuckets(maxBuckets);
+		return this;
+	}
+
+	public HistogramRequest getHistogramRequest() {
+		return histogramRequestBuilder.build();
+	}
+}
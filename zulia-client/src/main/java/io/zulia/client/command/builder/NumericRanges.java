@@ -0,0 +1,43 @@
+package io.zulia.client.command.builder;
+
+import io.zulia.message.ZuliaQuery.NumericRange;
+import io.zulia.message.ZuliaQuery.RangeRequest;
+
+/**
+ * Counts of matching documents in ranges of a sortable numeric or date field.  Ranges include from and exclude to and can overlap
+ */
+public class NumericRanges {
+
+	private final RangeRequest.Builder rangeRequestBuilder;
+
+	public NumericRanges(String numericField) {
+		rangeRequestBuilder = RangeRequest.newBuilder().setNumericField(numericField);
+	}
+
+	/**
+	 * @param from inclusive start of the range or null for unbounded
+	 * @param to   exclusive end of the range or null for unbounded
+	 */
+	public NumericRanges addRange(Number from, Number to) {
+		return addRange(null, from, to);
+	}
+
+	public NumericRanges addRange(String label, Number from, Number to) {
+		NumericRange.Builder range = NumericRange.newBuilder();
+		if (label != null) {
+			range.setLabel(label);
+		}
+		if (from != null) {
+			range.setFrom(from.doubleValue());
+		}
+		if (to != null) {
+			range.setTo(to.doubleValue());
+		}
+		rangeRequestBuilder.addRange(range);
+		return this;
+	}
+
+	public RangeRequest getRangeRequest() {
+		return rangeRequestBuilder.build();
+	}
+}
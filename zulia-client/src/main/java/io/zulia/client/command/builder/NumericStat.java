@@ -22,6 +22,19 @@ public class NumericStat implements StatBuilder {
 		return this;
 	}
 
+	/**
+	 * @param maxSketchBins bound on the size of each percentile sketch, the lowest percentiles lose accuracy first when the values need more bins
+	 */
+	public NumericStat setMaxSketchBins(int maxSketchBins) {
+		if (maxSketchBins > 0) {
+			statRequestBuilder.setMaxSketchBins(maxSketchBins);
+		}
+		else {
+			throw new IllegalArgumentException("Max sketch bins must be > 0");
+		}
+		return this;
+	}
+
 	public NumericStat setPercentiles(List<Double> percentilePoints) {
 		// Percentiles are a fraction
 		if (percentilePoints.stream().allMatch(d -> (0.0 <= d && d <= 1.0))) {
@@ -102,6 +102,24 @@ public class Search extends SimpleCommand<QueryRequest, SearchResult> implements
 		return this;
 	}
 
+	public boolean getQueryThenFetch() {
+		return queryRequest.getQueryThenFetch();
+	}
+
+	public Search setQueryThenFetch(boolean queryThenFetch) {
+		queryRequest.setQueryThenFetch(queryThenFetch);
+		return this;
+	}
+
+	public int getTimeoutMS() {
+		return queryRequest.getTimeoutMS();
+	}
+
+	public Search setTimeoutMS(int timeoutMS) {
+		queryRequest.setTimeoutMS(timeoutMS);
+		return this;
+	}
+
 	public boolean getDebug() {
 		return queryRequest.getDebug();
 	}
@@ -244,6 +262,47 @@ public class Search extends SimpleCommand<QueryRequest, SearchResult> implements
 		return this;
 	}
 
+	public Search addCardinality(Cardinality cardinality) {
+		facetRequest.addCardinalityRequest(cardinality.getCardinalityRequest());
+		return this;
+	}
+
+	public Search clearCardinality() {
+		facetRequest.clearCardinalityRequest();
+		return this;
+	}
+
+	public Search addHistogram(Histogram histogram) {
+		facetRequest.addHistogramRequest(histogram.getHistogramRequest());
+		return this;
+	}
+
+	public Search clearHistogram() {
+		facetRequest.clearHistogramRequest();
+		return this;
+	}
+
+	public Search addRanges(NumericRanges numericRanges) {
+		facetRequest.addRangeRequest(numericRanges.getRangeRequest());
+		return this;
+	}
+
+	public Search clearRanges() {
+		facetRequest.clearRangeRequest();
+		return this;
+	}
+
+	/**
+	 * Shards with more matching docs than the sample size count facets and compute stats on a deterministic sample of about this many docs.  Counts and
+	 * sums are scaled to the matching docs and report the sample rate and their standard error.  Not supported with cardinality, histogram or range requests
+	 *
+	 * @param sampleSize number of docs to sample per shard, 0 to use all matching docs
+	 */
+	public Search setFacetSampleSize(int sampleSize) {
+		facetRequest.setSampleSize(sampleSize);
+		return this;
+	}
+
 	public Search addAnalysis(AnalysisBuilder analysisBuilder) {
 		queryRequest.addAnalysisRequest(analysisBuilder.getAnalysis());
 		return this;
@@ -33,6 +33,19 @@ public class StatFacet implements StatBuilder {
 		return this;
 	}
 
+	/**
+	 * @param maxSketchBins bound on the size of each percentile sketch, the lowest percentiles lose accuracy first when the values need more bins
+	 */
+	public StatFacet setMaxSketchBins(int maxSketchBins) {
+		if (maxSketchBins > 0) {
+			statRequestBuilder.setMaxSketchBins(maxSketchBins);
+		}
+		else {
+			throw new IllegalArgumentException("Max sketch bins must be > 0");
+		}
+		return this;
+	}
+
 	public StatFacet setPercentiles(List<Double> percentilePoints) {
 		// Percentiles are a fraction
 		if (percentilePoints.stream().allMatch(d -> (0.0 <= d && d <= 1.0))) {
@@ -40,6 +40,17 @@ public class ClientIndexConfig {
 
 	private Boolean disableCompression;
 
+	private Integer searchSliceMaxDocs;
+	private Integer searchSliceMaxSegments;
+
+	private Integer refreshIntervalMS;
+
+	private Boolean disableFilterCache;
+	private Integer filterCacheMinFrequency;
+
+	private Integer shardCommitMB;
+	private Integer maxTimeWithoutCommit;
+
 	private TreeMap<String, FieldConfig> fieldMap;
 	private TreeMap<String, AnalyzerSettings> analyzerSettingsMap;
 
@@ -127,6 +138,69 @@ public class ClientIndexConfig {
 		return this;
 	}
 
+	public Integer getSearchSliceMaxDocs() {
+		return searchSliceMaxDocs;
+	}
+
+	public ClientIndexConfig setSearchSliceMaxDocs(Integer searchSliceMaxDocs) {
+		this.searchSliceMaxDocs = searchSliceMaxDocs;
+		return this;
+	}
+
+	public Integer getSearchSliceMaxSegments() {
+		return searchSliceMaxSegments;
+	}
+
+	public ClientIndexConfig setSearchSliceMaxSegments(Integer searchSliceMaxSegments) {
+		this.searchSliceMaxSegments = searchSliceMaxSegments;
+		return this;
+	}
+
+	public Integer getRefreshIntervalMS() {
+		return refreshIntervalMS;
+	}
+
+	public ClientIndexConfig setRefreshIntervalMS(Integer refreshIntervalMS) {
+		this.refreshIntervalMS = refreshIntervalMS;
+		return this;
+	}
+
+	public Boolean getDisableFilterCache() {
+		return disableFilterCache;
+	}
+
+	public ClientIndexConfig setDisableFilterCache(Boolean disableFilterCache) {
+		this.disableFilterCache = disableFilterCache;
+		return this;
+	}
+
+	public Integer getFilterCacheMinFrequency() {
+		return filterCacheMinFrequency;
+	}
+
+	public ClientIndexConfig setFilterCacheMinFrequency(Integer filterCacheMinFrequency) {
+		this.filterCacheMinFrequency = filterCacheMinFrequency;
+		return this;
+	}
+
+	public Integer getShardCommitMB() {
+		return shardCommitMB;
+	}
+
+	public ClientIndexConfig setShardCommitMB(Integer shardCommitMB) {
+		this.shardCommitMB = shardCommitMB;
+		return this;
+	}
+
+	public Integer getMaxTimeWithoutCommit() {
+		return maxTimeWithoutCommit;
+	}
+
+	public ClientIndexConfig setMaxTimeWithoutCommit(Integer maxTimeWithoutCommit) {
+		this.maxTimeWithoutCommit = maxTimeWithoutCommit;
+		return this;
+	}
+
 	public String getIndexName() {
 		return indexName;
 	}
@@ -352,6 +426,34 @@ public class ClientIndexConfig {
 			isb.setDisableCompression(disableCompression);
 		}
 
+		if (searchSliceMaxDocs != null) {
+			isb.setSearchSliceMaxDocs(searchSliceMaxDocs);
+		}
+
+		if (searchSliceMaxSegments != null) {
+			isb.setSearchSliceMaxSegments(searchSliceMaxSegments);
+		}
+
+		if (refreshIntervalMS != null) {
+			isb.setRefreshIntervalMS(refreshIntervalMS);
+		}
+
+		if (disableFilterCache != null) {
+			isb.setDisableFilterCache(disableFilterCache);
+		}
+
+		if (filterCacheMinFrequency != null) {
+			isb.setFilterCacheMinFrequency(filterCacheMinFrequency);
+		}
+
+		if (shardCommitMB != null) {
+			isb.setShardCommitMB(shardCommitMB);
+		}
+
+		if (maxTimeWithoutCommit != null) {
+			isb.setMaxTimeWithoutCommit(maxTimeWithoutCommit);
+		}
+
 		if (meta != null) {
 			isb.setMeta(ZuliaUtil.mongoDocumentToByteString(meta));
 		}
@@ -410,6 +512,13 @@ public class ClientIndexConfig {
 		this.indexWeight = indexSettings.getIndexWeight();
 		this.ramBufferMB = indexSettings.getRamBufferMB();
 		this.disableCompression = indexSettings.getDisableCompression();
+		this.searchSliceMaxDocs = indexSettings.getSearchSliceMaxDocs();
+		this.searchSliceMaxSegments = indexSettings.getSearchSliceMaxSegments();
+		this.refreshIntervalMS = indexSettings.getRefreshIntervalMS();
+		this.disableFilterCache = indexSettings.getDisableFilterCache();
+		this.filterCacheMinFrequency = indexSettings.getFilterCacheMinFrequency();
+		this.shardCommitMB = indexSettings.getShardCommitMB();
+		this.maxTimeWithoutCommit = indexSettings.getMaxTimeWithoutCommit();
 
 		this.meta = ZuliaUtil.byteStringToMongoDocument(indexSettings.getMeta());
 
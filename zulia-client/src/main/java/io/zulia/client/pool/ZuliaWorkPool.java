@@ -29,6 +29,14 @@ public class ZuliaWorkPool extends ZuliaBaseWorkPool {
 		return executeAsync(batchFetch);
 	}
 
+	public BatchStoreResult batchStore(BatchStore batchStore) throws Exception {
+		return execute(batchStore);
+	}
+
+	public ListenableFuture<BatchStoreResult> batchStoreAsync(BatchStore batchStore) {
+		return executeAsync(batchStore);
+	}
+
 	public ClearIndexResult clearIndex(String index) throws Exception {
 		return clearIndex(new ClearIndex(index));
 	}
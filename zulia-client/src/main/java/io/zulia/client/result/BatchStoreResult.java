@@ -0,0 +1,37 @@
+package io.zulia.client.result;
+
+import io.zulia.message.ZuliaServiceOuterClass.StoreResponse;
+
+import java.util.List;
+
+public class BatchStoreResult extends Result {
+
+	private final List<StoreResponse> storeResponses;
+
+	public BatchStoreResult(List<StoreResponse> storeResponses) {
+		this.storeResponses = storeResponses;
+	}
+
+	/**
+	 * @return a response for each document in the order stored
+	 */
+	public List<StoreResponse> getStoreResponses() {
+		return storeResponses;
+	}
+
+	public List<StoreResponse> getFailures() {
+		return storeResponses.stream().filter(storeResponse -> !storeResponse.getErrorMessage().isEmpty()).toList();
+	}
+
+	/**
+	 * @return the responses of the documents not indexed again because the stored document has the same content
+	 */
+	public List<StoreResponse> getSkipped() {
+		return storeResponses.stream().filter(StoreResponse::getSkipped).toList();
+	}
+
+	public boolean hasFailures() {
+		return storeResponses.stream().anyMatch(storeResponse -> !storeResponse.getErrorMessage().isEmpty());
+	}
+
+}
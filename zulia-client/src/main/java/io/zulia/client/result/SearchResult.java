@@ -3,12 +3,17 @@ package io.zulia.client.result;
 import io.zulia.fields.GsonDocumentMapper;
 import io.zulia.message.ZuliaQuery;
 import io.zulia.message.ZuliaQuery.AnalysisResult;
+import io.zulia.message.ZuliaQuery.Bucket;
+import io.zulia.message.ZuliaQuery.CardinalityResult;
 import io.zulia.message.ZuliaQuery.FacetCount;
 import io.zulia.message.ZuliaQuery.FacetGroup;
 import io.zulia.message.ZuliaQuery.FacetStats;
+import io.zulia.message.ZuliaQuery.HistogramResult;
 import io.zulia.message.ZuliaQuery.LastResult;
+import io.zulia.message.ZuliaQuery.RangeResult;
 import io.zulia.message.ZuliaQuery.ScoredResult;
 import io.zulia.message.ZuliaQuery.StatGroup;
+import io.zulia.message.ZuliaQuery.TimedOutShard;
 import io.zulia.message.ZuliaServiceOuterClass.QueryResponse;
 import io.zulia.util.ResultHelper;
 import io.zulia.util.ZuliaUtil;
@@ -236,6 +241,45 @@ public class SearchResult extends Result {
 		return null;
 	}
 
+	public List<CardinalityResult> getCardinalityResults() {
+		return queryResponse.getCardinalityResultList();
+	}
+
+	public Long getCardinality(String field) {
+		for (CardinalityResult cardinalityResult : queryResponse.getCardinalityResultList()) {
+			if (field.equals(cardinalityResult.getCardinalityRequest().getField())) {
+				return cardinalityResult.getCardinality();
+			}
+		}
+		return null;
+	}
+
+	public List<HistogramResult> getHistogramResults() {
+		return queryResponse.getHistogramResultList();
+	}
+
+	public List<Bucket> getHistogram(String numericField) {
+		for (HistogramResult histogramResult : queryResponse.getHistogramResultList()) {
+			if (numericField.equals(histogramResult.getHistogramRequest().getNumericField())) {
+				return histogramResult.getBucketList();
+			}
+		}
+		return null;
+	}
+
+	public List<RangeResult> getRangeResults() {
+		return queryResponse.getRangeResultList();
+	}
+
+	public List<Bucket> getRanges(String numericField) {
+		for (RangeResult rangeResult : queryResponse.getRangeResultList()) {
+			if (numericField.equals(rangeResult.getRangeRequest().getNumericField())) {
+				return rangeResult.getBucketList();
+			}
+		}
+		return null;
+	}
+
 	public List<AnalysisResult> getSummaryAnalysisResults() {
 		return queryResponse.getAnalysisResultList();
 	}
@@ -256,6 +300,14 @@ public class SearchResult extends Result {
 		return queryResponse.getShardsPinned();
 	}
 
+	public boolean isPartialResults() {
+		return queryResponse.getPartialResults();
+	}
+
+	public List<TimedOutShard> getTimedOutShards() {
+		return queryResponse.getTimedOutShardList();
+	}
+
 	@Override
 	public String toString() {
 		return queryResponse.toString();
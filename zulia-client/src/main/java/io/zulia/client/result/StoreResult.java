@@ -4,11 +4,17 @@ import static io.zulia.message.ZuliaServiceOuterClass.StoreResponse;
 
 public class StoreResult extends Result {
 
-	@SuppressWarnings("unused")
 	private final StoreResponse storeResponse;
 
 	public StoreResult(StoreResponse storeResponse) {
 		this.storeResponse = storeResponse;
 	}
 
+	/**
+	 * @return true if the document was not indexed again because the stored document has the same content
+	 */
+	public boolean isSkipped() {
+		return storeResponse.getSkipped();
+	}
+
 }
@@ -116,6 +116,16 @@ public class FieldConfigBuilder {
 		return facetAs(builder.build());
 	}
 
+	public FieldConfigBuilder facetDocValues() {
+		FacetAs.Builder builder = FacetAs.newBuilder().setFacetName(storedFieldName).setHierarchical(false).setDocValues(true);
+		return facetAs(builder.build());
+	}
+
+	public FieldConfigBuilder facetAsDocValues(String facetName) {
+		FacetAs.Builder builder = FacetAs.newBuilder().setFacetName(facetName).setHierarchical(false).setDocValues(true);
+		return facetAs(builder.build());
+	}
+
 	public FieldConfigBuilder facetAs(FacetAs.DateHandling dateHandling) {
 		FacetAs.Builder builder = FacetAs.newBuilder().setFacetName(storedFieldName).setDateHandling(dateHandling).setHierarchical(false);
 		return facetAs(builder.build());
@@ -168,6 +168,7 @@ public class FieldConfigMapper<T> {
 
 		FacetAs.Builder builder = FacetAs.newBuilder().setFacetName(facetName);
 		builder.setDateHandling(dateHandling);
+		builder.setDocValues(faceted.docValues());
 		fieldConfigBuilder.addFacetAs(builder);
 	}
 
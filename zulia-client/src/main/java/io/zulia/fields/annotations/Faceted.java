@@ -20,4 +20,6 @@ public @interface Faceted {
 	FacetAs.DateHandling dateHandling() default FacetAs.DateHandling.DATE_YYYY_MM_DD;
 
 	String name() default "";
+
+	boolean docValues() default false;
 }
@@ -15,6 +15,7 @@ public interface ZuliaFieldConstants {
 	String LIST_LENGTH_PREFIX = "_zll_";
 	String SORT_SUFFIX = "_zss_";
 	String FACET_STORAGE = "_zfs_";
+	String FACET_DOC_VALUES_PREFIX = "_zfdv_";
 
 	String SCORE_FIELD = "zuliaScore";
 
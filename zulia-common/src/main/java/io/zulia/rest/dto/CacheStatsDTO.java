@@ -0,0 +1,59 @@
+package io.zulia.rest.dto;
+
+public class CacheStatsDTO {
+
+	private long estimatedSize;
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+	private long ramBytesUsed;
+
+	public CacheStatsDTO() {
+	}
+
+	public long getEstimatedSize() {
+		return estimatedSize;
+	}
+
+	public void setEstimatedSize(long estimatedSize) {
+		this.estimatedSize = estimatedSize;
+	}
+
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	public void setHitCount(long hitCount) {
+		this.hitCount = hitCount;
+	}
+
+	public long getMissCount() {
+		return missCount;
+	}
+
+	public void setMissCount(long missCount) {
+		this.missCount = missCount;
+	}
+
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	public void setEvictionCount(long evictionCount) {
+		this.evictionCount = evictionCount;
+	}
+
+	public long getRamBytesUsed() {
+		return ramBytesUsed;
+	}
+
+	public void setRamBytesUsed(long ramBytesUsed) {
+		this.ramBytesUsed = ramBytesUsed;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStatsDTO{" + "estimatedSize=" + estimatedSize + ", hitCount=" + hitCount + ", missCount=" + missCount + ", evictionCount=" + evictionCount
+				+ ", ramBytesUsed=" + ramBytesUsed + '}';
+	}
+}
@@ -0,0 +1,78 @@
+package io.zulia.rest.dto;
+
+public class IndexCacheStatsDTO {
+
+	private String indexName;
+	private CacheStatsDTO parsedQueryCache;
+	private CacheStatsDTO scoreFunctionCache;
+	private CacheStatsDTO compiledScoreFunctionCache;
+	private CacheStatsDTO generalCache;
+	private CacheStatsDTO pinnedCache;
+	private CacheStatsDTO segmentCache;
+
+	public IndexCacheStatsDTO() {
+	}
+
+	public String getIndexName() {
+		return indexName;
+	}
+
+	public void setIndexName(String indexName) {
+		this.indexName = indexName;
+	}
+
+	public CacheStatsDTO getParsedQueryCache() {
+		return parsedQueryCache;
+	}
+
+	public void setParsedQueryCache(CacheStatsDTO parsedQueryCache) {
+		this.parsedQueryCache = parsedQueryCache;
+	}
+
+	public CacheStatsDTO getScoreFunctionCache() {
+		return scoreFunctionCache;
+	}
+
+	public void setScoreFunctionCache(CacheStatsDTO scoreFunctionCache) {
+		this.scoreFunctionCache = scoreFunctionCache;
+	}
+
+	public CacheStatsDTO getCompiledScoreFunctionCache() {
+		return compiledScoreFunctionCache;
+	}
+
+	public void setCompiledScoreFunctionCache(CacheStatsDTO compiledScoreFunctionCache) {
+		this.compiledScoreFunctionCache = compiledScoreFunctionCache;
+	}
+
+	public CacheStatsDTO getGeneralCache() {
+		return generalCache;
+	}
+
+	public void setGeneralCache(CacheStatsDTO generalCache) {
+		this.generalCache = generalCache;
+	}
+
+	public CacheStatsDTO getPinnedCache() {
+		return pinnedCache;
+	}
+
+	public void setPinnedCache(CacheStatsDTO pinnedCache) {
+		this.pinnedCache = pinnedCache;
+	}
+
+	public CacheStatsDTO getSegmentCache() {
+		return segmentCache;
+	}
+
+	public void setSegmentCache(CacheStatsDTO segmentCache) {
+		this.segmentCache = segmentCache;
+	}
+
+	@Override
+	public String toString() {
+		return "IndexCacheStatsDTO{" + "indexName='" + indexName + '\'' + ", parsedQueryCache=" + parsedQueryCache + ", scoreFunctionCache="
+				+ scoreFunctionCache + ", compiledScoreFunctionCache=" + compiledScoreFunctionCache + ", generalCache=" + generalCache + ", pinnedCache="
+				+ pinnedCache + ", segmentCache=" + segmentCache + '}';
+	}
+}
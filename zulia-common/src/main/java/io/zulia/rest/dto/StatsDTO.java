@@ -1,5 +1,7 @@
 package io.zulia.rest.dto;
 
+import java.util.List;
+
 public class StatsDTO {
 
 	private long jvmUsedMemoryMB;
@@ -10,6 +12,11 @@ public class StatsDTO {
 	private double totalDataDirSpaceGB;
 	private double usedDataDirSpaceGB;
 	private String zuliaVersion;
+	private int indexingQueueDepth;
+	private int indexingActiveThreads;
+	private CacheStatsDTO filterCache;
+	private CacheStatsDTO facetCountCache;
+	private List<IndexCacheStatsDTO> indexCacheStats;
 
 	public StatsDTO() {
 	}
@@ -78,10 +85,52 @@ public class StatsDTO {
 		this.zuliaVersion = zuliaVersion;
 	}
 
+	public int getIndexingQueueDepth() {
+		return indexingQueueDepth;
+	}
+
+	public void setIndexingQueueDepth(int indexingQueueDepth) {
+		this.indexingQueueDepth = indexingQueueDepth;
+	}
+
+	public int getIndexingActiveThreads() {
+		return indexingActiveThreads;
+	}
+
+	public void setIndexingActiveThreads(int indexingActiveThreads) {
+		this.indexingActiveThreads = indexingActiveThreads;
+	}
+
+	public CacheStatsDTO getFilterCache() {
+		return filterCache;
+	}
+
+	public void setFilterCache(CacheStatsDTO filterCache) {
+		this.filterCache = filterCache;
+	}
+
+	public CacheStatsDTO getFacetCountCache() {
+		return facetCountCache;
+	}
+
+	public void setFacetCountCache(CacheStatsDTO facetCountCache) {
+		this.facetCountCache = facetCountCache;
+	}
+
+	public List<IndexCacheStatsDTO> getIndexCacheStats() {
+		return indexCacheStats;
+	}
+
+	public void setIndexCacheStats(List<IndexCacheStatsDTO> indexCacheStats) {
+		this.indexCacheStats = indexCacheStats;
+	}
+
 	@Override
 	public String toString() {
 		return "StatsDTO{" + "jvmUsedMemoryMB=" + jvmUsedMemoryMB + ", jvmFreeMemoryMB=" + jvmFreeMemoryMB + ", jvmTotalMemoryMB=" + jvmTotalMemoryMB
 				+ ", jvmMaxMemoryMB=" + jvmMaxMemoryMB + ", freeDataDirSpaceGB=" + freeDataDirSpaceGB + ", totalDataDirSpaceGB=" + totalDataDirSpaceGB
-				+ ", usedDataDirSpaceGB=" + usedDataDirSpaceGB + ", zuliaVersion='" + zuliaVersion + '\'' + '}';
+				+ ", usedDataDirSpaceGB=" + usedDataDirSpaceGB + ", zuliaVersion='" + zuliaVersion + '\'' + ", indexingQueueDepth=" + indexingQueueDepth
+				+ ", indexingActiveThreads=" + indexingActiveThreads + ", filterCache=" + filterCache + ", facetCountCache=" + facetCountCache + ", indexCacheStats="
+				+ indexCacheStats + '}';
 	}
 }
@@ -29,6 +29,24 @@ public class ZuliaConfig {
 
 	private int rpcWorkers;
 
+	private int searchThreads;
+
+	private int indexingThreads;
+
+	private boolean translog = true;
+
+	private int parsedQueryCacheSize;
+
+	private int filterCacheMaxQueries;
+
+	private int filterCacheMaxMB;
+
+	private int statSketchMaxMB;
+
+	private int facetCountCacheMaxMB;
+
+	private int shardQueryCacheMaxMB;
+
 	public ZuliaConfig() {
 	}
 
@@ -136,11 +154,86 @@ public class ZuliaConfig {
 		this.rpcWorkers = rpcWorkers;
 	}
 
+	public int getSearchThreads() {
+		return searchThreads;
+	}
+
+	public void setSearchThreads(int searchThreads) {
+		this.searchThreads = searchThreads;
+	}
+
+	public int getParsedQueryCacheSize() {
+		return parsedQueryCacheSize;
+	}
+
+	public void setParsedQueryCacheSize(int parsedQueryCacheSize) {
+		this.parsedQueryCacheSize = parsedQueryCacheSize;
+	}
+
+	public int getFilterCacheMaxQueries() {
+		return filterCacheMaxQueries;
+	}
+
+	public void setFilterCacheMaxQueries(int filterCacheMaxQueries) {
+		this.filterCacheMaxQueries = filterCacheMaxQueries;
+	}
+
+	public int getFilterCacheMaxMB() {
+		return filterCacheMaxMB;
+	}
+
+	public void setFilterCacheMaxMB(int filterCacheMaxMB) {
+		this.filterCacheMaxMB = filterCacheMaxMB;
+	}
+
+	public int getIndexingThreads() {
+		return indexingThreads;
+	}
+
+	public void setIndexingThreads(int indexingThreads) {
+		this.indexingThreads = indexingThreads;
+	}
+
+	public boolean isTranslog() {
+		return translog;
+	}
+
+	public void setTranslog(boolean translog) {
+		this.translog = translog;
+	}
+
+	public int getFacetCountCacheMaxMB() {
+		return facetCountCacheMaxMB;
+	}
+
+	public void setFacetCountCacheMaxMB(int facetCountCacheMaxMB) {
+		this.facetCountCacheMaxMB = facetCountCacheMaxMB;
+	}
+
+	public int getShardQueryCacheMaxMB() {
+		return shardQueryCacheMaxMB;
+	}
+
+	public void setShardQueryCacheMaxMB(int shardQueryCacheMaxMB) {
+		this.shardQueryCacheMaxMB = shardQueryCacheMaxMB;
+	}
+
+	public int getStatSketchMaxMB() {
+		return statSketchMaxMB;
+	}
+
+	public void setStatSketchMaxMB(int statSketchMaxMB) {
+		this.statSketchMaxMB = statSketchMaxMB;
+	}
+
 	@Override
 	public String toString() {
 		return "ZuliaConfig{" + "dataPath='" + dataPath + '\'' + ", cluster=" + cluster + ", clusterName='" + clusterName + '\'' + ", clusterStorageEngine='"
 				+ clusterStorageEngine + '\'' + ", s3=" + s3 + ", mongoServers=" + mongoServers + ", mongoConnection=" + mongoConnection + ", mongoAuth="
 				+ mongoAuth + ", serverAddress='" + serverAddress + '\'' + ", servicePort=" + servicePort + ", restPort=" + restPort + ", responseCompression="
-				+ responseCompression + ", rpcWorkers=" + rpcWorkers + '}';
+				+ responseCompression + ", rpcWorkers=" + rpcWorkers + ", searchThreads=" + searchThreads + ", indexingThreads="
+				+ indexingThreads + ", translog=" + translog + ", parsedQueryCacheSize=" + parsedQueryCacheSize + ", filterCacheMaxQueries="
+				+ filterCacheMaxQueries + ", filterCacheMaxMB=" + filterCacheMaxMB + ", statSketchMaxMB=" + statSketchMaxMB + ", facetCountCacheMaxMB="
+				+ facetCountCacheMaxMB + ", shardQueryCacheMaxMB=" + shardQueryCacheMaxMB + '}';
 	}
 }
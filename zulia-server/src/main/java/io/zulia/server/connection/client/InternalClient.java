@@ -1,7 +1,10 @@
 package io.zulia.server.connection.client;
 
+import io.grpc.Deadline;
 import io.zulia.message.ZuliaBase.Node;
 import io.zulia.message.ZuliaServiceOuterClass.*;
+import io.zulia.server.connection.client.handler.InternalBatchFetchHandler;
+import io.zulia.server.connection.client.handler.InternalBatchStoreHandler;
 import io.zulia.server.connection.client.handler.InternalClearHandler;
 import io.zulia.server.connection.client.handler.InternalCreateIndexAliasHandler;
 import io.zulia.server.connection.client.handler.InternalCreateOrUpdateIndexHandler;
@@ -28,8 +31,10 @@ public class InternalClient {
 	private final ConcurrentHashMap<String, GenericObjectPool<InternalRpcConnection>> internalConnectionPoolMap;
 	private final InternalQueryHandler internalQueryHandler;
 	private final InternalStoreHandler internalStoreHandler;
+	private final InternalBatchStoreHandler internalBatchStoreHandler;
 	private final InternalDeleteHandler internalDeleteHandler;
 	private final InternalFetchHandler internalFetchHandler;
+	private final InternalBatchFetchHandler internalBatchFetchHandler;
 	private final InternalGetNumberOfDocsHandler internalGetNumberOfDocsHandler;
 	private final InternalOptimizeHandler internalOptimizeHandler;
 	private final InternalGetFieldNamesHandler internalGetFieldNamesHandler;
@@ -47,8 +52,10 @@ public class InternalClient {
 
 		internalQueryHandler = new InternalQueryHandler(this);
 		internalStoreHandler = new InternalStoreHandler(this);
+		internalBatchStoreHandler = new InternalBatchStoreHandler(this);
 		internalDeleteHandler = new InternalDeleteHandler(this);
 		internalFetchHandler = new InternalFetchHandler(this);
+		internalBatchFetchHandler = new InternalBatchFetchHandler(this);
 		internalGetNumberOfDocsHandler = new InternalGetNumberOfDocsHandler(this);
 		internalOptimizeHandler = new InternalOptimizeHandler(this);
 		internalGetFieldNamesHandler = new InternalGetFieldNamesHandler(this);
@@ -146,10 +153,18 @@ public class InternalClient {
 		return internalQueryHandler.handleRequest(node, request);
 	}
 
+	public InternalQueryResponse executeQuery(Node node, InternalQueryRequest request, Deadline deadline) throws Exception {
+		return internalQueryHandler.handleRequest(node, request, deadline);
+	}
+
 	public StoreResponse executeStore(Node node, StoreRequest request) throws Exception {
 		return internalStoreHandler.handleRequest(node, request);
 	}
 
+	public BatchStoreResponse executeBatchStore(Node node, BatchStoreRequest request) throws Exception {
+		return internalBatchStoreHandler.handleRequest(node, request);
+	}
+
 	public DeleteResponse executeDelete(Node node, DeleteRequest request) throws Exception {
 		return internalDeleteHandler.handleRequest(node, request);
 	}
@@ -158,6 +173,14 @@ public class InternalClient {
 		return internalFetchHandler.handleRequest(node, request);
 	}
 
+	public BatchFetchResponse executeBatchFetch(Node node, BatchFetchRequest request) throws Exception {
+		return internalBatchFetchHandler.handleRequest(node, request);
+	}
+
+	public BatchFetchResponse executeBatchFetch(Node node, BatchFetchRequest request, Deadline deadline) throws Exception {
+		return internalBatchFetchHandler.handleRequest(node, request, deadline);
+	}
+
 	public GetNumberOfDocsResponse getNumberOfDocs(Node node, InternalGetNumberOfDocsRequest request) throws Exception {
 		return internalGetNumberOfDocsHandler.handleRequest(node, request);
 	}
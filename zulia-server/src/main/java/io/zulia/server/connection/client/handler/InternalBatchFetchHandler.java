@@ -0,0 +1,27 @@
+package io.zulia.server.connection.client.handler;
+
+import io.grpc.Deadline;
+import io.zulia.message.ZuliaServiceOuterClass;
+import io.zulia.server.connection.client.InternalClient;
+import io.zulia.server.connection.client.InternalRpcConnection;
+
+public class InternalBatchFetchHandler extends InternalRequestHandler<ZuliaServiceOuterClass.BatchFetchResponse, ZuliaServiceOuterClass.BatchFetchRequest> {
+	public InternalBatchFetchHandler(InternalClient internalClient) {
+		super(internalClient);
+	}
+
+	@Override
+	protected ZuliaServiceOuterClass.BatchFetchResponse getResponse(ZuliaServiceOuterClass.BatchFetchRequest batchFetchRequest,
+			InternalRpcConnection rpcConnection) {
+		return rpcConnection.getService().internalBatchFetch(batchFetchRequest);
+	}
+
+	@Override
+	protected ZuliaServiceOuterClass.BatchFetchResponse getResponse(ZuliaServiceOuterClass.BatchFetchRequest batchFetchRequest,
+			InternalRpcConnection rpcConnection, Deadline deadline) {
+		if (deadline != null) {
+			return rpcConnection.getService().withDeadline(deadline).internalBatchFetch(batchFetchRequest);
+		}
+		return getResponse(batchFetchRequest, rpcConnection);
+	}
+}
@@ -0,0 +1,18 @@
+package io.zulia.server.connection.client.handler;
+
+import io.zulia.message.ZuliaServiceOuterClass.BatchStoreRequest;
+import io.zulia.message.ZuliaServiceOuterClass.BatchStoreResponse;
+import io.zulia.server.connection.client.InternalClient;
+import io.zulia.server.connection.client.InternalRpcConnection;
+
+public class InternalBatchStoreHandler extends InternalRequestHandler<BatchStoreResponse, BatchStoreRequest> {
+	public InternalBatchStoreHandler(InternalClient internalClient) {
+		super(internalClient);
+	}
+
+	@Override
+	protected BatchStoreResponse getResponse(BatchStoreRequest batchStoreRequest, InternalRpcConnection rpcConnection) {
+		return rpcConnection.getService().internalBatchStore(batchStoreRequest);
+	}
+
+}
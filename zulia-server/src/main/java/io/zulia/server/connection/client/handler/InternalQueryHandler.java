@@ -1,5 +1,7 @@
 package io.zulia.server.connection.client.handler;
 
+import io.grpc.Deadline;
+
 import io.zulia.message.ZuliaServiceOuterClass.InternalQueryRequest;
 import io.zulia.message.ZuliaServiceOuterClass.InternalQueryResponse;
 import io.zulia.server.connection.client.InternalClient;
@@ -14,4 +16,12 @@ public class InternalQueryHandler extends InternalRequestHandler<InternalQueryRe
 	protected InternalQueryResponse getResponse(InternalQueryRequest queryRequest, InternalRpcConnection rpcConnection) {
 		return rpcConnection.getService().internalQuery(queryRequest);
 	}
+
+	@Override
+	protected InternalQueryResponse getResponse(InternalQueryRequest queryRequest, InternalRpcConnection rpcConnection, Deadline deadline) {
+		if (deadline != null) {
+			return rpcConnection.getService().withDeadline(deadline).internalQuery(queryRequest);
+		}
+		return getResponse(queryRequest, rpcConnection);
+	}
 }
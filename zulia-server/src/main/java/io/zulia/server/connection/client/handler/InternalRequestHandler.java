@@ -1,5 +1,6 @@
 package io.zulia.server.connection.client.handler;
 
+import io.grpc.Deadline;
 import io.grpc.Metadata;
 import io.grpc.StatusRuntimeException;
 import io.zulia.cache.MetaKeys;
@@ -16,16 +17,20 @@ public abstract class InternalRequestHandler<S, Q> {
 	}
 
 	public S handleRequest(Node node, Q q) throws Exception {
+		return handleRequest(node, q, null);
+	}
+
+	public S handleRequest(Node node, Q q, Deadline deadline) throws Exception {
 		InternalRpcConnection rpcConnection = null;
 
 		boolean valid = true;
 		try {
 			rpcConnection = internalClient.getInternalRpcConnection(node);
-			return getResponse(q, rpcConnection);
+			return getResponse(q, rpcConnection, deadline);
 		}
 		catch (StatusRuntimeException e) {
 			Metadata trailers = e.getTrailers();
-			if (trailers.containsKey(MetaKeys.ERROR_KEY)) {
+			if (trailers != null && trailers.containsKey(MetaKeys.ERROR_KEY)) {
 				throw new Exception(trailers.get(MetaKeys.ERROR_KEY));
 			}
 			else {
@@ -43,4 +48,11 @@ public abstract class InternalRequestHandler<S, Q> {
 
 	protected abstract S getResponse(Q q, InternalRpcConnection rpcConnection);
 
+	/**
+	 * Only requests that support a deadline need to override this, the deadline is ignored by default
+	 */
+	protected S getResponse(Q q, InternalRpcConnection rpcConnection, Deadline deadline) {
+		return getResponse(q, rpcConnection);
+	}
+
 }
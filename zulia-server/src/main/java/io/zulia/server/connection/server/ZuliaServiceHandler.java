@@ -12,12 +12,15 @@ public class ZuliaServiceHandler extends ZuliaServiceImplBase {
 	private final QueryServerRequest queryServerRequest;
 	private final StoreServerRequest storeServerRequest;
 	private final InternalStoreServerRequest internalStoreServerRequest;
+	private final BatchStoreServerRequest batchStoreServerRequest;
+	private final InternalBatchStoreServerRequest internalBatchStoreServerRequest;
 	private final DeleteServerRequest deleteServerRequest;
 	private final InternalDeleteServerRequest internalDeleteServerRequest;
 	private final BatchDeleteServerRequest batchDeleteServerRequest;
 	private final FetchServerRequest fetchServerServerRequest;
 	private final InternalFetchServerRequest internalFetchServerServerRequest;
 	private final BatchFetchServerRequest batchFetchServerRequest;
+	private final InternalBatchFetchServerRequest internalBatchFetchServerRequest;
 	private final CreateIndexServerRequest createIndexServerRequest;
 
 	private final UpdateIndexServerRequest updateIndexServerRequest;
@@ -49,12 +52,15 @@ public class ZuliaServiceHandler extends ZuliaServiceImplBase {
 		queryServerRequest = new QueryServerRequest(indexManager);
 		storeServerRequest = new StoreServerRequest(indexManager);
 		internalStoreServerRequest = new InternalStoreServerRequest(indexManager);
+		batchStoreServerRequest = new BatchStoreServerRequest(indexManager);
+		internalBatchStoreServerRequest = new InternalBatchStoreServerRequest(indexManager);
 		deleteServerRequest = new DeleteServerRequest(indexManager);
 		internalDeleteServerRequest = new InternalDeleteServerRequest(indexManager);
 		batchDeleteServerRequest = new BatchDeleteServerRequest(indexManager);
 		fetchServerServerRequest = new FetchServerRequest(indexManager);
 		internalFetchServerServerRequest = new InternalFetchServerRequest(indexManager);
 		batchFetchServerRequest = new BatchFetchServerRequest(indexManager);
+		internalBatchFetchServerRequest = new InternalBatchFetchServerRequest(indexManager);
 		createIndexServerRequest = new CreateIndexServerRequest(indexManager);
 		updateIndexServerRequest = new UpdateIndexServerRequest(indexManager);
 		internalCreateIndexServerRequest = new InternalCreateIndexServerRequest(indexManager);
@@ -101,6 +107,16 @@ public class ZuliaServiceHandler extends ZuliaServiceImplBase {
 		internalStoreServerRequest.handleRequest(request, responseObserver);
 	}
 
+	@Override
+	public StreamObserver<StoreRequest> batchStore(StreamObserver<StoreResponse> responseObserver) {
+		return batchStoreServerRequest.handleRequest(responseObserver);
+	}
+
+	@Override
+	public void internalBatchStore(BatchStoreRequest request, StreamObserver<BatchStoreResponse> responseObserver) {
+		internalBatchStoreServerRequest.handleRequest(request, responseObserver);
+	}
+
 	@Override
 	public void delete(DeleteRequest request, StreamObserver<DeleteResponse> responseObserver) {
 		deleteServerRequest.handleRequest(request, responseObserver);
@@ -131,6 +147,11 @@ public class ZuliaServiceHandler extends ZuliaServiceImplBase {
 		batchFetchServerRequest.handleRequest(request, responseObserver);
 	}
 
+	@Override
+	public void internalBatchFetch(BatchFetchRequest request, StreamObserver<BatchFetchResponse> responseObserver) {
+		internalBatchFetchServerRequest.handleRequest(request, responseObserver);
+	}
+
 	@Override
 	public void createIndex(CreateIndexRequest request, StreamObserver<CreateIndexResponse> responseObserver) {
 		createIndexServerRequest.handleRequest(request, responseObserver);
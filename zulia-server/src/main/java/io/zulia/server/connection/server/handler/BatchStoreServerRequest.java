@@ -0,0 +1,93 @@
+package io.zulia.server.connection.server.handler;
+
+import io.grpc.stub.StreamObserver;
+import io.zulia.message.ZuliaServiceOuterClass.StoreRequest;
+import io.zulia.message.ZuliaServiceOuterClass.StoreResponse;
+import io.zulia.server.index.ZuliaIndexManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handles a stream of store requests by buffering them into batches that are routed and indexed together.  A response for each document is streamed
+ * back as its batch completes
+ */
+public class BatchStoreServerRequest {
+
+	private final static Logger LOG = LoggerFactory.getLogger(BatchStoreServerRequest.class);
+
+	private static final int MAX_BATCH_DOCUMENTS = 1000;
+	private static final long MAX_BATCH_BYTES = 32L * 1024 * 1024;
+
+	private final ZuliaIndexManager indexManager;
+
+	public BatchStoreServerRequest(ZuliaIndexManager indexManager) {
+		this.indexManager = indexManager;
+	}
+
+	public StreamObserver<StoreRequest> handleRequest(StreamObserver<StoreResponse> responseObserver) {
+
+		return new StreamObserver<>() {
+
+			private final List<StoreRequest> batch = new ArrayList<>();
+			private long batchBytes;
+			private boolean failed;
+
+			@Override
+			public void onNext(StoreRequest storeRequest) {
+				if (failed) {
+					return;
+				}
+
+				batch.add(storeRequest);
+				batchBytes += storeRequest.getSerializedSize();
+				if (batch.size() >= MAX_BATCH_DOCUMENTS || batchBytes >= MAX_BATCH_BYTES) {
+					storeBatch();
+				}
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				LOG.warn("Batch store cancelled by client with <" + batch.size() + "> documents not stored: " + t.getMessage());
+				batch.clear();
+			}
+
+			@Override
+			public void onCompleted() {
+				if (failed) {
+					return;
+				}
+
+				if (!batch.isEmpty()) {
+					storeBatch();
+				}
+				if (!failed) {
+					responseObserver.onCompleted();
+				}
+			}
+
+			private void storeBatch() {
+				try {
+					for (StoreResponse storeResponse : indexManager.batchStore(batch)) {
+						responseObserver.onNext(storeResponse);
+					}
+				}
+				catch (Exception e) {
+					failed = true;
+					responseObserver.onError(e);
+					BatchStoreServerRequest.this.onError(e);
+				}
+				finally {
+					batch.clear();
+					batchBytes = 0;
+				}
+			}
+		};
+	}
+
+	protected void onError(Exception e) {
+		LOG.error("Failed to handle batch store", e);
+	}
+}
@@ -0,0 +1,26 @@
+package io.zulia.server.connection.server.handler;
+
+import io.zulia.message.ZuliaServiceOuterClass.BatchFetchRequest;
+import io.zulia.message.ZuliaServiceOuterClass.BatchFetchResponse;
+import io.zulia.server.index.ZuliaIndexManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class InternalBatchFetchServerRequest extends ServerRequestHandler<BatchFetchResponse, BatchFetchRequest> {
+
+	private final static Logger LOG = LoggerFactory.getLogger(InternalBatchFetchServerRequest.class);
+
+	public InternalBatchFetchServerRequest(ZuliaIndexManager indexManager) {
+		super(indexManager);
+	}
+
+	@Override
+	protected BatchFetchResponse handleCall(ZuliaIndexManager indexManager, BatchFetchRequest request) throws Exception {
+		return indexManager.internalBatchFetch(request);
+	}
+
+	@Override
+	protected void onError(Throwable e) {
+		LOG.error("Failed to handle internal batch fetch", e);
+	}
+}
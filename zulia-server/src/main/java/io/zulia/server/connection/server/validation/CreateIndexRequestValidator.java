@@ -102,6 +102,45 @@ public class CreateIndexRequestValidator implements DefaultValidator<CreateIndex
 			indexSettings.setCommitToWarmTime(1);
 		}
 
+		if (indexSettings.getSearchSliceMaxDocs() < 0) {
+			throw new IllegalArgumentException("Search Slice Max Docs must be positive or zero to use for default values");
+		}
+		else if (indexSettings.getSearchSliceMaxDocs() == 0) {
+			indexSettings.setSearchSliceMaxDocs(250_000);
+		}
+
+		if (indexSettings.getSearchSliceMaxSegments() < 0) {
+			throw new IllegalArgumentException("Search Slice Max Segments must be positive or zero to use for default values");
+		}
+		else if (indexSettings.getSearchSliceMaxSegments() == 0) {
+			indexSettings.setSearchSliceMaxSegments(5);
+		}
+
+		if (indexSettings.getRefreshIntervalMS() < 0) {
+			throw new IllegalArgumentException("Refresh Interval must be positive or zero to use for default values");
+		}
+		else if (indexSettings.getRefreshIntervalMS() == 0) {
+			indexSettings.setRefreshIntervalMS(1000);
+		}
+
+		if (indexSettings.getFilterCacheMinFrequency() < 0) {
+			throw new IllegalArgumentException("Filter Cache Min Frequency must be positive or zero to use for default values");
+		}
+
+		if (indexSettings.getShardCommitMB() < 0) {
+			throw new IllegalArgumentException("Shard Commit MB must be positive or zero to use for default values");
+		}
+		else if (indexSettings.getShardCommitMB() == 0) {
+			indexSettings.setShardCommitMB(256);
+		}
+
+		if (indexSettings.getMaxTimeWithoutCommit() < 0) {
+			throw new IllegalArgumentException("Max Time Without Commit must be positive or zero to use for default values");
+		}
+		else if (indexSettings.getMaxTimeWithoutCommit() == 0) {
+			indexSettings.setMaxTimeWithoutCommit(60);
+		}
+
 		HashSet<String> storedFields = new HashSet<>();
 
 		Set<String> analyzerNames = new HashSet<>(indexSettings.getAnalyzerSettingsList().stream().map(ZuliaIndex.AnalyzerSettings::getName).toList());
@@ -144,6 +183,13 @@ public class CreateIndexRequestValidator implements DefaultValidator<CreateIndex
 				sorts.add(sortAs.getSortFieldName());
 			}
 
+			for (ZuliaIndex.FacetAs facetAs : builder.getFacetAsList()) {
+				if (facetAs.getDocValues() && facetAs.getHierarchical()) {
+					throw new IllegalArgumentException("Facet <" + facetAs.getFacetName() + "> for stored field <" + builder.getStoredFieldName()
+							+ "> can not be both hierarchical and doc values");
+				}
+			}
+
 		}
 
 		HashSet<String> searchLabels = new HashSet<>();
@@ -42,11 +42,43 @@ public class QueryRequestValidator implements DefaultValidator<QueryRequest> {
 			if (statRequestBuilder.getPrecision() < 0.0) {
 				throw new IllegalArgumentException("Percentile precision must be a number > 0.0");
 			}
+			if (statRequestBuilder.getPrecision() > 0.0 && statRequestBuilder.getMaxSketchBins() == 0) {
+				statRequestBuilder.setMaxSketchBins(2048);
+			}
 			if (statRequestBuilder.getPercentilesList().stream().anyMatch(value -> (0.0 > value || value > 1.0))) {
 				throw new IllegalArgumentException("Percentiles must be in the range [0.0, 1.0]");
 			}
 		}
 
+		for (ZuliaQuery.CardinalityRequest.Builder cardinalityRequestBuilder : facetRequestBuilder.getCardinalityRequestBuilderList()) {
+			if (cardinalityRequestBuilder.getPrecision() == 0) {
+				cardinalityRequestBuilder.setPrecision(14);
+			}
+			if (cardinalityRequestBuilder.getPrecision() < 4 || cardinalityRequestBuilder.getPrecision() > 18) {
+				throw new IllegalArgumentException("Cardinality precision must be in the range [4, 18]");
+			}
+		}
+
+		for (ZuliaQuery.HistogramRequest.Builder histogramRequestBuilder : facetRequestBuilder.getHistogramRequestBuilderList()) {
+			if (!(histogramRequestBuilder.getInterval() > 0)) {
+				throw new IllegalArgumentException("Histogram interval must be a number > 0");
+			}
+			if (histogramRequestBuilder.getMaxBuckets() == 0) {
+				histogramRequestBuilder.setMaxBuckets(10000);
+			}
+		}
+
+		for (ZuliaQuery.RangeRequest.Builder rangeRequestBuilder : facetRequestBuilder.getRangeRequestBuilderList()) {
+			if (rangeRequestBuilder.getRangeCount() == 0) {
+				throw new IllegalArgumentException("Range request for field <" + rangeRequestBuilder.getNumericField() + "> must have at least one range");
+			}
+		}
+
+		if (facetRequestBuilder.getSampleSize() > 0 && (facetRequestBuilder.getCardinalityRequestCount() > 0 || facetRequestBuilder.getHistogramRequestCount() > 0
+				|| facetRequestBuilder.getRangeRequestCount() > 0)) {
+			throw new IllegalArgumentException("Facet sampling is only supported with count and stat requests");
+		}
+
 		for (CountRequest.Builder countRequestBuilder : facetRequestBuilder.getCountRequestBuilderList()) {
 
 			if (countRequestBuilder.getMaxFacets() == 0) {
@@ -0,0 +1,63 @@
+package io.zulia.server.index;
+
+import io.zulia.util.ZuliaThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Node wide threads that convert stored documents to Lucene documents, shared by all shards.  The queue is bounded and a full queue runs the conversion
+ * on the submitting thread, which slows the writers that are ahead instead of growing the queue
+ */
+public class DocumentConversionPool {
+
+	private static final int QUEUE_SIZE_PER_THREAD = 16;
+
+	private final ThreadPoolExecutor executor;
+	private final int shardWindow;
+
+	public DocumentConversionPool(int threads) {
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(threads * QUEUE_SIZE_PER_THREAD),
+				new ZuliaThreadFactory("conversion"), (conversion, pool) -> {
+			if (pool.isShutdown()) {
+				// fails the future instead of discarding it so the writer waiting on it does not hang
+				throw new RejectedExecutionException("Document conversion pool is shut down");
+			}
+			conversion.run();
+		});
+		// a shard can convert ahead of its writer on every thread with one more document waiting for each
+		this.shardWindow = threads * 2;
+	}
+
+	public <T> Future<T> submit(Callable<T> conversion) {
+		return executor.submit(conversion);
+	}
+
+	/**
+	 * @return the number of documents a shard converts ahead of the index writer
+	 */
+	public int getShardWindow() {
+		return shardWindow;
+	}
+
+	public int getQueueDepth() {
+		return executor.getQueue().size();
+	}
+
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	public void shutdown() {
+		for (Runnable queued : executor.shutdownNow()) {
+			if (queued instanceof Future<?> conversion) {
+				conversion.cancel(false);
+			}
+		}
+	}
+
+}
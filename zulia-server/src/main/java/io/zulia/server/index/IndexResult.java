@@ -0,0 +1,17 @@
+package io.zulia.server.index;
+
+import java.util.Set;
+
+/**
+ * The result of indexing documents in a shard
+ *
+ * @param sequenceNumber   the sequence number to wait on for the documents to be committed or visible, including the earlier writes of skipped documents
+ * @param skippedUniqueIds the unique ids of the documents not indexed because the live document has the same content
+ */
+public record IndexResult(long sequenceNumber, Set<String> skippedUniqueIds) {
+
+	public boolean isSkipped(String uniqueId) {
+		return skippedUniqueIds.contains(uniqueId);
+	}
+
+}
@@ -0,0 +1,15 @@
+package io.zulia.server.index;
+
+/**
+ * The result of indexing a batch of documents.  A document that fails to convert is not indexed and does not stop the documents after it
+ *
+ * @param sequenceNumber the sequence number to wait on for the documents of the batch to be committed or visible, -1 if none were written
+ * @param failures       for each document of the batch by position, the exception the document failed with or null
+ */
+public record IndexedDocuments(long sequenceNumber, Exception[] failures) {
+
+	public Exception getFailure(int position) {
+		return failures[position];
+	}
+
+}
@@ -2,6 +2,7 @@ package io.zulia.server.index;
 
 import com.google.common.base.Splitter;
 import com.google.common.primitives.Floats;
+import com.google.protobuf.UnsafeByteOperations;
 import com.koloboke.collect.map.IntObjMap;
 import com.koloboke.collect.map.hash.HashIntObjMaps;
 import com.koloboke.collect.set.IntSet;
@@ -20,6 +21,7 @@ import io.zulia.server.index.field.FloatFieldIndexer;
 import io.zulia.server.index.field.IntFieldIndexer;
 import io.zulia.server.index.field.LongFieldIndexer;
 import io.zulia.server.index.field.StringFieldIndexer;
+import io.zulia.server.search.aggregation.ordinal.OrdinalBuffer;
 import io.zulia.util.BooleanUtil;
 import io.zulia.util.ZuliaUtil;
 import io.zulia.util.ZuliaVersion;
@@ -42,10 +44,9 @@ import org.apache.lucene.util.NumericUtils;
 import org.xerial.snappy.Snappy;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -54,7 +55,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.IntConsumer;
 
 public class ShardDocumentIndexer {
 
@@ -74,7 +74,7 @@ public class ShardDocumentIndexer {
 		this.idSortField = FieldTypeUtil.getSortField(ZuliaFieldConstants.ID_SORT_FIELD, FieldConfig.FieldType.STRING);
 	}
 
-	public Document getIndexDocument(String uniqueId, long timestamp, DocumentContainer mongoDocument, DocumentContainer metadata,
+	public Document getIndexDocument(String uniqueId, long timestamp, byte[] contentHash, DocumentContainer mongoDocument, DocumentContainer metadata,
 			DirectoryTaxonomyWriter taxoWriter) throws Exception {
 		Document luceneDocument = new Document();
 		luceneDocument.add(new StringField(ZuliaFieldConstants.ID_FIELD, uniqueId, Field.Store.NO));
@@ -83,7 +83,7 @@ public class ShardDocumentIndexer {
 
 		boolean compressionEnabled = indexConfig.isCompressionEnabled();
 		ZuliaBase.IdInfo idInfo = ZuliaBase.IdInfo.newBuilder().setId(uniqueId).setTimestamp(timestamp).setMajorVersion(majorVersion)
-				.setMinorVersion(minorVersion).setCompressedDoc(compressionEnabled).build();
+				.setMinorVersion(minorVersion).setCompressedDoc(compressionEnabled).setContentHash(UnsafeByteOperations.unsafeWrap(contentHash)).build();
 
 		byte[] idInfoBytes = idInfo.toByteArray();
 
@@ -128,11 +128,23 @@ public class ShardDocumentIndexer {
 
 		IntObjMap<IntSet> facetDimToOrdinal = HashIntObjMaps.newMutableMap();
 
-		int fieldOrdinalCount = 0;
 		for (String facetField : facetFieldToFacetLabels.keySet()) {
 
 			Set<FacetLabel> facetLabels = facetFieldToFacetLabels.get(facetField);
 
+			// flat facets stored as doc values skip the taxonomy entirely
+			if (indexConfig.isDocValuesFacet(facetField)) {
+				String docValuesField = ZuliaFieldConstants.FACET_DOC_VALUES_PREFIX + facetField;
+				for (FacetLabel facetLabel : facetLabels) {
+					for (int i = 1; i <= facetLabel.length; i++) {
+						luceneDocument.add(
+								new StringField(ZuliaFieldConstants.FACET_DRILL_DOWN_FIELD, FacetsConfig.pathToString(facetLabel.components, i), Field.Store.NO));
+					}
+					luceneDocument.add(new SortedSetDocValuesField(docValuesField, new BytesRef(facetLabel.components[1])));
+				}
+				continue;
+			}
+
 			int dimOridinal = dimToOrdinal.computeIfAbsent(facetField, s -> {
 				try {
 					return taxoWriter.addCategory(new FacetLabel(facetField));
@@ -162,23 +174,19 @@ public class ShardDocumentIndexer {
 				}
 
 			}
-
-			fieldOrdinalCount += fieldOrdinals.size();
 		}
 
-		TreeSet<Integer> orderedDimOrdinals = new TreeSet<>(facetDimToOrdinal.keySet());
-
-		ByteBuffer byteBuffer = ByteBuffer.allocate(((orderedDimOrdinals.size() * 2) + fieldOrdinalCount) * 4);
+		int[] orderedDimOrdinals = facetDimToOrdinal.keySet().toIntArray();
+		Arrays.sort(orderedDimOrdinals);
 
-		IntBuffer ordinalBuffer = byteBuffer.asIntBuffer();
-		for (Integer dimOrdinal : orderedDimOrdinals) {
-			IntSet fieldOrdinals = facetDimToOrdinal.get(dimOrdinal);
-			ordinalBuffer.put(dimOrdinal);
-			ordinalBuffer.put(fieldOrdinals.size());
-			fieldOrdinals.forEach((IntConsumer) ordinalBuffer::put);
+		int[][] orderedOrdinalsForDims = new int[orderedDimOrdinals.length][];
+		for (int i = 0; i < orderedDimOrdinals.length; i++) {
+			int[] fieldOrdinals = facetDimToOrdinal.get(orderedDimOrdinals[i]).toIntArray();
+			Arrays.sort(fieldOrdinals);
+			orderedOrdinalsForDims[i] = fieldOrdinals;
 		}
 
-		luceneDocument.add(new BinaryDocValuesField(ZuliaFieldConstants.FACET_STORAGE, new BytesRef(byteBuffer.array())));
+		luceneDocument.add(new BinaryDocValuesField(ZuliaFieldConstants.FACET_STORAGE, OrdinalBuffer.encode(orderedDimOrdinals, orderedOrdinalsForDims)));
 	}
 
 	private void addIndexingForStoredField(Document luceneDocument, String storedFieldName, FieldConfig fc, FieldConfig.FieldType fieldType, Object o)
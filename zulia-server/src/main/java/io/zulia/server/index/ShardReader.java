@@ -1,8 +1,5 @@
 package io.zulia.server.index;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import io.zulia.ZuliaFieldConstants;
 import io.zulia.message.ZuliaBase;
 import io.zulia.message.ZuliaIndex;
@@ -17,22 +14,35 @@ import io.zulia.server.analysis.similarity.TFSimilarity;
 import io.zulia.server.config.IndexFieldInfo;
 import io.zulia.server.config.ServerIndexConfig;
 import io.zulia.server.config.SortFieldInfo;
-import io.zulia.server.exceptions.WrappedCheckedException;
 import io.zulia.server.field.FieldTypeUtil;
 import io.zulia.server.search.QueryCacheKey;
+import io.zulia.server.search.SegmentKey;
+import io.zulia.server.search.SegmentQueryResult;
 import io.zulia.server.search.ShardQuery;
+import io.zulia.server.search.ShardQueryCache;
+import io.zulia.server.search.ShardQueryCacheEntry;
+import io.zulia.server.search.ShardQueryTimeout;
+import io.zulia.server.search.FacetCountCache;
 import io.zulia.server.search.aggregation.AggregationHandler;
+import io.zulia.server.search.aggregation.stats.StatSketchBudget;
+import io.zulia.server.search.aggregation.stats.StatSketchReservation;
+import io.zulia.server.util.BytesRefUtil;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsCollectorManager;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
 import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyReader;
 import org.apache.lucene.index.BinaryDocValues;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.*;
 import org.apache.lucene.search.highlight.Fragmenter;
 import org.apache.lucene.search.highlight.QueryScorer;
@@ -49,32 +59,56 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 
 public class ShardReader implements AutoCloseable {
 
 	private final static Logger LOG = LoggerFactory.getLogger(ShardReader.class);
+
+	private final static int DEFAULT_SLICE_MAX_DOCS = 250_000;
+	private final static int DEFAULT_SLICE_MAX_SEGMENTS = 5;
+
+	// same growth as lucene's TimeLimitingBulkScorer, check often at first then back off as the segment keeps matching
+	private final static int TIMEOUT_CHECK_INTERVAL = 100;
+
 	private final DirectoryReader indexReader;
 	private final DirectoryTaxonomyReader taxoReader;
 	private final ServerIndexConfig indexConfig;
 	private final String indexName;
 	private final int shardNumber;
 	private final ZuliaPerFieldAnalyzer zuliaPerFieldAnalyzer;
-	private final Cache<QueryCacheKey, ZuliaQuery.ShardQueryResponse.Builder> queryResultCache;
-	private final Cache<QueryCacheKey, ZuliaQuery.ShardQueryResponse.Builder> pinnedQueryResultCache;
+	private final ExecutorService searchPool;
+	private final int searchThreads;
+	private final ShardQueryCache shardQueryCache;
+	private final QueryCache filterCache;
+	private final QueryCachingPolicy filterCachingPolicy;
+	private final FacetCountCache facetCountCache;
+	private final StatSketchBudget statSketchBudget;
 
 	public ShardReader(int shardNumber, DirectoryReader indexReader, DirectoryTaxonomyReader taxoReader, ServerIndexConfig indexConfig,
-			ZuliaPerFieldAnalyzer zuliaPerFieldAnalyzer) {
+			ZuliaPerFieldAnalyzer zuliaPerFieldAnalyzer, ExecutorService searchPool, int searchThreads, ShardQueryCache shardQueryCache,
+			QueryCache filterCache, QueryCachingPolicy filterCachingPolicy, FacetCountCache facetCountCache, StatSketchBudget statSketchBudget) {
 		this.shardNumber = shardNumber;
 		this.indexReader = indexReader;
 		this.taxoReader = taxoReader;
 		this.indexConfig = indexConfig;
 		this.indexName = indexConfig.getIndexName();
 		this.zuliaPerFieldAnalyzer = zuliaPerFieldAnalyzer;
-		this.queryResultCache = Caffeine.newBuilder().maximumSize(indexConfig.getIndexSettings().getShardQueryCacheSize()).recordStats().build();
-		this.pinnedQueryResultCache = Caffeine.newBuilder().recordStats().build();
+		this.searchPool = searchPool;
+		this.searchThreads = searchThreads;
+		this.shardQueryCache = shardQueryCache;
+		this.filterCache = filterCache;
+		this.filterCachingPolicy = filterCachingPolicy;
+		this.facetCountCache = facetCountCache;
+		this.statSketchBudget = statSketchBudget;
 	}
 
 	@Override
@@ -137,61 +171,92 @@ public class ShardReader implements AutoCloseable {
 
 		QueryCacheKey queryCacheKey = shardQuery.getQueryCacheKey(); //null when don't cache is set
 		if (queryCacheKey != null) {
-			ZuliaQuery.ShardQueryResponse.Builder pinnedCacheHit;
 
-			// Check if the search is existing in the pinned cache, so we can indicate it is cached. Otherwise, compute it in the cache so multiple identical requests are deduplicated
-			pinnedCacheHit = pinnedQueryResultCache.getIfPresent(queryCacheKey);
-			if (pinnedCacheHit != null) {
-				return pinnedCacheHit.setCached(true).setPinned(true).build();
+			// Check if the search is existing in the pinned cache, so we can indicate it is pinned
+			ShardQueryCacheEntry pinnedCacheEntry = shardQueryCache.getPinnedIfPresent(queryCacheKey);
+			if (pinnedCacheEntry != null) {
+				return getShardQueryResponse(shardQuery, queryCacheKey, pinnedCacheEntry, true);
 			}
 
 			if (queryCacheKey.isPinned()) {
-				return getShardQueryResponseAndCache(queryCacheKey, shardQuery, pinnedQueryResultCache);
+				return getShardQueryResponse(shardQuery, queryCacheKey, shardQueryCache.getOrCreatePinned(queryCacheKey), true);
 			}
 
 			int segmentQueryCacheMaxAmount = indexConfig.getIndexSettings().getShardQueryCacheMaxAmount();
 			boolean useCache = (segmentQueryCacheMaxAmount >= shardQuery.getAmount());
 			if (useCache) {
+				return getShardQueryResponse(shardQuery, queryCacheKey, shardQueryCache.getOrCreate(queryCacheKey), false);
+			}
+		}
 
-				// Check if the search is existing, so we can indicate it is cached. Otherwise, compute it in the cache so multiple identical requests are deduplicated
-				ZuliaQuery.ShardQueryResponse.Builder cachedResult = queryResultCache.getIfPresent(queryCacheKey);
-				if (cachedResult != null) {
-					return cachedResult.setCached(true).build();
-				}
+		return getShardQueryResponse(shardQuery, null).build();
 
-				return getShardQueryResponseAndCache(queryCacheKey, shardQuery, queryResultCache);
-			}
+	}
+
+	private ZuliaQuery.ShardQueryResponse getShardQueryResponse(ShardQuery shardQuery, QueryCacheKey queryCacheKey, ShardQueryCacheEntry cacheEntry,
+			boolean pinned) throws Exception {
+		IndexReader.CacheKey readerKey = indexReader.getReaderCacheHelper().getKey();
+
+		ZuliaQuery.ShardQueryResponse cachedResponse = cacheEntry.getResponse(readerKey);
+		if (cachedResponse != null) {
+			return cachedResponse.toBuilder().setCached(true).setPinned(pinned).build();
 		}
 
-		return getShardQueryResponseAndCache(shardQuery).build();
+		// identical requests running at the same time search concurrently, each reuses the segment results already in the entry
+		ZuliaQuery.ShardQueryResponse shardQueryResponse = getShardQueryResponse(shardQuery, cacheEntry).build();
+		if (!shardQueryResponse.getTimedOut()) {
+			cacheEntry.setResponse(readerKey, shardQueryResponse);
+		}
+		shardQueryCache.updateWeight(queryCacheKey, cacheEntry, pinned);
+		return shardQueryResponse;
+	}
 
+	/**
+	 * @return the keys of the segments of this reader, the results of other segments can be dropped from the query cache
+	 */
+	public Set<SegmentKey> getSegmentKeys() {
+		Set<SegmentKey> segmentKeys = new HashSet<>();
+		for (LeafReaderContext leaf : indexReader.leaves()) {
+			SegmentKey segmentKey = SegmentKey.of(leaf);
+			if (segmentKey != null) {
+				segmentKeys.add(segmentKey);
+			}
+		}
+		return segmentKeys;
 	}
 
-	private ZuliaQuery.ShardQueryResponse getShardQueryResponseAndCache(QueryCacheKey queryCacheKey, ShardQuery shardQuery,
-			Cache<QueryCacheKey, ZuliaQuery.ShardQueryResponse.Builder> queryResultCache) throws Exception {
-		try {
-			return queryResultCache.get(queryCacheKey, key -> {
-				try {
-					return getShardQueryResponseAndCache(shardQuery);
-				}
-				catch (Exception e) {
-					throw new WrappedCheckedException(e);
-				}
-			}).build();
+	private ZuliaQuery.ShardQueryResponse.Builder getShardQueryResponse(ShardQuery shardQuery, ShardQueryCacheEntry cacheEntry) throws Exception {
+		// the sketches of the query are given back to the node wide budget once the response is built
+		try (StatSketchReservation sketchReservation = statSketchBudget.newReservation()) {
+			return getShardQueryResponse(shardQuery, cacheEntry, sketchReservation);
 		}
-		catch (WrappedCheckedException e) {
-			throw e.getCause();
+	}
+
+	private boolean hasTaxonomyFacetSketches(ZuliaQuery.FacetRequest facetRequest) {
+		for (ZuliaQuery.StatRequest statRequest : facetRequest.getStatRequestList()) {
+			String facetLabel = statRequest.getFacetField().getLabel();
+			if (statRequest.getPrecision() > 0 && !facetLabel.isEmpty() && !indexConfig.isDocValuesFacet(facetLabel)) {
+				return true;
+			}
 		}
+		return false;
 	}
 
-	private ZuliaQuery.ShardQueryResponse.Builder getShardQueryResponseAndCache(ShardQuery shardQuery) throws Exception {
+	private ZuliaQuery.ShardQueryResponse.Builder getShardQueryResponse(ShardQuery shardQuery, ShardQueryCacheEntry cacheEntry,
+			StatSketchReservation sketchReservation) throws Exception {
 		PerFieldSimilarityWrapper similarity = getSimilarity(shardQuery.getSimilarityOverrideMap());
 
-		IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+		IndexSearcher indexSearcher = getIndexSearcher();
 
 		//similarity is only set query time, indexing time all these similarities are the same
 		indexSearcher.setSimilarity(similarity);
 
+		ShardQueryTimeout queryTimeout = null;
+		if (shardQuery.getDeadline() != null) {
+			queryTimeout = new ShardQueryTimeout(shardQuery.getDeadline());
+			indexSearcher.setTimeout(queryTimeout);
+		}
+
 		if (shardQuery.isDebug()) {
 			LOG.info("Lucene Query for index <" + indexName + "> segment <" + shardNumber + ">: " + shardQuery.getQuery());
 			LOG.info("Rewritten Query for index <" + indexName + "> segment <" + shardNumber + ">: " + indexSearcher.rewrite(shardQuery.getQuery()));
@@ -199,49 +264,56 @@ public class ShardReader implements AutoCloseable {
 
 		int hasMoreAmount = shardQuery.getAmount() + 1;
 
-		TopDocsCollector<?> collector;
-
 		boolean sorting = (shardQuery.getSortRequest() != null) && !shardQuery.getSortRequest().getFieldSortList().isEmpty();
 
 		List<SortMeta> sortMetas = new ArrayList<>();
 
+		Sort sort = null;
 		if (sorting) {
-			collector = getSortingCollector(shardQuery.getSortRequest(), hasMoreAmount, shardQuery.getAfter(shardNumber));
+			sort = getSort(shardQuery.getSortRequest());
 			for (ZuliaQuery.FieldSort fieldSort : shardQuery.getSortRequest().getFieldSortList()) {
 				SortFieldInfo sortFieldInfo = indexConfig.getSortFieldInfo(fieldSort.getSortField());
 				sortMetas.add(new SortMeta(fieldSort.getSortField(), sortFieldInfo != null ? sortFieldInfo.getFieldType() : null));
 			}
 		}
-		else {
-			collector = TopScoreDocCollector.create(hasMoreAmount, shardQuery.getAfter(shardNumber), Integer.MAX_VALUE);
-		}
 
 		ZuliaQuery.ShardQueryResponse.Builder shardQueryReponseBuilder = ZuliaQuery.ShardQueryResponse.newBuilder();
 
 		ZuliaQuery.FacetRequest facetRequest = shardQuery.getFacetRequest();
 
-		List<ZuliaQuery.CountRequest> countRequestList = facetRequest.getCountRequestList();
-		List<ZuliaQuery.StatRequest> statRequestList = facetRequest.getStatRequestList();
+		boolean hasFacetRequests = facetRequest.getCountRequestCount() > 0;
+		boolean hasStatRequests = facetRequest.getStatRequestCount() > 0;
+		boolean hasCardinalityRequests = facetRequest.getCardinalityRequestCount() > 0;
+		boolean hasBucketRequests = facetRequest.getHistogramRequestCount() > 0 || facetRequest.getRangeRequestCount() > 0;
+
+		// a sample depends on the hits of the whole shard so sampled aggregations are not cached per segment, the whole response still is.  Partials
+		// cached per segment would need a sketch for every facet value of a facet stat with percentiles, so those are only deferred to the top facets
+		// and cached as a whole response as well
+		boolean searchSegments = cacheEntry != null && facetRequest.getSampleSize() == 0 && !hasTaxonomyFacetSketches(facetRequest);
 
-		boolean hasFacetRequests = !countRequestList.isEmpty();
-		boolean hasStatRequests = !statRequestList.isEmpty();
+		AggregationHandler aggregationHandler = null;
+		if (hasFacetRequests || hasStatRequests || hasCardinalityRequests || hasBucketRequests) {
+			aggregationHandler = new AggregationHandler(taxoReader, facetRequest, indexConfig, sketchReservation, !searchSegments);
+		}
 
-		if (hasFacetRequests || hasStatRequests) {
-			FacetsCollector facetsCollector = new FacetsCollector();
-			indexSearcher.search(shardQuery.getQuery(), MultiCollector.wrap(collector, facetsCollector));
-			handleAggregations(shardQueryReponseBuilder, statRequestList, countRequestList, facetsCollector);
+		TopDocs topDocs;
+		if (searchSegments) {
+			topDocs = searchSegments(indexSearcher, shardQuery, sort, hasMoreAmount, aggregationHandler, cacheEntry, queryTimeout);
 		}
 		else {
-			indexSearcher.search(shardQuery.getQuery(), collector);
+			topDocs = search(indexSearcher, shardQuery, sort, hasMoreAmount, aggregationHandler, queryTimeout);
+		}
+
+		if (aggregationHandler != null) {
+			handleAggregations(shardQueryReponseBuilder, facetRequest, aggregationHandler);
 		}
 
-		TopDocs topDocs = collector.topDocs();
 		ScoreDoc[] results = topDocs.scoreDocs;
-		if (sorting && (collector.scoreMode() != ScoreMode.COMPLETE_NO_SCORES)) {
+		if (sorting && sort.needsScores()) {
 			TopFieldCollector.populateScores(topDocs.scoreDocs, indexSearcher, shardQuery.getQuery());
 		}
 
-		int totalHits = collector.getTotalHits();
+		int totalHits = (int) topDocs.totalHits.value;
 
 		shardQueryReponseBuilder.setTotalHits(totalHits);
 
@@ -268,6 +340,11 @@ public class ShardReader implements AutoCloseable {
 		shardQueryReponseBuilder.setIndexName(indexName);
 		shardQueryReponseBuilder.setShardNumber(shardNumber);
 
+		if (queryTimeout != null && queryTimeout.isTimedOut()) {
+			LOG.warn("Query for index <" + indexName + "> shard <" + shardNumber + "> timed out, returning partial results");
+			shardQueryReponseBuilder.setTimedOut(true);
+		}
+
 		if (!analysisHandlerList.isEmpty()) {
 			for (AnalysisHandler analysisHandler : analysisHandlerList) {
 				ZuliaQuery.AnalysisResult segmentAnalysisResult = analysisHandler.getShardResult();
@@ -279,12 +356,200 @@ public class ShardReader implements AutoCloseable {
 		return shardQueryReponseBuilder;
 	}
 
-	private void handleAggregations(ZuliaQuery.ShardQueryResponse.Builder shardQueryReponseBuilder, List<ZuliaQuery.StatRequest> statRequestList,
-			List<ZuliaQuery.CountRequest> countRequestList, FacetsCollector facetsCollector) throws IOException {
+	private TopDocs search(IndexSearcher indexSearcher, ShardQuery shardQuery, Sort sort, int hasMoreAmount, AggregationHandler aggregationHandler,
+			ShardQueryTimeout queryTimeout) throws IOException {
+		CollectorManager<? extends TopDocsCollector<?>, ? extends TopDocs> collectorManager;
+		if (sort != null) {
+			collectorManager = TopFieldCollector.createSharedManager(sort, hasMoreAmount, shardQuery.getAfter(shardNumber), Integer.MAX_VALUE);
+		}
+		else {
+			collectorManager = TopScoreDocCollector.createSharedManager(hasMoreAmount, shardQuery.getAfter(shardNumber), Integer.MAX_VALUE);
+		}
+
+		if (aggregationHandler != null) {
+			Object[] collectorResults = indexSearcher.search(shardQuery.getQuery(), new MultiCollectorManager(collectorManager, new FacetsCollectorManager()));
+			FacetsCollector facetsCollector = (FacetsCollector) collectorResults[1];
+			useFacetCountCache(aggregationHandler, shardQuery.getQuery(), queryTimeout);
+			aggregationHandler.sumValues(facetsCollector.getMatchingDocs(), searchPool, searchThreads);
+			return (TopDocs) collectorResults[0];
+		}
+
+		return indexSearcher.search(shardQuery.getQuery(), collectorManager);
+	}
+
+	/**
+	 * Searches only the segments that are not in the cache entry and merges the segment results.  Top docs of segments are only reused when the order
+	 * does not depend on scores, scores are relative to the statistics of the whole index that change as segments are added.  Segments that are cut
+	 * short by the timeout are not cached.
+	 */
+	private TopDocs searchSegments(IndexSearcher indexSearcher, ShardQuery shardQuery, Sort sort, int hasMoreAmount, AggregationHandler aggregationHandler,
+			ShardQueryCacheEntry cacheEntry, ShardQueryTimeout queryTimeout) throws Exception {
+
+		boolean needsScores = (sort == null) || sort.needsScores();
+		Query query = indexSearcher.rewrite(shardQuery.getQuery());
+		Weight weight = indexSearcher.createWeight(query, needsScores ? ScoreMode.COMPLETE : ScoreMode.COMPLETE_NO_SCORES, 1);
+		FieldDoc after = shardQuery.getAfter(shardNumber);
+
+		List<LeafReaderContext> leaves = indexReader.leaves();
+		SegmentQueryResult[] segmentResults = new SegmentQueryResult[leaves.size()];
+		Set<SegmentKey> segmentKeys = new HashSet<>();
+		List<Callable<Void>> segmentSearches = new ArrayList<>();
+
+		for (int i = 0; i < leaves.size(); i++) {
+			LeafReaderContext leaf = leaves.get(i);
+			SegmentKey segmentKey = SegmentKey.of(leaf);
+			SegmentQueryResult cachedResult = null;
+			if (segmentKey != null) {
+				segmentKeys.add(segmentKey);
+				cachedResult = cacheEntry.getSegmentResult(segmentKey);
+			}
+
+			if (cachedResult != null && cachedResult.topDocs() != null) {
+				shardQueryCache.recordSegmentHit();
+				segmentResults[i] = cachedResult;
+				continue;
+			}
+
+			shardQueryCache.recordSegmentMiss();
+			int segmentIndex = i;
+			AggregationHandler cachedAggregation = cachedResult != null ? cachedResult.aggregationHandler() : null;
+			segmentSearches.add(() -> {
+				boolean needsAggregation = (aggregationHandler != null) && (cachedAggregation == null);
+				SegmentQueryResult segmentResult = searchSegment(weight, leaf, sort, after, hasMoreAmount,
+						needsAggregation ? aggregationHandler.createPartial() : null, shardQuery.getQuery(), queryTimeout);
+				if (needsAggregation) {
+					segmentResult.aggregationHandler().compact();
+				}
+				else {
+					segmentResult = new SegmentQueryResult(segmentResult.topDocs(), cachedAggregation);
+				}
+				segmentResults[segmentIndex] = segmentResult;
+				if (segmentKey != null && (queryTimeout == null || !queryTimeout.isTimedOut())) {
+					cacheEntry.putSegmentResult(segmentKey, new SegmentQueryResult(needsScores ? null : segmentResult.topDocs(), segmentResult.aggregationHandler()));
+				}
+				return null;
+			});
+		}
+
+		if (segmentSearches.size() == 1) {
+			segmentSearches.getFirst().call();
+		}
+		else if (!segmentSearches.isEmpty()) {
+			for (Future<Void> segmentSearch : searchPool.invokeAll(segmentSearches)) {
+				try {
+					segmentSearch.get();
+				}
+				catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof Exception) {
+						throw (Exception) cause;
+					}
+					throw e;
+				}
+			}
+		}
+
+		cacheEntry.retainSegments(segmentKeys);
 
-		AggregationHandler aggregationHandler = new AggregationHandler(taxoReader, facetsCollector, statRequestList, countRequestList, indexConfig);
+		TopDocs[] segmentTopDocs = sort != null ? new TopFieldDocs[leaves.size()] : new TopDocs[leaves.size()];
+		for (int i = 0; i < leaves.size(); i++) {
+			segmentTopDocs[i] = rebase(segmentResults[i].topDocs(), leaves.get(i).docBase);
+			if (aggregationHandler != null) {
+				aggregationHandler.merge(segmentResults[i].aggregationHandler());
+			}
+		}
 
-		for (ZuliaQuery.CountRequest countRequest : countRequestList) {
+		if (sort != null) {
+			return TopDocs.merge(sort, hasMoreAmount, (TopFieldDocs[]) segmentTopDocs);
+		}
+		return TopDocs.merge(hasMoreAmount, segmentTopDocs);
+	}
+
+	private SegmentQueryResult searchSegment(Weight weight, LeafReaderContext leaf, Sort sort, FieldDoc after, int hasMoreAmount,
+			AggregationHandler segmentAggregation, Query query, ShardQueryTimeout queryTimeout) throws IOException {
+		TopDocsCollector<?> topDocsCollector;
+		if (sort != null) {
+			topDocsCollector = TopFieldCollector.create(sort, hasMoreAmount, after, Integer.MAX_VALUE);
+		}
+		else {
+			topDocsCollector = TopScoreDocCollector.create(hasMoreAmount, after, Integer.MAX_VALUE);
+		}
+
+		FacetsCollector facetsCollector = segmentAggregation != null ? new FacetsCollector() : null;
+		Collector collector = facetsCollector != null ? MultiCollector.wrap(topDocsCollector, facetsCollector) : topDocsCollector;
+
+		try {
+			LeafCollector leafCollector = collector.getLeafCollector(leaf);
+			BulkScorer bulkScorer = weight.bulkScorer(leaf);
+			if (bulkScorer != null) {
+				try {
+					score(bulkScorer, leafCollector, leaf.reader().getLiveDocs(), queryTimeout);
+				}
+				catch (CollectionTerminatedException e) {
+					// collection was terminated prematurely, continue with the result collected
+				}
+			}
+			leafCollector.finish();
+		}
+		catch (CollectionTerminatedException e) {
+			// there is no doc of interest in this segment
+		}
+
+		if (facetsCollector != null) {
+			useFacetCountCache(segmentAggregation, query, queryTimeout);
+			segmentAggregation.sumValues(facetsCollector.getMatchingDocs());
+		}
+
+		return new SegmentQueryResult(rebase(topDocsCollector.topDocs(), -leaf.docBase), segmentAggregation);
+	}
+
+	private void useFacetCountCache(AggregationHandler aggregationHandler, Query query, ShardQueryTimeout queryTimeout) {
+		// matching docs cut short by the timeout are not complete counts of the segments
+		if (FacetCountCache.isCacheable(query) && (queryTimeout == null || !queryTimeout.isTimedOut())) {
+			aggregationHandler.setFacetCountCache(facetCountCache, query);
+		}
+	}
+
+	private static void score(BulkScorer bulkScorer, LeafCollector leafCollector, Bits liveDocs, ShardQueryTimeout queryTimeout) throws IOException {
+		if (queryTimeout == null) {
+			bulkScorer.score(leafCollector, liveDocs);
+			return;
+		}
+
+		int interval = TIMEOUT_CHECK_INTERVAL;
+		int min = 0;
+		while (min != DocIdSetIterator.NO_MORE_DOCS) {
+			if (queryTimeout.shouldExit()) {
+				return;
+			}
+			int max = (int) Math.min((long) min + interval, DocIdSetIterator.NO_MORE_DOCS);
+			min = bulkScorer.score(leafCollector, liveDocs, min, max);
+			interval = (int) Math.min(Integer.MAX_VALUE, interval + (interval >> 1));
+		}
+	}
+
+	private static TopDocs rebase(TopDocs topDocs, int docBase) {
+		ScoreDoc[] scoreDocs = new ScoreDoc[topDocs.scoreDocs.length];
+		for (int i = 0; i < scoreDocs.length; i++) {
+			ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+			if (scoreDoc instanceof FieldDoc fieldDoc) {
+				scoreDocs[i] = new FieldDoc(fieldDoc.doc + docBase, fieldDoc.score, fieldDoc.fields);
+			}
+			else {
+				scoreDocs[i] = new ScoreDoc(scoreDoc.doc + docBase, scoreDoc.score);
+			}
+		}
+
+		if (topDocs instanceof TopFieldDocs topFieldDocs) {
+			return new TopFieldDocs(topFieldDocs.totalHits, scoreDocs, topFieldDocs.fields);
+		}
+		return new TopDocs(topDocs.totalHits, scoreDocs);
+	}
+
+	private void handleAggregations(ZuliaQuery.ShardQueryResponse.Builder shardQueryReponseBuilder, ZuliaQuery.FacetRequest facetRequest,
+			AggregationHandler aggregationHandler) throws IOException {
+
+		for (ZuliaQuery.CountRequest countRequest : facetRequest.getCountRequestList()) {
 
 			ZuliaQuery.Facet facetField = countRequest.getFacetField();
 			String label = facetField.getLabel();
@@ -297,6 +562,14 @@ public class ShardReader implements AutoCloseable {
 
 			int numOfFacets = getFacetCount(countRequest.getShardFacets(), countRequest.getMaxFacets());
 
+			if (countRequest.getRefineFacetCount() > 0) {
+				// answered with the original count request so the coordinator can combine it with the first round
+				facetGroup = aggregationHandler.getFacetCounts(countRequest.getRefineFacetList(), label, facetField.getPathList().toArray(new String[0]));
+				facetGroup.setCountRequest(countRequest.toBuilder().clearRefineFacet());
+				shardQueryReponseBuilder.addFacetGroup(facetGroup);
+				continue;
+			}
+
 			if (indexConfig.isHierarchicalFacet(label)) {
 				facetGroup = aggregationHandler.getTopChildren(numOfFacets, label, facetField.getPathList().toArray(new String[0]));
 			}
@@ -308,7 +581,7 @@ public class ShardReader implements AutoCloseable {
 
 		}
 
-		for (ZuliaQuery.StatRequest statRequest : statRequestList) {
+		for (ZuliaQuery.StatRequest statRequest : facetRequest.getStatRequestList()) {
 
 			ZuliaQuery.StatGroupInternal.Builder statGroupBuilder = ZuliaQuery.StatGroupInternal.newBuilder();
 			statGroupBuilder.setStatRequest(statRequest);
@@ -341,6 +614,13 @@ public class ShardReader implements AutoCloseable {
 			shardQueryReponseBuilder.addStatGroup(statGroupBuilder.build());
 		}
 
+		shardQueryReponseBuilder.addAllCardinality(aggregationHandler.getCardinalities());
+		shardQueryReponseBuilder.addAllHistogramResult(aggregationHandler.getHistograms());
+		shardQueryReponseBuilder.addAllRangeResult(aggregationHandler.getRanges());
+		if (aggregationHandler.getSampleRate() < 1) {
+			shardQueryReponseBuilder.setSampleRate(aggregationHandler.getSampleRate());
+		}
+
 	}
 
 	private List<AnalysisHandler> getAnalysisHandlerList(List<ZuliaQuery.AnalysisRequest> analysisRequests) {
@@ -470,9 +750,25 @@ public class ShardReader implements AutoCloseable {
 		return numOfFacets;
 	}
 
-	private TopDocsCollector<?> getSortingCollector(ZuliaQuery.SortRequest sortRequest, int hasMoreAmount, FieldDoc after) throws Exception {
+	private IndexSearcher getIndexSearcher() {
+		int sliceMaxDocs = indexConfig.getIndexSettings().getSearchSliceMaxDocs();
+		int sliceMaxSegments = indexConfig.getIndexSettings().getSearchSliceMaxSegments();
+
+		IndexSearcher indexSearcher = new IndexSearcher(indexReader, searchPool) {
+			@Override
+			protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+				return slices(leaves, sliceMaxDocs != 0 ? sliceMaxDocs : DEFAULT_SLICE_MAX_DOCS,
+						sliceMaxSegments != 0 ? sliceMaxSegments : DEFAULT_SLICE_MAX_SEGMENTS);
+			}
+		};
+		// non-scoring clauses (FILTER, MUST_NOT) are cached per segment in the node wide filter cache
+		indexSearcher.setQueryCache(filterCache);
+		indexSearcher.setQueryCachingPolicy(filterCachingPolicy);
+		return indexSearcher;
+	}
+
+	private Sort getSort(ZuliaQuery.SortRequest sortRequest) throws Exception {
 		List<SortField> sortFields = new ArrayList<>();
-		TopDocsCollector<?> collector;
 		for (ZuliaQuery.FieldSort fs : sortRequest.getFieldSortList()) {
 			boolean reverse = ZuliaQuery.FieldSort.Direction.DESCENDING.equals(fs.getDirection());
 
@@ -546,10 +842,7 @@ public class ShardReader implements AutoCloseable {
 
 		}
 
-		Sort sort = new Sort(sortFields.toArray(new SortField[0]));
-
-		collector = TopFieldCollector.create(sort, hasMoreAmount, after, Integer.MAX_VALUE);
-		return collector;
+		return new Sort(sortFields.toArray(new SortField[0]));
 	}
 
 	public ZuliaBase.ResultDocument getSourceDocument(String uniqueId, ZuliaQuery.FetchType resultFetchType, List<String> fieldsToReturn,
@@ -574,6 +867,39 @@ public class ShardReader implements AutoCloseable {
 
 	}
 
+	/**
+	 * @return the id info of the live document with the unique id or null if there is none
+	 */
+	public ZuliaBase.IdInfo getIdInfo(String uniqueId) throws IOException {
+		BytesRef idTerm = new BytesRef(uniqueId);
+		for (LeafReaderContext leaf : indexReader.leaves()) {
+			LeafReader leafReader = leaf.reader();
+			Terms terms = leafReader.terms(ZuliaFieldConstants.ID_FIELD);
+			if (terms == null) {
+				continue;
+			}
+
+			TermsEnum termsEnum = terms.iterator();
+			if (!termsEnum.seekExact(idTerm)) {
+				continue;
+			}
+
+			Bits leafLiveDocs = leafReader.getLiveDocs();
+			PostingsEnum postings = termsEnum.postings(null, PostingsEnum.NONE);
+			int docId;
+			while ((docId = postings.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+				if (leafLiveDocs == null || leafLiveDocs.get(docId)) {
+					BinaryDocValues idDocValues = leafReader.getBinaryDocValues(ZuliaFieldConstants.STORED_ID_FIELD);
+					if (idDocValues != null && idDocValues.advanceExact(docId)) {
+						return ZuliaBase.IdInfo.parseFrom(BytesRefUtil.getByteArray(idDocValues.binaryValue()));
+					}
+					return null;
+				}
+			}
+		}
+		return null;
+	}
+
 	public int docFreq(String field, String term) throws IOException {
 		return indexReader.docFreq(new Term(field, term));
 	}
@@ -616,7 +942,8 @@ public class ShardReader implements AutoCloseable {
 				tr = taxoReader;
 			}
 
-			return new ShardReader(shardNumber, r, tr, indexConfig, zuliaPerFieldAnalyzer);
+			return new ShardReader(shardNumber, r, tr, indexConfig, zuliaPerFieldAnalyzer, searchPool, searchThreads, shardQueryCache, filterCache,
+					filterCachingPolicy, facetCountCache, statSketchBudget);
 		}
 
 	}
@@ -659,17 +986,4 @@ public class ShardReader implements AutoCloseable {
 
 		}
 	}
-
-	public ZuliaBase.ShardCacheStats getShardCacheStats() {
-		return ZuliaBase.ShardCacheStats.newBuilder().setGeneralCache(getCacheStats(queryResultCache)).setPinnedCache(getCacheStats(pinnedQueryResultCache))
-				.build();
-	}
-
-	private static ZuliaBase.CacheStats getCacheStats(Cache<QueryCacheKey, ZuliaQuery.ShardQueryResponse.Builder> cache) {
-		CacheStats stats = cache.stats();
-
-		return ZuliaBase.CacheStats.newBuilder().setEstimatedSize(cache.estimatedSize()).setHitCount(stats.hitCount()).setMissCount(stats.missCount())
-				.setLoadSuccessCount(stats.loadSuccessCount()).setLoadFailureCount(stats.loadFailureCount()).setTotalLoadTime(stats.totalLoadTime())
-				.setEvictionCount(stats.evictionCount()).build();
-	}
 }
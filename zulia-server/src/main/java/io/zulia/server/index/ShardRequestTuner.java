@@ -0,0 +1,52 @@
+package io.zulia.server.index;
+
+import io.zulia.server.config.ServerIndexConfig;
+
+/**
+ * Adapts the amount requested from each shard in the first round of a query to how often the shards of an index come back short.  The configured
+ * request factor is the starting point, the factor grows quickly when shards are short and shrinks slowly while the short rate stays below the target.
+ */
+public class ShardRequestTuner {
+
+	private final static double TARGET_SHORT_RATE = 0.01;
+	private final static double SHORT_RATE_WEIGHT = 0.05;
+	private final static double GROW_FACTOR = 1.5;
+	private final static double SHRINK_FACTOR = 0.98;
+
+	private final ServerIndexConfig indexConfig;
+	private final int numberOfShards;
+
+	private double requestFactor;
+	private double shortRate;
+
+	public ShardRequestTuner(ServerIndexConfig indexConfig, int numberOfShards) {
+		this.indexConfig = indexConfig;
+		this.numberOfShards = numberOfShards;
+		this.requestFactor = indexConfig.getIndexSettings().getRequestFactor();
+	}
+
+	public synchronized int getShardAmount(int amount) {
+		int shardAmount = (int) (((amount / numberOfShards) + indexConfig.getIndexSettings().getMinShardRequest()) * requestFactor);
+		// a single shard never contributes more than the full amount
+		return Math.min(shardAmount, amount);
+	}
+
+	public synchronized void recordQuery(boolean isShort) {
+		shortRate = (1 - SHORT_RATE_WEIGHT) * shortRate + (isShort ? SHORT_RATE_WEIGHT : 0);
+		if (isShort) {
+			requestFactor = Math.min(requestFactor * GROW_FACTOR, numberOfShards);
+		}
+		else if (shortRate < TARGET_SHORT_RATE) {
+			requestFactor = Math.max(requestFactor * SHRINK_FACTOR, 1);
+		}
+	}
+
+	public synchronized void reset() {
+		requestFactor = indexConfig.getIndexSettings().getRequestFactor();
+		shortRate = 0;
+	}
+
+	public synchronized double getRequestFactor() {
+		return requestFactor;
+	}
+}
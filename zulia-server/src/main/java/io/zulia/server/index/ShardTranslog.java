@@ -0,0 +1,328 @@
+package io.zulia.server.index;
+
+import com.google.protobuf.ByteString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append only log of the changes to a shard since its last commit.  Each change is logged once the index writer accepted it and the log is synced before
+ * the request returns, writers that sync at the same time share one fsync.  A commit starts a new generation and deletes the generations it covers, so only the
+ * changes after the last commit are replayed when the shard is opened.  Concurrent writers can log in a different order than the index writer applied their
+ * changes, so each change is logged with the sequence number the index writer assigned it and changes are replayed in sequence number order
+ */
+public class ShardTranslog implements Closeable {
+
+	private final static Logger LOG = LoggerFactory.getLogger(ShardTranslog.class);
+
+	private static final String GENERATION_PREFIX = "translog-";
+	private static final String GENERATION_SUFFIX = ".tlog";
+
+	private static final byte STORE = 1;
+	private static final byte DELETE = 2;
+	private static final byte DELETE_ALL = 3;
+
+	public interface OperationHandler {
+
+		void store(String uniqueId, long timestamp, DocumentContainer mongoDocument, DocumentContainer metadata) throws Exception;
+
+		void delete(String uniqueId) throws Exception;
+
+		void deleteAll() throws Exception;
+	}
+
+	private final Path translogPath;
+	private final Object syncLock = new Object();
+
+	private long generation;
+	private FileChannel channel;
+	private DataOutputStream output;
+	private long writtenOperations;
+	private volatile long syncedOperations;
+
+	public ShardTranslog(Path translogPath) throws IOException {
+		this.translogPath = translogPath;
+		Files.createDirectories(translogPath);
+
+		List<Long> generations = getGenerations();
+		openGeneration(generations.isEmpty() ? 1 : generations.getLast() + 1);
+	}
+
+	private void openGeneration(long generation) throws IOException {
+		this.generation = generation;
+		this.channel = FileChannel.open(getGenerationPath(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		this.output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+	}
+
+	private Path getGenerationPath(long generation) {
+		return translogPath.resolve(GENERATION_PREFIX + generation + GENERATION_SUFFIX);
+	}
+
+	private List<Long> getGenerations() throws IOException {
+		List<Long> generations = new ArrayList<>();
+		try (Stream<Path> files = Files.list(translogPath)) {
+			for (Path file : files.toList()) {
+				String fileName = file.getFileName().toString();
+				if (fileName.startsWith(GENERATION_PREFIX) && fileName.endsWith(GENERATION_SUFFIX)) {
+					generations.add(Long.parseLong(fileName.substring(GENERATION_PREFIX.length(), fileName.length() - GENERATION_SUFFIX.length())));
+				}
+			}
+		}
+		Collections.sort(generations);
+		return generations;
+	}
+
+	/**
+	 * @param sequenceNumber the sequence number the index writer returned for the change, sequence numbers are only ordered within one index writer
+	 */
+	public void logStore(long sequenceNumber, String uniqueId, long timestamp, ByteString mongoDocument, ByteString metadata) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(uniqueId.length() + mongoDocument.size() + metadata.size() + 40);
+		DataOutputStream operation = new DataOutputStream(bytes);
+		operation.writeByte(STORE);
+		operation.writeLong(sequenceNumber);
+		operation.writeLong(timestamp);
+		operation.writeUTF(uniqueId);
+		operation.writeInt(mongoDocument.size());
+		mongoDocument.writeTo(operation);
+		operation.writeInt(metadata.size());
+		metadata.writeTo(operation);
+		append(bytes.toByteArray());
+	}
+
+	public void logDelete(long sequenceNumber, String uniqueId) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(uniqueId.length() + 16);
+		DataOutputStream operation = new DataOutputStream(bytes);
+		operation.writeByte(DELETE);
+		operation.writeLong(sequenceNumber);
+		operation.writeUTF(uniqueId);
+		append(bytes.toByteArray());
+	}
+
+	public void logDeleteAll(long sequenceNumber) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(9);
+		DataOutputStream operation = new DataOutputStream(bytes);
+		operation.writeByte(DELETE_ALL);
+		operation.writeLong(sequenceNumber);
+		append(bytes.toByteArray());
+	}
+
+	private synchronized void append(byte[] operation) throws IOException {
+		CRC32 checksum = new CRC32();
+		checksum.update(operation);
+
+		output.writeInt(operation.length);
+		output.writeInt((int) checksum.getValue());
+		output.write(operation);
+		writtenOperations++;
+	}
+
+	/**
+	 * Syncs every operation logged so far to disk.  Returns without an fsync if another writer already synced the operations
+	 */
+	public void sync() throws IOException {
+		long operations;
+		synchronized (this) {
+			operations = writtenOperations;
+		}
+
+		if (syncedOperations >= operations) {
+			return;
+		}
+
+		synchronized (syncLock) {
+			if (syncedOperations >= operations) {
+				return;
+			}
+
+			FileChannel toSync;
+			long toMark;
+			synchronized (this) {
+				output.flush();
+				toSync = channel;
+				toMark = writtenOperations;
+			}
+			// appends continue while the fsync runs and are synced by the next writer
+			toSync.force(false);
+			syncedOperations = toMark;
+		}
+	}
+
+	/**
+	 * Starts a new generation.  The caller must make sure every operation logged so far has been applied to the index writer before committing it
+	 *
+	 * @return the new generation, the generations before it can be deleted once the commit finishes
+	 */
+	public long roll() throws IOException {
+		synchronized (syncLock) {
+			synchronized (this) {
+				output.flush();
+				channel.force(false);
+				output.close();
+				syncedOperations = writtenOperations;
+
+				openGeneration(generation + 1);
+				return generation;
+			}
+		}
+	}
+
+	/**
+	 * @return the generation operations are logged to
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+	public void deleteBefore(long generation) throws IOException {
+		for (Long existing : getGenerations()) {
+			if (existing < generation) {
+				Files.deleteIfExists(getGenerationPath(existing));
+			}
+		}
+	}
+
+	private record LoggedOperation(long sequenceNumber, byte[] operation, Path generationPath) {
+
+	}
+
+	/**
+	 * Replays the generations that were not deleted by a commit before the translog was opened, in the order the index writer applied them.  The generations
+	 * replayed must all come from one index writer, which the shard guarantees by committing or deleting them once replayed.  A partial or corrupt
+	 * operation at the end of a generation was never acknowledged and is skipped with the rest of that generation.  An operation the index rejects is logged
+	 * and skipped so it can not keep the shard from loading
+	 *
+	 * @return the number of operations replayed
+	 */
+	public long replay(OperationHandler operationHandler) throws Exception {
+		List<LoggedOperation> loggedOperations = new ArrayList<>();
+		for (Long existing : getGenerations()) {
+			if (existing >= generation) {
+				continue;
+			}
+
+			Path generationPath = getGenerationPath(existing);
+			long generationSize = Files.size(generationPath);
+			try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(generationPath)))) {
+				byte[] operation;
+				while ((operation = readOperation(input, generationPath, generationSize)) != null) {
+					loggedOperations.add(new LoggedOperation(getSequenceNumber(operation), operation, generationPath));
+				}
+			}
+		}
+
+		// the sort is stable so operations logged with the same sequence number keep the order they were logged in
+		loggedOperations.sort(Comparator.comparingLong(LoggedOperation::sequenceNumber));
+
+		long operations = 0;
+		for (LoggedOperation loggedOperation : loggedOperations) {
+			try {
+				applyOperation(loggedOperation.operation(), operationHandler);
+				operations++;
+			}
+			catch (IllegalArgumentException e) {
+				LOG.error("Skipping operation rejected by the index in translog <" + loggedOperation.generationPath() + ">: " + e.getMessage());
+			}
+		}
+		return operations;
+	}
+
+	private static long getSequenceNumber(byte[] operation) throws IOException {
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(operation));
+		input.readByte();
+		return input.readLong();
+	}
+
+	private static byte[] readOperation(DataInputStream input, Path generationPath, long generationSize) throws IOException {
+		int length;
+		try {
+			length = input.readInt();
+		}
+		catch (EOFException e) {
+			return null;
+		}
+
+		try {
+			int expectedChecksum = input.readInt();
+			if (length < 0 || length > generationSize) {
+				LOG.warn("Ignoring corrupt operation of length <" + length + "> at the end of translog <" + generationPath + ">");
+				return null;
+			}
+
+			byte[] operation = new byte[length];
+			input.readFully(operation);
+
+			CRC32 checksum = new CRC32();
+			checksum.update(operation);
+			if ((int) checksum.getValue() != expectedChecksum) {
+				LOG.warn("Ignoring operation with an invalid checksum at the end of translog <" + generationPath + ">");
+				return null;
+			}
+			return operation;
+		}
+		catch (EOFException e) {
+			LOG.warn("Ignoring partial operation at the end of translog <" + generationPath + ">");
+			return null;
+		}
+	}
+
+	private static void applyOperation(byte[] operation, OperationHandler operationHandler) throws Exception {
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(operation));
+		byte type = input.readByte();
+		// the sequence number was only needed to order the operations
+		input.readLong();
+		if (type == STORE) {
+			long timestamp = input.readLong();
+			String uniqueId = input.readUTF();
+			DocumentContainer mongoDocument = new DocumentContainer(readBytes(input));
+			DocumentContainer metadata = new DocumentContainer(readBytes(input));
+			operationHandler.store(uniqueId, timestamp, mongoDocument, metadata);
+		}
+		else if (type == DELETE) {
+			operationHandler.delete(input.readUTF());
+		}
+		else if (type == DELETE_ALL) {
+			operationHandler.deleteAll();
+		}
+		else {
+			throw new IOException("Unknown translog operation type <" + type + ">");
+		}
+	}
+
+	private static byte[] readBytes(DataInputStream input) throws IOException {
+		byte[] bytes = new byte[input.readInt()];
+		input.readFully(bytes);
+		return bytes;
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (syncLock) {
+			synchronized (this) {
+				output.flush();
+				channel.force(false);
+				output.close();
+			}
+		}
+	}
+
+}
@@ -1,8 +1,14 @@
 package io.zulia.server.index;
 
+import com.google.protobuf.ByteString;
 import io.zulia.ZuliaFieldConstants;
+import io.zulia.message.ZuliaBase.ResultDocument;
 import io.zulia.server.analysis.ZuliaPerFieldAnalyzer;
 import io.zulia.server.config.ServerIndexConfig;
+import io.zulia.server.search.FacetCountCache;
+import io.zulia.server.search.ShardQueryCache;
+import io.zulia.server.search.aggregation.stats.StatSketchBudget;
+import io.zulia.server.util.ContentHashUtil;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyReader;
 import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter;
@@ -12,6 +18,8 @@ import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.KeepOnlyLastCommitDeletionPolicy;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.QueryCache;
+import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.MMapDirectory;
 import org.apache.lucene.store.NRTCachingDirectory;
@@ -20,25 +28,42 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class ShardWriteManager {
 
 	private final static Logger LOG = LoggerFactory.getLogger(ShardWriteManager.class);
 	private final ZuliaPerFieldAnalyzer zuliaPerFieldAnalyzer;
 	private final ShardDocumentIndexer shardDocumentIndexer;
+	private final DocumentConversionPool documentConversionPool;
 	private final ServerIndexConfig indexConfig;
 	private final int shardNumber;
 	private final String indexName;
-	private final AtomicLong counter;
+	private final AtomicLong uncommittedDocs;
+	private final AtomicLong uncommittedBytes;
+	private volatile Long firstUncommittedChange;
+	private volatile long committedSequenceNumber;
 	private Long lastCommit;
 	private Long lastChange;
 	private Long lastWarm;
 	private IndexWriter indexWriter;
 	private DirectoryTaxonomyWriter taxoWriter;
+	private final ShardTranslog translog;
+	// held shared while a change is applied and logged, and exclusively to start a translog generation so a commit covers every change logged before it
+	private final ReadWriteLock translogLock;
 
-	public ShardWriteManager(int shardNumber, Path pathToIndex, Path pathToTaxoIndex, ServerIndexConfig indexConfig,
-			ZuliaPerFieldAnalyzer zuliaPerFieldAnalyzer) throws IOException {
+	/**
+	 * @param pathToTranslog the directory of the write-ahead log of the shard or null to only rely on commits for durability
+	 */
+	public ShardWriteManager(int shardNumber, Path pathToIndex, Path pathToTaxoIndex, Path pathToTranslog, ServerIndexConfig indexConfig,
+			ZuliaPerFieldAnalyzer zuliaPerFieldAnalyzer, DocumentConversionPool documentConversionPool) throws Exception {
 
 		this.shardNumber = shardNumber;
 		this.zuliaPerFieldAnalyzer = zuliaPerFieldAnalyzer;
@@ -46,8 +71,11 @@ public class ShardWriteManager {
 		this.indexName = indexConfig.getIndexName();
 
 		this.shardDocumentIndexer = new ShardDocumentIndexer(indexConfig);
+		this.documentConversionPool = documentConversionPool;
 
-		this.counter = new AtomicLong();
+		this.uncommittedDocs = new AtomicLong();
+		this.uncommittedBytes = new AtomicLong();
+		this.firstUncommittedChange = null;
 		this.lastCommit = null;
 		this.lastChange = null;
 		this.lastWarm = null;
@@ -57,6 +85,45 @@ public class ShardWriteManager {
 
 		updateIndexSettings();
 
+		this.translogLock = new ReentrantReadWriteLock();
+		if (pathToTranslog != null) {
+			this.translog = new ShardTranslog(pathToTranslog);
+			replayTranslog();
+		}
+		else {
+			this.translog = null;
+		}
+
+	}
+
+	private void replayTranslog() throws Exception {
+		long operations = translog.replay(new ShardTranslog.OperationHandler() {
+
+			@Override
+			public void store(String uniqueId, long timestamp, DocumentContainer mongoDocument, DocumentContainer metadata) throws Exception {
+				byte[] contentHash = ContentHashUtil.getContentHash(indexConfig, mongoDocument, metadata);
+				updateDocument(uniqueId, shardDocumentIndexer.getIndexDocument(uniqueId, timestamp, contentHash, mongoDocument, metadata, taxoWriter));
+			}
+
+			@Override
+			public void delete(String uniqueId) throws IOException {
+				indexWriter.deleteDocuments(new Term(ZuliaFieldConstants.ID_FIELD, uniqueId));
+			}
+
+			@Override
+			public void deleteAll() throws IOException {
+				indexWriter.deleteAll();
+			}
+		});
+
+		if (operations > 0) {
+			LOG.info("Replayed <" + operations + "> operations from the translog of shard <" + shardNumber + "> for index <" + indexName + ">");
+			commit();
+		}
+		else {
+			// sequence numbers restart with each index writer so generations of an earlier writer must not be replayed with the ones of this writer
+			translog.deleteBefore(translog.getGeneration());
+		}
 	}
 
 	public int getShardNumber() {
@@ -92,6 +159,9 @@ public class ShardWriteManager {
 	}
 
 	public void close() throws IOException {
+		if (translog != null) {
+			translog.close();
+		}
 		if (indexWriter != null) {
 			Directory directory = indexWriter.getDirectory();
 
@@ -112,23 +182,79 @@ public class ShardWriteManager {
 		}
 	}
 
-	public ShardReader createShardReader() throws IOException {
+	public ShardReader createShardReader(ExecutorService searchPool, int searchThreads, ShardQueryCache shardQueryCache, QueryCache filterCache,
+			QueryCachingPolicy filterCachingPolicy, FacetCountCache facetCountCache, StatSketchBudget statSketchBudget) throws IOException {
 		DirectoryReader indexReader = DirectoryReader.open(indexWriter);
 		DirectoryTaxonomyReader taxoReader = new DirectoryTaxonomyReader(taxoWriter);
 		taxoReader.setCacheSize(128000);
-		return new ShardReader(shardNumber, indexReader, taxoReader, indexConfig, zuliaPerFieldAnalyzer);
+		return new ShardReader(shardNumber, indexReader, taxoReader, indexConfig, zuliaPerFieldAnalyzer, searchPool, searchThreads, shardQueryCache,
+				filterCache, filterCachingPolicy, facetCountCache, statSketchBudget);
 	}
 
-	public void commit() throws IOException {
-		LOG.info("Committing shard <" + shardNumber + "> for index <" + indexName + ">");
+	/**
+	 * Commits the index and taxonomy.  Changes made while the commit runs are counted toward the next commit
+	 */
+	public synchronized void commit() throws IOException {
+		long docs = uncommittedDocs.get();
+		long bytes = uncommittedBytes.get();
+		LOG.info("Committing shard <" + shardNumber + "> for index <" + indexName + "> with <" + docs + "> changes of <" + bytes + "> bytes");
 
 		long currentTime = System.currentTimeMillis();
-		indexWriter.commit();
+		firstUncommittedChange = null;
+		long translogGeneration = rollTranslog();
+		// the taxonomy is committed first so the committed index never references ordinals missing from the committed taxonomy
 		taxoWriter.commit();
+		long sequenceNumber = indexWriter.commit();
+		if (translog != null) {
+			translog.deleteBefore(translogGeneration);
+		}
 
+		uncommittedDocs.addAndGet(-docs);
+		uncommittedBytes.addAndGet(-bytes);
+		if (sequenceNumber > committedSequenceNumber) {
+			committedSequenceNumber = sequenceNumber;
+		}
 		lastCommit = currentTime;
 	}
 
+	private long rollTranslog() throws IOException {
+		if (translog == null) {
+			return 0;
+		}
+
+		translogLock.writeLock().lock();
+		try {
+			return translog.roll();
+		}
+		finally {
+			translogLock.writeLock().unlock();
+		}
+	}
+
+	public long getCommittedSequenceNumber() {
+		return committedSequenceNumber;
+	}
+
+	/**
+	 * @return true if the uncommitted changes reached the document count, byte size or age that triggers a background commit or the shard is idle
+	 * with uncommitted changes
+	 */
+	public boolean needsCommit() {
+		if (uncommittedDocs.get() >= indexConfig.getIndexSettings().getShardCommitInterval()) {
+			return true;
+		}
+		if (uncommittedBytes.get() >= indexConfig.getShardCommitBytes()) {
+			return true;
+		}
+
+		Long firstUncommittedChange = this.firstUncommittedChange;
+		if (firstUncommittedChange != null && (System.currentTimeMillis() - firstUncommittedChange) >= indexConfig.getMaxTimeWithoutCommitMS()) {
+			return true;
+		}
+
+		return indexConfig.getIndexSettings().getIdleTimeWithoutCommit() != 0 && needsIdleCommit();
+	}
+
 	public boolean needsIdleCommit() {
 		long currentTime = System.currentTimeMillis();
 
@@ -179,12 +305,21 @@ public class ShardWriteManager {
 		lastWarm = System.currentTimeMillis();
 	}
 
-	public boolean markedChangedCheckIfCommitNeeded() {
-		lastChange = System.currentTimeMillis();
-
-		long count = counter.incrementAndGet();
-		return (count % indexConfig.getIndexSettings().getShardCommitInterval()) == 0;
+	/**
+	 * Records changes for the background commit policy.  The changes are never committed here so the writer does not wait on a commit
+	 *
+	 * @param changes the number of documents changed
+	 * @param bytes   the size of the stored documents changed
+	 */
+	public void markChanged(int changes, long bytes) {
+		long currentTime = System.currentTimeMillis();
+		lastChange = currentTime;
+		if (firstUncommittedChange == null) {
+			firstUncommittedChange = currentTime;
+		}
 
+		uncommittedDocs.addAndGet(changes);
+		uncommittedBytes.addAndGet(bytes);
 	}
 
 	public void updateIndexSettings() {
@@ -193,9 +328,23 @@ public class ShardWriteManager {
 		lastWarm = null;
 	}
 
-	public void deleteDocuments(String uniqueId) throws IOException {
+	public long deleteDocuments(String uniqueId) throws IOException {
 		Term term = new Term(ZuliaFieldConstants.ID_FIELD, uniqueId);
-		indexWriter.deleteDocuments(term);
+		if (translog == null) {
+			return indexWriter.deleteDocuments(term);
+		}
+
+		long sequenceNumber;
+		translogLock.readLock().lock();
+		try {
+			sequenceNumber = indexWriter.deleteDocuments(term);
+			translog.logDelete(sequenceNumber, uniqueId);
+		}
+		finally {
+			translogLock.readLock().unlock();
+		}
+		translog.sync();
+		return sequenceNumber;
 	}
 
 	public void forceMerge(int maxNumberSegments) throws IOException {
@@ -204,14 +353,155 @@ public class ShardWriteManager {
 	}
 
 	public void deleteAll() throws IOException {
-		indexWriter.deleteAll();
+		if (translog == null) {
+			indexWriter.deleteAll();
+			return;
+		}
+
+		translogLock.readLock().lock();
+		try {
+			long sequenceNumber = indexWriter.deleteAll();
+			translog.logDeleteAll(sequenceNumber);
+		}
+		finally {
+			translogLock.readLock().unlock();
+		}
+		translog.sync();
+	}
+
+	public long indexDocument(String uniqueId, long timestamp, byte[] contentHash, DocumentContainer mongoDocument, DocumentContainer metadata)
+			throws Exception {
+		Document luceneDocument = shardDocumentIndexer.getIndexDocument(uniqueId, timestamp, contentHash, mongoDocument, metadata, taxoWriter);
+		long sequenceNumber = logAndUpdateDocument(uniqueId, timestamp, ContentHashUtil.toByteString(mongoDocument), ContentHashUtil.toByteString(metadata),
+				luceneDocument);
+		syncTranslog();
+		return sequenceNumber;
+
 	}
 
-	public void indexDocument(String uniqueId, long timestamp, DocumentContainer mongoDocument, DocumentContainer metadata) throws Exception {
-		Document luceneDocument = shardDocumentIndexer.getIndexDocument(uniqueId, timestamp, mongoDocument, metadata, taxoWriter);
+	/**
+	 * Indexes a document again from the stored copy already in the shard, which does not need to be logged
+	 */
+	public long reindexDocument(String uniqueId, long timestamp, DocumentContainer mongoDocument, DocumentContainer metadata) throws Exception {
+		byte[] contentHash = ContentHashUtil.getContentHash(indexConfig, mongoDocument, metadata);
+		Document luceneDocument = shardDocumentIndexer.getIndexDocument(uniqueId, timestamp, contentHash, mongoDocument, metadata, taxoWriter);
+		return updateDocument(uniqueId, luceneDocument);
+	}
+
+	/**
+	 * Indexes a batch of documents for the shard in a single call.  The documents are converted on the conversion pool up to a window ahead of the index
+	 * writer, which takes them in order as they finish, so the conversion of a hot shard is spread over the pool.  A document that fails to convert is
+	 * reported as failed and the documents after it are still indexed
+	 *
+	 * @return the sequence number of the last document indexed and the conversion failures by position
+	 */
+	public IndexedDocuments indexDocuments(List<StoreDocument> storeDocuments, long timestamp) throws Exception {
+		Exception[] failures = new Exception[storeDocuments.size()];
+		if (storeDocuments.size() == 1) {
+			Conversion conversion = convert(storeDocuments.getFirst(), timestamp);
+			if (conversion.failure() != null) {
+				failures[0] = conversion.failure();
+				return new IndexedDocuments(-1, failures);
+			}
+			long sequenceNumber = logAndUpdateDocument(storeDocuments.getFirst(), timestamp, conversion.luceneDocument());
+			syncTranslog();
+			return new IndexedDocuments(sequenceNumber, failures);
+		}
+
+		int shardWindow = documentConversionPool.getShardWindow();
+		ArrayDeque<Future<Conversion>> conversions = new ArrayDeque<>(shardWindow);
+
+		long sequenceNumber = -1;
+		int nextConversion = 0;
+		try {
+			for (int i = 0; i < storeDocuments.size(); i++) {
+				while (nextConversion < storeDocuments.size() && conversions.size() < shardWindow) {
+					StoreDocument toConvert = storeDocuments.get(nextConversion++);
+					conversions.add(documentConversionPool.submit(() -> convert(toConvert, timestamp)));
+				}
+
+				Conversion conversion;
+				try {
+					conversion = conversions.remove().get();
+				}
+				catch (ExecutionException e) {
+					throw e.getCause() instanceof Exception cause ? cause : e;
+				}
+
+				if (conversion.failure() != null) {
+					failures[i] = conversion.failure();
+				}
+				else {
+					sequenceNumber = logAndUpdateDocument(storeDocuments.get(i), timestamp, conversion.luceneDocument());
+				}
+			}
+		}
+		finally {
+			// documents after a failed write are not indexed
+			for (Future<Conversion> conversion : conversions) {
+				conversion.cancel(false);
+			}
+		}
+		syncTranslog();
+		return new IndexedDocuments(sequenceNumber, failures);
+	}
+
+	/**
+	 * The lucene document of a stored document or the reason it could not be converted, which only fails that document of the batch
+	 */
+	private record Conversion(Document luceneDocument, Exception failure) {
+
+	}
+
+	private Conversion convert(StoreDocument storeDocument, long timestamp) {
+		try {
+			ResultDocument resultDocument = storeDocument.resultDocument();
+			DocumentContainer mongoDocument = new DocumentContainer(resultDocument.getDocument());
+			DocumentContainer metadata = new DocumentContainer(resultDocument.getMetadata());
+			return new Conversion(shardDocumentIndexer.getIndexDocument(storeDocument.uniqueId(), timestamp, storeDocument.contentHash(), mongoDocument,
+					metadata, taxoWriter), null);
+		}
+		catch (Exception e) {
+			return new Conversion(null, e);
+		}
+	}
+
+	private long logAndUpdateDocument(StoreDocument storeDocument, long timestamp, Document luceneDocument) throws IOException {
+		ResultDocument resultDocument = storeDocument.resultDocument();
+		return logAndUpdateDocument(storeDocument.uniqueId(), timestamp, resultDocument.getDocument(), resultDocument.getMetadata(), luceneDocument);
+	}
+
+	private long logAndUpdateDocument(String uniqueId, long timestamp, ByteString mongoDocument, ByteString metadata, Document luceneDocument)
+			throws IOException {
+		if (translog == null) {
+			return updateDocument(uniqueId, luceneDocument);
+		}
+
+		translogLock.readLock().lock();
+		try {
+			// only logged once the index writer accepted the document, a rejected document would fail every replay
+			long sequenceNumber = updateDocument(uniqueId, luceneDocument);
+			translog.logStore(sequenceNumber, uniqueId, timestamp, mongoDocument, metadata);
+			return sequenceNumber;
+		}
+		finally {
+			translogLock.readLock().unlock();
+		}
+	}
+
+	private void syncTranslog() throws IOException {
+		if (translog != null) {
+			translog.sync();
+		}
+	}
+
+	private long updateDocument(String uniqueId, Document luceneDocument) throws IOException {
 		Term updateQuery = new Term(ZuliaFieldConstants.ID_FIELD, uniqueId);
-		indexWriter.updateDocument(updateQuery, luceneDocument);
+		return indexWriter.updateDocument(updateQuery, luceneDocument);
+	}
 
+	public long getMaxCompletedSequenceNumber() {
+		return indexWriter.getMaxCompletedSequenceNumber();
 	}
 
 }
@@ -0,0 +1,14 @@
+package io.zulia.server.index;
+
+import io.zulia.message.ZuliaBase.ResultDocument;
+
+/**
+ * A document of a batch store bound for a single shard.  The document is kept serialized so it is parsed on the conversion threads
+ *
+ * @param uniqueId       the unique id of the document
+ * @param resultDocument the document and its metadata
+ * @param contentHash    the hash of the document and metadata bytes
+ */
+public record StoreDocument(String uniqueId, ResultDocument resultDocument, byte[] contentHash) {
+
+}
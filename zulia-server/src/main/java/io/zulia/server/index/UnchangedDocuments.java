@@ -0,0 +1,23 @@
+package io.zulia.server.index;
+
+/**
+ * The documents of a batch that are not indexed because their content is unchanged.  Found once before the batch is written so a retry of the batch one
+ * document at a time reports the same documents as skipped
+ *
+ * @param unchanged      for each document of the batch by position, true if the live document or the previous version in the batch has the same content
+ * @param sequenceNumber the sequence number to wait on for the unchanged live documents to be committed or visible, -1 if there are none
+ */
+public record UnchangedDocuments(boolean[] unchanged, long sequenceNumber) {
+
+	/**
+	 * @return a batch of documents that are all indexed
+	 */
+	public static UnchangedDocuments none(int documentCount) {
+		return new UnchangedDocuments(new boolean[documentCount], -1);
+	}
+
+	public boolean isUnchanged(int position) {
+		return unchanged[position];
+	}
+
+}
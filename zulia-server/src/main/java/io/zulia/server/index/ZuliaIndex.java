@@ -1,6 +1,9 @@
 package io.zulia.server.index;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.protobuf.ProtocolStringList;
+import io.grpc.Deadline;
 import io.zulia.ZuliaFieldConstants;
 import io.zulia.message.ZuliaBase;
 import io.zulia.message.ZuliaBase.AssociatedDocument;
@@ -33,12 +36,19 @@ import io.zulia.server.config.SortFieldInfo;
 import io.zulia.server.config.ZuliaConfig;
 import io.zulia.server.exceptions.IndexDoesNotExistException;
 import io.zulia.server.exceptions.ShardDoesNotExistException;
+import io.zulia.server.exceptions.WrappedCheckedException;
 import io.zulia.server.field.FieldTypeUtil;
 import io.zulia.server.filestorage.DocumentStorage;
+import io.zulia.server.search.FacetCountCache;
+import io.zulia.server.search.IndexFilterCachingPolicy;
 import io.zulia.server.search.QueryCacheKey;
 import io.zulia.server.search.ShardQuery;
+import io.zulia.server.search.aggregation.stats.StatSketchBudget;
 import io.zulia.server.search.queryparser.SetQueryHelper;
 import io.zulia.server.search.queryparser.ZuliaFlexibleQueryParser;
+import io.zulia.server.search.score.SortFieldValuesSource;
+import io.zulia.server.util.CacheStatsUtil;
+import io.zulia.server.util.ContentHashUtil;
 import io.zulia.server.util.DeletingFileVisitor;
 import io.zulia.util.ZuliaThreadFactory;
 import org.apache.commons.pool2.BasePooledObjectFactory;
@@ -59,6 +69,7 @@ import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.DoubleValuesSource;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.KnnFloatVectorQuery;
+import org.apache.lucene.search.LRUQueryCache;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
@@ -74,6 +85,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -87,17 +99,29 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 public class ZuliaIndex {
 
 	private final static Logger LOG = LoggerFactory.getLogger(ZuliaIndex.class);
+
+	private final static int DEFAULT_PARSED_QUERY_CACHE_SIZE = 1000;
+	private final static int DEFAULT_SHARD_QUERY_CACHE_MAX_MB = 64;
+	private final static int SCORE_FUNCTION_CACHE_SIZE = 100;
 	private final ServerIndexConfig indexConfig;
 	private final GenericObjectPool<ZuliaFlexibleQueryParser> parsers;
 	private final ConcurrentHashMap<Integer, ZuliaShard> primaryShardMap;
 	private final ConcurrentHashMap<Integer, ZuliaShard> replicaShardMap;
 	private final ExecutorService shardPool;
+	private final ExecutorService searchPool;
+	private final int searchThreads;
+	private final LRUQueryCache filterCache;
+	private final FacetCountCache facetCountCache;
+	private final StatSketchBudget statSketchBudget;
+	private final DocumentConversionPool documentConversionPool;
+	private final IndexFilterCachingPolicy filterCachingPolicy;
 	private final int numberOfShards;
 	private final String indexName;
 	private final DocumentStorage documentStorage;
@@ -106,12 +130,19 @@ public class ZuliaIndex {
 	private final TimerTask commitTask;
 	private final Timer warmTimer;
 	private final TimerTask warmTask;
+	private final Timer refreshTimer;
+	private final TimerTask refreshTask;
 	private final ZuliaPerFieldAnalyzer zuliaPerFieldAnalyzer;
 	private final IndexService indexService;
 	private final IndexShardMapping indexShardMapping;
+	private final ShardRequestTuner shardRequestTuner;
+	private final Cache<ZuliaQuery.Query, BooleanClause> parsedQueryCache;
+	private final Cache<String, Expression> compiledScoreFunctionCache;
+	private final Cache<String, DoubleValuesSource> scoreFunctionSourceCache;
 
 	public ZuliaIndex(ZuliaConfig zuliaConfig, ServerIndexConfig indexConfig, DocumentStorage documentStorage, IndexService indexService,
-			IndexShardMapping indexShardMapping) {
+			IndexShardMapping indexShardMapping, ExecutorService searchPool, int searchThreads, LRUQueryCache filterCache, FacetCountCache facetCountCache,
+			StatSketchBudget statSketchBudget, DocumentConversionPool documentConversionPool) {
 
 		this.zuliaConfig = zuliaConfig;
 		this.indexConfig = indexConfig;
@@ -123,8 +154,21 @@ public class ZuliaIndex {
 		this.documentStorage = documentStorage;
 
 		this.shardPool = Executors.newCachedThreadPool(new ZuliaThreadFactory(indexName + "-shards"));
+		this.searchPool = searchPool;
+		this.searchThreads = searchThreads;
+		this.filterCache = filterCache;
+		this.facetCountCache = facetCountCache;
+		this.statSketchBudget = statSketchBudget;
+		this.documentConversionPool = documentConversionPool;
+		this.filterCachingPolicy = new IndexFilterCachingPolicy(indexConfig);
 
 		this.zuliaPerFieldAnalyzer = new ZuliaPerFieldAnalyzer(indexConfig);
+		this.shardRequestTuner = new ShardRequestTuner(indexConfig, numberOfShards);
+
+		int parsedQueryCacheSize = zuliaConfig.getParsedQueryCacheSize() > 0 ? zuliaConfig.getParsedQueryCacheSize() : DEFAULT_PARSED_QUERY_CACHE_SIZE;
+		this.parsedQueryCache = Caffeine.newBuilder().maximumSize(parsedQueryCacheSize).recordStats().build();
+		this.compiledScoreFunctionCache = Caffeine.newBuilder().maximumSize(SCORE_FUNCTION_CACHE_SIZE).recordStats().build();
+		this.scoreFunctionSourceCache = Caffeine.newBuilder().maximumSize(SCORE_FUNCTION_CACHE_SIZE).recordStats().build();
 
 		this.parsers = new GenericObjectPool<>(new BasePooledObjectFactory<>() {
 
@@ -149,10 +193,7 @@ public class ZuliaIndex {
 
 			@Override
 			public void run() {
-				if (ZuliaIndex.this.indexConfig.getIndexSettings().getIdleTimeWithoutCommit() != 0) {
-					doCommit(false);
-				}
-
+				doCommit(false);
 			}
 
 		};
@@ -177,6 +218,20 @@ public class ZuliaIndex {
 
 		warmTimer.scheduleAtFixedRate(warmTask, 1000, 1000);
 
+		refreshTimer = new Timer(indexName + "-RefreshTimer", true);
+
+		refreshTask = new TimerTask() {
+
+			@Override
+			public void run() {
+				doRefresh(primaryShardMap.values());
+				doRefresh(replicaShardMap.values());
+			}
+
+		};
+
+		refreshTimer.scheduleAtFixedRate(refreshTask, 100, 100);
+
 	}
 
 	public SortFieldInfo getSortFieldType(String fieldName) {
@@ -192,7 +247,7 @@ public class ZuliaIndex {
 					shard.forceCommit();
 				}
 				else {
-					shard.tryIdleCommit();
+					shard.tryCommit();
 				}
 			}
 			catch (Exception e) {
@@ -202,6 +257,17 @@ public class ZuliaIndex {
 
 	}
 
+	private void doRefresh(Collection<ZuliaShard> shards) {
+		for (ZuliaShard shard : shards) {
+			try {
+				shard.tryRefresh();
+			}
+			catch (Exception e) {
+				LOG.error("Failed to refresh shard <" + shard.getShardNumber() + "> for index <" + indexName + ">", e);
+			}
+		}
+	}
+
 	public void unload(boolean terminate) throws IOException {
 
 		LOG.info("Canceling timers for <" + indexName + ">");
@@ -211,6 +277,9 @@ public class ZuliaIndex {
 		warmTask.cancel();
 		warmTimer.cancel();
 
+		refreshTask.cancel();
+		refreshTimer.cancel();
+
 		if (!terminate) {
 			LOG.info("Committing <" + indexName + ">");
 			doCommit(true);
@@ -227,6 +296,7 @@ public class ZuliaIndex {
 				LOG.info("Deleting primary shard <" + shardNumber + "> for <" + indexName + ">");
 				Files.walkFileTree(getPathForIndex(shardNumber), new DeletingFileVisitor());
 				Files.walkFileTree(getPathForFacetsIndex(shardNumber), new DeletingFileVisitor());
+				deleteTranslog(shardNumber);
 				LOG.info("Deleted primary shard <" + shardNumber + "> for <" + indexName + ">");
 			}
 		}
@@ -240,6 +310,7 @@ public class ZuliaIndex {
 				LOG.info("Deleting replica shard <" + shardNumber + "> for <" + indexName + ">");
 				Files.walkFileTree(getPathForIndex(shardNumber), new DeletingFileVisitor());
 				Files.walkFileTree(getPathForFacetsIndex(shardNumber), new DeletingFileVisitor());
+				deleteTranslog(shardNumber);
 				LOG.info("Deleted replica shard <" + shardNumber + "> for <" + indexName + ">");
 			}
 		}
@@ -249,10 +320,15 @@ public class ZuliaIndex {
 
 	private void loadShard(int shardNumber, boolean primary) throws Exception {
 
-		ShardWriteManager shardWriteManager = new ShardWriteManager(shardNumber, getPathForIndex(shardNumber), getPathForFacetsIndex(shardNumber), indexConfig,
-				zuliaPerFieldAnalyzer);
+		Path pathToTranslog = zuliaConfig.isTranslog() ? getPathForTranslog(shardNumber) : null;
+		ShardWriteManager shardWriteManager = new ShardWriteManager(shardNumber, getPathForIndex(shardNumber), getPathForFacetsIndex(shardNumber),
+				pathToTranslog, indexConfig, zuliaPerFieldAnalyzer, documentConversionPool);
+
+		int shardQueryCacheMaxMB = zuliaConfig.getShardQueryCacheMaxMB() > 0 ? zuliaConfig.getShardQueryCacheMaxMB() : DEFAULT_SHARD_QUERY_CACHE_MAX_MB;
+		long shardQueryCacheMaxBytes = shardQueryCacheMaxMB * 1024L * 1024L;
 
-		ZuliaShard s = new ZuliaShard(shardWriteManager, primary);
+		ZuliaShard s = new ZuliaShard(shardWriteManager, searchPool, searchThreads, filterCache, filterCachingPolicy, facetCountCache, statSketchBudget,
+				shardQueryCacheMaxBytes, primary);
 
 		if (primary) {
 			LOG.info("Loaded primary shard <" + shardNumber + "> for index <" + indexName + ">");
@@ -273,6 +349,17 @@ public class ZuliaIndex {
 		return Paths.get(zuliaConfig.getDataPath(), "indexes", indexName + "_" + shardNumber + "_facets");
 	}
 
+	private Path getPathForTranslog(int shardNumber) {
+		return Paths.get(zuliaConfig.getDataPath(), "indexes", indexName + "_" + shardNumber + "_translog");
+	}
+
+	private void deleteTranslog(int shardNumber) throws IOException {
+		Path pathToTranslog = getPathForTranslog(shardNumber);
+		if (Files.exists(pathToTranslog)) {
+			Files.walkFileTree(pathToTranslog, new DeletingFileVisitor());
+		}
+	}
+
 	protected void unloadShard(int shardNumber) throws IOException {
 
 		{
@@ -314,16 +401,275 @@ public class ZuliaIndex {
 
 		String uniqueId = storeRequest.getUniqueId();
 
+		boolean skipped = false;
 		if (storeRequest.hasResultDocument()) {
 			ResultDocument resultDocument = storeRequest.getResultDocument();
 			DocumentContainer document = new DocumentContainer(resultDocument.getDocument());
 			DocumentContainer metadata = new DocumentContainer(resultDocument.getMetadata());
 
 			ZuliaShard s = findShardFromUniqueId(uniqueId);
-			s.index(uniqueId, timestamp, document, metadata);
+			IndexResult indexResult = s.index(uniqueId, timestamp, document, metadata);
+			if (storeRequest.getWaitForCommit()) {
+				s.waitForCommit(indexResult.sequenceNumber());
+			}
+			if (storeRequest.getWaitForVisibility()) {
+				s.waitForVisibility(indexResult.sequenceNumber());
+			}
+			skipped = indexResult.isSkipped(uniqueId);
 
 		}
 
+		storeAssociated(storeRequest, timestamp);
+
+		return StoreResponse.newBuilder().setSkipped(skipped).build();
+
+	}
+
+	/**
+	 * Stores a batch of documents with a single index call for each shard.  Every request gets a response with its unique id and an error message if
+	 * it failed, in the order of the requests
+	 */
+	public List<StoreResponse> internalBatchStore(List<StoreRequest> storeRequests) {
+
+		long timestamp = System.currentTimeMillis();
+
+		Map<Integer, List<Integer>> shardRequestPositions = new HashMap<>();
+		for (int i = 0; i < storeRequests.size(); i++) {
+			int shardNumber = MasterSlaveSelector.getShardForUniqueId(storeRequests.get(i).getUniqueId(), numberOfShards);
+			shardRequestPositions.computeIfAbsent(shardNumber, k -> new ArrayList<>()).add(i);
+		}
+
+		StoreResponse[] storeResponses = new StoreResponse[storeRequests.size()];
+		for (Map.Entry<Integer, List<Integer>> entry : shardRequestPositions.entrySet()) {
+			List<Integer> positions = entry.getValue();
+			List<StoreRequest> shardStoreRequests = positions.stream().map(storeRequests::get).toList();
+
+			List<StoreResponse> shardStoreResponses;
+			ZuliaShard s = primaryShardMap.get(entry.getKey());
+			if (s == null) {
+				Exception e = new ShardDoesNotExistException(indexName, entry.getKey());
+				shardStoreResponses = shardStoreRequests.stream().map(storeRequest -> getStoreResponse(storeRequest, e)).toList();
+			}
+			else {
+				shardStoreResponses = batchStoreShard(s, shardStoreRequests, timestamp);
+			}
+
+			for (int i = 0; i < positions.size(); i++) {
+				storeResponses[positions.get(i)] = shardStoreResponses.get(i);
+			}
+		}
+		return Arrays.asList(storeResponses);
+	}
+
+	/**
+	 * Indexes the documents of a shard in one call.  The unchanged documents are found once before the write, so a retry of the documents one at a time
+	 * after a failed index call reports the same skipped documents.  A failed wait for the commit or the visibility of the written batch fails the requests
+	 * that asked for it without writing them again
+	 *
+	 * @return the responses in the order of the requests
+	 */
+	private List<StoreResponse> batchStoreShard(ZuliaShard s, List<StoreRequest> storeRequests, long timestamp) {
+		StoreResponse[] storeResponses = new StoreResponse[storeRequests.size()];
+
+		// the position in the store documents of the document of each request, -1 for a request without a document
+		int[] documentPositions = new int[storeRequests.size()];
+		List<StoreDocument> storeDocuments = new ArrayList<>(storeRequests.size());
+		for (int i = 0; i < storeRequests.size(); i++) {
+			StoreRequest storeRequest = storeRequests.get(i);
+			documentPositions[i] = -1;
+			if (storeRequest.hasResultDocument()) {
+				try {
+					ResultDocument resultDocument = storeRequest.getResultDocument();
+					byte[] contentHash = ContentHashUtil.getContentHash(indexConfig, resultDocument.getDocument(), resultDocument.getMetadata());
+					documentPositions[i] = storeDocuments.size();
+					storeDocuments.add(new StoreDocument(storeRequest.getUniqueId(), resultDocument, contentHash));
+				}
+				catch (Exception e) {
+					storeResponses[i] = getStoreResponse(storeRequest, e);
+				}
+			}
+		}
+
+		// the ids are locked from finding the unchanged documents until the changed documents are indexed
+		UnchangedDocuments unchangedDocuments;
+		IndexedDocuments indexedDocuments = null;
+		Exception indexException = null;
+		Iterable<Lock> idLocks = s.lockIds(storeDocuments);
+		try {
+			try {
+				unchangedDocuments = s.findUnchanged(storeDocuments);
+			}
+			catch (Exception e) {
+				return fillStoreResponses(storeRequests, storeResponses, e);
+			}
+
+			try {
+				indexedDocuments = s.index(storeDocuments, unchangedDocuments, timestamp);
+			}
+			catch (Exception e) {
+				indexException = e;
+			}
+		}
+		finally {
+			s.unlockIds(idLocks);
+		}
+
+		if (indexException != null) {
+			// a document the index writer rejects fails the batch, the documents are indexed one at a time to find which failed
+			LOG.warn("Failed to index batch of <" + storeDocuments.size() + "> documents for shard <" + s.getShardNumber() + "> of index <" + indexName
+					+ ">, retrying individually: " + indexException.getMessage());
+			return storeShardIndividually(s, storeRequests, storeResponses, documentPositions, storeDocuments, unchangedDocuments, timestamp);
+		}
+
+		// a document that failed to convert only fails its own request
+		for (int i = 0; i < storeRequests.size(); i++) {
+			if (storeResponses[i] == null && documentPositions[i] >= 0 && indexedDocuments.getFailure(documentPositions[i]) != null) {
+				storeResponses[i] = getStoreResponse(storeRequests.get(i), indexedDocuments.getFailure(documentPositions[i]));
+			}
+		}
+
+		long sequenceNumber = indexedDocuments.sequenceNumber();
+		Exception commitException = null;
+		Exception visibilityException = null;
+		if (sequenceNumber >= 0) {
+			if (anyWritten(storeRequests, storeResponses, documentPositions, StoreRequest::getWaitForCommit)) {
+				try {
+					s.waitForCommit(sequenceNumber);
+				}
+				catch (Exception e) {
+					commitException = e;
+				}
+			}
+			if (anyWritten(storeRequests, storeResponses, documentPositions, StoreRequest::getWaitForVisibility)) {
+				try {
+					s.waitForVisibility(sequenceNumber);
+				}
+				catch (Exception e) {
+					visibilityException = e;
+				}
+			}
+		}
+
+		for (int i = 0; i < storeRequests.size(); i++) {
+			if (storeResponses[i] != null) {
+				continue;
+			}
+
+			StoreRequest storeRequest = storeRequests.get(i);
+			try {
+				storeAssociated(storeRequest, timestamp);
+				boolean skipped = false;
+				if (documentPositions[i] >= 0) {
+					if (commitException != null && storeRequest.getWaitForCommit()) {
+						throw commitException;
+					}
+					if (visibilityException != null && storeRequest.getWaitForVisibility()) {
+						throw visibilityException;
+					}
+					skipped = unchangedDocuments.isUnchanged(documentPositions[i]);
+				}
+				storeResponses[i] = getStoreResponse(storeRequest, null).toBuilder().setSkipped(skipped).build();
+			}
+			catch (Exception e) {
+				storeResponses[i] = getStoreResponse(storeRequest, e);
+			}
+		}
+		return Arrays.asList(storeResponses);
+	}
+
+	private static boolean anyWritten(List<StoreRequest> storeRequests, StoreResponse[] storeResponses, int[] documentPositions,
+			Predicate<StoreRequest> wait) {
+		for (int i = 0; i < storeRequests.size(); i++) {
+			if (storeResponses[i] == null && documentPositions[i] >= 0 && wait.test(storeRequests.get(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Indexes the documents of a failed batch one at a time with the unchanged documents found for the batch
+	 */
+	private List<StoreResponse> storeShardIndividually(ZuliaShard s, List<StoreRequest> storeRequests, StoreResponse[] storeResponses,
+			int[] documentPositions, List<StoreDocument> storeDocuments, UnchangedDocuments unchangedDocuments, long timestamp) {
+
+		// a document unchanged from its previous version in the batch shares the write and the failure of that version
+		long writtenSequenceNumber = -1;
+		Map<String, Exception> failedUniqueIds = new HashMap<>();
+
+		for (int i = 0; i < storeRequests.size(); i++) {
+			if (storeResponses[i] != null) {
+				continue;
+			}
+
+			StoreRequest storeRequest = storeRequests.get(i);
+			try {
+				boolean skipped = false;
+				int documentPosition = documentPositions[i];
+				if (documentPosition >= 0) {
+					StoreDocument storeDocument = storeDocuments.get(documentPosition);
+					long sequenceNumber;
+					if (unchangedDocuments.isUnchanged(documentPosition)) {
+						Exception failed = failedUniqueIds.get(storeDocument.uniqueId());
+						if (failed != null) {
+							throw failed;
+						}
+						skipped = true;
+						sequenceNumber = Math.max(unchangedDocuments.sequenceNumber(), writtenSequenceNumber);
+					}
+					else {
+						try {
+							IndexedDocuments indexedDocuments = s.index(List.of(storeDocument), UnchangedDocuments.none(1), timestamp);
+							if (indexedDocuments.getFailure(0) != null) {
+								throw indexedDocuments.getFailure(0);
+							}
+							sequenceNumber = indexedDocuments.sequenceNumber();
+							failedUniqueIds.remove(storeDocument.uniqueId());
+						}
+						catch (Exception e) {
+							failedUniqueIds.put(storeDocument.uniqueId(), e);
+							throw e;
+						}
+						writtenSequenceNumber = Math.max(writtenSequenceNumber, sequenceNumber);
+					}
+
+					if (storeRequest.getWaitForCommit()) {
+						s.waitForCommit(sequenceNumber);
+					}
+					if (storeRequest.getWaitForVisibility()) {
+						s.waitForVisibility(sequenceNumber);
+					}
+				}
+				storeAssociated(storeRequest, timestamp);
+				storeResponses[i] = getStoreResponse(storeRequest, null).toBuilder().setSkipped(skipped).build();
+			}
+			catch (Exception e) {
+				storeResponses[i] = getStoreResponse(storeRequest, e);
+			}
+		}
+		return Arrays.asList(storeResponses);
+	}
+
+	private static List<StoreResponse> fillStoreResponses(List<StoreRequest> storeRequests, StoreResponse[] storeResponses, Exception e) {
+		for (int i = 0; i < storeRequests.size(); i++) {
+			if (storeResponses[i] == null) {
+				storeResponses[i] = getStoreResponse(storeRequests.get(i), e);
+			}
+		}
+		return Arrays.asList(storeResponses);
+	}
+
+	public static StoreResponse getStoreResponse(StoreRequest storeRequest, Exception e) {
+		StoreResponse.Builder storeResponse = StoreResponse.newBuilder().setUniqueId(storeRequest.getUniqueId()).setIndexName(storeRequest.getIndexName());
+		if (e != null) {
+			storeResponse.setErrorMessage(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+		}
+		return storeResponse.build();
+	}
+
+	private void storeAssociated(StoreRequest storeRequest, long timestamp) throws Exception {
+		String uniqueId = storeRequest.getUniqueId();
+
 		if (storeRequest.getClearExistingAssociated()) {
 			documentStorage.deleteAssociatedDocuments(uniqueId);
 		}
@@ -337,9 +683,6 @@ public class ZuliaIndex {
 			ed = ZuliaBase.ExternalDocument.newBuilder(ed).setTimestamp(timestamp).build();
 			documentStorage.registerExternalDocument(ed);
 		}
-
-		return StoreResponse.newBuilder().build();
-
 	}
 
 	private ZuliaShard findShardFromUniqueId(String uniqueId) throws ShardDoesNotExistException {
@@ -497,7 +840,7 @@ public class ZuliaIndex {
 		}
 
 		for (ZuliaQuery.Query query : queryList) {
-			clauses.add(generateClause(query));
+			clauses.add(getClause(query));
 		}
 
 		if (qr.hasFacetRequest()) {
@@ -557,6 +900,56 @@ public class ZuliaIndex {
 		return queryType.equals(QueryType.FILTER_NOT) || queryType.equals(QueryType.TERMS_NOT) || queryType.equals(QueryType.NUMERIC_SET_NOT);
 	}
 
+	private BooleanClause getClause(ZuliaQuery.Query query) throws Exception {
+		// vectors are rarely repeated so they are not worth caching
+		if (query.getQueryType() == QueryType.VECTOR) {
+			return generateClause(query);
+		}
+
+		try {
+			return parsedQueryCache.get(query, key -> {
+				try {
+					return generateClause(key);
+				}
+				catch (Exception e) {
+					throw new WrappedCheckedException(e);
+				}
+			});
+		}
+		catch (WrappedCheckedException e) {
+			throw e.getCause();
+		}
+	}
+
+	public ZuliaBase.CacheStats getParsedQueryCacheStats() {
+		return CacheStatsUtil.getCacheStats(parsedQueryCache);
+	}
+
+	public ZuliaBase.CacheStats getScoreFunctionCacheStats() {
+		return CacheStatsUtil.getCacheStats(scoreFunctionSourceCache);
+	}
+
+	public ZuliaBase.CacheStats getCompiledScoreFunctionCacheStats() {
+		return CacheStatsUtil.getCacheStats(compiledScoreFunctionCache);
+	}
+
+	/**
+	 * Query result cache stats summed over the primary and replica shards loaded on this node.  The filter and facet count caches are node wide
+	 * and are not included
+	 */
+	public ZuliaBase.ShardCacheStats getShardCacheStats() {
+		ZuliaBase.CacheStats pinnedCache = ZuliaBase.CacheStats.getDefaultInstance();
+		ZuliaBase.CacheStats generalCache = ZuliaBase.CacheStats.getDefaultInstance();
+		ZuliaBase.CacheStats segmentCache = ZuliaBase.CacheStats.getDefaultInstance();
+		for (ZuliaShard shard : Stream.concat(primaryShardMap.values().stream(), replicaShardMap.values().stream()).toList()) {
+			ZuliaBase.ShardCacheStats shardCacheStats = shard.getShardCacheStats();
+			pinnedCache = CacheStatsUtil.add(pinnedCache, shardCacheStats.getPinnedCache());
+			generalCache = CacheStatsUtil.add(generalCache, shardCacheStats.getGeneralCache());
+			segmentCache = CacheStatsUtil.add(segmentCache, shardCacheStats.getSegmentCache());
+		}
+		return ZuliaBase.ShardCacheStats.newBuilder().setPinnedCache(pinnedCache).setGeneralCache(generalCache).setSegmentCache(segmentCache).build();
+	}
+
 	private BooleanClause generateClause(ZuliaQuery.Query query) throws Exception {
 		BooleanClause.Occur occur = BooleanClause.Occur.FILTER;
 		Query luceneQuery;
@@ -601,31 +994,40 @@ public class ZuliaIndex {
 		return new BooleanClause(luceneQuery, occur);
 	}
 
-	private FunctionScoreQuery handleScoreFunction(String scoreFunction, Query query) throws java.text.ParseException {
+	private FunctionScoreQuery handleScoreFunction(String scoreFunction, Query query) throws Exception {
+		try {
+			// compiling generates and loads a new class so the bound values source is reused for repeated score functions
+			DoubleValuesSource valuesSource = scoreFunctionSourceCache.get(scoreFunction, key -> {
+				try {
+					return getScoreFunctionValuesSource(key);
+				}
+				catch (Exception e) {
+					throw new WrappedCheckedException(e);
+				}
+			});
+			return new FunctionScoreQuery(query, valuesSource);
+		}
+		catch (WrappedCheckedException e) {
+			throw e.getCause();
+		}
+	}
+
+	private DoubleValuesSource getScoreFunctionValuesSource(String scoreFunction) throws java.text.ParseException {
 
 		SimpleBindings bindings = new SimpleBindings();
 
-		Expression expr = JavascriptCompiler.compile(scoreFunction);
+		Expression expr = compileScoreFunction(scoreFunction);
 		bindings.add(ZuliaFieldConstants.SCORE_FIELD, DoubleValuesSource.SCORES);
 		for (String var : expr.variables) {
 			if (!ZuliaFieldConstants.SCORE_FIELD.equals(var)) {
 				SortFieldInfo sortFieldInfo = indexConfig.getSortFieldInfo(var);
-				FieldConfig.FieldType fieldType = sortFieldInfo.getFieldType();
-				if (fieldType == null) {
+				if (sortFieldInfo == null) {
 					throw new IllegalArgumentException("Score Function references unknown sort field <" + var + ">");
 				}
 
-				if (FieldTypeUtil.isStoredAsInt(fieldType)) {
-					bindings.add(var, DoubleValuesSource.fromIntField(var));
-				}
-				else if (FieldTypeUtil.isStoredAsLong(fieldType)) {
-					bindings.add(var, DoubleValuesSource.fromLongField(var));
-				}
-				else if (FieldTypeUtil.isNumericFloatFieldType(fieldType)) {
-					bindings.add(var, DoubleValuesSource.fromFloatField(var));
-				}
-				else if (FieldTypeUtil.isNumericDoubleFieldType(fieldType)) {
-					bindings.add(var, DoubleValuesSource.fromDoubleField(var));
+				FieldConfig.FieldType fieldType = sortFieldInfo.getFieldType();
+				if (FieldTypeUtil.isHandledAsNumericFieldType(fieldType)) {
+					bindings.add(var, new SortFieldValuesSource(sortFieldInfo.getInternalSortFieldName(), fieldType));
 				}
 				else {
 					throw new IllegalArgumentException("Score Function references sort field that is not numeric or date type <" + var + ">");
@@ -634,10 +1036,26 @@ public class ZuliaIndex {
 			//
 		}
 
-		return new FunctionScoreQuery(query, expr.getDoubleValuesSource(bindings));
+		return expr.getDoubleValuesSource(bindings);
 
 	}
 
+	private Expression compileScoreFunction(String scoreFunction) throws java.text.ParseException {
+		try {
+			return compiledScoreFunctionCache.get(scoreFunction, key -> {
+				try {
+					return JavascriptCompiler.compile(key);
+				}
+				catch (java.text.ParseException e) {
+					throw new WrappedCheckedException(e);
+				}
+			});
+		}
+		catch (WrappedCheckedException e) {
+			throw (java.text.ParseException) e.getCause();
+		}
+	}
+
 	private Query parseQueryToLucene(ZuliaQuery.Query zuliaQuery) throws Exception {
 
 		try {
@@ -697,18 +1115,20 @@ public class ZuliaIndex {
 		return query;
 	}
 
-	public IndexShardResponse internalQuery(Query query, final InternalQueryRequest internalQueryRequest) throws Exception {
+	public IndexShardResponse internalQuery(Query query, final InternalQueryRequest internalQueryRequest, Deadline deadline) throws Exception {
 
 		QueryRequest queryRequest = internalQueryRequest.getQueryRequest();
 		Set<ZuliaShard> shardsForQuery = new HashSet<>();
+		int shardAmount = 0;
 		for (IndexRouting indexRouting : internalQueryRequest.getIndexRoutingList()) {
 			if (indexRouting.getIndex().equals(indexName)) {
 				List<ZuliaShard> shardsFromRouting = getShardsFromRouting(indexRouting, queryRequest.getMasterSlaveSettings());
 				shardsForQuery.addAll(shardsFromRouting);
+				shardAmount = indexRouting.getShardAmount();
 			}
 		}
 
-		ShardQuery shardQuery = getShardQuery(query, queryRequest);
+		ShardQuery shardQuery = getShardQuery(query, queryRequest, shardAmount, deadline);
 
 		IndexShardResponse.Builder builder = IndexShardResponse.newBuilder();
 
@@ -740,14 +1160,39 @@ public class ZuliaIndex {
 
 	}
 
-	public ShardQuery getShardQuery(Query query, QueryRequest queryRequest) throws Exception {
+	/**
+	 * @return the amount to request from each shard in the first round of the query, adapted to how often the shards of this index are short
+	 */
+	public int getShardRequestAmount(QueryRequest queryRequest) {
+		int amount = queryRequest.getAmount() + queryRequest.getStart();
+
+		if (indexConfig.getNumberOfShards() != 1) {
+			if (!queryRequest.getFetchFull() && (amount > 0)) {
+				amount = shardRequestTuner.getShardAmount(amount);
+			}
+		}
+		return amount;
+	}
+
+	public void recordShortShards(QueryRequest queryRequest, boolean isShort) {
+		if (indexConfig.getNumberOfShards() != 1 && !queryRequest.getFetchFull() && (queryRequest.getAmount() + queryRequest.getStart() > 0)) {
+			shardRequestTuner.recordQuery(isShort);
+		}
+	}
+
+	public ShardQuery getShardQuery(Query query, QueryRequest queryRequest, int shardAmount, Deadline deadline) throws Exception {
 
 		int amount = queryRequest.getAmount() + queryRequest.getStart();
 
 		if (indexConfig.getNumberOfShards() != 1) {
 			if (!queryRequest.getFetchFull() && (amount > 0)) {
-				amount = (int) (((amount / numberOfShards) + indexConfig.getIndexSettings().getMinShardRequest()) * indexConfig.getIndexSettings()
-						.getRequestFactor());
+				if (shardAmount > 0) {
+					amount = shardAmount;
+				}
+				else {
+					amount = (int) (((amount / numberOfShards) + indexConfig.getIndexSettings().getMinShardRequest()) * indexConfig.getIndexSettings()
+							.getRequestFactor());
+				}
 			}
 		}
 
@@ -833,7 +1278,7 @@ public class ZuliaIndex {
 		QueryCacheKey queryCacheKey = queryRequest.getDontCache() ? null : new QueryCacheKey(queryRequest);
 		return new ShardQuery(query, fieldSimilarityMap, requestedAmount, lastScoreDocMap, queryRequest.getFacetRequest(), queryRequest.getSortRequest(),
 				queryCacheKey, queryRequest.getResultFetchType(), queryRequest.getDocumentFieldsList(), queryRequest.getDocumentMaskedFieldsList(),
-				queryRequest.getHighlightRequestList(), queryRequest.getAnalysisRequestList(), queryRequest.getDebug());
+				queryRequest.getHighlightRequestList(), queryRequest.getAnalysisRequestList(), queryRequest.getDebug(), deadline);
 	}
 
 	public Integer getNumberOfShards() {
@@ -853,6 +1298,11 @@ public class ZuliaIndex {
 
 		indexConfig.configure(indexSettings);
 		zuliaPerFieldAnalyzer.refresh();
+		shardRequestTuner.reset();
+		// parsed queries depend on the analyzers and field config
+		parsedQueryCache.invalidateAll();
+		// score function bindings depend on the field types, the compiled expressions do not
+		scoreFunctionSourceCache.invalidateAll();
 
 		for (ZuliaShard s : primaryShardMap.values()) {
 			try {
@@ -1008,7 +1458,7 @@ public class ZuliaIndex {
 			if (field.startsWith(ZuliaFieldConstants.FACET_DRILL_DOWN_FIELD)) {
 				toRemove.add(field);
 			}
-			if (field.startsWith(ZuliaFieldConstants.FACET_STORAGE)) {
+			if (field.startsWith(ZuliaFieldConstants.FACET_STORAGE) || field.startsWith(ZuliaFieldConstants.FACET_DOC_VALUES_PREFIX)) {
 				toRemove.add(field);
 			}
 			else if (FieldTypeUtil.isCharLengthField(field)) {
@@ -1,6 +1,8 @@
 package io.zulia.server.index;
 
 import com.google.protobuf.ByteString;
+import io.grpc.Context;
+import io.grpc.Deadline;
 import io.zulia.message.ZuliaBase;
 import io.zulia.message.ZuliaBase.MasterSlaveSettings;
 import io.zulia.message.ZuliaBase.Node;
@@ -42,13 +44,18 @@ import io.zulia.server.index.federator.GetTermsRequestFederator;
 import io.zulia.server.index.federator.OptimizeRequestFederator;
 import io.zulia.server.index.federator.QueryRequestFederator;
 import io.zulia.server.index.federator.ReindexRequestFederator;
+import io.zulia.server.index.router.BatchStoreRequestRouter;
 import io.zulia.server.index.router.DeleteRequestRouter;
 import io.zulia.server.index.router.FetchRequestRouter;
 import io.zulia.server.index.router.StoreRequestRouter;
 import io.zulia.server.node.ZuliaNode;
+import io.zulia.server.search.FacetCountCache;
+import io.zulia.server.search.aggregation.stats.StatSketchBudget;
+import io.zulia.server.util.CacheStatsUtil;
 import io.zulia.server.util.MongoProvider;
 import io.zulia.util.ZuliaThreadFactory;
 import io.zulia.util.ZuliaUtil;
+import org.apache.lucene.search.LRUQueryCache;
 import org.apache.lucene.search.Query;
 import org.bson.Document;
 import org.jetbrains.annotations.NotNull;
@@ -70,6 +77,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BinaryOperator;
@@ -80,9 +88,18 @@ import java.util.stream.Stream;
 public class ZuliaIndexManager {
 
 	private final static Logger LOG = LoggerFactory.getLogger(ZuliaIndexManager.class);
+
+	private final static int DEFAULT_FILTER_CACHE_MAX_QUERIES = 10_000;
+
 	private final IndexService indexService;
 	private final InternalClient internalClient;
 	private final ExecutorService pool;
+	private final ExecutorService searchPool;
+	private final int searchThreads;
+	private final LRUQueryCache filterCache;
+	private final FacetCountCache facetCountCache;
+	private final StatSketchBudget statSketchBudget;
+	private final DocumentConversionPool documentConversionPool;
 	private final ConcurrentHashMap<String, ZuliaIndex> indexMap;
 	private final ZuliaConfig zuliaConfig;
 	private final NodeService nodeService;
@@ -116,6 +133,24 @@ public class ZuliaIndexManager {
 
 		this.pool = Executors.newCachedThreadPool(new ZuliaThreadFactory("manager"));
 
+		this.searchThreads = zuliaConfig.getSearchThreads() > 0 ? zuliaConfig.getSearchThreads() : Runtime.getRuntime().availableProcessors();
+		this.searchPool = Executors.newFixedThreadPool(searchThreads, new ZuliaThreadFactory("search"));
+
+		int indexingThreads = zuliaConfig.getIndexingThreads() > 0 ? zuliaConfig.getIndexingThreads() : Runtime.getRuntime().availableProcessors();
+		this.documentConversionPool = new DocumentConversionPool(indexingThreads);
+
+		int filterCacheMaxQueries = zuliaConfig.getFilterCacheMaxQueries() > 0 ? zuliaConfig.getFilterCacheMaxQueries() : DEFAULT_FILTER_CACHE_MAX_QUERIES;
+		long filterCacheMaxBytes = zuliaConfig.getFilterCacheMaxMB() > 0 ? zuliaConfig.getFilterCacheMaxMB() * 1024L * 1024L : Runtime.getRuntime().maxMemory() / 20;
+		this.filterCache = new LRUQueryCache(filterCacheMaxQueries, filterCacheMaxBytes);
+
+		long facetCountCacheMaxBytes =
+				zuliaConfig.getFacetCountCacheMaxMB() > 0 ? zuliaConfig.getFacetCountCacheMaxMB() * 1024L * 1024L : Runtime.getRuntime().maxMemory() / 50;
+		this.facetCountCache = new FacetCountCache(facetCountCacheMaxBytes);
+
+		long statSketchMaxBytes =
+				zuliaConfig.getStatSketchMaxMB() > 0 ? zuliaConfig.getStatSketchMaxMB() * 1024L * 1024L : Runtime.getRuntime().maxMemory() / 10;
+		this.statSketchBudget = new StatSketchBudget(statSketchMaxBytes);
+
 	}
 
 	public void handleNodeAdded(Collection<Node> currentOtherNodesActive, Node nodeAdded) {
@@ -151,6 +186,9 @@ public class ZuliaIndexManager {
 			}
 		});
 
+		searchPool.shutdownNow();
+		documentConversionPool.shutdown();
+
 	}
 
 	public void init() throws Exception {
@@ -189,7 +227,8 @@ public class ZuliaIndexManager {
 
 		DocumentStorage documentStorage = getDocumentStorage(serverIndexConfig);
 
-		ZuliaIndex zuliaIndex = new ZuliaIndex(zuliaConfig, serverIndexConfig, documentStorage, indexService, indexShardMapping);
+		ZuliaIndex zuliaIndex = new ZuliaIndex(zuliaConfig, serverIndexConfig, documentStorage, indexService, indexShardMapping, searchPool, searchThreads,
+				filterCache, facetCountCache, statSketchBudget, documentConversionPool);
 
 		indexMap.put(indexSettings.getIndexName(), zuliaIndex);
 
@@ -235,6 +274,14 @@ public class ZuliaIndexManager {
 		return FetchRequestRouter.internalFetch(i, request);
 	}
 
+	public BatchFetchResponse internalBatchFetch(BatchFetchRequest request) throws Exception {
+		BatchFetchResponse.Builder batchFetchResponse = BatchFetchResponse.newBuilder();
+		for (FetchRequest fetchRequest : request.getFetchRequestList()) {
+			batchFetchResponse.addFetchResponse(internalFetch(fetchRequest));
+		}
+		return batchFetchResponse.build();
+	}
+
 	public ZuliaBase.AssociatedDocument getAssociatedDocument(String indexName, String uniqueId, String fileName) throws Exception {
 		ZuliaIndex i = getIndexFromName(indexName);
 		return i.getAssociatedDocument(uniqueId, fileName, ZuliaQuery.FetchType.FULL);
@@ -293,7 +340,25 @@ public class ZuliaIndexManager {
 
 		populateIndexesAndIndexMap(request.getQueryRequest(), queryMap, indexes);
 
-		return QueryRequestFederator.internalQuery(indexes, request, queryMap);
+		return QueryRequestFederator.internalQuery(indexes, request, queryMap, getInternalQueryDeadline(request.getQueryRequest()));
+	}
+
+	/**
+	 * The coordinating node gives the internal query call a grace period past the query deadline so shards stop collecting before the call is
+	 * cancelled and their partial results still make it back
+	 */
+	private static Deadline getInternalQueryDeadline(QueryRequest queryRequest) {
+		Deadline deadline = null;
+		if (queryRequest.getTimeoutMS() > 0) {
+			deadline = Deadline.after(queryRequest.getTimeoutMS(), TimeUnit.MILLISECONDS);
+		}
+
+		Deadline callDeadline = Context.current().getDeadline();
+		if (callDeadline != null) {
+			Deadline shardDeadline = callDeadline.offset(-QueryRequestFederator.RESPONSE_GRACE_MS, TimeUnit.MILLISECONDS);
+			deadline = deadline != null ? deadline.minimum(shardDeadline) : shardDeadline;
+		}
+		return deadline;
 	}
 
 	public QueryResponse query(QueryRequest request) throws Exception {
@@ -333,6 +398,42 @@ public class ZuliaIndexManager {
 		return StoreRequestRouter.internalStore(i, request);
 	}
 
+	/**
+	 * Stores a batch of documents, routing them to the nodes of their shards in a single call for each node
+	 *
+	 * @return a response for every request in the order of the requests, with an error message for the requests that failed
+	 */
+	public List<StoreResponse> batchStore(List<StoreRequest> storeRequests) throws Exception {
+		Map<String, ZuliaIndex> indexes = getIndexesForStoreRequests(storeRequests);
+		BatchStoreRequestRouter router = new BatchStoreRequestRouter(thisNode, currentOtherNodesActive, pool, internalClient, indexes);
+		return router.send(storeRequests);
+	}
+
+	public BatchStoreResponse internalBatchStore(BatchStoreRequest request) throws Exception {
+		Map<String, ZuliaIndex> indexes = getIndexesForStoreRequests(request.getStoreRequestList());
+		return BatchStoreRequestRouter.internalBatchStore(indexes, request);
+	}
+
+	/**
+	 * Looks up the index of each store request once for the batch.  Indexes that do not exist are left out so the router reports them on their requests
+	 */
+	private Map<String, ZuliaIndex> getIndexesForStoreRequests(List<StoreRequest> storeRequests) {
+		Map<String, ZuliaIndex> indexes = new HashMap<>();
+		Set<String> missingIndexes = new HashSet<>();
+		for (StoreRequest storeRequest : storeRequests) {
+			String indexName = storeRequest.getIndexName();
+			if (!indexes.containsKey(indexName) && !missingIndexes.contains(indexName)) {
+				try {
+					indexes.put(indexName, getIndexFromName(indexName));
+				}
+				catch (IndexDoesNotExistException e) {
+					missingIndexes.add(indexName);
+				}
+			}
+		}
+		return indexes;
+	}
+
 	public DeleteResponse delete(DeleteRequest request) throws Exception {
 		ZuliaIndex i = getIndexFromName(request.getIndexName());
 		DeleteRequestRouter router = new DeleteRequestRouter(thisNode, currentOtherNodesActive, i, request.getUniqueId(), internalClient);
@@ -571,6 +672,34 @@ public class ZuliaIndexManager {
 				existingSettings.setDisableCompression(updateIndexSettings.getDisableCompression());
 			}
 
+			if (updateIndexSettings.getSetSearchSliceMaxDocs()) {
+				existingSettings.setSearchSliceMaxDocs(updateIndexSettings.getSearchSliceMaxDocs());
+			}
+
+			if (updateIndexSettings.getSetSearchSliceMaxSegments()) {
+				existingSettings.setSearchSliceMaxSegments(updateIndexSettings.getSearchSliceMaxSegments());
+			}
+
+			if (updateIndexSettings.getSetRefreshIntervalMS()) {
+				existingSettings.setRefreshIntervalMS(updateIndexSettings.getRefreshIntervalMS());
+			}
+
+			if (updateIndexSettings.getSetDisableFilterCache()) {
+				existingSettings.setDisableFilterCache(updateIndexSettings.getDisableFilterCache());
+			}
+
+			if (updateIndexSettings.getSetFilterCacheMinFrequency()) {
+				existingSettings.setFilterCacheMinFrequency(updateIndexSettings.getFilterCacheMinFrequency());
+			}
+
+			if (updateIndexSettings.getSetShardCommitMB()) {
+				existingSettings.setShardCommitMB(updateIndexSettings.getShardCommitMB());
+			}
+
+			if (updateIndexSettings.getSetMaxTimeWithoutCommit()) {
+				existingSettings.setMaxTimeWithoutCommit(updateIndexSettings.getMaxTimeWithoutCommit());
+			}
+
 			Operation metaUpdateOperation = updateIndexSettings.getMetaUpdateOperation();
 			if (metaUpdateOperation.getEnable()) {
 				Document existingMeta = ZuliaUtil.byteStringToMongoDocument(existingSettings.getMeta());
@@ -884,9 +1013,19 @@ public class ZuliaIndexManager {
 		return DeleteIndexAliasResponse.newBuilder().build();
 	}
 
-	public void getStats() {
-		for (ZuliaIndex value : indexMap.values()) {
+	public DocumentConversionPool getDocumentConversionPool() {
+		return documentConversionPool;
+	}
 
-		}
+	public ZuliaBase.CacheStats getFilterCacheStats() {
+		return CacheStatsUtil.getCacheStats(filterCache);
+	}
+
+	public ZuliaBase.CacheStats getFacetCountCacheStats() {
+		return facetCountCache.getCacheStats();
+	}
+
+	public Collection<ZuliaIndex> getLoadedIndexes() {
+		return indexMap.values();
 	}
 }
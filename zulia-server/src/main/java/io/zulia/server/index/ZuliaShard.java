@@ -1,5 +1,6 @@
 package io.zulia.server.index;
 
+import com.google.common.util.concurrent.Striped;
 import io.zulia.message.ZuliaBase;
 import io.zulia.message.ZuliaBase.MasterSlaveSettings;
 import io.zulia.message.ZuliaBase.ShardCountResponse;
@@ -9,28 +10,49 @@ import io.zulia.message.ZuliaServiceOuterClass;
 import io.zulia.message.ZuliaServiceOuterClass.GetFieldNamesResponse;
 import io.zulia.message.ZuliaServiceOuterClass.GetTermsRequest;
 import io.zulia.message.ZuliaServiceOuterClass.GetTermsResponse;
+import io.zulia.server.search.FacetCountCache;
 import io.zulia.server.search.ShardQuery;
+import io.zulia.server.search.ShardQueryCache;
+import io.zulia.server.search.aggregation.stats.StatSketchBudget;
 import io.zulia.server.util.BytesRefUtil;
+import io.zulia.server.util.CacheStatsUtil;
+import io.zulia.server.util.ContentHashUtil;
+import org.apache.lucene.search.LRUQueryCache;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.ReferenceManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xerial.snappy.Snappy;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 
 public class ZuliaShard {
 
 	private final static Logger LOG = LoggerFactory.getLogger(ZuliaShard.class);
 
+	private static final int ID_LOCK_STRIPES = 1024;
+
 	private final int shardNumber;
 
 	private final ShardReaderManager shardReaderManager;
 	private final ShardWriteManager shardWriteManager;
+	private final ShardQueryCache shardQueryCache;
+	private final LRUQueryCache filterCache;
+	private final FacetCountCache facetCountCache;
 	private final String indexName;
 
 	private final boolean primary;
@@ -40,14 +62,64 @@ public class ZuliaShard {
 
 	private boolean unloaded;
 
-	public ZuliaShard(ShardWriteManager shardWriteManager, boolean primary) throws Exception {
+	private final Object visibilityLock = new Object();
+	private final Object commitLock = new Object();
+	private volatile long refreshedSequenceNumber;
+	private volatile long lastRefresh;
+
+	/**
+	 * @param sequenceNumber the sequence number of the write
+	 * @param contentHash    the content hash of the document written or null for a delete
+	 */
+	private record RecentWrite(long sequenceNumber, byte[] contentHash) {
+
+	}
+
+	// writes not yet visible to the searcher, checked before the searcher when looking for an unchanged document
+	private final Map<String, RecentWrite> recentWrites = new ConcurrentHashMap<>();
+
+	// held for a unique id from the check for an unchanged document until its recent write is recorded, so a concurrent store of the same id can not
+	// record an older write over a newer one
+	private final Striped<Lock> idLocks = Striped.lock(ID_LOCK_STRIPES);
+
+	public ZuliaShard(ShardWriteManager shardWriteManager, ExecutorService searchPool, int searchThreads, LRUQueryCache filterCache,
+			QueryCachingPolicy filterCachingPolicy, FacetCountCache facetCountCache, StatSketchBudget statSketchBudget, long shardQueryCacheMaxBytes,
+			boolean primary) throws Exception {
 
 		this.primary = primary;
 		this.shardWriteManager = shardWriteManager;
 		this.shardNumber = shardWriteManager.getShardNumber();
 		this.indexName = shardWriteManager.getIndexConfig().getIndexName();
-		this.shardReaderManager = new ShardReaderManager(shardWriteManager.createShardReader());
+		this.shardQueryCache = new ShardQueryCache(shardWriteManager.getIndexConfig().getIndexSettings().getShardQueryCacheSize(), shardQueryCacheMaxBytes);
+		this.filterCache = filterCache;
+		this.facetCountCache = facetCountCache;
+		this.shardReaderManager = new ShardReaderManager(shardWriteManager.createShardReader(searchPool, searchThreads, shardQueryCache, filterCache,
+				filterCachingPolicy, facetCountCache, statSketchBudget));
+		this.shardReaderManager.addListener(new ReferenceManager.RefreshListener() {
+
+			@Override
+			public void beforeRefresh() {
+
+			}
+
+			@Override
+			public void afterRefresh(boolean didRefresh) throws IOException {
+				if (didRefresh) {
+					pruneQueryCache();
+				}
+			}
+		});
+
+	}
 
+	private void pruneQueryCache() throws IOException {
+		ShardReader shardReader = shardReaderManager.acquire();
+		try {
+			shardQueryCache.retainSegments(shardReader.getSegmentKeys());
+		}
+		finally {
+			shardReaderManager.decRef(shardReader);
+		}
 	}
 
 	public boolean isPrimary() {
@@ -56,6 +128,7 @@ public class ZuliaShard {
 
 	public void updateIndexSettings() {
 		shardWriteManager.updateIndexSettings();
+		shardQueryCache.setShardQueryCacheSize(shardWriteManager.getIndexConfig().getIndexSettings().getShardQueryCacheSize());
 	}
 
 	public int getShardNumber() {
@@ -64,7 +137,6 @@ public class ZuliaShard {
 
 	public ShardQueryResponse queryShard(ShardQuery shardQuery) throws Exception {
 
-		shardReaderManager.maybeRefreshBlocking();
 		ShardReader shardReader = shardReaderManager.acquire();
 
 		try {
@@ -81,13 +153,64 @@ public class ZuliaShard {
 		}
 
 		shardWriteManager.commit();
-		shardReaderManager.maybeRefresh();
+		refresh();
 
 	}
 
-	public void tryIdleCommit() throws IOException {
+	public void waitForCommit(long sequenceNumber) throws IOException {
+		if (shardWriteManager.getCommittedSequenceNumber() >= sequenceNumber) {
+			return;
+		}
+
+		//concurrent writers waiting for durability share a single commit
+		synchronized (commitLock) {
+			if (shardWriteManager.getCommittedSequenceNumber() < sequenceNumber) {
+				forceCommit();
+			}
+		}
+	}
+
+	public void refresh() throws IOException {
+		long sequenceNumber = shardWriteManager.getMaxCompletedSequenceNumber();
+		shardReaderManager.maybeRefreshBlocking();
+		markRefreshed(sequenceNumber);
+	}
 
-		if (shardWriteManager.needsIdleCommit()) {
+	public void tryRefresh() throws IOException {
+		int refreshInterval = shardWriteManager.getIndexConfig().getRefreshIntervalMS();
+		if ((System.currentTimeMillis() - lastRefresh) >= refreshInterval) {
+			long sequenceNumber = shardWriteManager.getMaxCompletedSequenceNumber();
+			//skips if another thread is already refreshing
+			if (shardReaderManager.maybeRefresh()) {
+				markRefreshed(sequenceNumber);
+			}
+		}
+	}
+
+	public void waitForVisibility(long sequenceNumber) throws IOException {
+		if (refreshedSequenceNumber >= sequenceNumber) {
+			return;
+		}
+
+		//concurrent writers waiting for visibility share a single refresh
+		synchronized (visibilityLock) {
+			if (refreshedSequenceNumber < sequenceNumber) {
+				refresh();
+			}
+		}
+	}
+
+	private synchronized void markRefreshed(long sequenceNumber) {
+		if (sequenceNumber > refreshedSequenceNumber) {
+			refreshedSequenceNumber = sequenceNumber;
+		}
+		lastRefresh = System.currentTimeMillis();
+		recentWrites.values().removeIf(recentWrite -> recentWrite.sequenceNumber() <= refreshedSequenceNumber);
+	}
+
+	public void tryCommit() throws IOException {
+
+		if (shardWriteManager.needsCommit()) {
 			forceCommit();
 		}
 	}
@@ -115,7 +238,7 @@ public class ZuliaShard {
 					try {
 						LOG.info("Warming search with label <" + warmingSearch.getSearchLabel() + ">");
 						Query query = zuliaIndex.getQuery(warmingSearch);
-						ShardQuery shardQuery = zuliaIndex.getShardQuery(query, warmingSearch);
+						ShardQuery shardQuery = zuliaIndex.getShardQuery(query, warmingSearch, 0, null);
 						queryShard(shardQuery);
 					}
 					catch (Exception e) {
@@ -140,7 +263,7 @@ public class ZuliaShard {
 			trackedIds = new HashSet<>();
 		}
 
-		shardReaderManager.maybeRefreshBlocking();
+		refresh();
 		ShardReader shardReader = shardReaderManager.acquire();
 
 		try {
@@ -171,7 +294,7 @@ public class ZuliaShard {
 					}
 
 					if (!trackedIds.contains(uniqueId)) {
-						shardWriteManager.indexDocument(uniqueId, timestamp, mongoDocument, metadata);
+						shardWriteManager.reindexDocument(uniqueId, timestamp, mongoDocument, metadata);
 					}
 					count.getAndIncrement();
 				}
@@ -198,22 +321,178 @@ public class ZuliaShard {
 		shardWriteManager.close();
 	}
 
-	public void index(String uniqueId, long timestamp, DocumentContainer mongoDocument, DocumentContainer metadata) throws Exception {
+	public IndexResult index(String uniqueId, long timestamp, DocumentContainer mongoDocument, DocumentContainer metadata) throws Exception {
 		if (!primary) {
 			throw new IllegalStateException("Cannot index document <" + uniqueId + "> from replica:  index <" + indexName + "> shard <" + shardNumber + ">");
 		}
 
+		byte[] contentHash = ContentHashUtil.getContentHash(shardWriteManager.getIndexConfig(), mongoDocument, metadata);
+		Lock idLock = idLocks.get(uniqueId);
+		idLock.lock();
+		try {
+			long unchangedSequenceNumber = getUnchangedSequenceNumber(uniqueId, contentHash);
+			if (unchangedSequenceNumber >= 0) {
+				return new IndexResult(unchangedSequenceNumber, Set.of(uniqueId));
+			}
+
+			if (trackingId != null) {
+				trackedIds.add(uniqueId);
+			}
+
+			long sequenceNumber = shardWriteManager.indexDocument(uniqueId, timestamp, contentHash, mongoDocument, metadata);
+			recentWrites.put(uniqueId, new RecentWrite(sequenceNumber, contentHash));
+			shardWriteManager.markChanged(1, getByteSize(mongoDocument) + getByteSize(metadata));
+			return new IndexResult(sequenceNumber, Set.of());
+		}
+		finally {
+			idLock.unlock();
+		}
+
+	}
+
+	/**
+	 * Locks the unique ids of a batch.  Held from {@link #findUnchanged(List)} until {@link #index(List, UnchangedDocuments, long)} returns so the
+	 * documents found unchanged and the recent writes recorded are not interleaved with another store of the same ids.  The locks are taken in stripe
+	 * order so batches with overlapping ids can not deadlock and they are reentrant so the index call can take them again
+	 *
+	 * @return the locks to release with {@link #unlockIds(Iterable)}
+	 */
+	public Iterable<Lock> lockIds(List<StoreDocument> storeDocuments) {
+		Iterable<Lock> locks = idLocks.bulkGet(storeDocuments.stream().map(StoreDocument::uniqueId).toList());
+		locks.forEach(Lock::lock);
+		return locks;
+	}
+
+	public void unlockIds(Iterable<Lock> locks) {
+		locks.forEach(Lock::unlock);
+	}
+
+	/**
+	 * Compares each document of a batch to the live document, or to its previous version when it is repeated in the batch
+	 */
+	public UnchangedDocuments findUnchanged(List<StoreDocument> storeDocuments) throws IOException {
+		boolean[] unchanged = new boolean[storeDocuments.size()];
+		long sequenceNumber = -1;
+		Map<String, byte[]> batchContentHashes = new HashMap<>();
+		for (int i = 0; i < storeDocuments.size(); i++) {
+			StoreDocument storeDocument = storeDocuments.get(i);
+			byte[] batchContentHash = batchContentHashes.put(storeDocument.uniqueId(), storeDocument.contentHash());
+			if (batchContentHash != null) {
+				// the write of the previous version in the batch covers this one
+				unchanged[i] = Arrays.equals(batchContentHash, storeDocument.contentHash());
+				continue;
+			}
+
+			long unchangedSequenceNumber = getUnchangedSequenceNumber(storeDocument.uniqueId(), storeDocument.contentHash());
+			if (unchangedSequenceNumber >= 0) {
+				unchanged[i] = true;
+				sequenceNumber = Math.max(sequenceNumber, unchangedSequenceNumber);
+			}
+		}
+		return new UnchangedDocuments(unchanged, sequenceNumber);
+	}
+
+	/**
+	 * Indexes the documents of a batch that are not unchanged.  A document unchanged from a previous version in the batch that failed fails as well
+	 *
+	 * @return the sequence number to wait on for the documents to be committed or visible, including the earlier writes of unchanged documents, and the
+	 * failed documents by position in the batch
+	 */
+	public IndexedDocuments index(List<StoreDocument> storeDocuments, UnchangedDocuments unchangedDocuments, long timestamp) throws Exception {
+		if (!primary) {
+			throw new IllegalStateException(
+					"Cannot index <" + storeDocuments.size() + "> documents from replica:  index <" + indexName + "> shard <" + shardNumber + ">");
+		}
+
+		List<StoreDocument> changedDocuments = new ArrayList<>(storeDocuments.size());
+		for (int i = 0; i < storeDocuments.size(); i++) {
+			if (!unchangedDocuments.isUnchanged(i)) {
+				changedDocuments.add(storeDocuments.get(i));
+			}
+		}
+
+		if (changedDocuments.isEmpty()) {
+			return new IndexedDocuments(unchangedDocuments.sequenceNumber(), new Exception[storeDocuments.size()]);
+		}
+
 		if (trackingId != null) {
-			trackedIds.add(uniqueId);
+			for (StoreDocument storeDocument : changedDocuments) {
+				trackedIds.add(storeDocument.uniqueId());
+			}
 		}
 
-		shardWriteManager.indexDocument(uniqueId, timestamp, mongoDocument, metadata);
-		if (shardWriteManager.markedChangedCheckIfCommitNeeded()) {
-			forceCommit();
+		Iterable<Lock> locks = lockIds(changedDocuments);
+		try {
+			return indexChanged(storeDocuments, unchangedDocuments, changedDocuments, timestamp);
+		}
+		finally {
+			unlockIds(locks);
+		}
+	}
+
+	private IndexedDocuments indexChanged(List<StoreDocument> storeDocuments, UnchangedDocuments unchangedDocuments, List<StoreDocument> changedDocuments,
+			long timestamp) throws Exception {
+		Exception[] failures = new Exception[storeDocuments.size()];
+		IndexedDocuments indexedDocuments = shardWriteManager.indexDocuments(changedDocuments, timestamp);
+		long indexedSequenceNumber = indexedDocuments.sequenceNumber();
+		Map<String, Exception> failedUniqueIds = new HashMap<>();
+		int changedPosition = 0;
+		int indexed = 0;
+		long bytes = 0;
+		for (int i = 0; i < storeDocuments.size(); i++) {
+			StoreDocument storeDocument = storeDocuments.get(i);
+			if (unchangedDocuments.isUnchanged(i)) {
+				failures[i] = failedUniqueIds.get(storeDocument.uniqueId());
+				continue;
+			}
+
+			Exception failure = indexedDocuments.getFailure(changedPosition++);
+			if (failure != null) {
+				failures[i] = failure;
+				failedUniqueIds.put(storeDocument.uniqueId(), failure);
+				continue;
+			}
+
+			failedUniqueIds.remove(storeDocument.uniqueId());
+			// the last sequence number of the batch covers every document in it
+			recentWrites.put(storeDocument.uniqueId(), new RecentWrite(indexedSequenceNumber, storeDocument.contentHash()));
+			bytes += storeDocument.resultDocument().getDocument().size() + storeDocument.resultDocument().getMetadata().size();
+			indexed++;
+		}
+		if (indexed > 0) {
+			shardWriteManager.markChanged(indexed, bytes);
 		}
+		return new IndexedDocuments(Math.max(unchangedDocuments.sequenceNumber(), indexedSequenceNumber), failures);
 
 	}
 
+	/**
+	 * @return the sequence number of the write of the live document when it has the same content hash, or -1 when the document must be indexed
+	 */
+	private long getUnchangedSequenceNumber(String uniqueId, byte[] contentHash) throws IOException {
+		RecentWrite recentWrite = recentWrites.get(uniqueId);
+		if (recentWrite != null) {
+			return Arrays.equals(recentWrite.contentHash(), contentHash) ? recentWrite.sequenceNumber() : -1;
+		}
+
+		ShardReader shardReader = shardReaderManager.acquire();
+		try {
+			ZuliaBase.IdInfo idInfo = shardReader.getIdInfo(uniqueId);
+			if (idInfo != null && !idInfo.getContentHash().isEmpty() && Arrays.equals(idInfo.getContentHash().toByteArray(), contentHash)) {
+				// every write in the searcher completed before this, so waiting on it covers the write of the live document
+				return shardWriteManager.getMaxCompletedSequenceNumber();
+			}
+			return -1;
+		}
+		finally {
+			shardReaderManager.decRef(shardReader);
+		}
+	}
+
+	private static long getByteSize(DocumentContainer documentContainer) {
+		return documentContainer.hasDocument() ? documentContainer.getByteArray().length : 0;
+	}
+
 	public void deleteDocument(String uniqueId) throws Exception {
 		if (!primary) {
 			throw new IllegalStateException("Cannot delete document <" + uniqueId + "> from replica:  index <" + indexName + "> shard <" + shardNumber + ">");
@@ -223,10 +502,16 @@ public class ZuliaShard {
 			trackedIds.add(uniqueId);
 		}
 
-		shardWriteManager.deleteDocuments(uniqueId);
-		if (shardWriteManager.markedChangedCheckIfCommitNeeded()) {
-			forceCommit();
+		Lock idLock = idLocks.get(uniqueId);
+		idLock.lock();
+		try {
+			long sequenceNumber = shardWriteManager.deleteDocuments(uniqueId);
+			recentWrites.put(uniqueId, new RecentWrite(sequenceNumber, null));
 		}
+		finally {
+			idLock.unlock();
+		}
+		shardWriteManager.markChanged(1, 0);
 
 	}
 
@@ -245,11 +530,11 @@ public class ZuliaShard {
 		}
 
 		shardWriteManager.deleteAll();
+		recentWrites.clear();
 		forceCommit();
 	}
 
 	public GetFieldNamesResponse getFieldNames() throws IOException {
-		shardReaderManager.maybeRefreshBlocking();
 		ShardReader shardReader = shardReaderManager.acquire();
 
 		try {
@@ -262,7 +547,6 @@ public class ZuliaShard {
 
 	public GetTermsResponse getTerms(GetTermsRequest request) throws IOException {
 
-		shardReaderManager.maybeRefreshBlocking();
 		ShardReader shardReader = shardReaderManager.acquire();
 
 		try {
@@ -278,7 +562,6 @@ public class ZuliaShard {
 
 	public ShardCountResponse getNumberOfDocs() throws IOException {
 
-		shardReaderManager.maybeRefreshBlocking();
 		ShardReader shardReader = shardReaderManager.acquire();
 
 		try {
@@ -293,7 +576,6 @@ public class ZuliaShard {
 
 	public ZuliaBase.ResultDocument getSourceDocument(String uniqueId, FetchType resultFetchType, List<String> fieldsToReturn, List<String> fieldsToMask)
 			throws Exception {
-		shardReaderManager.maybeRefreshBlocking();
 		ShardReader shardReader = shardReaderManager.acquire();
 
 		try {
@@ -304,16 +586,9 @@ public class ZuliaShard {
 		}
 	}
 
-	public ZuliaBase.ShardCacheStats getShardCacheStats() throws IOException {
-		shardReaderManager.maybeRefreshBlocking();
-		ShardReader shardReader = shardReaderManager.acquire();
-
-		try {
-			return shardReader.getShardCacheStats();
-		}
-		finally {
-			shardReaderManager.decRef(shardReader);
-		}
+	public ZuliaBase.ShardCacheStats getShardCacheStats() {
+		return shardQueryCache.getShardCacheStats().toBuilder().setFilterCache(CacheStatsUtil.getCacheStats(filterCache))
+				.setFacetCountCache(facetCountCache.getCacheStats()).build();
 	}
 
 }
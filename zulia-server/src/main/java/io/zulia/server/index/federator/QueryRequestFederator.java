@@ -1,9 +1,23 @@
 package io.zulia.server.index.federator;
 
 import com.google.protobuf.util.JsonFormat;
+import io.grpc.Deadline;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
 import io.zulia.message.ZuliaBase.MasterSlaveSettings;
 import io.zulia.message.ZuliaBase.Node;
+import io.zulia.message.ZuliaQuery.CountRequest;
+import io.zulia.message.ZuliaQuery.FacetCount;
+import io.zulia.message.ZuliaQuery.FacetGroup;
+import io.zulia.message.ZuliaQuery.FacetRequest;
+import io.zulia.message.ZuliaQuery.FetchType;
 import io.zulia.message.ZuliaQuery.IndexShardResponse;
+import io.zulia.message.ZuliaQuery.LastIndexResult;
+import io.zulia.message.ZuliaQuery.LastResult;
+import io.zulia.message.ZuliaQuery.ScoredResult;
+import io.zulia.message.ZuliaQuery.ShardQueryResponse;
+import io.zulia.message.ZuliaServiceOuterClass.FetchRequest;
+import io.zulia.message.ZuliaServiceOuterClass.IndexRouting;
 import io.zulia.message.ZuliaServiceOuterClass.InternalQueryRequest;
 import io.zulia.message.ZuliaServiceOuterClass.InternalQueryResponse;
 import io.zulia.message.ZuliaServiceOuterClass.QueryRequest;
@@ -11,24 +25,45 @@ import io.zulia.message.ZuliaServiceOuterClass.QueryResponse;
 import io.zulia.server.connection.client.InternalClient;
 import io.zulia.server.index.ZuliaIndex;
 import io.zulia.server.search.QueryCombiner;
+import io.zulia.server.search.aggregation.facets.FacetCombiner;
 import org.apache.lucene.search.Query;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class QueryRequestFederator extends MasterSlaveNodeRequestFederator<QueryRequest, InternalQueryResponse> {
 
 	private static final Logger LOG = LoggerFactory.getLogger(QueryRequestFederator.class);
 	private static final AtomicLong QUERY_NUMBER = new AtomicLong();
+
+	/**
+	 * Time past the query deadline that the coordinator waits for shard responses, shards stop collecting at the deadline and need time to return
+	 */
+	public static final long RESPONSE_GRACE_MS = 250;
+
 	private final InternalClient internalClient;
 	private final Collection<ZuliaIndex> indexes;
 	private final Map<String, Query> queryMap;
+	private final ExecutorService pool;
+	private final Map<String, ZuliaIndex> indexMap;
+	private Deadline deadline;
 
 	public QueryRequestFederator(Node thisNode, Collection<Node> otherNodesActive, MasterSlaveSettings masterSlaveSettings, Collection<ZuliaIndex> indexes,
 			ExecutorService pool, InternalClient internalClient, Map<String, Query> queryMap) throws IOException {
@@ -36,28 +71,33 @@ public class QueryRequestFederator extends MasterSlaveNodeRequestFederator<Query
 		this.internalClient = internalClient;
 		this.indexes = indexes;
 		this.queryMap = queryMap;
+		this.pool = pool;
+		this.indexMap = new HashMap<>();
+		for (ZuliaIndex index : indexes) {
+			indexMap.put(index.getIndexName(), index);
+		}
 	}
 
 	@Override
 	protected InternalQueryResponse processExternal(Node node, QueryRequest request) throws Exception {
-		InternalQueryRequest internalQueryRequest = InternalQueryRequest.newBuilder().addAllIndexRouting(getIndexRouting(node)).setQueryRequest(request)
-				.build();
-		return internalClient.executeQuery(node, internalQueryRequest);
+		InternalQueryRequest internalQueryRequest = InternalQueryRequest.newBuilder().addAllIndexRouting(getIndexRouting(node, request))
+				.setQueryRequest(request).build();
+		return internalClient.executeQuery(node, internalQueryRequest, getCallDeadline());
 	}
 
 	@Override
 	protected InternalQueryResponse processInternal(Node node, QueryRequest request) throws Exception {
-		InternalQueryRequest internalQueryRequest = InternalQueryRequest.newBuilder().addAllIndexRouting(getIndexRouting(node)).setQueryRequest(request)
-				.build();
-		return internalQuery(indexes, internalQueryRequest, queryMap);
+		InternalQueryRequest internalQueryRequest = InternalQueryRequest.newBuilder().addAllIndexRouting(getIndexRouting(node, request))
+				.setQueryRequest(request).build();
+		return internalQuery(indexes, internalQueryRequest, queryMap, deadline);
 	}
 
-	public static InternalQueryResponse internalQuery(Collection<ZuliaIndex> indexes, InternalQueryRequest request, Map<String, Query> queryMap)
-			throws Exception {
+	public static InternalQueryResponse internalQuery(Collection<ZuliaIndex> indexes, InternalQueryRequest request, Map<String, Query> queryMap,
+			Deadline deadline) throws Exception {
 		InternalQueryResponse.Builder internalQueryResponseBuilder = InternalQueryResponse.newBuilder();
 		for (ZuliaIndex index : indexes) {
 			Query query = queryMap.get(index.getIndexName());
-			IndexShardResponse isr = index.internalQuery(query, request);
+			IndexShardResponse isr = index.internalQuery(query, request, deadline);
 			internalQueryResponseBuilder.addIndexShardResponse(isr);
 		}
 		return internalQueryResponseBuilder.build();
@@ -65,6 +105,27 @@ public class QueryRequestFederator extends MasterSlaveNodeRequestFederator<Query
 
 	public QueryResponse getResponse(QueryRequest request) throws Exception {
 
+		// the deadline covers every round of the query including the fetch of query then fetch and a full fetch retry
+		if (deadline == null && request.getTimeoutMS() > 0) {
+			deadline = Deadline.after(request.getTimeoutMS(), TimeUnit.MILLISECONDS);
+		}
+
+		if (isQueryThenFetch(request)) {
+			QueryResponse idsOnlyResponse = getResponse(request.toBuilder().setResultFetchType(FetchType.NONE).build());
+
+			FetchRequest fetchRequest = FetchRequest.newBuilder().setResultFetchType(request.getResultFetchType()).setAssociatedFetchType(FetchType.NONE)
+					.addAllDocumentFields(request.getDocumentFieldsList()).addAllDocumentMaskedFields(request.getDocumentMaskedFieldsList())
+					.setMasterSlaveSettings(request.getMasterSlaveSettings()).build();
+			ResultFetchFederator resultFetchFederator = new ResultFetchFederator(thisNode, otherNodesActive, request.getMasterSlaveSettings(), indexes, pool,
+					internalClient);
+			List<ScoredResult> results = resultFetchFederator.fetchDocuments(idsOnlyResponse.getResultsList(), fetchRequest, deadline);
+			QueryResponse.Builder queryResponse = idsOnlyResponse.toBuilder().clearResults().addAllResults(results);
+			if (resultFetchFederator.isPartialResults()) {
+				queryResponse.setPartialResults(true);
+			}
+			return queryResponse.build();
+		}
+
 		long queryId = QUERY_NUMBER.getAndIncrement();
 
 		long start = System.currentTimeMillis();
@@ -79,12 +140,42 @@ public class QueryRequestFederator extends MasterSlaveNodeRequestFederator<Query
 			LOG.info("Running id <" + queryId + "> with label <" + searchLabel + "> query <" + queryJson + ">");
 		}
 
-		List<InternalQueryResponse> results = send(request);
+		List<InternalQueryResponse> results = deadline != null ? sendWithDeadline(request) : send(request);
 
 		QueryCombiner queryCombiner = new QueryCombiner(indexes, request, results);
 
 		QueryResponse qr = queryCombiner.getQueryResponse();
 
+		if (qr.getPartialResults()) {
+			// shards that timed out are always short, another round would only run past the deadline again
+			handleLog(queryId, searchLabel, qr, System.currentTimeMillis() - start);
+			return qr;
+		}
+
+		for (ZuliaIndex index : indexes) {
+			index.recordShortShards(request, queryCombiner.getShortShards().containsKey(index.getIndexName()));
+		}
+
+		if (queryCombiner.isShort() && !request.getFetchFull()) {
+			results = queryShortShards(request, results, queryCombiner.getShortShards());
+			queryCombiner = new QueryCombiner(indexes, request, results);
+			qr = queryCombiner.getQueryResponse();
+			if (qr.getPartialResults()) {
+				// the short shards timed out, neither a refinement round nor a full fetch would finish before the deadline
+				handleLog(queryId, searchLabel, qr, System.currentTimeMillis() - start);
+				return qr;
+			}
+		}
+
+		if (!queryCombiner.isShort()) {
+			List<InternalQueryResponse> refinements = refineFacets(request, results);
+			if (!refinements.isEmpty()) {
+				queryCombiner = new QueryCombiner(indexes, request, results);
+				queryCombiner.setFacetRefinements(refinements);
+				qr = queryCombiner.getQueryResponse();
+			}
+		}
+
 		long end = System.currentTimeMillis();
 		handleLog(queryId, searchLabel, qr, end - start);
 		if (!queryCombiner.isShort()) {
@@ -100,6 +191,291 @@ public class QueryRequestFederator extends MasterSlaveNodeRequestFederator<Query
 
 	}
 
+	private List<IndexRouting> getIndexRouting(Node node, QueryRequest request) {
+		List<IndexRouting> indexRoutingList = new ArrayList<>();
+		for (IndexRouting indexRouting : getIndexRouting(node)) {
+			int shardAmount = indexMap.get(indexRouting.getIndex()).getShardRequestAmount(request);
+			indexRoutingList.add(indexRouting.toBuilder().setShardAmount(shardAmount).build());
+		}
+		return indexRoutingList;
+	}
+
+	/**
+	 * Requests the full amount from only the short shards starting after the last result each returned and appends those results to the first round
+	 * responses.  Facets and stats are not requested again as they are already complete from the first round.
+	 */
+	private List<InternalQueryResponse> queryShortShards(QueryRequest request, List<InternalQueryResponse> responses, Map<String, Set<Integer>> shortShards)
+			throws Exception {
+
+		LastResult.Builder lastResult = LastResult.newBuilder();
+		for (InternalQueryResponse response : responses) {
+			for (IndexShardResponse isr : response.getIndexShardResponseList()) {
+				Set<Integer> shortShardsForIndex = shortShards.get(isr.getIndexName());
+				if (shortShardsForIndex == null) {
+					continue;
+				}
+
+				LastIndexResult.Builder lastIndexResult = LastIndexResult.newBuilder().setIndexName(isr.getIndexName());
+				for (ShardQueryResponse sr : isr.getShardQueryResponseList()) {
+					if (shortShardsForIndex.contains(sr.getShardNumber()) && sr.getScoredResultCount() > 0) {
+						ScoredResult last = sr.getScoredResult(sr.getScoredResultCount() - 1);
+						lastIndexResult.addLastForShard(last.toBuilder().clearResultDocument().clearHighlightResult().clearAnalysisResult());
+					}
+				}
+				lastResult.addLastIndexResult(lastIndexResult);
+			}
+		}
+
+		QueryRequest shortShardRequest = request.toBuilder().setFetchFull(true).setLastResult(lastResult)
+				.setFacetRequest(FacetRequest.newBuilder().addAllDrillDown(request.getFacetRequest().getDrillDownList())).build();
+
+		Map<Node, Future<InternalQueryResponse>> futureResponses = new HashMap<>();
+		Map<Node, List<IndexRouting>> nodeIndexRouting = new HashMap<>();
+		for (Node node : nodes) {
+			List<IndexRouting> indexRoutingList = new ArrayList<>();
+			for (IndexRouting indexRouting : getIndexRouting(node)) {
+				Set<Integer> shortShardsForIndex = shortShards.get(indexRouting.getIndex());
+				if (shortShardsForIndex != null) {
+					IndexRouting.Builder shortShardRouting = IndexRouting.newBuilder().setIndex(indexRouting.getIndex());
+					for (int shard : indexRouting.getShardList()) {
+						if (shortShardsForIndex.contains(shard)) {
+							shortShardRouting.addShard(shard);
+						}
+					}
+					if (shortShardRouting.getShardCount() > 0) {
+						indexRoutingList.add(shortShardRouting.build());
+					}
+				}
+			}
+
+			if (!indexRoutingList.isEmpty()) {
+				InternalQueryRequest internalQueryRequest = InternalQueryRequest.newBuilder().addAllIndexRouting(indexRoutingList)
+						.setQueryRequest(shortShardRequest).build();
+				futureResponses.put(node, pool.submit(() -> {
+					if (nodeIsLocal(node)) {
+						return internalQuery(indexes, internalQueryRequest, queryMap, deadline);
+					}
+					return internalClient.executeQuery(node, internalQueryRequest, getCallDeadline());
+				}));
+				nodeIndexRouting.put(node, indexRoutingList);
+			}
+		}
+
+		Map<String, Map<Integer, ShardQueryResponse>> shortShardResponses = new HashMap<>();
+		for (Map.Entry<Node, Future<InternalQueryResponse>> futureResponse : futureResponses.entrySet()) {
+			InternalQueryResponse response = getNodeResponse(futureResponse.getValue(), nodeIndexRouting.get(futureResponse.getKey()));
+
+			for (IndexShardResponse isr : response.getIndexShardResponseList()) {
+				for (ShardQueryResponse sr : isr.getShardQueryResponseList()) {
+					shortShardResponses.computeIfAbsent(isr.getIndexName(), k -> new HashMap<>()).put(sr.getShardNumber(), sr);
+				}
+			}
+		}
+
+		List<InternalQueryResponse> mergedResponses = new ArrayList<>();
+		for (InternalQueryResponse response : responses) {
+			InternalQueryResponse.Builder mergedResponse = response.toBuilder();
+			for (IndexShardResponse.Builder isr : mergedResponse.getIndexShardResponseBuilderList()) {
+				Map<Integer, ShardQueryResponse> shardResponses = shortShardResponses.get(isr.getIndexName());
+				if (shardResponses == null) {
+					continue;
+				}
+
+				for (ShardQueryResponse.Builder sr : isr.getShardQueryResponseBuilderList()) {
+					ShardQueryResponse shortShardResponse = shardResponses.get(sr.getShardNumber());
+					if (shortShardResponse != null) {
+						sr.addAllScoredResult(shortShardResponse.getScoredResultList()).clearNext();
+						if (shortShardResponse.hasNext()) {
+							sr.setNext(shortShardResponse.getNext());
+						}
+						sr.setCached(sr.getCached() && shortShardResponse.getCached());
+						sr.setPinned(sr.getPinned() && shortShardResponse.getPinned());
+						sr.setTimedOut(sr.getTimedOut() || shortShardResponse.getTimedOut());
+					}
+				}
+			}
+			mergedResponses.add(mergedResponse.build());
+		}
+		return mergedResponses;
+	}
+
+	/**
+	 * Asks the shards that did not return all their facets for the exact counts of the facets returned by other shards for count requests that are
+	 * refined.  A node is asked for the facets missing from any of its shards, extra counts a shard returns for facets it already returned are ignored
+	 * when combining.
+	 */
+	private List<InternalQueryResponse> refineFacets(QueryRequest request, List<InternalQueryResponse> responses) throws Exception {
+		List<CountRequest> refinedCountRequests = request.getFacetRequest().getCountRequestList().stream().filter(CountRequest::getRefine).toList();
+		if (refinedCountRequests.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		Map<CountRequest, Set<String>> candidateFacets = new HashMap<>();
+		Map<String, Map<Integer, Map<CountRequest, Set<String>>>> shardFacets = new HashMap<>();
+		for (InternalQueryResponse response : responses) {
+			for (IndexShardResponse isr : response.getIndexShardResponseList()) {
+				for (ShardQueryResponse sr : isr.getShardQueryResponseList()) {
+					for (FacetGroup fg : sr.getFacetGroupList()) {
+						CountRequest countRequest = fg.getCountRequest();
+						if (!countRequest.getRefine()) {
+							continue;
+						}
+
+						Set<String> facets = new HashSet<>();
+						for (FacetCount facetCount : fg.getFacetCountList()) {
+							facets.add(facetCount.getFacet());
+						}
+						candidateFacets.computeIfAbsent(countRequest, k -> new HashSet<>()).addAll(facets);
+
+						// a shard that returned all of its facets has no count for the others
+						if (!FacetCombiner.isCompleteForShard(countRequest, fg.getFacetCountCount())) {
+							shardFacets.computeIfAbsent(isr.getIndexName(), k -> new HashMap<>()).computeIfAbsent(sr.getShardNumber(), k -> new HashMap<>())
+									.put(countRequest, facets);
+						}
+					}
+				}
+			}
+		}
+
+		// the refine facets differ for every response so the rounds are not cached, nor pinned for a pinned query
+		QueryRequest.Builder refineRequestTemplate = request.toBuilder().setAmount(0).setStart(0).setFetchFull(false).clearLastResult()
+				.setResultFetchType(FetchType.NONE).clearHighlightRequest().clearAnalysisRequest().setDontCache(true).setPinToCache(false);
+
+		Map<Node, Future<InternalQueryResponse>> futureResponses = new HashMap<>();
+		Map<Node, List<IndexRouting>> nodeIndexRouting = new HashMap<>();
+		for (Node node : nodes) {
+			List<IndexRouting> indexRoutingList = new ArrayList<>();
+			Map<CountRequest, Set<String>> missingFacets = new LinkedHashMap<>();
+			for (IndexRouting indexRouting : getIndexRouting(node)) {
+				Map<Integer, Map<CountRequest, Set<String>>> facetsForShards = shardFacets.get(indexRouting.getIndex());
+				if (facetsForShards == null) {
+					continue;
+				}
+
+				IndexRouting.Builder refineRouting = IndexRouting.newBuilder().setIndex(indexRouting.getIndex());
+				for (int shard : indexRouting.getShardList()) {
+					Map<CountRequest, Set<String>> facetsForShard = facetsForShards.get(shard);
+					if (facetsForShard == null) {
+						continue;
+					}
+
+					boolean shardMissingFacets = false;
+					for (Map.Entry<CountRequest, Set<String>> returnedFacets : facetsForShard.entrySet()) {
+						for (String facet : candidateFacets.get(returnedFacets.getKey())) {
+							if (!returnedFacets.getValue().contains(facet)) {
+								missingFacets.computeIfAbsent(returnedFacets.getKey(), k -> new TreeSet<>()).add(facet);
+								shardMissingFacets = true;
+							}
+						}
+					}
+					if (shardMissingFacets) {
+						refineRouting.addShard(shard);
+					}
+				}
+				if (refineRouting.getShardCount() > 0) {
+					indexRoutingList.add(refineRouting.build());
+				}
+			}
+
+			if (!indexRoutingList.isEmpty()) {
+				// only the drill downs are kept so the refinement round does not repeat the other aggregations, the sample size gives the same sample
+				FacetRequest.Builder refineFacetRequest = FacetRequest.newBuilder().addAllDrillDown(request.getFacetRequest().getDrillDownList())
+						.setSampleSize(request.getFacetRequest().getSampleSize());
+				for (Map.Entry<CountRequest, Set<String>> facets : missingFacets.entrySet()) {
+					refineFacetRequest.addCountRequest(facets.getKey().toBuilder().addAllRefineFacet(facets.getValue()));
+				}
+
+				InternalQueryRequest internalQueryRequest = InternalQueryRequest.newBuilder().addAllIndexRouting(indexRoutingList)
+						.setQueryRequest(refineRequestTemplate.clone().setFacetRequest(refineFacetRequest)).build();
+				futureResponses.put(node, pool.submit(() -> {
+					if (nodeIsLocal(node)) {
+						return internalQuery(indexes, internalQueryRequest, queryMap, deadline);
+					}
+					return internalClient.executeQuery(node, internalQueryRequest, getCallDeadline());
+				}));
+				nodeIndexRouting.put(node, indexRoutingList);
+			}
+		}
+
+		List<InternalQueryResponse> refinements = new ArrayList<>();
+		for (Map.Entry<Node, Future<InternalQueryResponse>> futureResponse : futureResponses.entrySet()) {
+			refinements.add(getNodeResponse(futureResponse.getValue(), nodeIndexRouting.get(futureResponse.getKey())));
+		}
+		return refinements;
+	}
+
+	private List<InternalQueryResponse> sendWithDeadline(QueryRequest request) throws Exception {
+		Map<Node, Future<InternalQueryResponse>> futureResponses = new LinkedHashMap<>();
+		for (Node node : nodes) {
+			futureResponses.put(node, pool.submit(() -> {
+				if (nodeIsLocal(node)) {
+					return processInternal(node, request);
+				}
+				return processExternal(node, request);
+			}));
+		}
+
+		List<InternalQueryResponse> results = new ArrayList<>();
+		for (Map.Entry<Node, Future<InternalQueryResponse>> futureResponse : futureResponses.entrySet()) {
+			results.add(getNodeResponse(futureResponse.getValue(), getIndexRouting(futureResponse.getKey())));
+		}
+		return results;
+	}
+
+	/**
+	 * Waits for the response of a node until the deadline and grace period have passed.  A node that does not respond in time or whose call hits the
+	 * deadline is answered with empty responses marked as timed out for the shards it was asked to query.
+	 */
+	private InternalQueryResponse getNodeResponse(Future<InternalQueryResponse> futureResponse, List<IndexRouting> indexRoutingList) throws Exception {
+		try {
+			if (deadline != null) {
+				return futureResponse.get(deadline.timeRemaining(TimeUnit.MILLISECONDS) + RESPONSE_GRACE_MS, TimeUnit.MILLISECONDS);
+			}
+			return futureResponse.get();
+		}
+		catch (TimeoutException e) {
+			futureResponse.cancel(true);
+			return getTimedOutResponse(indexRoutingList);
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof StatusRuntimeException statusRuntimeException && Status.Code.DEADLINE_EXCEEDED.equals(
+					statusRuntimeException.getStatus().getCode())) {
+				return getTimedOutResponse(indexRoutingList);
+			}
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+
+			throw e;
+		}
+	}
+
+	private static InternalQueryResponse getTimedOutResponse(List<IndexRouting> indexRoutingList) {
+		InternalQueryResponse.Builder internalQueryResponseBuilder = InternalQueryResponse.newBuilder();
+		for (IndexRouting indexRouting : indexRoutingList) {
+			IndexShardResponse.Builder indexShardResponse = IndexShardResponse.newBuilder().setIndexName(indexRouting.getIndex());
+			for (int shard : indexRouting.getShardList()) {
+				indexShardResponse.addShardQueryResponse(
+						ShardQueryResponse.newBuilder().setIndexName(indexRouting.getIndex()).setShardNumber(shard).setTimedOut(true));
+			}
+			internalQueryResponseBuilder.addIndexShardResponse(indexShardResponse);
+		}
+		return internalQueryResponseBuilder.build();
+	}
+
+	private Deadline getCallDeadline() {
+		return deadline != null ? deadline.offset(RESPONSE_GRACE_MS, TimeUnit.MILLISECONDS) : null;
+	}
+
+	/**
+	 * Highlighting and analysis need the document on the shard so those queries always return the documents in the first round
+	 */
+	private static boolean isQueryThenFetch(QueryRequest request) {
+		return request.getQueryThenFetch() && !FetchType.NONE.equals(request.getResultFetchType()) && request.getHighlightRequestCount() == 0
+				&& request.getAnalysisRequestCount() == 0;
+	}
+
 	private static void handleLog(long queryId, String searchLabel, QueryResponse qr, long time) {
 		String prefix = "Finished query";
 		if (qr.getShardsQueried() == qr.getShardsPinned()) {
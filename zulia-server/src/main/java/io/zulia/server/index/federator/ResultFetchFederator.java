@@ -0,0 +1,178 @@
+package io.zulia.server.index.federator;
+
+import io.grpc.Deadline;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.zulia.message.ZuliaBase.MasterSlaveSettings;
+import io.zulia.message.ZuliaBase.Node;
+import io.zulia.message.ZuliaIndex.IndexShardMapping;
+import io.zulia.message.ZuliaQuery.ScoredResult;
+import io.zulia.message.ZuliaServiceOuterClass.BatchFetchRequest;
+import io.zulia.message.ZuliaServiceOuterClass.BatchFetchResponse;
+import io.zulia.message.ZuliaServiceOuterClass.FetchRequest;
+import io.zulia.message.ZuliaServiceOuterClass.FetchResponse;
+import io.zulia.server.connection.client.InternalClient;
+import io.zulia.server.index.MasterSlaveSelector;
+import io.zulia.server.index.NodeRequestBase;
+import io.zulia.server.index.ZuliaIndex;
+import io.zulia.server.index.router.FetchRequestRouter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Fetches the documents for the final page of a query that was run with ids only.  Documents are grouped by the node that owns their shard so each node
+ * is sent a single batch.  With a deadline the results of a node that does not respond in time are returned without documents and marked as partial.
+ */
+public class ResultFetchFederator extends NodeRequestBase<BatchFetchRequest, BatchFetchResponse> {
+
+	private final ExecutorService pool;
+	private final InternalClient internalClient;
+	private final Map<String, ZuliaIndex> indexMap;
+	private final Map<String, MasterSlaveSelector> masterSlaveSelectorMap;
+
+	private Deadline deadline;
+	private boolean partialResults;
+
+	public ResultFetchFederator(Node thisNode, Collection<Node> otherNodesActive, MasterSlaveSettings masterSlaveSettings, Collection<ZuliaIndex> indexes,
+			ExecutorService pool, InternalClient internalClient) {
+		this(thisNode, otherNodesActive, masterSlaveSettings, indexes.stream().map(ZuliaIndex::getIndexShardMapping).toList(), pool, internalClient);
+		for (ZuliaIndex index : indexes) {
+			indexMap.put(index.getIndexName(), index);
+		}
+	}
+
+	/**
+	 * Routes fetches by the given shard mappings without any local indexes, the subclass fetches the documents of every node
+	 */
+	protected ResultFetchFederator(Node thisNode, Collection<Node> otherNodesActive, MasterSlaveSettings masterSlaveSettings,
+			List<IndexShardMapping> indexShardMappings, ExecutorService pool, InternalClient internalClient) {
+		super(thisNode, otherNodesActive);
+		this.pool = pool;
+		this.internalClient = internalClient;
+		this.indexMap = new HashMap<>();
+		this.masterSlaveSelectorMap = new HashMap<>();
+
+		List<Node> nodesAvailable = new ArrayList<>();
+		nodesAvailable.add(thisNode);
+		nodesAvailable.addAll(otherNodesActive);
+
+		for (IndexShardMapping indexShardMapping : indexShardMappings) {
+			masterSlaveSelectorMap.put(indexShardMapping.getIndexName(), new MasterSlaveSelector(masterSlaveSettings, nodesAvailable, indexShardMapping));
+		}
+	}
+
+	@Override
+	protected BatchFetchResponse processExternal(Node node, BatchFetchRequest request) throws Exception {
+		if (deadline != null) {
+			return internalClient.executeBatchFetch(node, request, deadline.offset(QueryRequestFederator.RESPONSE_GRACE_MS, TimeUnit.MILLISECONDS));
+		}
+		return internalClient.executeBatchFetch(node, request);
+	}
+
+	@Override
+	protected BatchFetchResponse processInternal(Node node, BatchFetchRequest request) throws Exception {
+		BatchFetchResponse.Builder batchFetchResponse = BatchFetchResponse.newBuilder();
+		for (FetchRequest fetchRequest : request.getFetchRequestList()) {
+			batchFetchResponse.addFetchResponse(FetchRequestRouter.internalFetch(indexMap.get(fetchRequest.getIndexName()), fetchRequest));
+		}
+		return batchFetchResponse.build();
+	}
+
+	/**
+	 * @param results      results without documents in the order they are returned
+	 * @param fetchRequest template for the fetch of each result with the fetch type and field filtering of the query
+	 * @param deadline     deadline of the query or null to wait for every node
+	 * @return the results with the result documents added
+	 */
+	public List<ScoredResult> fetchDocuments(List<ScoredResult> results, FetchRequest fetchRequest, Deadline deadline) throws Exception {
+		this.deadline = deadline;
+		this.partialResults = false;
+
+		Map<Node, BatchFetchRequest.Builder> nodeToRequest = new HashMap<>();
+		Map<Node, List<Integer>> nodeToResultIndexes = new HashMap<>();
+
+		for (int i = 0; i < results.size(); i++) {
+			ScoredResult scoredResult = results.get(i);
+			Node node = masterSlaveSelectorMap.get(scoredResult.getIndexName()).getNodeForUniqueId(scoredResult.getUniqueId());
+			FetchRequest resultFetchRequest = fetchRequest.toBuilder().setIndexName(scoredResult.getIndexName()).setUniqueId(scoredResult.getUniqueId()).build();
+			nodeToRequest.computeIfAbsent(node, k -> BatchFetchRequest.newBuilder()).addFetchRequest(resultFetchRequest);
+			nodeToResultIndexes.computeIfAbsent(node, k -> new ArrayList<>()).add(i);
+		}
+
+		Map<Node, Future<BatchFetchResponse>> futureResponses = new HashMap<>();
+		for (Node node : nodeToRequest.keySet()) {
+			BatchFetchRequest batchFetchRequest = nodeToRequest.get(node).build();
+			futureResponses.put(node, pool.submit(() -> {
+				if (nodeIsLocal(node)) {
+					return processInternal(node, batchFetchRequest);
+				}
+				return processExternal(node, batchFetchRequest);
+			}));
+		}
+
+		List<ScoredResult> fetchedResults = new ArrayList<>(results);
+		for (Node node : futureResponses.keySet()) {
+			BatchFetchResponse batchFetchResponse = getNodeResponse(futureResponses.get(node));
+			if (batchFetchResponse == null) {
+				partialResults = true;
+				continue;
+			}
+
+			List<Integer> resultIndexes = nodeToResultIndexes.get(node);
+			for (int i = 0; i < resultIndexes.size(); i++) {
+				FetchResponse fetchResponse = batchFetchResponse.getFetchResponse(i);
+				// a document deleted between the query and the fetch is returned without a result document
+				if (fetchResponse.hasResultDocument()) {
+					int resultIndex = resultIndexes.get(i);
+					fetchedResults.set(resultIndex, fetchedResults.get(resultIndex).toBuilder().setResultDocument(fetchResponse.getResultDocument()).build());
+				}
+			}
+		}
+
+		return fetchedResults;
+	}
+
+	/**
+	 * @return the response of the node or null if it did not respond before the deadline and grace period
+	 */
+	private BatchFetchResponse getNodeResponse(Future<BatchFetchResponse> futureResponse) throws Exception {
+		try {
+			if (deadline != null) {
+				return futureResponse.get(deadline.timeRemaining(TimeUnit.MILLISECONDS) + QueryRequestFederator.RESPONSE_GRACE_MS, TimeUnit.MILLISECONDS);
+			}
+			return futureResponse.get();
+		}
+		catch (TimeoutException e) {
+			futureResponse.cancel(true);
+			return null;
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof StatusRuntimeException statusRuntimeException && Status.Code.DEADLINE_EXCEEDED.equals(
+					statusRuntimeException.getStatus().getCode())) {
+				return null;
+			}
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * @return true if the last fetch returned some results without documents because their node did not respond before the deadline
+	 */
+	public boolean isPartialResults() {
+		return partialResults;
+	}
+}
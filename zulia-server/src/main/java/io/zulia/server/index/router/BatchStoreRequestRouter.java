@@ -0,0 +1,165 @@
+package io.zulia.server.index.router;
+
+import io.zulia.message.ZuliaBase.MasterSlaveSettings;
+import io.zulia.message.ZuliaBase.Node;
+import io.zulia.message.ZuliaServiceOuterClass.BatchStoreRequest;
+import io.zulia.message.ZuliaServiceOuterClass.BatchStoreResponse;
+import io.zulia.message.ZuliaServiceOuterClass.StoreRequest;
+import io.zulia.message.ZuliaServiceOuterClass.StoreResponse;
+import io.zulia.server.connection.client.InternalClient;
+import io.zulia.server.exceptions.IndexDoesNotExistException;
+import io.zulia.server.index.MasterSlaveSelector;
+import io.zulia.server.index.NodeRequestBase;
+import io.zulia.server.index.ZuliaIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Routes a batch of store requests to the primary nodes of their shards with one internal call for each node instead of one for each document.  A
+ * failure of a document or of a node is reported in the responses of the documents affected and does not fail the rest of the batch
+ */
+public class BatchStoreRequestRouter extends NodeRequestBase<BatchStoreRequest, BatchStoreResponse> {
+
+	private final static Logger LOG = LoggerFactory.getLogger(BatchStoreRequestRouter.class);
+
+	private final ExecutorService pool;
+	private final InternalClient internalClient;
+	private final Map<String, ZuliaIndex> indexes;
+
+	/**
+	 * @param indexes the indexes of the store requests by the index name of the request
+	 */
+	public BatchStoreRequestRouter(Node thisNode, Collection<Node> otherNodesActive, ExecutorService pool, InternalClient internalClient,
+			Map<String, ZuliaIndex> indexes) {
+		super(thisNode, otherNodesActive);
+		this.pool = pool;
+		this.internalClient = internalClient;
+		this.indexes = indexes;
+	}
+
+	/**
+	 * @return a response for every request in the order of the requests
+	 */
+	public List<StoreResponse> send(List<StoreRequest> storeRequests) throws Exception {
+
+		List<Node> nodeList = new ArrayList<>();
+		nodeList.add(thisNode);
+		nodeList.addAll(otherNodesActive);
+
+		StoreResponse[] storeResponses = new StoreResponse[storeRequests.size()];
+
+		Map<String, MasterSlaveSelector> selectors = new HashMap<>();
+		Map<Node, BatchStoreRequest.Builder> nodeBatches = new HashMap<>();
+		Map<Node, List<Integer>> nodeRequestPositions = new HashMap<>();
+		for (int i = 0; i < storeRequests.size(); i++) {
+			StoreRequest storeRequest = storeRequests.get(i);
+			try {
+				MasterSlaveSelector selector = selectors.get(storeRequest.getIndexName());
+				if (selector == null) {
+					ZuliaIndex index = getIndex(indexes, storeRequest.getIndexName());
+					selector = new MasterSlaveSelector(MasterSlaveSettings.MASTER_ONLY, nodeList, index.getIndexShardMapping());
+					selectors.put(storeRequest.getIndexName(), selector);
+				}
+				Node node = selector.getNodeForUniqueId(storeRequest.getUniqueId());
+				nodeBatches.computeIfAbsent(node, k -> BatchStoreRequest.newBuilder()).addStoreRequest(storeRequest);
+				nodeRequestPositions.computeIfAbsent(node, k -> new ArrayList<>()).add(i);
+			}
+			catch (Exception e) {
+				storeResponses[i] = ZuliaIndex.getStoreResponse(storeRequest, e);
+			}
+		}
+
+		Map<Node, Future<BatchStoreResponse>> futureResponses = new HashMap<>();
+		for (Map.Entry<Node, BatchStoreRequest.Builder> entry : nodeBatches.entrySet()) {
+			Node node = entry.getKey();
+			BatchStoreRequest batchStoreRequest = entry.getValue().build();
+			futureResponses.put(node, pool.submit(() -> {
+				if (nodeIsLocal(node)) {
+					return processInternal(node, batchStoreRequest);
+				}
+				return processExternal(node, batchStoreRequest);
+			}));
+		}
+
+		for (Map.Entry<Node, Future<BatchStoreResponse>> entry : futureResponses.entrySet()) {
+			// a node responds in the order of its batch
+			List<Integer> positions = nodeRequestPositions.get(entry.getKey());
+			try {
+				List<StoreResponse> nodeStoreResponses = entry.getValue().get().getStoreResponseList();
+				for (int i = 0; i < positions.size(); i++) {
+					storeResponses[positions.get(i)] = nodeStoreResponses.get(i);
+				}
+			}
+			catch (ExecutionException e) {
+				Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				LOG.error("Failed to store batch on node <" + entry.getKey().getServerAddress() + ":" + entry.getKey().getServicePort() + ">", cause);
+				for (int position : positions) {
+					storeResponses[position] = ZuliaIndex.getStoreResponse(storeRequests.get(position), cause);
+				}
+			}
+		}
+
+		return Arrays.asList(storeResponses);
+	}
+
+	private static ZuliaIndex getIndex(Map<String, ZuliaIndex> indexes, String indexName) throws IndexDoesNotExistException {
+		ZuliaIndex index = indexes.get(indexName);
+		if (index == null) {
+			throw new IndexDoesNotExistException(indexName);
+		}
+		return index;
+	}
+
+	@Override
+	protected BatchStoreResponse processExternal(Node node, BatchStoreRequest request) throws Exception {
+		return internalClient.executeBatchStore(node, request);
+	}
+
+	@Override
+	protected BatchStoreResponse processInternal(Node node, BatchStoreRequest request) throws Exception {
+		return internalBatchStore(indexes, request);
+	}
+
+	/**
+	 * Stores the requests of the batch on this node, the responses are in the order of the requests
+	 */
+	public static BatchStoreResponse internalBatchStore(Map<String, ZuliaIndex> indexes, BatchStoreRequest request) {
+		List<StoreRequest> storeRequests = request.getStoreRequestList();
+
+		Map<String, List<Integer>> indexRequestPositions = new HashMap<>();
+		for (int i = 0; i < storeRequests.size(); i++) {
+			indexRequestPositions.computeIfAbsent(storeRequests.get(i).getIndexName(), k -> new ArrayList<>()).add(i);
+		}
+
+		StoreResponse[] storeResponses = new StoreResponse[storeRequests.size()];
+		for (Map.Entry<String, List<Integer>> entry : indexRequestPositions.entrySet()) {
+			List<Integer> positions = entry.getValue();
+			List<StoreRequest> indexStoreRequests = positions.stream().map(storeRequests::get).toList();
+
+			List<StoreResponse> indexStoreResponses;
+			ZuliaIndex index = indexes.get(entry.getKey());
+			if (index == null) {
+				Exception e = new IndexDoesNotExistException(entry.getKey());
+				indexStoreResponses = indexStoreRequests.stream().map(storeRequest -> ZuliaIndex.getStoreResponse(storeRequest, e)).toList();
+			}
+			else {
+				indexStoreResponses = index.internalBatchStore(indexStoreRequests);
+			}
+
+			for (int i = 0; i < positions.size(); i++) {
+				storeResponses[positions.get(i)] = indexStoreResponses.get(i);
+			}
+		}
+		return BatchStoreResponse.newBuilder().addAllStoreResponse(Arrays.asList(storeResponses)).build();
+	}
+}
@@ -6,12 +6,19 @@ import io.micronaut.http.annotation.Produces;
 import io.micronaut.scheduling.TaskExecutors;
 import io.micronaut.scheduling.annotation.ExecuteOn;
 import io.zulia.ZuliaRESTConstants;
+import io.zulia.message.ZuliaBase;
+import io.zulia.rest.dto.CacheStatsDTO;
+import io.zulia.rest.dto.IndexCacheStatsDTO;
 import io.zulia.rest.dto.StatsDTO;
+import io.zulia.server.index.ZuliaIndex;
 import io.zulia.server.index.ZuliaIndexManager;
 import io.zulia.server.util.ZuliaNodeProvider;
 import io.zulia.util.ZuliaVersion;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 /**
  * Created by Payam Meyer on 8/7/17.
@@ -47,11 +54,40 @@ public class StatsController {
 		statsDTO.setTotalDataDirSpaceGB(freeDataDirSpaceGB);
 		statsDTO.setUsedDataDirSpaceGB(usedDataDirSpaceGB);
 		statsDTO.setZuliaVersion(ZuliaVersion.getVersion());
+		statsDTO.setIndexingQueueDepth(indexManager.getDocumentConversionPool().getQueueDepth());
+		statsDTO.setIndexingActiveThreads(indexManager.getDocumentConversionPool().getActiveCount());
 
-		//TODO use this
-		indexManager.getStats();
+		statsDTO.setFilterCache(toCacheStatsDTO(indexManager.getFilterCacheStats()));
+		statsDTO.setFacetCountCache(toCacheStatsDTO(indexManager.getFacetCountCacheStats()));
+
+		List<IndexCacheStatsDTO> indexCacheStats = new ArrayList<>();
+		for (ZuliaIndex zuliaIndex : indexManager.getLoadedIndexes()) {
+			ZuliaBase.ShardCacheStats shardCacheStats = zuliaIndex.getShardCacheStats();
+
+			IndexCacheStatsDTO indexCacheStatsDTO = new IndexCacheStatsDTO();
+			indexCacheStatsDTO.setIndexName(zuliaIndex.getIndexName());
+			indexCacheStatsDTO.setParsedQueryCache(toCacheStatsDTO(zuliaIndex.getParsedQueryCacheStats()));
+			indexCacheStatsDTO.setScoreFunctionCache(toCacheStatsDTO(zuliaIndex.getScoreFunctionCacheStats()));
+			indexCacheStatsDTO.setCompiledScoreFunctionCache(toCacheStatsDTO(zuliaIndex.getCompiledScoreFunctionCacheStats()));
+			indexCacheStatsDTO.setGeneralCache(toCacheStatsDTO(shardCacheStats.getGeneralCache()));
+			indexCacheStatsDTO.setPinnedCache(toCacheStatsDTO(shardCacheStats.getPinnedCache()));
+			indexCacheStatsDTO.setSegmentCache(toCacheStatsDTO(shardCacheStats.getSegmentCache()));
+			indexCacheStats.add(indexCacheStatsDTO);
+		}
+		indexCacheStats.sort(Comparator.comparing(IndexCacheStatsDTO::getIndexName));
+		statsDTO.setIndexCacheStats(indexCacheStats);
 
 		return statsDTO;
 
 	}
+
+	private static CacheStatsDTO toCacheStatsDTO(ZuliaBase.CacheStats cacheStats) {
+		CacheStatsDTO cacheStatsDTO = new CacheStatsDTO();
+		cacheStatsDTO.setEstimatedSize(cacheStats.getEstimatedSize());
+		cacheStatsDTO.setHitCount(cacheStats.getHitCount());
+		cacheStatsDTO.setMissCount(cacheStats.getMissCount());
+		cacheStatsDTO.setEvictionCount(cacheStats.getEvictionCount());
+		cacheStatsDTO.setRamBytesUsed(cacheStats.getRamBytesUsed());
+		return cacheStatsDTO;
+	}
 }
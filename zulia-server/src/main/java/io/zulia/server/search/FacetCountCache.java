@@ -0,0 +1,100 @@
+package io.zulia.server.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.zulia.message.ZuliaBase;
+import io.zulia.server.search.aggregation.facets.SegmentFacetCounts;
+import io.zulia.server.util.CacheStatsUtil;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+
+import java.util.Arrays;
+
+/**
+ * Node wide cache of the facet counts of a segment for a filter, shared by all indexes.  Dashboards repeat the counts for match all or a few filters with
+ * different amounts, sorts and stats, so the counts are cached apart from the rest of the query and unchanged segments only merge their cached counts
+ */
+public class FacetCountCache {
+
+	// key, arrays and map entry
+	private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+	private final Cache<Key, SegmentFacetCounts> facetCounts;
+
+	/**
+	 * @param segmentKey         the segment core and live docs
+	 * @param query              the filter the counts are for
+	 * @param dimensionOrdinals  the sorted requested dimension ordinals
+	 */
+	public record Key(SegmentKey segmentKey, Query query, int[] dimensionOrdinals) {
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key other)) {
+				return false;
+			}
+			return segmentKey.equals(other.segmentKey) && query.equals(other.query) && Arrays.equals(dimensionOrdinals, other.dimensionOrdinals);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * segmentKey.hashCode() + query.hashCode()) + Arrays.hashCode(dimensionOrdinals);
+		}
+	}
+
+	public FacetCountCache(long maxBytes) {
+		this.facetCounts = Caffeine.newBuilder().maximumWeight(maxBytes)
+				.weigher((Key key, SegmentFacetCounts counts) -> (int) Math.min(Integer.MAX_VALUE,
+						ENTRY_OVERHEAD_BYTES + (long) key.dimensionOrdinals().length * Integer.BYTES + counts.getBytes()))
+				.recordStats().build();
+	}
+
+	/**
+	 * Only queries that are match all or made of filters are cached, the counts of free text queries are rarely repeated and would evict them
+	 */
+	public static boolean isCacheable(Query query) {
+		if (query instanceof MatchAllDocsQuery || query instanceof ConstantScoreQuery) {
+			return true;
+		}
+		if (query instanceof BooleanQuery booleanQuery) {
+			for (BooleanClause clause : booleanQuery.clauses()) {
+				if (clause.isScoring()) {
+					return false;
+				}
+			}
+			return !booleanQuery.clauses().isEmpty();
+		}
+		return false;
+	}
+
+	/**
+	 * @return the key for the counts of the segment or null if the segment does not support caching
+	 */
+	public static Key getKey(LeafReaderContext leafReaderContext, Query query, int[] dimensionOrdinals) {
+		SegmentKey segmentKey = SegmentKey.of(leafReaderContext);
+		if (segmentKey == null) {
+			return null;
+		}
+		return new Key(segmentKey, query, dimensionOrdinals);
+	}
+
+	public SegmentFacetCounts get(Key key) {
+		return facetCounts.getIfPresent(key);
+	}
+
+	public void put(Key key, SegmentFacetCounts segmentFacetCounts) {
+		facetCounts.put(key, segmentFacetCounts);
+	}
+
+	public ZuliaBase.CacheStats getCacheStats() {
+		return CacheStatsUtil.getCacheStats(facetCounts);
+	}
+
+}
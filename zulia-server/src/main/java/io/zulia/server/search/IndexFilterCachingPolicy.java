@@ -0,0 +1,37 @@
+package io.zulia.server.search;
+
+import io.zulia.server.config.ServerIndexConfig;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
+
+import java.io.IOException;
+
+/**
+ * Decides which filters of an index are cached in the node wide filter cache.  Tracks the usage of filters across all shards of the index and reads the
+ * index settings on each decision so updates to the index take effect without reopening the shards
+ */
+public class IndexFilterCachingPolicy extends UsageTrackingQueryCachingPolicy {
+
+	private final ServerIndexConfig indexConfig;
+
+	public IndexFilterCachingPolicy(ServerIndexConfig indexConfig) {
+		this.indexConfig = indexConfig;
+	}
+
+	@Override
+	public boolean shouldCache(Query query) throws IOException {
+		if (!indexConfig.isFilterCacheEnabled()) {
+			return false;
+		}
+		return super.shouldCache(query);
+	}
+
+	@Override
+	protected int minFrequencyToCache(Query query) {
+		int minFrequency = indexConfig.getFilterCacheMinFrequency();
+		if (minFrequency > 0) {
+			return minFrequency;
+		}
+		return super.minFrequencyToCache(query);
+	}
+}
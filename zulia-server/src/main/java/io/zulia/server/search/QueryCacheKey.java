@@ -14,12 +14,14 @@ public class QueryCacheKey {
 
 		// remove the search label from caching consideration as well
 
+		// the timeout does not change the result of a completed search and timed out searches are never cached
+
 		// clear out all indexes from the request except for this index
 		// this allows caching to happen at the index level, i.e. ->
 		//  * the caching for identical queries searched again two indexes could be use for a combined query against two indexes
 		//  * the two identical queries against different aliases pointed at the same index would be cache hits for each other
 
-		this.queryRequest = queryRequest.toBuilder().clearIndex().setPinToCache(false).setSearchLabel("").build();
+		this.queryRequest = queryRequest.toBuilder().clearIndex().setPinToCache(false).setSearchLabel("").setTimeoutMS(0).build();
 	}
 
 	public boolean isPinned() {
@@ -5,22 +5,33 @@ import io.zulia.message.ZuliaIndex.FieldConfig;
 import io.zulia.message.ZuliaQuery;
 import io.zulia.message.ZuliaQuery.AnalysisRequest;
 import io.zulia.message.ZuliaQuery.AnalysisResult;
+import io.zulia.message.ZuliaQuery.CardinalityInternal;
+import io.zulia.message.ZuliaQuery.CardinalityRequest;
 import io.zulia.message.ZuliaQuery.CountRequest;
 import io.zulia.message.ZuliaQuery.FacetGroup;
 import io.zulia.message.ZuliaQuery.FieldSort;
+import io.zulia.message.ZuliaQuery.HistogramRequest;
+import io.zulia.message.ZuliaQuery.HistogramResult;
 import io.zulia.message.ZuliaQuery.IndexShardResponse;
 import io.zulia.message.ZuliaQuery.LastIndexResult;
 import io.zulia.message.ZuliaQuery.LastResult;
+import io.zulia.message.ZuliaQuery.RangeRequest;
+import io.zulia.message.ZuliaQuery.RangeResult;
 import io.zulia.message.ZuliaQuery.ScoredResult;
 import io.zulia.message.ZuliaQuery.ShardQueryResponse;
 import io.zulia.message.ZuliaQuery.SortRequest;
 import io.zulia.message.ZuliaQuery.StatRequest;
+import io.zulia.message.ZuliaQuery.TimedOutShard;
 import io.zulia.message.ZuliaServiceOuterClass.InternalQueryResponse;
 import io.zulia.message.ZuliaServiceOuterClass.QueryRequest;
 import io.zulia.message.ZuliaServiceOuterClass.QueryResponse;
 import io.zulia.server.analysis.frequency.TermFreq;
 import io.zulia.server.config.SortFieldInfo;
 import io.zulia.server.index.ZuliaIndex;
+import io.zulia.server.search.aggregation.bucket.HistogramCombiner;
+import io.zulia.server.search.aggregation.bucket.RangeCombiner;
+import io.zulia.server.search.aggregation.ShardSampling;
+import io.zulia.server.search.aggregation.cardinality.CardinalityCombiner;
 import io.zulia.server.search.aggregation.facets.FacetCombiner;
 import io.zulia.server.search.aggregation.stats.StatCombiner;
 import io.zulia.server.search.score.ZuliaPostSortingComparator;
@@ -28,13 +39,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class QueryCombiner {
 
@@ -49,7 +62,8 @@ public class QueryCombiner {
 	private final SortRequest sortRequest;
 	private final Collection<ZuliaIndex> indexes;
 	private final Map<String, Integer> indexToShardCount;
-	private boolean isShort;
+	private final Map<String, Set<Integer>> shortShards;
+	private final Map<String, Map<Integer, ShardQueryResponse>> refinedShardResponseMap;
 
 	public QueryCombiner(Collection<ZuliaIndex> indexes, QueryRequest request, List<InternalQueryResponse> responses) {
 		this.indexToShardCount = new HashMap<>();
@@ -69,10 +83,29 @@ public class QueryCombiner {
 		this.start = request.getStart();
 		this.analysisRequestList = request.getAnalysisRequestList();
 
-		this.isShort = false;
+		this.shortShards = new HashMap<>();
+		this.refinedShardResponseMap = new HashMap<>();
 
 	}
 
+	/**
+	 * Sets the responses of the facet refinement round, their facet counts are added to the first round counts of the same shard
+	 */
+	public void setFacetRefinements(List<InternalQueryResponse> refinements) {
+		for (InternalQueryResponse iqr : refinements) {
+			for (IndexShardResponse isr : iqr.getIndexShardResponseList()) {
+				for (ShardQueryResponse sr : isr.getShardQueryResponseList()) {
+					refinedShardResponseMap.computeIfAbsent(isr.getIndexName(), k -> new HashMap<>()).put(sr.getShardNumber(), sr);
+				}
+			}
+		}
+	}
+
+	private ShardQueryResponse getRefinedShardResponse(ShardQueryResponse sr) {
+		Map<Integer, ShardQueryResponse> refinedShardResponses = refinedShardResponseMap.get(sr.getIndexName());
+		return refinedShardResponses != null ? refinedShardResponses.get(sr.getShardNumber()) : null;
+	}
+
 	private void validate() throws Exception {
 		for (InternalQueryResponse iqr : responses) {
 
@@ -128,6 +161,7 @@ public class QueryCombiner {
 		long returnedHits = 0;
 		int shardsCached = 0;
 		int shardsPinned = 0;
+		List<TimedOutShard> timedOutShards = new ArrayList<>();
 
 		for (ShardQueryResponse sr : shardResponses) {
 			totalHits += sr.getTotalHits();
@@ -138,6 +172,10 @@ public class QueryCombiner {
 			if (sr.getPinned()) {
 				shardsPinned++;
 			}
+			ShardQueryResponse refinedShardResponse = getRefinedShardResponse(sr);
+			if (sr.getTimedOut() || (refinedShardResponse != null && refinedShardResponse.getTimedOut())) {
+				timedOutShards.add(TimedOutShard.newBuilder().setIndexName(sr.getIndexName()).setShardNumber(sr.getShardNumber()).build());
+			}
 
 		}
 
@@ -149,30 +187,61 @@ public class QueryCombiner {
 		builder.setShardsCached(shardsCached);
 		builder.setShardsPinned(shardsPinned);
 		builder.setShardsQueried(shardResponses.size());
+		builder.setPartialResults(!timedOutShards.isEmpty());
+		builder.addAllTimedOutShard(timedOutShards);
 
 		int resultsSize = Math.min(amount, (int) returnedHits);
 
 		Map<CountRequest, FacetCombiner> facetCombinerMap = new HashMap<>();
 		Map<StatRequest, StatCombiner> statCombinerMap = new HashMap<>();
+		Map<CardinalityRequest, CardinalityCombiner> cardinalityCombinerMap = new HashMap<>();
+		Map<HistogramRequest, HistogramCombiner> histogramCombinerMap = new HashMap<>();
+		Map<RangeRequest, RangeCombiner> rangeCombinerMap = new HashMap<>();
 
 		Map<AnalysisRequest, Map<String, Term.Builder>> analysisRequestToTermMap = new HashMap<>();
 
+		ShardSampling shardSampling = new ShardSampling(shardResponses);
+
 		int shardIndex = 0;
 
 		for (ShardQueryResponse sr : shardResponses) {
 			for (FacetGroup fg : sr.getFacetGroupList()) {
 				CountRequest countRequest = fg.getCountRequest();
 				FacetCombiner facetCombiner = facetCombinerMap.computeIfAbsent(countRequest,
-						countRequest1 -> new FacetCombiner(countRequest, shardResponses.size()));
+						countRequest1 -> new FacetCombiner(countRequest, shardResponses.size(), shardSampling));
 				facetCombiner.handleFacetGroupForShard(fg, shardIndex);
 			}
 
+			ShardQueryResponse refinedShardResponse = getRefinedShardResponse(sr);
+			if (refinedShardResponse != null) {
+				for (FacetGroup fg : refinedShardResponse.getFacetGroupList()) {
+					FacetCombiner facetCombiner = facetCombinerMap.get(fg.getCountRequest());
+					if (facetCombiner != null) {
+						facetCombiner.handleRefinedFacetGroupForShard(fg, shardIndex);
+					}
+				}
+			}
+
 			for (ZuliaQuery.StatGroupInternal sg : sr.getStatGroupList()) {
 				StatRequest statRequest = sg.getStatRequest();
-				StatCombiner statCombiner = statCombinerMap.computeIfAbsent(statRequest, statRequest1 -> new StatCombiner(statRequest, shardResponses.size()));
+				StatCombiner statCombiner = statCombinerMap.computeIfAbsent(statRequest,
+						statRequest1 -> new StatCombiner(statRequest, shardResponses.size(), shardSampling));
 				statCombiner.handleStatGroupForShard(sg, shardIndex);
 			}
 
+			for (CardinalityInternal cardinality : sr.getCardinalityList()) {
+				CardinalityRequest cardinalityRequest = cardinality.getCardinalityRequest();
+				cardinalityCombinerMap.computeIfAbsent(cardinalityRequest, CardinalityCombiner::new).handleCardinalityForShard(cardinality);
+			}
+
+			for (HistogramResult histogramResult : sr.getHistogramResultList()) {
+				histogramCombinerMap.computeIfAbsent(histogramResult.getHistogramRequest(), HistogramCombiner::new).handleHistogramForShard(histogramResult);
+			}
+
+			for (RangeResult rangeResult : sr.getRangeResultList()) {
+				rangeCombinerMap.computeIfAbsent(rangeResult.getRangeRequest(), RangeCombiner::new).handleRangesForShard(rangeResult);
+			}
+
 			for (AnalysisResult analysisResult : sr.getAnalysisResultList()) {
 
 				AnalysisRequest analysisRequest = analysisResult.getAnalysisRequest();
@@ -216,6 +285,18 @@ public class QueryCombiner {
 			builder.addStatGroup(statCombiner.getCombinedStatGroupAndConvertToExternalType());
 		}
 
+		for (CardinalityCombiner cardinalityCombiner : cardinalityCombinerMap.values()) {
+			builder.addCardinalityResult(cardinalityCombiner.getCombinedCardinality());
+		}
+
+		for (HistogramCombiner histogramCombiner : histogramCombinerMap.values()) {
+			builder.addHistogramResult(histogramCombiner.getCombinedHistogram());
+		}
+
+		for (RangeCombiner rangeCombiner : rangeCombinerMap.values()) {
+			builder.addRangeResult(rangeCombiner.getCombinedRanges());
+		}
+
 		Map<String, ScoredResult[]> lastIndexResultMap = createLastIndexResultMapWithPreviousLastResults();
 		List<ScoredResult> results;
 		if (shardResponses.size() > 1) {
@@ -253,27 +334,15 @@ public class QueryCombiner {
 
 		boolean sorting = (sortRequest != null && !sortRequest.getFieldSortList().isEmpty());
 
-		List<ScoredResult> mergedResults = new ArrayList<>(returnedHits);
-		for (ShardQueryResponse sr : shardResponses) {
-			mergedResults.addAll(sr.getScoredResultList());
-		}
-
-		if (!mergedResults.isEmpty()) {
+		if (returnedHits > 0) {
 
 			List<FieldSort> fieldSortList = sortRequest != null ? sortRequest.getFieldSortList() : Collections.emptyList();
 			HashMap<String, FieldConfig.FieldType> sortTypeMap = createSortTypeMap(fieldSortList);
 
 			Comparator<ScoredResult> comparator = new ZuliaPostSortingComparator(fieldSortList, sortTypeMap);
-			mergedResults.sort(comparator);
 
-			results = mergedResults.subList(0, resultsSize);
+			results = mergeSortedShardResults(comparator, resultsSize, lastIndexResultMap);
 
-			for (ScoredResult sr : results) {
-				ScoredResult[] lastForShardArr = lastIndexResultMap.get(sr.getIndexName());
-				lastForShardArr[sr.getShard()] = sr;
-			}
-
-			outside:
 			for (ZuliaIndex index : indexes) {
 				String indexName = index.getIndexName();
 				ScoredResult[] lastForShardArr = lastIndexResultMap.get(indexName);
@@ -308,38 +377,18 @@ public class QueryCombiner {
 						if (compare > 0) {
 
 							if (sorting) {
-								String msg = "Result set did not return the most relevant sorted documents for index <" + indexName + ">\n";
-								msg += "    Last for index from shard <" + lastForIndex.getShard() + "> has sort values <" + lastForIndex.getSortValues()
-										+ ">\n";
-								msg += "    Next for shard <" + next.getShard() + ">  has sort values <" + next.getSortValues() + ">\n";
-								msg += "    Last for shards: \n";
-								msg += "      " + Arrays.toString(lastForShardArr) + "\n";
-								msg += "    Results: \n";
-								msg += "      " + results + "\n";
-								msg += "    If this happens frequently increase requestFactor or minShardRequest\n";
-								msg += "    Retrying with full request.\n";
-								LOG.error(msg);
-
-								isShort = true;
-								break outside;
+								LOG.error("Shard <" + shardNumber + "> for index <" + indexName + "> is short, next has sort values <" + next.getSortValues()
+										+ "> and last for index from shard <" + lastForIndex.getShard() + "> has sort values <" + lastForIndex.getSortValues() + ">");
+								shortShards.computeIfAbsent(indexName, k -> new TreeSet<>()).add(shardNumber);
+								continue;
 							}
 
 							double diff = (Math.abs(lastForIndex.getScore() - next.getScore()));
 							if (diff > shardTolerance) {
-								String msg = "Result set did not return the most relevant documents for index <" + indexName + "> with shard tolerance <"
-										+ shardTolerance + ">\n";
-								msg += "    Last for index from shard <" + lastForIndex.getShard() + "> has score <" + lastForIndex.getScore() + ">\n";
-								msg += "    Next for shard <" + next.getShard() + "> has score <" + next.getScore() + ">\n";
-								msg += "    Last for shards: \n";
-								msg += "      " + Arrays.toString(lastForShardArr) + "\n";
-								msg += "    Results: \n";
-								msg += "      " + results + "\n";
-								msg += "    If this happens frequently increase requestFactor, minShardRequest, or shardTolerance\n";
-								msg += "    Retrying with full request.\n";
-								LOG.error(msg);
-
-								isShort = true;
-								break outside;
+								LOG.error("Shard <" + shardNumber + "> for index <" + indexName + "> is short with shard tolerance <" + shardTolerance
+										+ ">, next has score <" + next.getScore() + "> and last for index from shard <" + lastForIndex.getShard() + "> has score <"
+										+ lastForIndex.getScore() + ">");
+								shortShards.computeIfAbsent(indexName, k -> new TreeSet<>()).add(shardNumber);
 							}
 						}
 					}
@@ -350,6 +399,60 @@ public class QueryCombiner {
 		return results;
 	}
 
+	/**
+	 * Each shard response is already sorted so only the head of each shard is compared.  Ties are broken by the order of the shard responses to
+	 * match a stable sort of all results.  The last result taken from each shard is recorded as the cursor for the next page.
+	 */
+	private List<ScoredResult> mergeSortedShardResults(Comparator<ScoredResult> comparator, int resultsSize, Map<String, ScoredResult[]> lastIndexResultMap) {
+		PriorityQueue<ShardResultCursor> frontier = new PriorityQueue<>(shardResponses.size(),
+				Comparator.comparing(ShardResultCursor::current, comparator).thenComparingInt(ShardResultCursor::getShardOrder));
+
+		int shardOrder = 0;
+		for (ShardQueryResponse sr : shardResponses) {
+			if (sr.getScoredResultCount() > 0) {
+				frontier.add(new ShardResultCursor(sr.getScoredResultList(), shardOrder));
+			}
+			shardOrder++;
+		}
+
+		List<ScoredResult> results = new ArrayList<>(resultsSize);
+		while (results.size() < resultsSize && !frontier.isEmpty()) {
+			ShardResultCursor cursor = frontier.poll();
+			ScoredResult scoredResult = cursor.current();
+			results.add(scoredResult);
+			lastIndexResultMap.get(scoredResult.getIndexName())[scoredResult.getShard()] = scoredResult;
+
+			if (cursor.advance()) {
+				frontier.add(cursor);
+			}
+		}
+		return results;
+	}
+
+	private static class ShardResultCursor {
+		private final List<ScoredResult> scoredResults;
+		private final int shardOrder;
+		private int position;
+
+		public ShardResultCursor(List<ScoredResult> scoredResults, int shardOrder) {
+			this.scoredResults = scoredResults;
+			this.shardOrder = shardOrder;
+		}
+
+		public ScoredResult current() {
+			return scoredResults.get(position);
+		}
+
+		public int getShardOrder() {
+			return shardOrder;
+		}
+
+		public boolean advance() {
+			position++;
+			return position < scoredResults.size();
+		}
+	}
+
 	private HashMap<String, FieldConfig.FieldType> createSortTypeMap(List<FieldSort> fieldSortList) throws Exception {
 		HashMap<String, FieldConfig.FieldType> sortTypeMap = new HashMap<>();
 
@@ -420,7 +523,14 @@ public class QueryCombiner {
 	}
 
 	public boolean isShort() {
-		return isShort;
+		return !shortShards.isEmpty();
+	}
+
+	/**
+	 * @return shard numbers by index name of the shards that could have more results that belong in the requested page
+	 */
+	public Map<String, Set<Integer>> getShortShards() {
+		return shortShards;
 	}
 
 }
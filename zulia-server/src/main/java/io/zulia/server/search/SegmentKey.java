@@ -0,0 +1,26 @@
+package io.zulia.server.search;
+
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+
+/**
+ * Identifies the state of a segment across reader refreshes.  Deletes for a segment core only ever grow so the core cache key plus the number of
+ * deleted documents identifies the live docs of the segment.
+ */
+public record SegmentKey(IndexReader.CacheKey coreKey, int liveDocsGeneration) {
+
+	/**
+	 * @return the key for the segment or null if the segment does not support caching
+	 */
+	public static SegmentKey of(LeafReaderContext leafReaderContext) {
+		LeafReader leafReader = FilterLeafReader.unwrap(leafReaderContext.reader());
+		IndexReader.CacheHelper coreCacheHelper = leafReader.getCoreCacheHelper();
+		if (coreCacheHelper == null) {
+			return null;
+		}
+		return new SegmentKey(coreCacheHelper.getKey(), leafReader.numDeletedDocs());
+	}
+
+}
@@ -0,0 +1,39 @@
+package io.zulia.server.search;
+
+import io.zulia.server.search.aggregation.AggregationHandler;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+
+/**
+ * Partial results of a query for a single segment.  Doc ids of the top docs are relative to the segment so they can be rebased after a refresh
+ *
+ * @param topDocs            segment relative top docs or null if they can not be reused (depend on index wide scoring statistics)
+ * @param aggregationHandler facet and stat partials or null if not requested, compacted when cached
+ */
+public record SegmentQueryResult(TopDocs topDocs, AggregationHandler aggregationHandler) {
+
+	// score doc object, a field doc adds an array with the boxed sort values
+	private static final int SCORE_DOC_BYTES = 32;
+	private static final int SORT_VALUE_BYTES = 32;
+
+	/**
+	 * @return the estimated memory of the top docs and the aggregation partials
+	 */
+	public long getBytes() {
+		long bytes = 0;
+		if (topDocs != null) {
+			for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+				bytes += SCORE_DOC_BYTES;
+				if (scoreDoc instanceof FieldDoc fieldDoc && fieldDoc.fields != null) {
+					bytes += (long) fieldDoc.fields.length * SORT_VALUE_BYTES;
+				}
+			}
+		}
+		if (aggregationHandler != null) {
+			bytes += aggregationHandler.getBytes();
+		}
+		return bytes;
+	}
+
+}
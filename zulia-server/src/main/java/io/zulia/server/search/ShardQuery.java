@@ -1,5 +1,6 @@
 package io.zulia.server.search;
 
+import io.grpc.Deadline;
 import io.zulia.ZuliaFieldConstants;
 import io.zulia.message.ZuliaBase;
 import io.zulia.message.ZuliaQuery;
@@ -27,11 +28,12 @@ public class ShardQuery {
 	List<ZuliaQuery.HighlightRequest> highlightList;
 	List<ZuliaQuery.AnalysisRequest> analysisRequestList;
 	boolean debug;
+	Deadline deadline;
 
 	public ShardQuery(Query query, Map<String, ZuliaBase.Similarity> similarityOverrideMap, int amount, Map<Integer, FieldDoc> shardToAfter,
 			ZuliaQuery.FacetRequest facetRequest, ZuliaQuery.SortRequest sortRequest, QueryCacheKey queryCacheKey, ZuliaQuery.FetchType resultFetchType,
 			List<String> fieldsToReturn, List<String> fieldsToMask, List<ZuliaQuery.HighlightRequest> highlightList,
-			List<ZuliaQuery.AnalysisRequest> analysisRequestList, boolean debug) {
+			List<ZuliaQuery.AnalysisRequest> analysisRequestList, boolean debug, Deadline deadline) {
 		this.query = query;
 		this.similarityOverrideMap = similarityOverrideMap;
 		this.amount = amount;
@@ -45,12 +47,13 @@ public class ShardQuery {
 		this.highlightList = highlightList;
 		this.analysisRequestList = analysisRequestList;
 		this.debug = debug;
+		this.deadline = deadline;
 	}
 
 	public static ShardQuery queryById(String uniqueId, ZuliaQuery.FetchType resultFetchType, List<String> fieldsToReturn, List<String> fieldsToMask) {
 		Query query = new ConstantScoreQuery(new TermQuery(new Term(ZuliaFieldConstants.ID_FIELD, uniqueId)));
 		return new ShardQuery(query, null, 1, Collections.emptyMap(), ZuliaQuery.FacetRequest.newBuilder().build(), null, null, resultFetchType, fieldsToReturn,
-				fieldsToMask, Collections.emptyList(), Collections.emptyList(), false);
+				fieldsToMask, Collections.emptyList(), Collections.emptyList(), false, null);
 	}
 
 	public Query getQuery() {
@@ -104,4 +107,11 @@ public class ShardQuery {
 	public boolean isDebug() {
 		return debug;
 	}
+
+	/**
+	 * @return the deadline for collecting results on the shard or null if the query has no timeout
+	 */
+	public Deadline getDeadline() {
+		return deadline;
+	}
 }
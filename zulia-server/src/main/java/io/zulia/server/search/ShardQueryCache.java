@@ -0,0 +1,100 @@
+package io.zulia.server.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.zulia.message.ZuliaBase;
+
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.zulia.server.util.CacheStatsUtil.getCacheStats;
+
+/**
+ * Query cache that lives for the life of a shard instead of a single reader.  Entries keep the per segment partial results so after a refresh only new or
+ * changed segments need to be searched.  Entries are weighed by their estimated bytes so both the general and the pinned cache are bounded in memory,
+ * entries grow as segments are searched so they are weighed again after every query
+ */
+public class ShardQueryCache {
+
+	private final long maxBytes;
+
+	private final Cache<QueryCacheKey, ShardQueryCacheEntry> queryResultCache;
+	private final Cache<QueryCacheKey, ShardQueryCacheEntry> pinnedQueryResultCache;
+
+	private final LongAdder segmentHits;
+	private final LongAdder segmentMisses;
+
+	private volatile long minEntryBytes;
+
+	/**
+	 * @param shardQueryCacheSize the max number of entries in the general cache
+	 * @param maxBytes            the max estimated bytes of the general cache and of the pinned cache
+	 */
+	public ShardQueryCache(int shardQueryCacheSize, long maxBytes) {
+		this.maxBytes = maxBytes;
+		setMinEntryBytes(shardQueryCacheSize);
+		// every entry weighs at least its share of the max entries so the general cache is bounded by both the entries and the bytes
+		this.queryResultCache = Caffeine.newBuilder().maximumWeight(maxBytes)
+				.weigher((QueryCacheKey key, ShardQueryCacheEntry entry) -> toWeight(Math.max(minEntryBytes, entry.getBytes()))).recordStats().build();
+		this.pinnedQueryResultCache = Caffeine.newBuilder().maximumWeight(maxBytes)
+				.weigher((QueryCacheKey key, ShardQueryCacheEntry entry) -> toWeight(entry.getBytes())).recordStats().build();
+		this.segmentHits = new LongAdder();
+		this.segmentMisses = new LongAdder();
+	}
+
+	private static int toWeight(long bytes) {
+		return (int) Math.min(Integer.MAX_VALUE, bytes);
+	}
+
+	private void setMinEntryBytes(int shardQueryCacheSize) {
+		this.minEntryBytes = maxBytes / Math.max(1, shardQueryCacheSize);
+	}
+
+	public void setShardQueryCacheSize(int shardQueryCacheSize) {
+		setMinEntryBytes(shardQueryCacheSize);
+		queryResultCache.asMap().replaceAll((key, entry) -> entry);
+	}
+
+	public ShardQueryCacheEntry getPinnedIfPresent(QueryCacheKey queryCacheKey) {
+		return pinnedQueryResultCache.getIfPresent(queryCacheKey);
+	}
+
+	public ShardQueryCacheEntry getOrCreatePinned(QueryCacheKey queryCacheKey) {
+		return pinnedQueryResultCache.get(queryCacheKey, key -> new ShardQueryCacheEntry());
+	}
+
+	public ShardQueryCacheEntry getOrCreate(QueryCacheKey queryCacheKey) {
+		return queryResultCache.get(queryCacheKey, key -> new ShardQueryCacheEntry());
+	}
+
+	/**
+	 * Weighs the entry again after a query added results to it, does nothing if the entry was evicted in the meantime
+	 */
+	public void updateWeight(QueryCacheKey queryCacheKey, ShardQueryCacheEntry cacheEntry, boolean pinned) {
+		Cache<QueryCacheKey, ShardQueryCacheEntry> cache = pinned ? pinnedQueryResultCache : queryResultCache;
+		cache.asMap().replace(queryCacheKey, cacheEntry, cacheEntry);
+	}
+
+	/**
+	 * Drops the segment results of every entry for segments that are not in the current reader, called after a refresh so entries that are not queried
+	 * again do not keep the partials of merged away segments
+	 */
+	public void retainSegments(Set<SegmentKey> currentSegments) {
+		queryResultCache.asMap().replaceAll((key, entry) -> entry.retainSegments(currentSegments));
+		pinnedQueryResultCache.asMap().replaceAll((key, entry) -> entry.retainSegments(currentSegments));
+	}
+
+	public void recordSegmentHit() {
+		segmentHits.increment();
+	}
+
+	public void recordSegmentMiss() {
+		segmentMisses.increment();
+	}
+
+	public ZuliaBase.ShardCacheStats getShardCacheStats() {
+		ZuliaBase.CacheStats segmentCacheStats = ZuliaBase.CacheStats.newBuilder().setHitCount(segmentHits.sum()).setMissCount(segmentMisses.sum()).build();
+		return ZuliaBase.ShardCacheStats.newBuilder().setGeneralCache(getCacheStats(queryResultCache)).setPinnedCache(getCacheStats(pinnedQueryResultCache))
+				.setSegmentCache(segmentCacheStats).build();
+	}
+}
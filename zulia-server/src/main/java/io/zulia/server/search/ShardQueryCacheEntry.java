@@ -0,0 +1,77 @@
+package io.zulia.server.search;
+
+import io.zulia.message.ZuliaQuery.ShardQueryResponse;
+import org.apache.lucene.index.IndexReader;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cached response and segment results of a query on a shard.  Identical queries can read and add to an entry concurrently, each searches the segments
+ * missing from the entry and the last to finish sets the response
+ */
+public class ShardQueryCacheEntry {
+
+	// key, entry, map and response holder
+	private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+	// segment key and map entry
+	private static final int SEGMENT_OVERHEAD_BYTES = 96;
+
+	private record ReaderResponse(IndexReader.CacheKey readerKey, ShardQueryResponse response) {
+
+	}
+
+	private final Map<SegmentKey, SegmentQueryResult> segmentResults;
+
+	private volatile ReaderResponse readerResponse;
+
+	public ShardQueryCacheEntry() {
+		this.segmentResults = new ConcurrentHashMap<>();
+	}
+
+	public ShardQueryResponse getResponse(IndexReader.CacheKey readerKey) {
+		ReaderResponse current = readerResponse;
+		if (current != null && readerKey.equals(current.readerKey())) {
+			return current.response();
+		}
+		return null;
+	}
+
+	public void setResponse(IndexReader.CacheKey readerKey, ShardQueryResponse response) {
+		this.readerResponse = new ReaderResponse(readerKey, response);
+	}
+
+	public SegmentQueryResult getSegmentResult(SegmentKey segmentKey) {
+		return segmentResults.get(segmentKey);
+	}
+
+	public void putSegmentResult(SegmentKey segmentKey, SegmentQueryResult segmentQueryResult) {
+		segmentResults.put(segmentKey, segmentQueryResult);
+	}
+
+	/**
+	 * @return this entry without the results of segments merged away or with new deletes, they will never be seen again
+	 */
+	public ShardQueryCacheEntry retainSegments(Set<SegmentKey> currentSegments) {
+		segmentResults.keySet().retainAll(currentSegments);
+		return this;
+	}
+
+	/**
+	 * @return the estimated memory of the response and the segment results
+	 */
+	public long getBytes() {
+		long bytes = ENTRY_OVERHEAD_BYTES;
+		ReaderResponse current = readerResponse;
+		if (current != null) {
+			bytes += current.response().getSerializedSize();
+		}
+		for (SegmentQueryResult segmentResult : segmentResults.values()) {
+			bytes += SEGMENT_OVERHEAD_BYTES + segmentResult.getBytes();
+		}
+		return bytes;
+	}
+
+}
@@ -0,0 +1,30 @@
+package io.zulia.server.search;
+
+import io.grpc.Deadline;
+import org.apache.lucene.index.QueryTimeout;
+
+/**
+ * Stops collection of a shard query once the deadline of the request has passed and remembers that the shard returned partial results
+ */
+public class ShardQueryTimeout implements QueryTimeout {
+
+	private final Deadline deadline;
+	private volatile boolean timedOut;
+
+	public ShardQueryTimeout(Deadline deadline) {
+		this.deadline = deadline;
+	}
+
+	@Override
+	public boolean shouldExit() {
+		if (deadline.isExpired()) {
+			timedOut = true;
+			return true;
+		}
+		return false;
+	}
+
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+}
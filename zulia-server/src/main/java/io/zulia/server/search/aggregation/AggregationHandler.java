@@ -18,46 +18,98 @@ package io.zulia.server.search.aggregation;
 
 import com.koloboke.collect.map.ObjObjMap;
 import com.koloboke.collect.map.hash.HashObjObjMaps;
+import com.koloboke.collect.set.IntSet;
+import com.koloboke.collect.set.hash.HashIntSets;
+import io.zulia.ZuliaFieldConstants;
 import io.zulia.message.ZuliaQuery;
 import io.zulia.server.config.ServerIndexConfig;
 import io.zulia.server.config.SortFieldInfo;
 import io.zulia.server.field.FieldTypeUtil;
+import io.zulia.server.search.FacetCountCache;
+import io.zulia.server.search.aggregation.bucket.HistogramInfo;
+import io.zulia.server.search.aggregation.bucket.RangeInfo;
+import io.zulia.server.search.aggregation.cardinality.CardinalityInfo;
+import io.zulia.server.search.aggregation.cardinality.NumericCardinalityInfo;
+import io.zulia.server.search.aggregation.cardinality.SortedSetCardinalityInfo;
+import io.zulia.server.search.aggregation.cardinality.TaxonomyCardinalityInfo;
 import io.zulia.server.search.aggregation.facets.BinaryFacetReader;
 import io.zulia.server.search.aggregation.facets.CountFacetInfo;
 import io.zulia.server.search.aggregation.facets.FacetsReader;
+import io.zulia.server.search.aggregation.facets.SegmentFacetCounts;
+import io.zulia.server.search.aggregation.facets.SortedSetFacetInfo;
 import io.zulia.server.search.aggregation.ordinal.FacetHandler;
 import io.zulia.server.search.aggregation.ordinal.MapStatOrdinalStorage;
 import io.zulia.server.search.aggregation.stats.NumericFieldStatInfo;
+import io.zulia.server.search.aggregation.stats.StatSketchFactory;
+import io.zulia.server.search.aggregation.stats.StatSketchReservation;
 import io.zulia.server.search.aggregation.stats.Stats;
-import org.apache.lucene.facet.FacetsCollector;
 import org.apache.lucene.facet.FacetsCollector.MatchingDocs;
 import org.apache.lucene.facet.TopOrdAndIntQueue;
 import org.apache.lucene.facet.taxonomy.FacetLabel;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Query;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class AggregationHandler {
 
-	private final TaxonomyReader taxoReader;
+	/**
+	 * Below this number of matching documents summing on the calling thread is cheaper than creating and merging partials
+	 */
+	private static final int PARALLEL_MIN_HITS = 100_000;
+
+	private TaxonomyReader taxoReader;
+	private final ZuliaQuery.FacetRequest facetRequest;
+	private final ServerIndexConfig serverIndexConfig;
+	private final StatSketchReservation sketchReservation;
+	private final boolean deferFacetSketches;
 	private final NumericFieldStatInfo[] fields;
 	private final boolean needsFacets;
 
 	private final CountFacetInfo globalFacetInfo;
+	private final SortedSetFacetInfo[] sortedSetFacets;
+	private final CardinalityInfo[] cardinalities;
+	private final HistogramInfo[] histograms;
+	private final RangeInfo[] ranges;
+
+	private List<MatchingDocs> deferredMatchingDocs;
+
+	private FacetCountCache facetCountCache;
+	private Query facetCountQuery;
 
-	public AggregationHandler(TaxonomyReader taxoReader, FacetsCollector fc, List<ZuliaQuery.StatRequest> statRequests,
-			List<ZuliaQuery.CountRequest> countRequests, ServerIndexConfig serverIndexConfig) throws IOException {
+	private double sampleRate = 1;
+
+	/**
+	 * @param sketchReservation  reserves the memory of the percentile sketches of this handler and its partials against the node wide budget
+	 * @param deferFacetSketches sketch only the values of the top facets of taxonomy facet stats with a second pass over the matching docs, the handler
+	 *                           keeps the matching docs until the stats are read so it cannot be cached
+	 */
+	public AggregationHandler(TaxonomyReader taxoReader, ZuliaQuery.FacetRequest facetRequest, ServerIndexConfig serverIndexConfig,
+			StatSketchReservation sketchReservation, boolean deferFacetSketches) throws IOException {
 
 		this.taxoReader = taxoReader;
+		this.facetRequest = facetRequest;
+		this.serverIndexConfig = serverIndexConfig;
+		this.sketchReservation = sketchReservation;
+		this.deferFacetSketches = deferFacetSketches;
 
 		ObjObjMap<String, NumericFieldStatInfo> fieldToDimensions = HashObjObjMaps.newMutableMap();
+		Map<String, SortedSetFacetInfo> sortedSetFacetMap = new LinkedHashMap<>();
 
 		boolean needsFacetLocal = false;
-		for (ZuliaQuery.StatRequest statRequest : statRequests) {
+		for (ZuliaQuery.StatRequest statRequest : facetRequest.getStatRequestList()) {
 			//global
 			String facetLabel = statRequest.getFacetField().getLabel();
 
@@ -82,48 +134,204 @@ public class AggregationHandler {
 				return info;
 			});
 
+			StatSketchFactory sketchFactory = null;
+			if (statRequest.getPrecision() > 0) {
+				sketchFactory = new StatSketchFactory(statRequest.getPrecision(), statRequest.getMaxSketchBins(), sketchReservation);
+			}
+
 			if (facetLabel.isEmpty()) {
-				fieldStatInfo.enableGlobal(statRequest.getPrecision());
+				fieldStatInfo.enableGlobal(sketchFactory);
+			}
+			else if (serverIndexConfig.isDocValuesFacet(facetLabel)) {
+				fieldStatInfo.enableFacet(sketchFactory);
+				sortedSetFacetMap.computeIfAbsent(facetLabel, SortedSetFacetInfo::new).addStatField(fieldStatInfo);
 			}
 			else {
 				fieldStatInfo.addFacet(facetLabel, taxoReader.getOrdinal(new FacetLabel(facetLabel)));
-				fieldStatInfo.enableFacetWithPrecision(statRequest.getPrecision());
+				fieldStatInfo.enableFacet(sketchFactory);
 				needsFacetLocal = true;
 			}
 		}
 
 		globalFacetInfo = new CountFacetInfo();
-		for (ZuliaQuery.CountRequest countRequest : countRequests) {
+		for (ZuliaQuery.CountRequest countRequest : facetRequest.getCountRequestList()) {
 			ZuliaQuery.Facet facetField = countRequest.getFacetField();
 			String facetFieldLabel = facetField.getLabel();
+			if (serverIndexConfig.isDocValuesFacet(facetFieldLabel)) {
+				sortedSetFacetMap.computeIfAbsent(facetFieldLabel, SortedSetFacetInfo::new).enableCount();
+				continue;
+			}
 			globalFacetInfo.addFacet(facetFieldLabel, taxoReader.getOrdinal(new FacetLabel(facetFieldLabel)));
 			needsFacetLocal = true;
 		}
 
+		cardinalities = new CardinalityInfo[facetRequest.getCardinalityRequestCount()];
+		for (int i = 0; i < cardinalities.length; i++) {
+			cardinalities[i] = createCardinalityInfo(facetRequest.getCardinalityRequest(i));
+			if (cardinalities[i].needsFacets()) {
+				needsFacetLocal = true;
+			}
+		}
+
+		histograms = new HistogramInfo[facetRequest.getHistogramRequestCount()];
+		for (int i = 0; i < histograms.length; i++) {
+			histograms[i] = new HistogramInfo(facetRequest.getHistogramRequest(i), serverIndexConfig);
+		}
+
+		ranges = new RangeInfo[facetRequest.getRangeRequestCount()];
+		for (int i = 0; i < ranges.length; i++) {
+			ranges[i] = new RangeInfo(facetRequest.getRangeRequest(i), serverIndexConfig);
+		}
+
+		// ordinals are dense integers bounded by the taxonomy size, so the storage can be chosen per query from the size and the requested dimensions
+		int taxonomySize = taxoReader.getSize();
 		if (globalFacetInfo.hasFacets()) {
 			globalFacetInfo.computeSortedOrdinalArray();
+			globalFacetInfo.initCounts(taxonomySize);
 		}
 
 		this.needsFacets = needsFacetLocal;
 		this.fields = fieldToDimensions.values().toArray(new NumericFieldStatInfo[0]);
+		this.sortedSetFacets = sortedSetFacetMap.values().toArray(new SortedSetFacetInfo[0]);
 
 		for (NumericFieldStatInfo field : fields) {
 			if (field.hasFacets()) {
 				field.computeSortedOrdinalArray();
+				if (deferFacetSketches) {
+					field.deferFacetSketches();
+				}
+				field.initFacetStatStorage(taxonomySize);
 			}
 		}
 
-		sumValues(fc.getMatchingDocs());
 	}
 
-	private void sumValues(List<MatchingDocs> matchingDocs) throws IOException {
+	/**
+	 * @return an empty handler for the same requests and sketch reservation that computes its sketches eagerly so it can be cached and merged into a handler
+	 */
+	public AggregationHandler createPartial() throws IOException {
+		return new AggregationHandler(taxoReader, facetRequest, serverIndexConfig, sketchReservation, false);
+	}
+
+	/**
+	 * Reduces a partial that is done summing to what is needed to merge it, so it can be cached for a segment without keeping the taxonomy reader or
+	 * arrays sized to the taxonomy.  The partial can only be merged into another handler afterward
+	 */
+	public void compact() {
+		taxoReader = null;
+		facetCountCache = null;
+		facetCountQuery = null;
+		globalFacetInfo.compact();
+		for (NumericFieldStatInfo field : fields) {
+			field.compact();
+		}
+		for (CardinalityInfo cardinality : cardinalities) {
+			cardinality.compact();
+		}
+	}
+
+	/**
+	 * @return the estimated memory of the counts, stats, cardinalities and buckets
+	 */
+	public long getBytes() {
+		long bytes = globalFacetInfo.getBytes();
+		for (NumericFieldStatInfo field : fields) {
+			bytes += field.getBytes();
+		}
+		for (SortedSetFacetInfo sortedSetFacet : sortedSetFacets) {
+			bytes += sortedSetFacet.getBytes();
+		}
+		for (CardinalityInfo cardinality : cardinalities) {
+			bytes += cardinality.getBytes();
+		}
+		for (HistogramInfo histogram : histograms) {
+			bytes += histogram.getBytes();
+		}
+		for (RangeInfo range : ranges) {
+			bytes += range.getBytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Merges the facet counts of segments from the cache and caches the counts of the other segments.  Must only be set when the matching docs are
+	 * complete, i.e. not cut short by a timeout
+	 *
+	 * @param facetCountQuery the query the matching docs are for, see {@link FacetCountCache#isCacheable(Query)}
+	 */
+	public void setFacetCountCache(FacetCountCache facetCountCache, Query facetCountQuery) {
+		this.facetCountCache = facetCountCache;
+		this.facetCountQuery = facetCountQuery;
+	}
+
+	private boolean isCountOnly() {
+		return fields.length == 0 && sortedSetFacets.length == 0 && cardinalities.length == 0 && histograms.length == 0 && ranges.length == 0;
+	}
+
+	private CardinalityInfo createCardinalityInfo(ZuliaQuery.CardinalityRequest cardinalityRequest) throws IOException {
+		String field = cardinalityRequest.getField();
+
+		if (serverIndexConfig.isDocValuesFacet(field)) {
+			return new SortedSetCardinalityInfo(cardinalityRequest, ZuliaFieldConstants.FACET_DOC_VALUES_PREFIX + field);
+		}
+		if (serverIndexConfig.existingFacet(field)) {
+			return new TaxonomyCardinalityInfo(cardinalityRequest, taxoReader, taxoReader.getOrdinal(new FacetLabel(field)));
+		}
+
+		SortFieldInfo sortFieldInfo = serverIndexConfig.getSortFieldInfo(field);
+		if (sortFieldInfo == null) {
+			throw new IllegalArgumentException("Cardinality field <" + field + "> must be a facet or a sortable field");
+		}
+		if (FieldTypeUtil.isStringFieldType(sortFieldInfo.getFieldType())) {
+			return new SortedSetCardinalityInfo(cardinalityRequest, sortFieldInfo.getInternalSortFieldName());
+		}
+		return new NumericCardinalityInfo(cardinalityRequest, sortFieldInfo.getInternalSortFieldName());
+	}
+
+	public void sumValues(List<MatchingDocs> matchingDocs) throws IOException {
+		if (deferFacetSketches) {
+			retainMatchingDocs(matchingDocs);
+		}
+
+		boolean countOnly = isCountOnly();
 
 		for (MatchingDocs hits : matchingDocs) {
 
+			CountFacetInfo segmentCounts = globalFacetInfo.hasFacets() ? globalFacetInfo : null;
+			FacetCountCache.Key facetCountKey = null;
+			if (segmentCounts != null && facetCountCache != null) {
+				facetCountKey = FacetCountCache.getKey(hits.context, facetCountQuery, globalFacetInfo.requestedDimensionOrdinals());
+				SegmentFacetCounts cachedCounts = facetCountKey != null ? facetCountCache.get(facetCountKey) : null;
+				if (cachedCounts != null) {
+					globalFacetInfo.merge(cachedCounts);
+					if (countOnly) {
+						continue;
+					}
+					segmentCounts = null;
+					facetCountKey = null;
+				}
+				else if (facetCountKey != null) {
+					// counted apart so the counts of the segment alone can be cached
+					segmentCounts = globalFacetInfo.newSegmentCounts(taxoReader.getSize());
+				}
+			}
+
 			LeafReader reader = hits.context.reader();
 			for (NumericFieldStatInfo field : fields) {
 				field.setReader(reader);
 			}
+			for (SortedSetFacetInfo sortedSetFacet : sortedSetFacets) {
+				sortedSetFacet.setReader(reader);
+			}
+			for (CardinalityInfo cardinality : cardinalities) {
+				cardinality.setReader(reader);
+			}
+			for (HistogramInfo histogram : histograms) {
+				histogram.setReader(reader);
+			}
+			for (RangeInfo range : ranges) {
+				range.setReader(reader);
+			}
 
 			DocIdSetIterator docs = hits.bits.iterator();
 
@@ -140,8 +348,8 @@ public class AggregationHandler {
 				if (needsFacets) {
 					facetHandler = facetReader.getFacetHandler();
 
-					if (globalFacetInfo.hasFacets()) {
-						facetHandler.handleFacets(globalFacetInfo);
+					if (segmentCounts != null) {
+						facetHandler.handleFacets(segmentCounts);
 					}
 				}
 				else {
@@ -160,10 +368,209 @@ public class AggregationHandler {
 					}
 
 				}
+
+				for (SortedSetFacetInfo sortedSetFacet : sortedSetFacets) {
+					sortedSetFacet.handleDoc(doc);
+				}
+
+				for (CardinalityInfo cardinality : cardinalities) {
+					cardinality.handleDoc(doc, facetHandler);
+				}
+
+				for (HistogramInfo histogram : histograms) {
+					histogram.handleDoc(doc);
+				}
+				for (RangeInfo range : ranges) {
+					range.handleDoc(doc);
+				}
+			}
+
+			if (facetCountKey != null) {
+				facetCountCache.put(facetCountKey, segmentCounts.toSegmentFacetCounts());
+				globalFacetInfo.merge(segmentCounts);
+			}
+
+			for (SortedSetFacetInfo sortedSetFacet : sortedSetFacets) {
+				sortedSetFacet.clearReader();
 			}
+			for (CardinalityInfo cardinality : cardinalities) {
+				cardinality.clearReader();
+			}
+			for (HistogramInfo histogram : histograms) {
+				histogram.clearReader();
+			}
+			for (RangeInfo range : ranges) {
+				range.clearReader();
+			}
+		}
+
+		for (NumericFieldStatInfo field : fields) {
+			field.clearReader();
+		}
+		for (CardinalityInfo cardinality : cardinalities) {
+			cardinality.finish();
 		}
 	}
 
+	/**
+	 * Sums the values of the matching docs in parallel on the given executor when there are enough hits to benefit.  The segments are split into groups
+	 * of similar hit counts, each group is summed into its own partial handler and the partials are merged into this handler.  When the request has a
+	 * sample size smaller than the matching docs only a sample of the docs is summed, see {@link #getSampleRate()}
+	 *
+	 * @param executorThreads the number of threads of the executor, which bounds the number of groups
+	 */
+	public void sumValues(List<MatchingDocs> matchingDocs, ExecutorService executorService, int executorThreads) throws IOException {
+		sampleRate = MatchingDocsSampler.getSampleRate(matchingDocs, facetRequest.getSampleSize());
+		if (sampleRate < 1) {
+			matchingDocs = MatchingDocsSampler.sample(matchingDocs, sampleRate);
+			// counts of a sample must not be cached as the counts of the filter
+			facetCountCache = null;
+		}
+
+		int parallelism = Math.min(matchingDocs.size(), executorThreads);
+
+		long totalHits = 0;
+		for (MatchingDocs hits : matchingDocs) {
+			totalHits += hits.totalHits;
+		}
+
+		if (executorService == null || parallelism <= 1 || totalHits < PARALLEL_MIN_HITS) {
+			sumValues(matchingDocs);
+			return;
+		}
+
+		if (deferFacetSketches) {
+			retainMatchingDocs(matchingDocs);
+		}
+
+		List<List<MatchingDocs>> groups = groupByHits(matchingDocs, parallelism);
+
+		List<Callable<AggregationHandler>> partialSums = new ArrayList<>(groups.size());
+		for (List<MatchingDocs> group : groups) {
+			partialSums.add(() -> {
+				// partials compute the facet stats without sketches as well, the sketches of the top facets are filled from this handler
+				AggregationHandler partial = new AggregationHandler(taxoReader, facetRequest, serverIndexConfig, sketchReservation, deferFacetSketches);
+				partial.setFacetCountCache(facetCountCache, facetCountQuery);
+				partial.sumValues(group);
+				return partial;
+			});
+		}
+
+		try {
+			for (Future<AggregationHandler> partialSum : executorService.invokeAll(partialSums)) {
+				merge(partialSum.get());
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while summing facets and stats", e);
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException ioException) {
+				throw ioException;
+			}
+			if (cause instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	private void retainMatchingDocs(List<MatchingDocs> matchingDocs) {
+		if (deferredMatchingDocs == null) {
+			deferredMatchingDocs = new ArrayList<>();
+		}
+		deferredMatchingDocs.addAll(matchingDocs);
+	}
+
+	private static List<List<MatchingDocs>> groupByHits(List<MatchingDocs> matchingDocs, int numberOfGroups) {
+		List<MatchingDocs> sortedByHits = new ArrayList<>(matchingDocs);
+		sortedByHits.sort(Comparator.comparingInt((MatchingDocs hits) -> hits.totalHits).reversed());
+
+		List<List<MatchingDocs>> groups = new ArrayList<>(numberOfGroups);
+		long[] groupHits = new long[numberOfGroups];
+		for (int i = 0; i < numberOfGroups; i++) {
+			groups.add(new ArrayList<>());
+		}
+
+		// largest segments first, each to the group with the fewest hits so far
+		for (MatchingDocs hits : sortedByHits) {
+			int smallest = 0;
+			for (int i = 1; i < numberOfGroups; i++) {
+				if (groupHits[i] < groupHits[smallest]) {
+					smallest = i;
+				}
+			}
+			groups.get(smallest).add(hits);
+			groupHits[smallest] += hits.totalHits;
+		}
+
+		return groups;
+	}
+
+	/**
+	 * Adds the counts, stats, cardinalities and buckets of a handler created with the same requests, i.e. a partial computed for a single segment
+	 */
+	public void merge(AggregationHandler other) {
+		globalFacetInfo.merge(other.globalFacetInfo);
+		for (NumericFieldStatInfo field : fields) {
+			field.merge(other.getFieldStatByName(field.getNumericFieldName()));
+		}
+		for (int i = 0; i < sortedSetFacets.length; i++) {
+			sortedSetFacets[i].merge(other.sortedSetFacets[i]);
+		}
+		for (int i = 0; i < cardinalities.length; i++) {
+			cardinalities[i].merge(other.cardinalities[i]);
+		}
+		for (int i = 0; i < histograms.length; i++) {
+			histograms[i].merge(other.histograms[i]);
+		}
+		for (int i = 0; i < ranges.length; i++) {
+			ranges[i].merge(other.ranges[i]);
+		}
+	}
+
+	/**
+	 * @return the fraction of the matching docs the counts and stats were computed on, they are not scaled
+	 */
+	public double getSampleRate() {
+		return sampleRate;
+	}
+
+	public List<ZuliaQuery.CardinalityInternal> getCardinalities() {
+		List<ZuliaQuery.CardinalityInternal> cardinalityResponses = new ArrayList<>(cardinalities.length);
+		for (CardinalityInfo cardinality : cardinalities) {
+			cardinalityResponses.add(cardinality.buildResponse());
+		}
+		return cardinalityResponses;
+	}
+
+	public List<ZuliaQuery.HistogramResult> getHistograms() {
+		List<ZuliaQuery.HistogramResult> histogramResults = new ArrayList<>(histograms.length);
+		for (HistogramInfo histogram : histograms) {
+			histogramResults.add(histogram.buildResponse());
+		}
+		return histogramResults;
+	}
+
+	public List<ZuliaQuery.RangeResult> getRanges() {
+		List<ZuliaQuery.RangeResult> rangeResults = new ArrayList<>(ranges.length);
+		for (RangeInfo range : ranges) {
+			rangeResults.add(range.buildResponse());
+		}
+		return rangeResults;
+	}
+
+	private SortedSetFacetInfo getSortedSetFacet(String facet) {
+		for (SortedSetFacetInfo sortedSetFacet : sortedSetFacets) {
+			if (sortedSetFacet.getFacetName().equals(facet)) {
+				return sortedSetFacet;
+			}
+		}
+		return null;
+	}
+
 	private NumericFieldStatInfo getFieldStatByName(String field) {
 		NumericFieldStatInfo fieldStats = null;
 		for (NumericFieldStatInfo fieldStatInfo : fields) {
@@ -180,6 +587,11 @@ public class AggregationHandler {
 	}
 
 	public ZuliaQuery.FacetGroup.Builder getTopChildren(int topN, String dim, String... path) throws IOException {
+		SortedSetFacetInfo sortedSetFacet = getSortedSetFacet(dim);
+		if (sortedSetFacet != null) {
+			return sortedSetFacet.getTopChildren(topN);
+		}
+
 		FacetLabel countPath = new FacetLabel(dim, path);
 		int dimOrd = taxoReader.getOrdinal(countPath);
 		if (dimOrd == -1) {
@@ -223,6 +635,31 @@ public class AggregationHandler {
 		return ZuliaQuery.FacetGroup.newBuilder().addAllFacetCount(Arrays.stream(facetCounts).toList());
 	}
 
+	/**
+	 * @return the counts of only the given facets under the dimension and path, facets without matches are returned with a zero count so they are known
+	 * to be exact
+	 */
+	public ZuliaQuery.FacetGroup.Builder getFacetCounts(List<String> facets, String dim, String... path) throws IOException {
+		ZuliaQuery.FacetGroup.Builder facetGroup = ZuliaQuery.FacetGroup.newBuilder();
+		SortedSetFacetInfo sortedSetFacet = getSortedSetFacet(dim);
+
+		String[] components = Arrays.copyOf(path, path.length + 1);
+		for (String facet : facets) {
+			int count;
+			if (sortedSetFacet != null) {
+				count = sortedSetFacet.getCount(facet);
+			}
+			else {
+				components[path.length] = facet;
+				int ordinal = taxoReader.getOrdinal(new FacetLabel(dim, components));
+				count = ordinal != TaxonomyReader.INVALID_ORDINAL ? globalFacetInfo.getOrdinalCount(ordinal) : 0;
+			}
+
+			facetGroup.addFacetCount(ZuliaQuery.FacetCount.newBuilder().setFacet(facet).setCount(count));
+		}
+		return facetGroup;
+	}
+
 	public ZuliaQuery.FacetStatsInternal getGlobalStatsForNumericField(String field) {
 
 		NumericFieldStatInfo fieldStats = getFieldStatByName(field);
@@ -237,19 +674,68 @@ public class AggregationHandler {
 	public List<ZuliaQuery.FacetStatsInternal> getTopChildren(String field, int topN, String dim, String... path) throws IOException {
 		NumericFieldStatInfo fieldStats = getFieldStatByName(field);
 
+		if (topN <= 0) {
+			throw new IllegalArgumentException("topN must be > 0 (got: " + topN + ")");
+		}
+
+		SortedSetFacetInfo sortedSetFacet = getSortedSetFacet(dim);
+		if (sortedSetFacet != null) {
+			return sortedSetFacet.getTopStats(fieldStats, topN);
+		}
+
 		if (!fieldStats.hasFacets()) {
 			throw new IllegalArgumentException("Field <" + field + "> has not requested as a facet stat in the constructor");
 		}
 
 		MapStatOrdinalStorage<?> facetStatStorage = fieldStats.getFacetStatStorage();
 
-		if (topN <= 0) {
-			throw new IllegalArgumentException("topN must be > 0 (got: " + topN + ")");
+		FacetLabel countPath = new FacetLabel(dim, path);
+		if (!fieldStats.hasDeferredFacetSketches()) {
+			return facetStatStorage.getFacetStats(taxoReader, countPath, topN);
 		}
 
-		FacetLabel countPath = new FacetLabel(dim, path);
-		return facetStatStorage.getFacetStats(taxoReader, countPath, topN);
+		List<? extends Stats<?>> topStats = facetStatStorage.getTopStats(taxoReader, countPath, topN);
+		if (topStats == null) {
+			return null;
+		}
+
+		// stats already sketched for another dimension or path of the field are not sketched again
+		IntSet sketchOrdinals = HashIntSets.newMutableSet(topStats.size());
+		for (Stats<?> stats : topStats) {
+			if (stats.startSketch(fieldStats.getFacetSketchFactory())) {
+				sketchOrdinals.add(stats.getOrdinal());
+			}
+		}
+		if (!sketchOrdinals.isEmpty()) {
+			sketchFacetValues(fieldStats, sketchOrdinals);
+		}
+
+		return MapStatOrdinalStorage.buildFacetStats(taxoReader, countPath, topStats);
+
+	}
 
+	/**
+	 * Second pass over the matching docs that adds the values of the field to the sketches of the given ordinals
+	 */
+	private void sketchFacetValues(NumericFieldStatInfo fieldStats, IntSet sketchOrdinals) throws IOException {
+		fieldStats.setSketchOrdinals(sketchOrdinals);
+		try {
+			for (MatchingDocs hits : deferredMatchingDocs) {
+				LeafReader reader = hits.context.reader();
+				fieldStats.setReader(reader);
+
+				FacetsReader facetReader = new BinaryFacetReader(reader);
+				DocIdSetIterator docs = facetReader.getCombinedIterator(hits.bits.iterator());
+				for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docs.nextDoc()) {
+					fieldStats.advanceNumericValues(doc);
+					facetReader.getFacetHandler().handleFacets(fieldStats);
+				}
+			}
+		}
+		finally {
+			fieldStats.clearReader();
+			fieldStats.setSketchOrdinals(null);
+		}
 	}
 
 }
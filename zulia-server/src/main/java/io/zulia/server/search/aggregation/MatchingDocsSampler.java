@@ -0,0 +1,56 @@
+package io.zulia.server.search.aggregation;
+
+import io.zulia.server.search.aggregation.cardinality.HyperLogLog;
+import org.apache.lucene.facet.FacetsCollector.MatchingDocs;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.BitDocIdSet;
+import org.apache.lucene.util.FixedBitSet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a deterministic pseudo random sample of the matching docs.  A doc is kept when the hash of its segment doc id falls under the sample rate, so the
+ * same reader always samples the same docs and the refinement round of a query counts the same docs as the first round
+ */
+public class MatchingDocsSampler {
+
+	private static final long SEED = 0x9E3779B97F4A7C15L;
+
+	public static double getSampleRate(List<MatchingDocs> matchingDocs, int sampleSize) {
+		long totalHits = 0;
+		for (MatchingDocs hits : matchingDocs) {
+			totalHits += hits.totalHits;
+		}
+		if (sampleSize <= 0 || totalHits <= sampleSize) {
+			return 1;
+		}
+		return (double) sampleSize / totalHits;
+	}
+
+	public static List<MatchingDocs> sample(List<MatchingDocs> matchingDocs, double sampleRate) throws IOException {
+		// compares the top 53 bits of the hash, the precision of a double
+		long threshold = (long) (sampleRate * (1L << 53));
+
+		List<MatchingDocs> sampledDocs = new ArrayList<>(matchingDocs.size());
+		for (MatchingDocs hits : matchingDocs) {
+			FixedBitSet sampled = new FixedBitSet(hits.context.reader().maxDoc());
+			int sampledHits = 0;
+
+			DocIdSetIterator docs = hits.bits.iterator();
+			if (docs != null) {
+				for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docs.nextDoc()) {
+					if ((HyperLogLog.hash(doc ^ SEED) >>> 11) < threshold) {
+						sampled.set(doc);
+						sampledHits++;
+					}
+				}
+			}
+
+			sampledDocs.add(new MatchingDocs(hits.context, new BitDocIdSet(sampled, sampledHits), sampledHits, null));
+		}
+		return sampledDocs;
+	}
+
+}
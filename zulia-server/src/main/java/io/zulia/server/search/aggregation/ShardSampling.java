@@ -0,0 +1,74 @@
+package io.zulia.server.search.aggregation;
+
+import io.zulia.message.ZuliaQuery.ShardQueryResponse;
+
+import java.util.List;
+
+/**
+ * The sample rates of the shard responses of a query.  Counts sampled on a shard are scaled by the inverse of the rate of the shard.  A shard keeps each
+ * matching doc with the same probability, so the variance of a scaled count n / p is estimated by n * (1 - p) / p^2 and the variances of the shards add
+ */
+public class ShardSampling {
+
+	private final double[] sampleRates;
+	private final long[] totalHits;
+	private final boolean sampled;
+
+	public ShardSampling(List<ShardQueryResponse> shardResponses) {
+		this.sampleRates = new double[shardResponses.size()];
+		this.totalHits = new long[shardResponses.size()];
+
+		boolean sampledLocal = false;
+		for (int i = 0; i < sampleRates.length; i++) {
+			ShardQueryResponse shardResponse = shardResponses.get(i);
+			double sampleRate = shardResponse.getSampleRate();
+			if (sampleRate > 0 && sampleRate < 1) {
+				sampleRates[i] = sampleRate;
+				sampledLocal = true;
+			}
+			else {
+				sampleRates[i] = 1;
+			}
+			totalHits[i] = shardResponse.getTotalHits();
+		}
+		this.sampled = sampledLocal;
+	}
+
+	public boolean isSampled() {
+		return sampled;
+	}
+
+	/**
+	 * @return the fraction of all matching docs that was sampled
+	 */
+	public double getSampleRate() {
+		double sampledHits = 0;
+		long hits = 0;
+		for (int i = 0; i < sampleRates.length; i++) {
+			sampledHits += sampleRates[i] * totalHits[i];
+			hits += totalHits[i];
+		}
+		return hits > 0 ? sampledHits / hits : 1;
+	}
+
+	public double getSampleRate(int shardIndex) {
+		return sampleRates[shardIndex];
+	}
+
+	public long scale(long sampleCount, int shardIndex) {
+		return Math.round(sampleCount / sampleRates[shardIndex]);
+	}
+
+	public double scale(double sampleValue, int shardIndex) {
+		return sampleValue / sampleRates[shardIndex];
+	}
+
+	/**
+	 * @return the estimated variance of the scaled count, or of a scaled sum when given the sum of the squares of the sampled values
+	 */
+	public double getVariance(double sampleSumOfSquares, int shardIndex) {
+		double sampleRate = sampleRates[shardIndex];
+		return sampleSumOfSquares * (1 - sampleRate) / (sampleRate * sampleRate);
+	}
+
+}
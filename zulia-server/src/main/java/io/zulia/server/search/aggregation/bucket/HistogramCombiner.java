@@ -0,0 +1,41 @@
+package io.zulia.server.search.aggregation.bucket;
+
+import io.zulia.message.ZuliaQuery.Bucket;
+import io.zulia.message.ZuliaQuery.HistogramRequest;
+import io.zulia.message.ZuliaQuery.HistogramResult;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+public class HistogramCombiner {
+
+	private final HistogramRequest histogramRequest;
+	private final TreeMap<Double, Bucket.Builder> buckets;
+
+	public HistogramCombiner(HistogramRequest histogramRequest) {
+		this.histogramRequest = histogramRequest;
+		this.buckets = new TreeMap<>();
+	}
+
+	public void handleHistogramForShard(HistogramResult histogramResult) {
+		// every shard computes the bucket bounds the same way from the request so the start of a bucket is its key
+		for (Bucket bucket : histogramResult.getBucketList()) {
+			Bucket.Builder combined = buckets.get(bucket.getFrom());
+			if (combined == null) {
+				buckets.put(bucket.getFrom(), bucket.toBuilder());
+			}
+			else {
+				combined.setCount(combined.getCount() + bucket.getCount());
+			}
+		}
+	}
+
+	public HistogramResult getCombinedHistogram() {
+		HistogramResult.Builder histogramResult = HistogramResult.newBuilder().setHistogramRequest(histogramRequest);
+		for (Map.Entry<Double, Bucket.Builder> bucket : buckets.entrySet()) {
+			histogramResult.addBucket(bucket.getValue());
+		}
+		return histogramResult.build();
+	}
+
+}
@@ -0,0 +1,108 @@
+package io.zulia.server.search.aggregation.bucket;
+
+import io.zulia.message.ZuliaQuery;
+import io.zulia.server.config.ServerIndexConfig;
+
+/**
+ * Counts documents in fixed width buckets.  Counts are kept in a dense array covering the buckets between the lowest and highest value seen, grown in
+ * either direction as new values are found and bounded by the max buckets of the request
+ */
+public class HistogramInfo extends NumericBucketInfo {
+
+	private static final int INITIAL_BUCKETS = 16;
+
+	private final ZuliaQuery.HistogramRequest histogramRequest;
+	private final double interval;
+	private final double offset;
+	private final int maxBuckets;
+
+	private long firstBucket;
+	private int[] counts;
+	private long lastBucketForDoc;
+
+	public HistogramInfo(ZuliaQuery.HistogramRequest histogramRequest, ServerIndexConfig serverIndexConfig) {
+		super(histogramRequest.getNumericField(), serverIndexConfig);
+		if (!(histogramRequest.getInterval() > 0)) {
+			throw new IllegalArgumentException("Histogram interval for field <" + histogramRequest.getNumericField() + "> must be > 0");
+		}
+		this.histogramRequest = histogramRequest;
+		this.interval = histogramRequest.getInterval();
+		this.offset = histogramRequest.getOffset();
+		this.maxBuckets = histogramRequest.getMaxBuckets() != 0 ? histogramRequest.getMaxBuckets() : 10000;
+	}
+
+	@Override
+	protected void startDoc() {
+		lastBucketForDoc = Long.MIN_VALUE;
+	}
+
+	@Override
+	protected void handleValue(double value) {
+		if (Double.isNaN(value)) {
+			return;
+		}
+		long bucket = (long) Math.floor((value - offset) / interval);
+		if (bucket != lastBucketForDoc) {
+			add(bucket, 1);
+			lastBucketForDoc = bucket;
+		}
+	}
+
+	private void add(long bucket, int count) {
+		if (counts == null) {
+			firstBucket = bucket;
+			counts = new int[Math.min(INITIAL_BUCKETS, maxBuckets)];
+		}
+		else if (bucket < firstBucket || bucket - firstBucket >= counts.length) {
+			grow(bucket);
+		}
+		counts[(int) (bucket - firstBucket)] += count;
+	}
+
+	private void grow(long bucket) {
+		long lastBucket = firstBucket + counts.length - 1;
+		long neededBuckets = Math.max(lastBucket, bucket) - Math.min(firstBucket, bucket) + 1;
+		if (neededBuckets > maxBuckets || neededBuckets < 0) {
+			throw new IllegalArgumentException(
+					"Histogram for field <" + getNumericField() + "> with interval <" + interval + "> needs more than <" + maxBuckets + "> buckets");
+		}
+
+		// at least doubles so a run of values moving in one direction only copies the counts a logarithmic number of times
+		int newLength = (int) Math.min(Math.max(neededBuckets, counts.length * 2L), maxBuckets);
+		long newFirstBucket = bucket < firstBucket ? lastBucket - newLength + 1 : firstBucket;
+
+		int[] newCounts = new int[newLength];
+		System.arraycopy(counts, 0, newCounts, (int) (firstBucket - newFirstBucket), counts.length);
+		counts = newCounts;
+		firstBucket = newFirstBucket;
+	}
+
+	public void merge(HistogramInfo other) {
+		if (other.counts == null) {
+			return;
+		}
+		for (int i = 0; i < other.counts.length; i++) {
+			if (other.counts[i] != 0) {
+				add(other.firstBucket + i, other.counts[i]);
+			}
+		}
+	}
+
+	public long getBytes() {
+		return counts != null ? (long) counts.length * Integer.BYTES : 0;
+	}
+
+	public ZuliaQuery.HistogramResult buildResponse() {
+		ZuliaQuery.HistogramResult.Builder histogramResult = ZuliaQuery.HistogramResult.newBuilder().setHistogramRequest(histogramRequest);
+		if (counts != null) {
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] != 0) {
+					double from = offset + (firstBucket + i) * interval;
+					histogramResult.addBucket(ZuliaQuery.Bucket.newBuilder().setFrom(from).setTo(from + interval).setCount(counts[i]));
+				}
+			}
+		}
+		return histogramResult.build();
+	}
+
+}
@@ -0,0 +1,72 @@
+package io.zulia.server.search.aggregation.bucket;
+
+import io.zulia.message.ZuliaIndex;
+import io.zulia.server.config.ServerIndexConfig;
+import io.zulia.server.config.SortFieldInfo;
+import io.zulia.server.field.FieldTypeUtil;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.util.NumericUtils;
+
+import java.io.IOException;
+
+/**
+ * Counts documents into buckets of the values of a sortable numeric field read from doc values, so buckets can be chosen at query time without
+ * indexing facets.  A document is counted once in each bucket one of its values falls in
+ */
+public abstract class NumericBucketInfo {
+
+	private final String numericField;
+	private final String sortFieldName;
+	private final ZuliaIndex.FieldConfig.FieldType numericFieldType;
+
+	private SortedNumericDocValues numericDocValues;
+
+	protected NumericBucketInfo(String numericField, ServerIndexConfig serverIndexConfig) {
+		SortFieldInfo sortFieldInfo = serverIndexConfig.getSortFieldInfo(numericField);
+		if (sortFieldInfo == null || !FieldTypeUtil.isHandledAsNumericFieldType(sortFieldInfo.getFieldType())) {
+			throw new IllegalArgumentException("Numeric field <" + numericField + "> must be indexed as a sortable NUMERIC or DATE field");
+		}
+		this.numericField = numericField;
+		this.sortFieldName = sortFieldInfo.getInternalSortFieldName();
+		this.numericFieldType = sortFieldInfo.getFieldType();
+	}
+
+	public String getNumericField() {
+		return numericField;
+	}
+
+	public void setReader(LeafReader reader) throws IOException {
+		numericDocValues = DocValues.getSortedNumeric(reader, sortFieldName);
+	}
+
+	public void clearReader() {
+		numericDocValues = null;
+	}
+
+	public void handleDoc(int doc) throws IOException {
+		if (numericDocValues.advanceExact(doc)) {
+			startDoc();
+			// values are in ascending order for every field type so buckets are visited in ascending order
+			for (int i = 0; i < numericDocValues.docValueCount(); i++) {
+				handleValue(toDouble(numericDocValues.nextValue()));
+			}
+		}
+	}
+
+	protected abstract void startDoc();
+
+	protected abstract void handleValue(double value);
+
+	private double toDouble(long sortableValue) {
+		if (FieldTypeUtil.isNumericDoubleFieldType(numericFieldType)) {
+			return NumericUtils.sortableLongToDouble(sortableValue);
+		}
+		if (FieldTypeUtil.isNumericFloatFieldType(numericFieldType)) {
+			return NumericUtils.sortableIntToFloat((int) sortableValue);
+		}
+		return sortableValue;
+	}
+
+}
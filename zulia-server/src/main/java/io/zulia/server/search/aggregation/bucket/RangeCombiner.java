@@ -0,0 +1,42 @@
+package io.zulia.server.search.aggregation.bucket;
+
+import io.zulia.message.ZuliaQuery.Bucket;
+import io.zulia.message.ZuliaQuery.RangeRequest;
+import io.zulia.message.ZuliaQuery.RangeResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RangeCombiner {
+
+	private final RangeRequest rangeRequest;
+	private final List<Bucket.Builder> buckets;
+
+	public RangeCombiner(RangeRequest rangeRequest) {
+		this.rangeRequest = rangeRequest;
+		this.buckets = new ArrayList<>(rangeRequest.getRangeCount());
+	}
+
+	public void handleRangesForShard(RangeResult rangeResult) {
+		// every shard returns a bucket for each range in request order
+		for (int i = 0; i < rangeResult.getBucketCount(); i++) {
+			Bucket bucket = rangeResult.getBucket(i);
+			if (i == buckets.size()) {
+				buckets.add(bucket.toBuilder());
+			}
+			else {
+				Bucket.Builder combined = buckets.get(i);
+				combined.setCount(combined.getCount() + bucket.getCount());
+			}
+		}
+	}
+
+	public RangeResult getCombinedRanges() {
+		RangeResult.Builder rangeResult = RangeResult.newBuilder().setRangeRequest(rangeRequest);
+		for (Bucket.Builder bucket : buckets) {
+			rangeResult.addBucket(bucket);
+		}
+		return rangeResult.build();
+	}
+
+}
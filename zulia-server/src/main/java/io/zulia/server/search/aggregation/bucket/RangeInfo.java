@@ -0,0 +1,76 @@
+package io.zulia.server.search.aggregation.bucket;
+
+import io.zulia.message.ZuliaQuery;
+import io.zulia.server.config.ServerIndexConfig;
+
+import java.util.Arrays;
+
+/**
+ * Counts documents in the requested ranges, which can overlap
+ */
+public class RangeInfo extends NumericBucketInfo {
+
+	private final ZuliaQuery.RangeRequest rangeRequest;
+	private final double[] from;
+	private final double[] to;
+	private final int[] counts;
+	private final boolean[] countedForDoc;
+
+	public RangeInfo(ZuliaQuery.RangeRequest rangeRequest, ServerIndexConfig serverIndexConfig) {
+		super(rangeRequest.getNumericField(), serverIndexConfig);
+		this.rangeRequest = rangeRequest;
+
+		int numberOfRanges = rangeRequest.getRangeCount();
+		this.from = new double[numberOfRanges];
+		this.to = new double[numberOfRanges];
+		this.counts = new int[numberOfRanges];
+		this.countedForDoc = new boolean[numberOfRanges];
+		for (int i = 0; i < numberOfRanges; i++) {
+			ZuliaQuery.NumericRange range = rangeRequest.getRange(i);
+			from[i] = range.hasFrom() ? range.getFrom() : Double.NEGATIVE_INFINITY;
+			to[i] = range.hasTo() ? range.getTo() : Double.POSITIVE_INFINITY;
+		}
+	}
+
+	@Override
+	protected void startDoc() {
+		Arrays.fill(countedForDoc, false);
+	}
+
+	@Override
+	protected void handleValue(double value) {
+		for (int i = 0; i < counts.length; i++) {
+			if (!countedForDoc[i] && value >= from[i] && value < to[i]) {
+				counts[i]++;
+				countedForDoc[i] = true;
+			}
+		}
+	}
+
+	public void merge(RangeInfo other) {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+	}
+
+	public long getBytes() {
+		// from, to, count and counted for doc of each range
+		return (long) counts.length * (2 * Double.BYTES + Integer.BYTES + 1);
+	}
+
+	public ZuliaQuery.RangeResult buildResponse() {
+		ZuliaQuery.RangeResult.Builder rangeResult = ZuliaQuery.RangeResult.newBuilder().setRangeRequest(rangeRequest);
+		for (int i = 0; i < counts.length; i++) {
+			rangeResult.addBucket(ZuliaQuery.Bucket.newBuilder().setLabel(getLabel(rangeRequest.getRange(i))).setFrom(from[i]).setTo(to[i]).setCount(counts[i]));
+		}
+		return rangeResult.build();
+	}
+
+	private static String getLabel(ZuliaQuery.NumericRange range) {
+		if (!range.getLabel().isEmpty()) {
+			return range.getLabel();
+		}
+		return (range.hasFrom() ? String.valueOf(range.getFrom()) : "*") + "-" + (range.hasTo() ? String.valueOf(range.getTo()) : "*");
+	}
+
+}
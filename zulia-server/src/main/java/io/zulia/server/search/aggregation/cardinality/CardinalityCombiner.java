@@ -0,0 +1,31 @@
+package io.zulia.server.search.aggregation.cardinality;
+
+import io.zulia.message.ZuliaQuery.CardinalityInternal;
+import io.zulia.message.ZuliaQuery.CardinalityRequest;
+import io.zulia.message.ZuliaQuery.CardinalityResult;
+
+public class CardinalityCombiner {
+
+	private final CardinalityRequest cardinalityRequest;
+	private HyperLogLog hyperLogLog;
+
+	public CardinalityCombiner(CardinalityRequest cardinalityRequest) {
+		this.cardinalityRequest = cardinalityRequest;
+	}
+
+	public void handleCardinalityForShard(CardinalityInternal cardinality) {
+		HyperLogLog shardHyperLogLog = HyperLogLog.fromRegisters(cardinality.getRegisters());
+		if (hyperLogLog == null) {
+			hyperLogLog = shardHyperLogLog;
+		}
+		else {
+			hyperLogLog.merge(shardHyperLogLog);
+		}
+	}
+
+	public CardinalityResult getCombinedCardinality() {
+		long cardinality = hyperLogLog != null ? hyperLogLog.estimate() : 0;
+		return CardinalityResult.newBuilder().setCardinalityRequest(cardinalityRequest).setCardinality(cardinality).build();
+	}
+
+}
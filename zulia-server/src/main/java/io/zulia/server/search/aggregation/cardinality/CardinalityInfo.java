@@ -0,0 +1,69 @@
+package io.zulia.server.search.aggregation.cardinality;
+
+import io.zulia.message.ZuliaQuery;
+import io.zulia.server.search.aggregation.ordinal.FacetHandler;
+import org.apache.lucene.index.LeafReader;
+
+import java.io.IOException;
+
+/**
+ * Approximate count of the distinct values of a field in the matching documents.  Values are hashed into a {@link HyperLogLog} so partials from
+ * segments, shards and nodes merge without knowing the values themselves
+ */
+public abstract class CardinalityInfo {
+
+	private final ZuliaQuery.CardinalityRequest cardinalityRequest;
+	protected final HyperLogLog hyperLogLog;
+
+	protected CardinalityInfo(ZuliaQuery.CardinalityRequest cardinalityRequest) {
+		this.cardinalityRequest = cardinalityRequest;
+		int precision = cardinalityRequest.getPrecision() != 0 ? cardinalityRequest.getPrecision() : HyperLogLog.DEFAULT_PRECISION;
+		this.hyperLogLog = new HyperLogLog(precision);
+	}
+
+	public ZuliaQuery.CardinalityRequest getCardinalityRequest() {
+		return cardinalityRequest;
+	}
+
+	public boolean needsFacets() {
+		return false;
+	}
+
+	public abstract void setReader(LeafReader reader) throws IOException;
+
+	/**
+	 * @param facetHandler the stored facet ordinals of the document, only given when {@link #needsFacets()}
+	 */
+	public abstract void handleDoc(int doc, FacetHandler facetHandler) throws IOException;
+
+	public void clearReader() throws IOException {
+
+	}
+
+	/**
+	 * Called after the last segment so values collected across segments can be added to the sketch
+	 */
+	public void finish() throws IOException {
+
+	}
+
+	/**
+	 * Releases what is only needed while summing so the info can be cached as part of a segment partial
+	 */
+	public void compact() {
+
+	}
+
+	public long getBytes() {
+		return hyperLogLog.getBytes();
+	}
+
+	public void merge(CardinalityInfo other) {
+		hyperLogLog.merge(other.hyperLogLog);
+	}
+
+	public ZuliaQuery.CardinalityInternal buildResponse() {
+		return ZuliaQuery.CardinalityInternal.newBuilder().setCardinalityRequest(cardinalityRequest).setRegisters(hyperLogLog.toByteString()).build();
+	}
+
+}
@@ -0,0 +1,115 @@
+package io.zulia.server.search.aggregation.cardinality;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.protobuf.ByteString;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * A HyperLogLog sketch over 64 bit hashes with one byte registers.  With 64 bit hashes there is no large range correction and small cardinalities are
+ * estimated with linear counting as in HyperLogLog++.  The size is fixed by the precision so memory and the serialized registers do not grow with the
+ * number of distinct values
+ */
+public class HyperLogLog {
+
+	public static final int MIN_PRECISION = 4;
+	public static final int MAX_PRECISION = 18;
+	public static final int DEFAULT_PRECISION = 14;
+
+	private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+	private final int precision;
+	private final byte[] registers;
+
+	public HyperLogLog(int precision) {
+		if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+			throw new IllegalArgumentException("Cardinality precision <" + precision + "> must be between <" + MIN_PRECISION + "> and <" + MAX_PRECISION + ">");
+		}
+		this.precision = precision;
+		this.registers = new byte[1 << precision];
+	}
+
+	public static HyperLogLog fromRegisters(ByteString registers) {
+		int precision = Integer.numberOfTrailingZeros(registers.size());
+		if (registers.size() != (1 << precision)) {
+			throw new IllegalArgumentException("Invalid cardinality register length <" + registers.size() + ">");
+		}
+		HyperLogLog hyperLogLog = new HyperLogLog(precision);
+		registers.copyTo(hyperLogLog.registers, 0);
+		return hyperLogLog;
+	}
+
+	public static long hash(long value) {
+		// murmur3 finalizer, spreads the bits of nearby values over the whole hash
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb9fe1a85ec53L;
+		value ^= value >>> 33;
+		return value;
+	}
+
+	public static long hash(BytesRef bytesRef) {
+		return HASH_FUNCTION.hashBytes(bytesRef.bytes, bytesRef.offset, bytesRef.length).asLong();
+	}
+
+	public void add(long hash) {
+		int register = (int) (hash >>> (Long.SIZE - precision));
+		// the guard bit bounds the rank when the remaining bits are all zero
+		long remaining = (hash << precision) | (1L << (precision - 1));
+		byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+		if (rank > registers[register]) {
+			registers[register] = rank;
+		}
+	}
+
+	public void merge(HyperLogLog other) {
+		if (other.precision != precision) {
+			throw new IllegalArgumentException("Cannot merge cardinality precision <" + other.precision + "> into precision <" + precision + ">");
+		}
+		for (int i = 0; i < registers.length; i++) {
+			if (other.registers[i] > registers[i]) {
+				registers[i] = other.registers[i];
+			}
+		}
+	}
+
+	public long estimate() {
+		int m = registers.length;
+
+		double sum = 0;
+		int zeros = 0;
+		for (byte register : registers) {
+			sum += 1.0 / (1L << register);
+			if (register == 0) {
+				zeros++;
+			}
+		}
+
+		double alpha = switch (m) {
+			case 16 -> 0.673;
+			case 32 -> 0.697;
+			case 64 -> 0.709;
+			default -> 0.7213 / (1 + 1.079 / m);
+		};
+
+		double estimate = alpha * m * m / sum;
+		if (estimate <= 2.5 * m && zeros != 0) {
+			estimate = m * Math.log((double) m / zeros);
+		}
+		return Math.round(estimate);
+	}
+
+	public long getBytes() {
+		return registers.length;
+	}
+
+	public int getPrecision() {
+		return precision;
+	}
+
+	public ByteString toByteString() {
+		return ByteString.copyFrom(registers);
+	}
+
+}
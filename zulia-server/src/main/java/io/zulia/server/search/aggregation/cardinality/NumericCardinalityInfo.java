@@ -0,0 +1,43 @@
+package io.zulia.server.search.aggregation.cardinality;
+
+import io.zulia.message.ZuliaQuery;
+import io.zulia.server.search.aggregation.ordinal.FacetHandler;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.SortedNumericDocValues;
+
+import java.io.IOException;
+
+/**
+ * Distinct values of a sortable numeric field, hashed directly from the sortable long representation
+ */
+public class NumericCardinalityInfo extends CardinalityInfo {
+
+	private final String sortFieldName;
+	private SortedNumericDocValues numericDocValues;
+
+	public NumericCardinalityInfo(ZuliaQuery.CardinalityRequest cardinalityRequest, String sortFieldName) {
+		super(cardinalityRequest);
+		this.sortFieldName = sortFieldName;
+	}
+
+	@Override
+	public void setReader(LeafReader reader) throws IOException {
+		numericDocValues = DocValues.getSortedNumeric(reader, sortFieldName);
+	}
+
+	@Override
+	public void handleDoc(int doc, FacetHandler facetHandler) throws IOException {
+		if (numericDocValues.advanceExact(doc)) {
+			for (int i = 0; i < numericDocValues.docValueCount(); i++) {
+				hyperLogLog.add(HyperLogLog.hash(numericDocValues.nextValue()));
+			}
+		}
+	}
+
+	@Override
+	public void clearReader() {
+		numericDocValues = null;
+	}
+
+}
@@ -0,0 +1,55 @@
+package io.zulia.server.search.aggregation.cardinality;
+
+import io.zulia.message.ZuliaQuery;
+import io.zulia.server.search.aggregation.ordinal.FacetHandler;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.util.LongBitSet;
+
+import java.io.IOException;
+
+/**
+ * Distinct values of a string sort field or a doc values facet.  The segment ordinals seen are marked in a bit set and each value is only looked up
+ * and hashed once per segment
+ */
+public class SortedSetCardinalityInfo extends CardinalityInfo {
+
+	private final String docValuesField;
+
+	private SortedSetDocValues sortedSetDocValues;
+	private LongBitSet segmentOrdinals;
+
+	public SortedSetCardinalityInfo(ZuliaQuery.CardinalityRequest cardinalityRequest, String docValuesField) {
+		super(cardinalityRequest);
+		this.docValuesField = docValuesField;
+	}
+
+	@Override
+	public void setReader(LeafReader reader) throws IOException {
+		sortedSetDocValues = DocValues.getSortedSet(reader, docValuesField);
+		segmentOrdinals = new LongBitSet(sortedSetDocValues.getValueCount());
+	}
+
+	@Override
+	public void handleDoc(int doc, FacetHandler facetHandler) throws IOException {
+		if (sortedSetDocValues.advanceExact(doc)) {
+			for (int i = 0; i < sortedSetDocValues.docValueCount(); i++) {
+				segmentOrdinals.set(sortedSetDocValues.nextOrd());
+			}
+		}
+	}
+
+	@Override
+	public void clearReader() throws IOException {
+		long ordinal = segmentOrdinals.length() != 0 ? segmentOrdinals.nextSetBit(0) : -1;
+		while (ordinal != -1) {
+			hyperLogLog.add(HyperLogLog.hash(sortedSetDocValues.lookupOrd(ordinal)));
+			ordinal = ordinal + 1 < segmentOrdinals.length() ? segmentOrdinals.nextSetBit(ordinal + 1) : -1;
+		}
+
+		sortedSetDocValues = null;
+		segmentOrdinals = null;
+	}
+
+}
@@ -0,0 +1,80 @@
+package io.zulia.server.search.aggregation.cardinality;
+
+import io.zulia.message.ZuliaQuery;
+import io.zulia.server.search.aggregation.ordinal.FacetHandler;
+import io.zulia.server.search.aggregation.ordinal.OrdinalConsumer;
+import org.apache.lucene.facet.taxonomy.FacetLabel;
+import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Distinct values of a taxonomy facet.  Taxonomy ordinals are shared by the segments of a shard so they are marked in a bit set across all segments
+ * and each value is hashed once.  Ordinals differ between shards so the hash is computed from the label, the same way as a doc values facet so the
+ * sketches can be merged across indexes.  For a hierarchical facet every level of a path is a distinct value
+ */
+public class TaxonomyCardinalityInfo extends CardinalityInfo implements OrdinalConsumer {
+
+	private TaxonomyReader taxoReader;
+	private final int[] dimOrdinals;
+	private FixedBitSet ordinals;
+
+	public TaxonomyCardinalityInfo(ZuliaQuery.CardinalityRequest cardinalityRequest, TaxonomyReader taxoReader, int dimOrdinal) {
+		super(cardinalityRequest);
+		this.taxoReader = taxoReader;
+		this.dimOrdinals = new int[] { dimOrdinal };
+		this.ordinals = new FixedBitSet(Math.max(taxoReader.getSize(), 1));
+	}
+
+	@Override
+	public boolean needsFacets() {
+		// a dimension missing from the taxonomy has no values in this shard
+		return dimOrdinals[0] != TaxonomyReader.INVALID_ORDINAL;
+	}
+
+	@Override
+	public void setReader(LeafReader reader) {
+
+	}
+
+	@Override
+	public void handleDoc(int doc, FacetHandler facetHandler) {
+		if (facetHandler != null && needsFacets()) {
+			facetHandler.handleFacets(this);
+		}
+	}
+
+	@Override
+	public void handleOrdinal(int ordinal) {
+		ordinals.set(ordinal);
+	}
+
+	@Override
+	public int[] requestedDimensionOrdinals() {
+		return dimOrdinals;
+	}
+
+	@Override
+	public void finish() throws IOException {
+		int ordinal = ordinals.nextSetBit(0);
+		while (ordinal != FixedBitSet.NO_MORE_DOCS) {
+			FacetLabel facetLabel = taxoReader.getPath(ordinal);
+			String value = String.join("/", Arrays.asList(facetLabel.components).subList(1, facetLabel.length));
+			hyperLogLog.add(HyperLogLog.hash(new BytesRef(value)));
+			ordinal = ordinal + 1 < ordinals.length() ? ordinals.nextSetBit(ordinal + 1) : FixedBitSet.NO_MORE_DOCS;
+		}
+		// the handler can be cached as a segment partial so only the sketch is kept
+		ordinals = new FixedBitSet(1);
+	}
+
+	@Override
+	public void compact() {
+		// a cached partial must not keep an old taxonomy reader reachable
+		taxoReader = null;
+	}
+
+}
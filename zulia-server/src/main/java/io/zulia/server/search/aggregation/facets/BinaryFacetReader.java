@@ -13,9 +13,11 @@ import java.util.Arrays;
 
 public class BinaryFacetReader implements FacetsReader {
 	private final BinaryDocValues ordinalBinaryValues;
+	private final OrdinalBuffer ordinalBuffer;
 
 	public BinaryFacetReader(LeafReader reader) throws IOException {
 		ordinalBinaryValues = reader.getBinaryDocValues(ZuliaFieldConstants.FACET_STORAGE);
+		ordinalBuffer = new OrdinalBuffer();
 	}
 
 	@Override
@@ -25,7 +27,8 @@ public class BinaryFacetReader implements FacetsReader {
 
 	@Override
 	public FacetHandler getFacetHandler() throws IOException {
-		return new OrdinalBuffer(ordinalBinaryValues.binaryValue());
+		ordinalBuffer.reset(ordinalBinaryValues.binaryValue());
+		return ordinalBuffer;
 	}
 
 	@Override
@@ -4,20 +4,159 @@ import com.koloboke.collect.map.hash.HashIntIntMap;
 import com.koloboke.collect.map.hash.HashIntIntMaps;
 import io.zulia.server.search.aggregation.ordinal.OrdinalConsumer;
 
+import java.util.Arrays;
+
 public class CountFacetInfo extends FacetInfo implements OrdinalConsumer {
 
-	private final HashIntIntMap countFacetInfo;
+	private HashIntIntMap countFacetInfo;
+
+	private int[] denseCounts;
+
+	// the ordinals with a dense count in the order first counted, so merging and compacting visit the facets hit instead of the whole taxonomy
+	private int[] touchedOrdinals;
+
+	private int touchedSize;
+
+	private SegmentFacetCounts compactCounts;
 
 	public CountFacetInfo() {
 		countFacetInfo = HashIntIntMaps.newMutableMap();
 	}
 
+	/**
+	 * Switches to counting in an array indexed by ordinal when the taxonomy is small or dense enough for the requested dimensions.  Must be called after
+	 * the facets are added and before any ordinal is handled
+	 */
+	public void initCounts(int taxonomySize) {
+		if (useDenseOrdinals(taxonomySize)) {
+			denseCounts = new int[taxonomySize];
+			touchedOrdinals = new int[Math.max(1, Math.min(taxonomySize, 64))];
+			countFacetInfo = null;
+		}
+	}
+
+	/**
+	 * @return empty counts for the same facets to count a single segment in
+	 */
+	public CountFacetInfo newSegmentCounts(int taxonomySize) {
+		CountFacetInfo segmentCounts = new CountFacetInfo();
+		segmentCounts.copyFacets(this);
+		segmentCounts.initCounts(taxonomySize);
+		return segmentCounts;
+	}
+
 	public int getOrdinalCount(int child) {
+		if (compactCounts != null) {
+			int index = Arrays.binarySearch(compactCounts.ordinals(), child);
+			return index >= 0 ? compactCounts.counts()[index] : 0;
+		}
+		if (denseCounts != null) {
+			return child < denseCounts.length ? denseCounts[child] : 0;
+		}
 		return countFacetInfo.get(child);
 	}
 
+	public void merge(CountFacetInfo other) {
+		if (other.compactCounts != null) {
+			merge(other.compactCounts);
+		}
+		else if (other.denseCounts != null) {
+			int[] otherCounts = other.denseCounts;
+			for (int i = 0; i < other.touchedSize; i++) {
+				int ordinal = other.touchedOrdinals[i];
+				addCount(ordinal, otherCounts[ordinal]);
+			}
+		}
+		else {
+			other.countFacetInfo.forEach((int ordinal, int count) -> addCount(ordinal, count));
+		}
+	}
+
+	public void merge(SegmentFacetCounts segmentFacetCounts) {
+		int[] ordinals = segmentFacetCounts.ordinals();
+		int[] counts = segmentFacetCounts.counts();
+		for (int i = 0; i < ordinals.length; i++) {
+			addCount(ordinals[i], counts[i]);
+		}
+	}
+
+	public SegmentFacetCounts toSegmentFacetCounts() {
+		if (compactCounts != null) {
+			return compactCounts;
+		}
+
+		int[] ordinals;
+		if (denseCounts != null) {
+			ordinals = Arrays.copyOf(touchedOrdinals, touchedSize);
+		}
+		else {
+			ordinals = countFacetInfo.keySet().toIntArray();
+		}
+		Arrays.sort(ordinals);
+
+		int[] counts = new int[ordinals.length];
+		for (int i = 0; i < ordinals.length; i++) {
+			counts[i] = getOrdinalCount(ordinals[i]);
+		}
+		return new SegmentFacetCounts(ordinals, counts);
+	}
+
+	/**
+	 * Keeps only the non zero counts sorted by ordinal so a partial cached for a segment takes memory in proportion to the facets hit instead of the
+	 * taxonomy.  Must only be called once counting is finished
+	 */
+	public void compact() {
+		if (compactCounts == null) {
+			compactCounts = toSegmentFacetCounts();
+			denseCounts = null;
+			touchedOrdinals = null;
+			countFacetInfo = null;
+		}
+	}
+
+	public long getBytes() {
+		if (compactCounts != null) {
+			return compactCounts.getBytes();
+		}
+		if (denseCounts != null) {
+			return (long) (denseCounts.length + touchedOrdinals.length) * Integer.BYTES;
+		}
+		// koloboke keeps keys and values in parallel arrays at about half load
+		return (long) countFacetInfo.size() * 4 * Integer.BYTES;
+	}
+
+	private void addCount(int ordinal, int count) {
+		if (denseCounts != null) {
+			// partials cached for a segment can come from a newer and larger taxonomy than the array was sized for, so the array grows to fit them
+			if (ordinal >= denseCounts.length) {
+				denseCounts = Arrays.copyOf(denseCounts, ordinal + 1);
+			}
+			if (denseCounts[ordinal] == 0 && count != 0) {
+				touch(ordinal);
+			}
+			denseCounts[ordinal] += count;
+		}
+		else {
+			countFacetInfo.addValue(ordinal, count);
+		}
+	}
+
 	@Override
 	public void handleOrdinal(int ordinal) {
-		countFacetInfo.addValue(ordinal, 1);
+		if (denseCounts != null) {
+			if (denseCounts[ordinal]++ == 0) {
+				touch(ordinal);
+			}
+		}
+		else {
+			countFacetInfo.addValue(ordinal, 1);
+		}
+	}
+
+	private void touch(int ordinal) {
+		if (touchedSize == touchedOrdinals.length) {
+			touchedOrdinals = Arrays.copyOf(touchedOrdinals, touchedSize * 2);
+		}
+		touchedOrdinals[touchedSize++] = ordinal;
 	}
 }
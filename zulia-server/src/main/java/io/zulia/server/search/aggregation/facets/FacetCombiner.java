@@ -3,6 +3,7 @@ package io.zulia.server.search.aggregation.facets;
 import io.zulia.message.ZuliaQuery;
 import io.zulia.message.ZuliaQuery.FacetCount;
 import io.zulia.message.ZuliaQuery.FacetGroup;
+import io.zulia.server.search.aggregation.ShardSampling;
 import org.apache.lucene.util.FixedBitSet;
 
 import java.util.ArrayList;
@@ -21,14 +22,18 @@ public class FacetCombiner {
 	}
 
 	private final List<FacetGroupWithShardIndex> facetGroups;
+	private final List<FacetGroupWithShardIndex> refinedFacetGroups;
 	private final int[] shardIndexes;
 	private final ZuliaQuery.CountRequest countRequest;
 	private final int shardReponses;
+	private final ShardSampling shardSampling;
 
-	public FacetCombiner(ZuliaQuery.CountRequest countRequest, int shardReponses) {
+	public FacetCombiner(ZuliaQuery.CountRequest countRequest, int shardReponses, ShardSampling shardSampling) {
 		this.countRequest = countRequest;
 		this.shardReponses = shardReponses;
+		this.shardSampling = shardSampling;
 		this.facetGroups = new ArrayList<>(shardReponses);
+		this.refinedFacetGroups = new ArrayList<>();
 		this.shardIndexes = new int[shardReponses];
 	}
 
@@ -36,13 +41,33 @@ public class FacetCombiner {
 		facetGroups.add(new FacetGroupWithShardIndex(facetGroup, shardIndex));
 	}
 
+	/**
+	 * Adds the exact counts a shard returned in the refinement round for facets it did not return in the first round
+	 */
+	public void handleRefinedFacetGroupForShard(FacetGroup facetGroup, int shardIndex) {
+		refinedFacetGroups.add(new FacetGroupWithShardIndex(facetGroup, shardIndex));
+	}
+
+	/**
+	 * @return true when the shard returned fewer facets than requested so any facet it did not return has no count on the shard
+	 */
+	public static boolean isCompleteForShard(ZuliaQuery.CountRequest countRequest, int facetsReturned) {
+		int shardFacets = countRequest.getShardFacets();
+		if (shardFacets == -1) {
+			return true;
+		}
+		int facetsRequested = shardFacets > 0 ? shardFacets : countRequest.getMaxFacets() * 10;
+		return facetsRequested <= 0 || facetsReturned < facetsRequested;
+	}
+
 	public FacetGroup getCombinedFacetGroup() {
-		if (facetGroups.size() == 1) {
+		if (facetGroups.size() == 1 && !shardSampling.isSampled()) {
 			return facetGroups.getFirst().facetGroup();
 		}
 		else {
 
 			Map<String, AtomicLong> facetCounts = new HashMap<>();
+			Map<String, Double> facetVariances = new HashMap<>();
 			Map<String, FixedBitSet> shardsReturned = new HashMap<>();
 			FixedBitSet fullResults = new FixedBitSet(shardReponses);
 			long[] minForShard = new long[shardReponses];
@@ -62,9 +87,13 @@ public class FacetCombiner {
 						shardSet = new FixedBitSet(shardReponses);
 						shardsReturned.put(facet, shardSet);
 					}
-					long count = fc.getCount();
+					// sampled counts are scaled to the matching docs of the shard
+					long count = shardSampling.scale(fc.getCount(), shardIndex);
 					facetSum.addAndGet(count);
 					shardSet.set(shardIndex);
+					if (shardSampling.isSampled()) {
+						facetVariances.merge(facet, shardSampling.getVariance(fc.getCount(), shardIndex), Double::sum);
+					}
 
 					minForShard[shardIndex] = count;
 				}
@@ -77,8 +106,27 @@ public class FacetCombiner {
 				}
 			}
 
+			// refined counts are exact so they remove the error of the shard for the facet, the possible missing bound of the shard is unchanged
+			for (FacetGroupWithShardIndex refinedFacetGroup : refinedFacetGroups) {
+				int shardIndex = refinedFacetGroup.shardIndex();
+				for (FacetCount fc : refinedFacetGroup.facetGroup().getFacetCountList()) {
+					AtomicLong facetSum = facetCounts.get(fc.getFacet());
+					FixedBitSet shardSet = shardsReturned.get(fc.getFacet());
+					if (facetSum != null && !shardSet.get(shardIndex)) {
+						facetSum.addAndGet(shardSampling.scale(fc.getCount(), shardIndex));
+						shardSet.set(shardIndex);
+						if (shardSampling.isSampled()) {
+							facetVariances.merge(fc.getFacet(), shardSampling.getVariance(fc.getCount(), shardIndex), Double::sum);
+						}
+					}
+				}
+			}
+
 			FacetGroup.Builder fg = FacetGroup.newBuilder();
 			fg.setCountRequest(countRequest);
+			if (shardSampling.isSampled()) {
+				fg.setSampleRate(shardSampling.getSampleRate());
+			}
 
 			int numberOfShards = shardIndexes.length;
 			long maxValuePossibleMissing = 0;
@@ -103,6 +151,9 @@ public class FacetCombiner {
 				shardCount.or(fullResults);
 
 				FacetCount.Builder facetCountBuilder = FacetCount.newBuilder().setFacet(facet.getFacet()).setCount(facet.getCount());
+				if (shardSampling.isSampled()) {
+					facetCountBuilder.setStandardError(Math.sqrt(facetVariances.getOrDefault(facet.getFacet(), 0.0)));
+				}
 
 				long maxWithError = 0;
 				if (computeError) {
@@ -8,6 +8,23 @@ import com.koloboke.collect.set.hash.HashObjSets;
 import java.util.Arrays;
 
 public class FacetInfo {
+
+	/**
+	 * Taxonomies up to this size are always counted in arrays indexed by ordinal
+	 */
+	private static final int SMALL_TAXONOMY_SIZE = 1 << 16;
+
+	/**
+	 * Larger taxonomies are counted in arrays while the average number of ordinals per requested dimension stays below this, otherwise most of the
+	 * array would be untouched and hashing the hit ordinals is cheaper
+	 */
+	private static final int DENSE_ORDINALS_PER_DIMENSION = 1 << 16;
+
+	/**
+	 * Bounds the memory of a single array regardless of the number of requested dimensions
+	 */
+	private static final int MAX_DENSE_TAXONOMY_SIZE = 1 << 22;
+
 	private ObjSet<String> facets;
 
 	private IntSet dimensionOrdinals;
@@ -33,8 +50,24 @@ public class FacetInfo {
 		Arrays.sort(dimensionOrdinalsArray);
 	}
 
+	/**
+	 * Requests the same facets as the other info, which must already have computed its sorted ordinal array
+	 */
+	protected void copyFacets(FacetInfo other) {
+		facets.addAll(other.facets);
+		dimensionOrdinals.addAll(other.dimensionOrdinals);
+		dimensionOrdinalsArray = other.dimensionOrdinalsArray;
+	}
+
 	public int[] requestedDimensionOrdinals() {
 		return dimensionOrdinalsArray;
 	}
 
+	protected boolean useDenseOrdinals(int taxonomySize) {
+		if (taxonomySize <= SMALL_TAXONOMY_SIZE) {
+			return true;
+		}
+		return taxonomySize <= MAX_DENSE_TAXONOMY_SIZE && taxonomySize / Math.max(1, dimensionOrdinals.size()) <= DENSE_ORDINALS_PER_DIMENSION;
+	}
+
 }
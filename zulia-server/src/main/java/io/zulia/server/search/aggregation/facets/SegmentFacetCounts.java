@@ -0,0 +1,15 @@
+package io.zulia.server.search.aggregation.facets;
+
+/**
+ * The non zero facet counts of a segment for a filter, kept sorted by ordinal so it takes memory in proportion to the facets hit instead of the taxonomy
+ *
+ * @param ordinals the ordinals with a non zero count in ascending order
+ * @param counts   the count of each ordinal
+ */
+public record SegmentFacetCounts(int[] ordinals, int[] counts) {
+
+	public long getBytes() {
+		return (long) (ordinals.length + counts.length) * Integer.BYTES;
+	}
+
+}
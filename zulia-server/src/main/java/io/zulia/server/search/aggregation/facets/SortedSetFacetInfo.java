@@ -0,0 +1,207 @@
+package io.zulia.server.search.aggregation.facets;
+
+import com.koloboke.collect.map.ObjIntMap;
+import com.koloboke.collect.map.hash.HashObjIntMaps;
+import io.zulia.ZuliaFieldConstants;
+import io.zulia.message.ZuliaQuery;
+import io.zulia.server.search.aggregation.stats.NumericFieldStatInfo;
+import io.zulia.server.search.aggregation.stats.Stats;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.SortedSetDocValues;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Counts and stats for a flat facet stored as SortedSetDocValues instead of in the taxonomy.  Values are counted by segment ordinal and folded into
+ * label keyed totals when the segment is finished, so partials computed on different readers can be merged
+ */
+public class SortedSetFacetInfo {
+
+	// label string and map entry without the chars
+	private static final int LABEL_BYTES = 64;
+
+	private final String facetName;
+	private final String docValuesField;
+
+	private boolean count;
+	private final ObjIntMap<String> labelCounts;
+
+	private final List<NumericFieldStatInfo> statFields;
+	private final List<Map<String, Stats<?>>> labelStats;
+
+	private SortedSetDocValues sortedSetDocValues;
+	private int[] segmentCounts;
+	private Stats<?>[][] segmentStats;
+
+	public SortedSetFacetInfo(String facetName) {
+		this.facetName = facetName;
+		this.docValuesField = ZuliaFieldConstants.FACET_DOC_VALUES_PREFIX + facetName;
+		this.labelCounts = HashObjIntMaps.newMutableMap();
+		this.statFields = new ArrayList<>();
+		this.labelStats = new ArrayList<>();
+	}
+
+	public String getFacetName() {
+		return facetName;
+	}
+
+	public void enableCount() {
+		this.count = true;
+	}
+
+	public void addStatField(NumericFieldStatInfo statField) {
+		if (!statFields.contains(statField)) {
+			statFields.add(statField);
+			labelStats.add(new HashMap<>());
+		}
+	}
+
+	public void setReader(LeafReader reader) throws IOException {
+		sortedSetDocValues = DocValues.getSortedSet(reader, docValuesField);
+		int valueCount = (int) sortedSetDocValues.getValueCount();
+		segmentCounts = count ? new int[valueCount] : null;
+		segmentStats = new Stats<?>[statFields.size()][];
+		for (int i = 0; i < segmentStats.length; i++) {
+			segmentStats[i] = new Stats<?>[valueCount];
+		}
+	}
+
+	/**
+	 * Counts the values of the document and adds the current numeric values of the stat fields, which must already be advanced to the document
+	 */
+	public void handleDoc(int doc) throws IOException {
+		if (!sortedSetDocValues.advanceExact(doc)) {
+			return;
+		}
+
+		for (int i = 0; i < sortedSetDocValues.docValueCount(); i++) {
+			int ordinal = (int) sortedSetDocValues.nextOrd();
+			if (segmentCounts != null) {
+				segmentCounts[ordinal]++;
+			}
+			for (int f = 0; f < segmentStats.length; f++) {
+				Stats<?> stats = segmentStats[f][ordinal];
+				if (stats == null) {
+					stats = statFields.get(f).newFacetStats();
+					segmentStats[f][ordinal] = stats;
+				}
+				NumericFieldStatInfo statField = statFields.get(f);
+				stats.handleNumericValues(statField.getNumericValues(), statField.getNumericValueCount());
+			}
+		}
+	}
+
+	public void clearReader() throws IOException {
+		if (segmentCounts != null) {
+			for (int ordinal = 0; ordinal < segmentCounts.length; ordinal++) {
+				if (segmentCounts[ordinal] != 0) {
+					labelCounts.addValue(sortedSetDocValues.lookupOrd(ordinal).utf8ToString(), segmentCounts[ordinal]);
+				}
+			}
+		}
+
+		for (int f = 0; f < segmentStats.length; f++) {
+			Map<String, Stats<?>> statsForLabel = labelStats.get(f);
+			for (int ordinal = 0; ordinal < segmentStats[f].length; ordinal++) {
+				Stats<?> stats = segmentStats[f][ordinal];
+				if (stats != null) {
+					statsForLabel.merge(sortedSetDocValues.lookupOrd(ordinal).utf8ToString(), stats, SortedSetFacetInfo::mergeStats);
+				}
+			}
+		}
+
+		sortedSetDocValues = null;
+		segmentCounts = null;
+		segmentStats = null;
+	}
+
+	public void merge(SortedSetFacetInfo other) {
+		other.labelCounts.forEach((String label, int labelCount) -> labelCounts.addValue(label, labelCount));
+		for (int f = 0; f < labelStats.size(); f++) {
+			// the other stats can belong to a cached partial so they are merged into new stats instead of being shared
+			NumericFieldStatInfo statField = statFields.get(f);
+			Map<String, Stats<?>> statsForLabel = labelStats.get(f);
+			other.labelStats.get(f).forEach((label, stats) -> mergeStats(statsForLabel.computeIfAbsent(label, l -> statField.newFacetStats()), stats));
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Stats<?> mergeStats(Stats<?> stats, Stats<?> other) {
+		((Stats) stats).merge(other);
+		return stats;
+	}
+
+	public long getBytes() {
+		long bytes = 0;
+		for (String label : labelCounts.keySet()) {
+			bytes += LABEL_BYTES + 2L * label.length();
+		}
+		for (Map<String, Stats<?>> statsForLabel : labelStats) {
+			for (Map.Entry<String, Stats<?>> labelStat : statsForLabel.entrySet()) {
+				bytes += LABEL_BYTES + 2L * labelStat.getKey().length() + labelStat.getValue().getBytes();
+			}
+		}
+		return bytes;
+	}
+
+	public int getCount(String label) {
+		return labelCounts.getInt(label);
+	}
+
+	public ZuliaQuery.FacetGroup.Builder getTopChildren(int topN) {
+		PriorityQueue<Map.Entry<String, Integer>> queue = new PriorityQueue<>(
+				(a, b) -> a.getValue().equals(b.getValue()) ? b.getKey().compareTo(a.getKey()) : Integer.compare(a.getValue(), b.getValue()));
+		labelCounts.forEach((String label, int labelCount) -> {
+			queue.offer(Map.entry(label, labelCount));
+			if (queue.size() > topN) {
+				queue.poll();
+			}
+		});
+
+		ZuliaQuery.FacetCount[] facetCounts = new ZuliaQuery.FacetCount[queue.size()];
+		for (int i = facetCounts.length - 1; i >= 0; i--) {
+			Map.Entry<String, Integer> labelCount = queue.poll();
+			facetCounts[i] = ZuliaQuery.FacetCount.newBuilder().setFacet(labelCount.getKey()).setCount(labelCount.getValue()).build();
+		}
+
+		return ZuliaQuery.FacetGroup.newBuilder().addAllFacetCount(List.of(facetCounts));
+	}
+
+	public List<ZuliaQuery.FacetStatsInternal> getTopStats(NumericFieldStatInfo statField, int topN) {
+		int fieldIndex = statFields.indexOf(statField);
+		if (fieldIndex == -1) {
+			throw new IllegalArgumentException("Field <" + statField.getNumericFieldName() + "> has not requested as a stat for facet <" + facetName + ">");
+		}
+
+		PriorityQueue<Map.Entry<String, Stats<?>>> queue = new PriorityQueue<>(SortedSetFacetInfo::compareStats);
+		for (Map.Entry<String, Stats<?>> labelStat : labelStats.get(fieldIndex).entrySet()) {
+			queue.offer(labelStat);
+			if (queue.size() > topN) {
+				queue.poll();
+			}
+		}
+
+		ZuliaQuery.FacetStatsInternal[] facetStats = new ZuliaQuery.FacetStatsInternal[queue.size()];
+		for (int i = facetStats.length - 1; i >= 0; i--) {
+			Map.Entry<String, Stats<?>> labelStat = queue.poll();
+			facetStats[i] = labelStat.getValue().buildResponse().setFacet(labelStat.getKey()).build();
+		}
+		return List.of(facetStats);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static int compareStats(Map.Entry<String, Stats<?>> a, Map.Entry<String, Stats<?>> b) {
+		int compare = ((Comparable) a.getValue()).compareTo(b.getValue());
+		if (compare == 0) {
+			return b.getKey().compareTo(a.getKey());
+		}
+		return compare;
+	}
+
+}
@@ -11,6 +11,10 @@ public class DoubleMapStatOrdinalStorage extends MapStatOrdinalStorage<DoubleSta
 		super(statConstructor);
 	}
 
+	public DoubleMapStatOrdinalStorage(Supplier<DoubleStats> statConstructor, int denseSize) {
+		super(statConstructor, denseSize);
+	}
+
 	@Override
 	protected TopStatsQueue<DoubleStats> getTopStatsQueue(TaxonomyReader taxonomyReader, TaxonomyReader.ChildrenIterator childrenIterator, int topN) {
 		TopStatsQueue<DoubleStats> q = new TopStatsQueue<>(Math.min(taxonomyReader.getSize(), topN));
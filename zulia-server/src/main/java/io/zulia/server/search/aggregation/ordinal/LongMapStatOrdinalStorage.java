@@ -11,6 +11,10 @@ public class LongMapStatOrdinalStorage extends MapStatOrdinalStorage<LongStats>
 		super(statConstructor);
 	}
 
+	public LongMapStatOrdinalStorage(Supplier<LongStats> statConstructor, int denseSize) {
+		super(statConstructor, denseSize);
+	}
+
 	@Override
 	protected TopStatsQueue<LongStats> getTopStatsQueue(TaxonomyReader taxonomyReader, TaxonomyReader.ChildrenIterator childrenIterator, int topN) {
 		TopStatsQueue<LongStats> q = new TopStatsQueue<>(Math.min(taxonomyReader.getSize(), topN));
@@ -16,29 +16,121 @@ import java.util.function.Supplier;
 public abstract class MapStatOrdinalStorage<T extends Stats<T>> implements StatOrdinalStorage {
 
 	private final Supplier<T> statConstructor;
-	private final IntObjMap<T> ordinalToStat;
+	private IntObjMap<T> ordinalToStat;
+	private Stats<?>[] denseStats;
 
 	public MapStatOrdinalStorage(Supplier<T> statConstructor) {
-		ordinalToStat = HashIntObjMaps.newMutableMap();
+		this(statConstructor, 0);
+	}
+
+	/**
+	 * @param denseSize when greater than 0 the stats are kept in an array indexed by ordinal of this size instead of a map
+	 */
+	public MapStatOrdinalStorage(Supplier<T> statConstructor, int denseSize) {
 		this.statConstructor = statConstructor;
+		if (denseSize > 0) {
+			denseStats = new Stats<?>[denseSize];
+			ordinalToStat = null;
+		}
+		else {
+			ordinalToStat = HashIntObjMaps.newMutableMap();
+		}
 	}
 
+	@SuppressWarnings("unchecked")
 	public T getOrCreateStat(int ordinal) {
-		return ordinalToStat.computeIfAbsent(ordinal, i -> {
-			T t = statConstructor.get();
-			t.setOrdinal(ordinal);
-			return t;
-		});
+		if (denseStats != null) {
+			// partials cached for a segment can come from an older and smaller taxonomy but never a larger one
+			if (ordinal >= denseStats.length) {
+				denseStats = Arrays.copyOf(denseStats, ordinal + 1);
+			}
+			T stat = (T) denseStats[ordinal];
+			if (stat == null) {
+				stat = createStat(ordinal);
+				denseStats[ordinal] = stat;
+			}
+			return stat;
+		}
+		return ordinalToStat.computeIfAbsent(ordinal, this::createStat);
+	}
 
+	private T createStat(int ordinal) {
+		T t = statConstructor.get();
+		t.setOrdinal(ordinal);
+		return t;
 	}
 
+	@SuppressWarnings("unchecked")
 	public T getStat(int ordinal) {
+		if (denseStats != null) {
+			return ordinal < denseStats.length ? (T) denseStats[ordinal] : null;
+		}
 		return ordinalToStat.get(ordinal);
 	}
 
+	@SuppressWarnings("unchecked")
+	public void merge(MapStatOrdinalStorage<T> other) {
+		if (other.denseStats != null) {
+			for (Stats<?> stat : other.denseStats) {
+				if (stat != null) {
+					getOrCreateStat(stat.getOrdinal()).merge((T) stat);
+				}
+			}
+		}
+		else {
+			other.ordinalToStat.forEach((int ordinal, T stat) -> getOrCreateStat(ordinal).merge(stat));
+		}
+	}
+
+	/**
+	 * Moves dense stats into a map so a partial cached for a segment keeps memory in proportion to the ordinals hit instead of the taxonomy
+	 */
+	@SuppressWarnings("unchecked")
+	public void compact() {
+		if (denseStats != null) {
+			ordinalToStat = HashIntObjMaps.newMutableMap();
+			for (Stats<?> stat : denseStats) {
+				if (stat != null) {
+					ordinalToStat.put(stat.getOrdinal(), (T) stat);
+				}
+			}
+			denseStats = null;
+		}
+	}
+
+	public long getBytes() {
+		long bytes = 0;
+		if (denseStats != null) {
+			// a compressed reference per ordinal
+			bytes += (long) denseStats.length * Integer.BYTES;
+			for (Stats<?> stat : denseStats) {
+				if (stat != null) {
+					bytes += stat.getBytes();
+				}
+			}
+		}
+		else {
+			for (T stat : ordinalToStat.values()) {
+				bytes += stat.getBytes();
+			}
+		}
+		return bytes;
+	}
+
 	protected abstract TopStatsQueue<T> getTopStatsQueue(TaxonomyReader taxonomyReader, TaxonomyReader.ChildrenIterator childrenIterator, int topN);
 
 	public List<ZuliaQuery.FacetStatsInternal> getFacetStats(TaxonomyReader taxonomyReader, FacetLabel countPath, int topN) throws IOException {
+		List<T> topStats = getTopStats(taxonomyReader, countPath, topN);
+		if (topStats == null) {
+			return null;
+		}
+		return buildFacetStats(taxonomyReader, countPath, topStats);
+	}
+
+	/**
+	 * @return the top stats of the children of the path ordered from the highest, null if the path is not in the taxonomy
+	 */
+	public List<T> getTopStats(TaxonomyReader taxonomyReader, FacetLabel countPath, int topN) throws IOException {
 		int dimOrd = taxonomyReader.getOrdinal(countPath);
 		if (dimOrd == -1) {
 			return null;
@@ -48,9 +140,19 @@ public abstract class MapStatOrdinalStorage<T extends Stats<T>> implements StatO
 
 		TopStatsQueue<T> q = getTopStatsQueue(taxonomyReader, childrenIterator, topN);
 
-		ZuliaQuery.FacetStatsInternal[] facetStats = new ZuliaQuery.FacetStatsInternal[q.size()];
-		for (int i = facetStats.length - 1; i >= 0; i--) {
-			T stat = q.pop();
+		@SuppressWarnings("unchecked")
+		T[] topStats = (T[]) new Stats<?>[q.size()];
+		for (int i = topStats.length - 1; i >= 0; i--) {
+			topStats[i] = q.pop();
+		}
+		return Arrays.asList(topStats);
+	}
+
+	public static List<ZuliaQuery.FacetStatsInternal> buildFacetStats(TaxonomyReader taxonomyReader, FacetLabel countPath, List<? extends Stats<?>> topStats)
+			throws IOException {
+		ZuliaQuery.FacetStatsInternal[] facetStats = new ZuliaQuery.FacetStatsInternal[topStats.size()];
+		for (int i = 0; i < facetStats.length; i++) {
+			Stats<?> stat = topStats.get(i);
 			FacetLabel child = taxonomyReader.getPath(stat.getOrdinal());
 			String label = child.components[countPath.length];
 			facetStats[i] = stat.buildResponse().setFacet(label).build();
@@ -1,48 +1,179 @@
 package io.zulia.server.search.aggregation.ordinal;
 
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
 
-import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
-
+/**
+ * Decodes the facet ordinals stored for a document.  A single instance is reset for each document so nothing is allocated per document.
+ * <p>
+ * Two formats are readable:
+ * <ul>
+ *     <li>legacy: big endian 4 byte ints of [dimOrdinal, ordinalCount, ordinals...] for each dimension in dimension ordinal order</li>
+ *     <li>compact: a {@link #COMPACT_VERSION} byte followed by [dimOrdinalDelta, ordinalCount, ordinalBytes, ordinalDeltas...] as vInts for each dimension in
+ *     dimension ordinal order with the ordinals of a dimension sorted.  The byte length of the ordinals allows skipping dimensions that are not
+ *     requested</li>
+ * </ul>
+ * The first byte of the legacy format is the high byte of a non negative int so it never has the high bit set that the version byte has
+ */
 public class OrdinalBuffer implements FacetHandler {
-	private final IntBuffer ordinalBuffer;
+
+	public static final byte COMPACT_VERSION = (byte) 0x81;
+
+	private byte[] bytes;
+	private int start;
+	private int end;
+	private int position;
+
+	public OrdinalBuffer() {
+	}
 
 	public OrdinalBuffer(BytesRef bytesRef) {
-		ordinalBuffer = ByteBuffer.wrap(bytesRef.bytes, bytesRef.offset, bytesRef.length).asIntBuffer();
+		reset(bytesRef);
+	}
+
+	public void reset(BytesRef bytesRef) {
+		this.bytes = bytesRef.bytes;
+		this.start = bytesRef.offset;
+		this.end = bytesRef.offset + bytesRef.length;
 	}
 
 	public void handleFacets(OrdinalConsumer ordinalConsumer) {
+		if (start == end) {
+			return;
+		}
+
+		if (bytes[start] == COMPACT_VERSION) {
+			handleCompactFacets(ordinalConsumer);
+		}
+		else {
+			handleLegacyFacets(ordinalConsumer);
+		}
+	}
+
+	private void handleCompactFacets(OrdinalConsumer ordinalConsumer) {
+		int[] requestDimensionOrdinals = ordinalConsumer.requestedDimensionOrdinals();
+		position = start + 1;
+
+		int storedDimOrdinal = -1;
+		int previousDimOrdinal = 0;
+		int storedOrdinalCountForDim = 0;
+		int storedOrdinalBytesForDim = 0;
+
+		for (int requestedDimOrdinal : requestDimensionOrdinals) {
+
+			while (storedDimOrdinal < requestedDimOrdinal) {
+				position += storedOrdinalBytesForDim;
+
+				if (position >= end) {
+					return;
+				}
+
+				storedDimOrdinal = previousDimOrdinal + readVInt();
+				previousDimOrdinal = storedDimOrdinal;
+				storedOrdinalCountForDim = readVInt();
+				storedOrdinalBytesForDim = readVInt();
+			}
+
+			if (requestedDimOrdinal == storedDimOrdinal) {
+				int ordinal = 0;
+				for (int i = 0; i < storedOrdinalCountForDim; i++) {
+					ordinal += readVInt();
+					ordinalConsumer.handleOrdinal(ordinal);
+				}
+				storedOrdinalBytesForDim = 0;
+			}
+
+		}
+	}
+
+	private void handleLegacyFacets(OrdinalConsumer ordinalConsumer) {
 		int[] requestDimensionOrdinals = ordinalConsumer.requestedDimensionOrdinals();
-		ordinalBuffer.position(0);
-		if (ordinalBuffer.hasRemaining()) {
-			int storedDimOrdinal = -1;
-			int storedOrdinalLengthForDim = 0;
+		position = start;
 
-			for (int requestedDimOrdinal : requestDimensionOrdinals) {
+		int storedDimOrdinal = -1;
+		int storedOrdinalLengthForDim = 0;
 
-				while (storedDimOrdinal < requestedDimOrdinal) {
-					if (storedOrdinalLengthForDim != 0) {
-						ordinalBuffer.position(ordinalBuffer.position() + storedOrdinalLengthForDim);
-					}
+		for (int requestedDimOrdinal : requestDimensionOrdinals) {
 
-					if (!ordinalBuffer.hasRemaining()) {
-						return;
-					}
+			while (storedDimOrdinal < requestedDimOrdinal) {
+				position += storedOrdinalLengthForDim * Integer.BYTES;
 
-					storedDimOrdinal = ordinalBuffer.get();
-					storedOrdinalLengthForDim = ordinalBuffer.get();
+				if (position >= end) {
+					return;
 				}
 
-				if (requestedDimOrdinal == storedDimOrdinal) {
-					for (int i = 0; i < storedOrdinalLengthForDim; i++) {
-						ordinalConsumer.handleOrdinal(ordinalBuffer.get());
-					}
-					storedOrdinalLengthForDim = 0;
+				storedDimOrdinal = readInt();
+				storedOrdinalLengthForDim = readInt();
+			}
+
+			if (requestedDimOrdinal == storedDimOrdinal) {
+				for (int i = 0; i < storedOrdinalLengthForDim; i++) {
+					ordinalConsumer.handleOrdinal(readInt());
 				}
+				storedOrdinalLengthForDim = 0;
+			}
+
+		}
+	}
+
+	private int readInt() {
+		int value = ((bytes[position] & 0xFF) << 24) | ((bytes[position + 1] & 0xFF) << 16) | ((bytes[position + 2] & 0xFF) << 8) | (bytes[position + 3] & 0xFF);
+		position += Integer.BYTES;
+		return value;
+	}
 
+	private int readVInt() {
+		byte b = bytes[position++];
+		int value = b & 0x7F;
+		for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+			b = bytes[position++];
+			value |= (b & 0x7F) << shift;
+		}
+		return value;
+	}
+
+	/**
+	 * Encodes the ordinals of a document in the compact format
+	 *
+	 * @param dimOrdinals      the dimension ordinals in ascending order
+	 * @param ordinalsForDims  the ordinals for each dimension in ascending order
+	 */
+	public static BytesRef encode(int[] dimOrdinals, int[][] ordinalsForDims) {
+		if (dimOrdinals.length == 0) {
+			return new BytesRef();
+		}
+
+		BytesRefBuilder ordinalBytes = new BytesRefBuilder();
+		BytesRefBuilder encoded = new BytesRefBuilder();
+		encoded.append(COMPACT_VERSION);
+
+		int previousDimOrdinal = 0;
+		for (int i = 0; i < dimOrdinals.length; i++) {
+			int[] ordinals = ordinalsForDims[i];
+
+			ordinalBytes.clear();
+			int previousOrdinal = 0;
+			for (int ordinal : ordinals) {
+				writeVInt(ordinalBytes, ordinal - previousOrdinal);
+				previousOrdinal = ordinal;
 			}
+
+			writeVInt(encoded, dimOrdinals[i] - previousDimOrdinal);
+			writeVInt(encoded, ordinals.length);
+			writeVInt(encoded, ordinalBytes.length());
+			encoded.append(ordinalBytes);
+			previousDimOrdinal = dimOrdinals[i];
+		}
+
+		return encoded.toBytesRef();
+	}
+
+	private static void writeVInt(BytesRefBuilder builder, int value) {
+		while ((value & ~0x7F) != 0) {
+			builder.append((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
 		}
+		builder.append((byte) value);
 	}
 
 }
@@ -3,12 +3,17 @@ package io.zulia.server.search.aggregation.stats;
 import org.apache.lucene.util.NumericUtils;
 
 public class DoubleDoubleStats extends DoubleStats {
-	public DoubleDoubleStats(double precision) {
-		super(precision);
+	public DoubleDoubleStats(StatSketchFactory sketchFactory) {
+		super(sketchFactory);
 	}
 
 	@Override
 	public void handleDocValue(long docValue) {
 		newValue(NumericUtils.sortableLongToDouble(docValue));
 	}
+
+	@Override
+	protected double toSketchValue(long docValue) {
+		return NumericUtils.sortableLongToDouble(docValue);
+	}
 }
@@ -7,8 +7,8 @@ public abstract class DoubleStats extends Stats<DoubleStats> implements Comparab
 	private double doubleMinValue = Double.POSITIVE_INFINITY;
 	private double doubleMaxValue = Double.NEGATIVE_INFINITY;
 
-	public DoubleStats(double precision) {
-		super(precision);
+	public DoubleStats(StatSketchFactory sketchFactory) {
+		super(sketchFactory);
 	}
 
 	public void newValue(double newValue) {
@@ -27,6 +27,14 @@ public abstract class DoubleStats extends Stats<DoubleStats> implements Comparab
 		return doubleSum;
 	}
 
+	@Override
+	public void merge(DoubleStats other) {
+		super.merge(other);
+		doubleSum += other.doubleSum;
+		doubleMinValue = Math.min(doubleMinValue, other.doubleMinValue);
+		doubleMaxValue = Math.max(doubleMaxValue, other.doubleMaxValue);
+	}
+
 	public ZuliaQuery.FacetStatsInternal.Builder buildResponse() {
 		ZuliaQuery.FacetStatsInternal.Builder builder = super.buildResponse();
 		ZuliaQuery.SortValue sum = ZuliaQuery.SortValue.newBuilder().setDoubleValue(doubleSum).build();
@@ -3,12 +3,17 @@ package io.zulia.server.search.aggregation.stats;
 import org.apache.lucene.util.NumericUtils;
 
 public class FloatDoubleStats extends DoubleStats {
-	public FloatDoubleStats(double precision) {
-		super(precision);
+	public FloatDoubleStats(StatSketchFactory sketchFactory) {
+		super(sketchFactory);
 	}
 
 	@Override
 	public void handleDocValue(long docValue) {
 		newValue(NumericUtils.sortableIntToFloat((int) docValue));
 	}
+
+	@Override
+	protected double toSketchValue(long docValue) {
+		return NumericUtils.sortableIntToFloat((int) docValue);
+	}
 }
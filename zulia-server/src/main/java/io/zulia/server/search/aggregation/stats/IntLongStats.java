@@ -1,12 +1,17 @@
 package io.zulia.server.search.aggregation.stats;
 
 public class IntLongStats extends LongStats {
-	public IntLongStats(double precision) {
-		super(precision);
+	public IntLongStats(StatSketchFactory sketchFactory) {
+		super(sketchFactory);
 	}
 
 	@Override
 	public void handleDocValue(long docValue) {
 		newValue((int) docValue);
 	}
+
+	@Override
+	protected double toSketchValue(long docValue) {
+		return (int) docValue;
+	}
 }
@@ -1,12 +1,17 @@
 package io.zulia.server.search.aggregation.stats;
 
 public class LongLongStats extends LongStats {
-	public LongLongStats(double precision) {
-		super(precision);
+	public LongLongStats(StatSketchFactory sketchFactory) {
+		super(sketchFactory);
 	}
 
 	@Override
 	public void handleDocValue(long docValue) {
 		newValue(docValue);
 	}
+
+	@Override
+	protected double toSketchValue(long docValue) {
+		return docValue;
+	}
 }
@@ -7,8 +7,8 @@ public abstract class LongStats extends Stats<LongStats> implements Comparable<L
 	private long longMinValue = Long.MAX_VALUE;
 	private long longMaxValue = Long.MIN_VALUE;
 
-	public LongStats(double precision) {
-		super(precision);
+	public LongStats(StatSketchFactory sketchFactory) {
+		super(sketchFactory);
 	}
 
 	public void newValue(long newValue) {
@@ -26,6 +26,14 @@ public abstract class LongStats extends Stats<LongStats> implements Comparable<L
 		return longSum;
 	}
 
+	@Override
+	public void merge(LongStats other) {
+		super.merge(other);
+		longSum += other.longSum;
+		longMinValue = Math.min(longMinValue, other.longMinValue);
+		longMaxValue = Math.max(longMaxValue, other.longMaxValue);
+	}
+
 	@Override
 	public ZuliaQuery.FacetStatsInternal.Builder buildResponse() {
 		ZuliaQuery.FacetStatsInternal.Builder builder = super.buildResponse();
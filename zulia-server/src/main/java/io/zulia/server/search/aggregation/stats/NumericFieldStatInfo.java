@@ -1,5 +1,6 @@
 package io.zulia.server.search.aggregation.stats;
 
+import com.koloboke.collect.set.IntSet;
 import io.zulia.message.ZuliaIndex;
 import io.zulia.server.field.FieldTypeUtil;
 import io.zulia.server.search.aggregation.facets.FacetInfo;
@@ -21,7 +22,10 @@ public class NumericFieldStatInfo extends FacetInfo implements OrdinalConsumer {
 	private String numericFieldName;
 	private String sortFieldName;
 
-	private Double facetPrecision;
+	private boolean facetEnabled;
+	private StatSketchFactory facetSketchFactory;
+	private boolean deferFacetSketches;
+	private IntSet sketchOrdinals;
 
 	private ZuliaIndex.FieldConfig.FieldType numericFieldType;
 	private Stats<?> globalStats;
@@ -42,23 +46,64 @@ public class NumericFieldStatInfo extends FacetInfo implements OrdinalConsumer {
 		return globalStats != null;
 	}
 
-	public void enableFacetWithPrecision(double facetPrecision) {
-		if (this.facetPrecision != null && Double.compare(this.facetPrecision, facetPrecision) != 0) {
+	/**
+	 * @param facetSketchFactory creates the percentile sketches of the facet stats, null when percentiles are not requested
+	 */
+	public void enableFacet(StatSketchFactory facetSketchFactory) {
+		if (facetEnabled && Double.compare(getPrecision(this.facetSketchFactory), getPrecision(facetSketchFactory)) != 0) {
 			throw new IllegalArgumentException("Facet precision for field <" + numericFieldName + "> must be the same for all facets.");
 		}
-		this.facetPrecision = facetPrecision;
-
-		if (FieldTypeUtil.isNumericDoubleFieldType(numericFieldType)) {
-			facetStatStorage = new DoubleMapStatOrdinalStorage(() -> new DoubleDoubleStats(facetPrecision));
-		}
-		else if (FieldTypeUtil.isNumericFloatFieldType(numericFieldType)) {
-			facetStatStorage = new DoubleMapStatOrdinalStorage(() -> new FloatDoubleStats(facetPrecision));
+		if (facetEnabled && getMaxBins(this.facetSketchFactory) != getMaxBins(facetSketchFactory)) {
+			throw new IllegalArgumentException("Facet max sketch bins for field <" + numericFieldName + "> must be the same for all facets.");
 		}
-		else if (FieldTypeUtil.isStoredAsLong(numericFieldType)) {
-			facetStatStorage = new LongMapStatOrdinalStorage(() -> new LongLongStats(facetPrecision));
+		this.facetEnabled = true;
+		this.facetSketchFactory = facetSketchFactory;
+	}
+
+	private static double getPrecision(StatSketchFactory sketchFactory) {
+		return sketchFactory != null ? sketchFactory.getPrecision() : 0;
+	}
+
+	private static int getMaxBins(StatSketchFactory sketchFactory) {
+		return sketchFactory != null ? sketchFactory.getMaxBins() : 0;
+	}
+
+	/**
+	 * Computes the taxonomy facet stats without sketches.  Sketches are only started for the stats that make the top facets and filled by a second pass
+	 * over the documents, see {@link #setSketchOrdinals(IntSet)}.  Must be called before {@link #initFacetStatStorage(int)}
+	 */
+	public void deferFacetSketches() {
+		this.deferFacetSketches = facetSketchFactory != null;
+	}
+
+	public boolean hasDeferredFacetSketches() {
+		return deferFacetSketches;
+	}
+
+	public StatSketchFactory getFacetSketchFactory() {
+		return facetSketchFactory;
+	}
+
+	/**
+	 * @param sketchOrdinals when set handled ordinals only add the values to the sketches of these ordinals instead of computing the stats
+	 */
+	public void setSketchOrdinals(IntSet sketchOrdinals) {
+		this.sketchOrdinals = sketchOrdinals;
+	}
+
+	/**
+	 * Creates the facet stat storage, kept in an array indexed by ordinal when the taxonomy is small or dense enough for the requested dimensions.  Must be
+	 * called after the facets are added and before any ordinal is handled
+	 */
+	public void initFacetStatStorage(int taxonomySize) {
+		int denseSize = useDenseOrdinals(taxonomySize) ? taxonomySize : 0;
+		StatSketchFactory sketchFactory = deferFacetSketches ? null : facetSketchFactory;
+
+		if (FieldTypeUtil.isNumericDoubleFieldType(numericFieldType) || FieldTypeUtil.isNumericFloatFieldType(numericFieldType)) {
+			facetStatStorage = new DoubleMapStatOrdinalStorage(() -> (DoubleStats) newStats(sketchFactory), denseSize);
 		}
-		else if (FieldTypeUtil.isStoredAsInt(numericFieldType)) {
-			facetStatStorage = new LongMapStatOrdinalStorage(() -> new IntLongStats(facetPrecision));
+		else if (FieldTypeUtil.isStoredAsLong(numericFieldType) || FieldTypeUtil.isStoredAsInt(numericFieldType)) {
+			facetStatStorage = new LongMapStatOrdinalStorage(() -> (LongStats) newStats(sketchFactory), denseSize);
 		}
 		else {
 			throw new IllegalArgumentException("Can not generate stat storage for field type <" + numericFieldType + ">");
@@ -66,18 +111,29 @@ public class NumericFieldStatInfo extends FacetInfo implements OrdinalConsumer {
 
 	}
 
-	public void enableGlobal(double precision) {
+	/**
+	 * Creates empty stats for a single facet value that sketch with the facet sketch factory
+	 */
+	public Stats<?> newFacetStats() {
+		return newStats(facetSketchFactory);
+	}
+
+	public void enableGlobal(StatSketchFactory sketchFactory) {
+		globalStats = newStats(sketchFactory);
+	}
+
+	private Stats<?> newStats(StatSketchFactory sketchFactory) {
 		if (FieldTypeUtil.isNumericDoubleFieldType(numericFieldType)) {
-			globalStats = new DoubleDoubleStats(precision);
+			return new DoubleDoubleStats(sketchFactory);
 		}
 		else if (FieldTypeUtil.isNumericFloatFieldType(numericFieldType)) {
-			globalStats = new FloatDoubleStats(precision);
+			return new FloatDoubleStats(sketchFactory);
 		}
 		else if (FieldTypeUtil.isStoredAsLong(numericFieldType)) {
-			globalStats = new LongLongStats(precision);
+			return new LongLongStats(sketchFactory);
 		}
 		else if (FieldTypeUtil.isStoredAsInt(numericFieldType)) {
-			globalStats = new IntLongStats(precision);
+			return new IntLongStats(sketchFactory);
 		}
 		else {
 			throw new IllegalArgumentException("Can not generate stat constructor for field type <" + numericFieldType + ">");
@@ -92,6 +148,49 @@ public class NumericFieldStatInfo extends FacetInfo implements OrdinalConsumer {
 		numericDocValues = DocValues.getSortedNumeric(reader, sortFieldName);
 	}
 
+	public void clearReader() {
+		numericDocValues = null;
+	}
+
+	public void merge(NumericFieldStatInfo other) {
+		if (globalStats != null) {
+			mergeStats(globalStats, other.globalStats);
+		}
+		if (facetStatStorage != null) {
+			mergeStorage(facetStatStorage, other.facetStatStorage);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Stats<T>> void mergeStats(Stats<T> stats, Stats<?> other) {
+		stats.merge((T) other);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Stats<T>> void mergeStorage(MapStatOrdinalStorage<T> storage, MapStatOrdinalStorage<?> other) {
+		storage.merge((MapStatOrdinalStorage<T>) other);
+	}
+
+	/**
+	 * Keeps only the facet stats that were hit, see {@link MapStatOrdinalStorage#compact()}
+	 */
+	public void compact() {
+		if (facetStatStorage != null) {
+			facetStatStorage.compact();
+		}
+	}
+
+	public long getBytes() {
+		long bytes = 0;
+		if (globalStats != null) {
+			bytes += globalStats.getBytes();
+		}
+		if (facetStatStorage != null) {
+			bytes += facetStatStorage.getBytes();
+		}
+		return bytes;
+	}
+
 	public void advanceNumericValues(int doc) throws IOException {
 		numericValueCount = -1;
 		if (numericDocValues.advanceExact(doc)) {
@@ -127,6 +226,12 @@ public class NumericFieldStatInfo extends FacetInfo implements OrdinalConsumer {
 
 	@Override
 	public void handleOrdinal(int ordinal) {
+		if (sketchOrdinals != null) {
+			if (sketchOrdinals.contains(ordinal)) {
+				facetStatStorage.getStat(ordinal).sketchNumericValues(numericValues, numericValueCount);
+			}
+			return;
+		}
 		Stats<?> stats = facetStatStorage.getOrCreateStat(ordinal);
 		stats.handleNumericValues(numericValues, numericValueCount);
 	}
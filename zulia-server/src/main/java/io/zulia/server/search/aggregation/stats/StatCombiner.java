@@ -3,7 +3,7 @@ package io.zulia.server.search.aggregation.stats;
 import com.datadoghq.sketch.ddsketch.DDSketch;
 import com.datadoghq.sketch.ddsketch.DDSketchProtoBinding;
 import com.datadoghq.sketch.ddsketch.DDSketches;
-import com.datadoghq.sketch.ddsketch.store.UnboundedSizeDenseStore;
+import com.datadoghq.sketch.ddsketch.store.CollapsingLowestDenseStore;
 import io.zulia.message.ZuliaQuery;
 import io.zulia.message.ZuliaQuery.FacetStats;
 import io.zulia.message.ZuliaQuery.FacetStatsInternal;
@@ -12,6 +12,7 @@ import io.zulia.message.ZuliaQuery.SortValue;
 import io.zulia.message.ZuliaQuery.StatGroup;
 import io.zulia.message.ZuliaQuery.StatGroupInternal;
 import io.zulia.message.ZuliaQuery.StatRequest;
+import io.zulia.server.search.aggregation.ShardSampling;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -30,10 +31,12 @@ public class StatCombiner {
 	private final List<StatGroupWithShardIndex> statGroups;
 	private final StatRequest statRequest;
 	private final int shardReponses;
+	private final ShardSampling shardSampling;
 
-	public StatCombiner(StatRequest statRequest, int shardReponses) {
+	public StatCombiner(StatRequest statRequest, int shardReponses, ShardSampling shardSampling) {
 		this.statRequest = statRequest;
 		this.shardReponses = shardReponses;
+		this.shardSampling = shardSampling;
 		this.statGroups = new ArrayList<>(shardReponses);
 	}
 
@@ -134,7 +137,7 @@ public class StatCombiner {
 		for (StatGroupWithShardIndex sgi : statGroups) {
 			if (missingIndexes.contains(sgi.shardIndex)) {
 				StatCarrier sc = new StatCarrier();
-				sgi.statGroup().getFacetStatsList().forEach(facetStatsInternal -> sc.addErrorStat(facetStatsInternal.getSum()));
+				sgi.statGroup().getFacetStatsList().forEach(facetStatsInternal -> sc.addErrorStat(scaleSum(facetStatsInternal.getSum(), sgi.shardIndex())));
 				statCarriers.add(sc);
 			}
 		}
@@ -171,11 +174,14 @@ public class StatCombiner {
 		List<Percentile> percentiles = new ArrayList<>();
 		if (statRequest.getPrecision() > 0.0 && !statRequest.getPercentilesList().isEmpty()) {
 			// Build initial sketch and merge other sketches into this one
-			DDSketch combinedSketch = DDSketches.unboundedDense(statRequest.getPrecision());
+			int maxBins = statRequest.getMaxSketchBins() > 0 ? statRequest.getMaxSketchBins() : StatSketchFactory.DEFAULT_MAX_BINS;
+			DDSketch combinedSketch = DDSketches.collapsingLowestDense(statRequest.getPrecision(), maxBins);
 			for (FacetStatsWithShardIndex fsi : internalStats) {
-				// Handle DDSketches
-				DDSketch sketch = DDSketchProtoBinding.fromProto(UnboundedSizeDenseStore::new, fsi.facetStats().getStatSketch());
-				combinedSketch.mergeWith(sketch);
+				// shards without values for the stats have no sketch
+				if (fsi.facetStats().hasStatSketch()) {
+					DDSketch sketch = DDSketchProtoBinding.fromProto(() -> new CollapsingLowestDenseStore(maxBins), fsi.facetStats().getStatSketch());
+					combinedSketch.mergeWith(sketch);
+				}
 			}
 
 			// Get all percentiles
@@ -190,12 +196,52 @@ public class StatCombiner {
 
 		// Accumulate the local stats
 		StatCarrier carrier = new StatCarrier();
-		internalStats.stream().map(FacetStatsWithShardIndex::facetStats).toList().forEach(carrier::addStat);
+		double docCountVariance = 0;
+		double sumVariance = 0;
+		for (FacetStatsWithShardIndex fsi : internalStats) {
+			if (shardSampling.isSampled()) {
+				FacetStatsInternal sampleStats = fsi.facetStats();
+				docCountVariance += shardSampling.getVariance(sampleStats.getDocCount(), fsi.shardIndex());
+				sumVariance += shardSampling.getVariance(sampleStats.getSumOfSquares(), fsi.shardIndex());
+				carrier.addStat(scaleStats(sampleStats, fsi.shardIndex()));
+			}
+			else {
+				carrier.addStat(fsi.facetStats());
+			}
+		}
 
 		// Build combined final FacetStats that can be returned to the user
-		return FacetStats.newBuilder().setFacet(facetName).setMin(carrier.getMin()).setMax(carrier.getMax()).setSum(carrier.getSum())
-				.setDocCount(carrier.docCount).setAllDocCount(carrier.allDocCount).setValueCount(carrier.valueCount).addAllPercentiles(percentiles)
-				.setHasError(hasError);
+		FacetStats.Builder facetStats = FacetStats.newBuilder().setFacet(facetName).setMin(carrier.getMin()).setMax(carrier.getMax())
+				.setSum(carrier.getSum()).setDocCount(carrier.docCount).setAllDocCount(carrier.allDocCount).setValueCount(carrier.valueCount)
+				.addAllPercentiles(percentiles).setHasError(hasError);
+		if (shardSampling.isSampled()) {
+			facetStats.setSampleRate(shardSampling.getSampleRate()).setDocCountStandardError(Math.sqrt(docCountVariance))
+					.setSumStandardError(Math.sqrt(sumVariance));
+		}
+		return facetStats;
+	}
+
+	/**
+	 * Scales the counts and sum of stats computed on a sample of a shard to the matching docs of the shard.  The min, max and percentiles are not scaled
+	 *
+	 * @param sampleStats stats of the sampled docs
+	 * @param shardIndex  shard the stats came from
+	 * @return stats estimated for all matching docs of the shard
+	 */
+	private FacetStatsInternal scaleStats(FacetStatsInternal sampleStats, int shardIndex) {
+		return sampleStats.toBuilder().setDocCount(shardSampling.scale(sampleStats.getDocCount(), shardIndex))
+				.setAllDocCount(shardSampling.scale(sampleStats.getAllDocCount(), shardIndex))
+				.setValueCount(shardSampling.scale(sampleStats.getValueCount(), shardIndex)).setSum(scaleSum(sampleStats.getSum(), shardIndex)).build();
+	}
+
+	private SortValue scaleSum(SortValue sum, int shardIndex) {
+		if (!shardSampling.isSampled()) {
+			return sum;
+		}
+		return sum.toBuilder().setDoubleValue(shardSampling.scale(sum.getDoubleValue(), shardIndex))
+				.setFloatValue((float) shardSampling.scale(sum.getFloatValue(), shardIndex))
+				.setLongValue(shardSampling.scale(sum.getLongValue(), shardIndex))
+				.setIntegerValue((int) shardSampling.scale((long) sum.getIntegerValue(), shardIndex)).build();
 	}
 
 	private static class StatCarrier {
@@ -0,0 +1,47 @@
+package io.zulia.server.search.aggregation.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the memory of the percentile sketches of all queries running on the node.  Sketches reserve their maximum size when created, which fails the
+ * query instead of the node when the stats by facet of the concurrent queries would need more sketches than fit.  Each query reserves through its own
+ * {@link StatSketchReservation} that gives its sketches back when the query finishes
+ */
+public class StatSketchBudget {
+
+	// a sketch has a store for positive and a store for negative values, each bin is a double count
+	private static final long BYTES_PER_BIN = 2L * Double.BYTES;
+
+	private final long maxBytes;
+	private final AtomicLong reservedBytes;
+
+	public StatSketchBudget(long maxBytes) {
+		this.maxBytes = maxBytes;
+		this.reservedBytes = new AtomicLong();
+	}
+
+	public static long getSketchBytes(int maxBins) {
+		return maxBins * BYTES_PER_BIN;
+	}
+
+	public StatSketchReservation newReservation() {
+		return new StatSketchReservation(this);
+	}
+
+	void reserve(long bytes) {
+		if (reservedBytes.addAndGet(bytes) > maxBytes) {
+			reservedBytes.addAndGet(-bytes);
+			throw new IllegalArgumentException("Percentile sketches of the running queries need more than <" + (maxBytes / (1024 * 1024))
+					+ "MB>.  Request fewer facets, fewer sketch bins or no percentiles");
+		}
+	}
+
+	void release(long bytes) {
+		reservedBytes.addAndGet(-bytes);
+	}
+
+	public long getReservedBytes() {
+		return reservedBytes.get();
+	}
+
+}
@@ -0,0 +1,42 @@
+package io.zulia.server.search.aggregation.stats;
+
+import com.datadoghq.sketch.ddsketch.DDSketch;
+import com.datadoghq.sketch.ddsketch.DDSketches;
+
+/**
+ * Creates the percentile sketches for the stats of a request.  Sketches use a store that collapses the lowest bins beyond the max bins, so the size
+ * of a sketch is bounded whatever the range of the values while the upper percentiles keep their accuracy
+ */
+public class StatSketchFactory {
+
+	public static final int DEFAULT_MAX_BINS = 2048;
+
+	private final double precision;
+	private final int maxBins;
+	private final StatSketchReservation sketchReservation;
+
+	/**
+	 * @param sketchReservation the reservation of the query the sketches are reserved against, null to not bound them
+	 */
+	public StatSketchFactory(double precision, int maxBins, StatSketchReservation sketchReservation) {
+		this.precision = precision;
+		this.maxBins = maxBins > 0 ? maxBins : DEFAULT_MAX_BINS;
+		this.sketchReservation = sketchReservation;
+	}
+
+	public double getPrecision() {
+		return precision;
+	}
+
+	public int getMaxBins() {
+		return maxBins;
+	}
+
+	public DDSketch newSketch() {
+		if (sketchReservation != null) {
+			sketchReservation.reserve(maxBins);
+		}
+		return DDSketches.collapsingLowestDense(precision, maxBins);
+	}
+
+}
@@ -0,0 +1,34 @@
+package io.zulia.server.search.aggregation.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The sketches reserved by a single query on a shard against the node wide {@link StatSketchBudget}.  Shared by the partials computed in parallel for
+ * the query so it is thread safe, closed when the query finishes to give the memory back
+ */
+public class StatSketchReservation implements AutoCloseable {
+
+	private final StatSketchBudget sketchBudget;
+	private final AtomicLong reservedBytes;
+
+	StatSketchReservation(StatSketchBudget sketchBudget) {
+		this.sketchBudget = sketchBudget;
+		this.reservedBytes = new AtomicLong();
+	}
+
+	public void reserve(int maxBins) {
+		long bytes = StatSketchBudget.getSketchBytes(maxBins);
+		sketchBudget.reserve(bytes);
+		reservedBytes.addAndGet(bytes);
+	}
+
+	public long getReservedBytes() {
+		return reservedBytes.get();
+	}
+
+	@Override
+	public void close() {
+		sketchBudget.release(reservedBytes.getAndSet(0));
+	}
+
+}
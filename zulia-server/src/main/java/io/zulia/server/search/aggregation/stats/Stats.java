@@ -2,7 +2,6 @@ package io.zulia.server.search.aggregation.stats;
 
 import com.datadoghq.sketch.ddsketch.DDSketch;
 import com.datadoghq.sketch.ddsketch.DDSketchProtoBinding;
-import com.datadoghq.sketch.ddsketch.DDSketches;
 import io.zulia.message.ZuliaQuery;
 
 public abstract class Stats<T extends Stats<T>> implements Comparable<T> {
@@ -11,20 +10,27 @@ public abstract class Stats<T extends Stats<T>> implements Comparable<T> {
 	private long docCount;
 	private long allDocCount;
 	private long valueCount;
+	private double sumOfSquares;
 
+	// object, fields and a map entry when stored by ordinal or label
+	private static final int STATS_BYTES = 96;
+
+	private final StatSketchFactory sketchFactory;
 	private DDSketch sketch;
+	private int sketchBins;
 
-	// overload constructor for building w/ precision
-	public Stats(double precision) {
-		// Cannot perform DDSketch with perfect precision.
-		// This prevents quantile from running.
-		if (precision > 0.0) {
-			this.sketch = DDSketches.unboundedDense(precision);
-		}
+	/**
+	 * @param sketchFactory creates the percentile sketch when the first value is added, null when percentiles are not needed or the sketch is started
+	 *                      later with {@link #startSketch(StatSketchFactory)}
+	 */
+	public Stats(StatSketchFactory sketchFactory) {
+		this.sketchFactory = sketchFactory;
 	}
 
 	public abstract void handleDocValue(long docValue);
 
+	protected abstract double toSketchValue(long docValue);
+
 	public void newDoc(boolean hasValues) {
 		allDocCount++;
 		if (hasValues) {
@@ -34,8 +40,33 @@ public abstract class Stats<T extends Stats<T>> implements Comparable<T> {
 
 	public void tallyValue(double newValue) {
 		this.valueCount++;
-		if (this.sketch != null) {
-			this.sketch.accept(newValue);
+		this.sumOfSquares += newValue * newValue;
+		if (sketch == null && sketchFactory != null) {
+			sketch = sketchFactory.newSketch();
+			sketchBins = sketchFactory.getMaxBins();
+		}
+		if (sketch != null) {
+			sketch.accept(newValue);
+		}
+	}
+
+	/**
+	 * Starts a sketch for stats computed without one, the values must then be added with {@link #sketchNumericValues(long[], int)}
+	 *
+	 * @return false if the stats already have a sketch
+	 */
+	public boolean startSketch(StatSketchFactory sketchFactory) {
+		if (sketch != null) {
+			return false;
+		}
+		sketch = sketchFactory.newSketch();
+		sketchBins = sketchFactory.getMaxBins();
+		return true;
+	}
+
+	public void sketchNumericValues(long[] numericValues, int numericValueCount) {
+		for (int j = 0; j < numericValueCount; j++) {
+			sketch.accept(toSketchValue(numericValues[j]));
 		}
 	}
 
@@ -47,9 +78,39 @@ public abstract class Stats<T extends Stats<T>> implements Comparable<T> {
 		return ordinal;
 	}
 
+	public void merge(T other) {
+		Stats<?> otherStats = other;
+		docCount += otherStats.docCount;
+		allDocCount += otherStats.allDocCount;
+		valueCount += otherStats.valueCount;
+		sumOfSquares += otherStats.sumOfSquares;
+		if (otherStats.sketch != null) {
+			if (sketch != null) {
+				sketch.mergeWith(otherStats.sketch);
+			}
+			else if (sketchFactory != null) {
+				sketch = sketchFactory.newSketch();
+				sketchBins = sketchFactory.getMaxBins();
+				sketch.mergeWith(otherStats.sketch);
+			}
+			else {
+				// the other stats can belong to a cached partial so its sketch is never shared
+				sketch = otherStats.sketch.copy();
+				sketchBins = otherStats.sketchBins;
+			}
+		}
+	}
+
+	/**
+	 * @return the estimated memory of the stats including the max size of the sketch
+	 */
+	public long getBytes() {
+		return STATS_BYTES + (sketch != null ? StatSketchBudget.getSketchBytes(sketchBins) : 0);
+	}
+
 	public ZuliaQuery.FacetStatsInternal.Builder buildResponse() {
 		ZuliaQuery.FacetStatsInternal.Builder builder = ZuliaQuery.FacetStatsInternal.newBuilder().setDocCount(docCount).setAllDocCount(allDocCount)
-				.setValueCount(valueCount);
+				.setValueCount(valueCount).setSumOfSquares(sumOfSquares);
 		if (sketch != null) {
 			builder.setStatSketch(DDSketchProtoBinding.toProto(sketch));
 		}
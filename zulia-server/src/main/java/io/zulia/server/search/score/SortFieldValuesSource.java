@@ -0,0 +1,101 @@
+package io.zulia.server.search.score;
+
+import io.zulia.message.ZuliaIndex.FieldConfig;
+import io.zulia.server.field.FieldTypeUtil;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.DoubleValues;
+import org.apache.lucene.search.DoubleValuesSource;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.NumericUtils;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Values of a numeric, date or boolean sort field for score functions.  Sort fields are indexed as sorted numeric doc values with floats and doubles
+ * encoded as sortable bits so they can not be read with {@link DoubleValuesSource#fromIntField(String)} and friends.  For a multivalued field the lowest
+ * value is used and a document without a value has no value.
+ */
+public class SortFieldValuesSource extends DoubleValuesSource {
+
+	private final String internalSortFieldName;
+	private final FieldConfig.FieldType fieldType;
+
+	public SortFieldValuesSource(String internalSortFieldName, FieldConfig.FieldType fieldType) {
+		this.internalSortFieldName = internalSortFieldName;
+		this.fieldType = fieldType;
+	}
+
+	@Override
+	public DoubleValues getValues(LeafReaderContext ctx, DoubleValues scores) throws IOException {
+		SortedNumericDocValues sortedNumericDocValues = DocValues.getSortedNumeric(ctx.reader(), internalSortFieldName);
+		return new DoubleValues() {
+
+			private double value;
+
+			@Override
+			public double doubleValue() {
+				return value;
+			}
+
+			@Override
+			public boolean advanceExact(int doc) throws IOException {
+				if (sortedNumericDocValues.advanceExact(doc)) {
+					// values are in ascending order so the first value is the lowest, read once as a variable can be used more than once in a function
+					value = toDouble(sortedNumericDocValues.nextValue());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	private double toDouble(long sortableValue) {
+		if (FieldTypeUtil.isNumericDoubleFieldType(fieldType)) {
+			return NumericUtils.sortableLongToDouble(sortableValue);
+		}
+		if (FieldTypeUtil.isNumericFloatFieldType(fieldType)) {
+			return NumericUtils.sortableIntToFloat((int) sortableValue);
+		}
+		return sortableValue;
+	}
+
+	@Override
+	public boolean needsScores() {
+		return false;
+	}
+
+	@Override
+	public DoubleValuesSource rewrite(IndexSearcher reader) {
+		return this;
+	}
+
+	@Override
+	public boolean isCacheable(LeafReaderContext ctx) {
+		return DocValues.isCacheable(ctx, internalSortFieldName);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		SortFieldValuesSource that = (SortFieldValuesSource) o;
+		return internalSortFieldName.equals(that.internalSortFieldName) && fieldType == that.fieldType;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(internalSortFieldName, fieldType);
+	}
+
+	@Override
+	public String toString() {
+		return "sortField(" + internalSortFieldName + ")";
+	}
+}
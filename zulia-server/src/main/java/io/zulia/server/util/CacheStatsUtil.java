@@ -0,0 +1,35 @@
+package io.zulia.server.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.zulia.message.ZuliaBase;
+import org.apache.lucene.search.LRUQueryCache;
+
+public class CacheStatsUtil {
+
+	public static ZuliaBase.CacheStats getCacheStats(Cache<?, ?> cache) {
+		CacheStats stats = cache.stats();
+
+		ZuliaBase.CacheStats.Builder cacheStats = ZuliaBase.CacheStats.newBuilder().setEstimatedSize(cache.estimatedSize()).setHitCount(stats.hitCount())
+				.setMissCount(stats.missCount()).setLoadSuccessCount(stats.loadSuccessCount()).setLoadFailureCount(stats.loadFailureCount())
+				.setTotalLoadTime(stats.totalLoadTime()).setEvictionCount(stats.evictionCount()).setEvictionWeight(stats.evictionWeight());
+		// caches weighed in bytes report their estimated memory
+		cache.policy().eviction().ifPresent(eviction -> eviction.weightedSize().ifPresent(cacheStats::setRamBytesUsed));
+		return cacheStats.build();
+	}
+
+	public static ZuliaBase.CacheStats getCacheStats(LRUQueryCache queryCache) {
+		return ZuliaBase.CacheStats.newBuilder().setEstimatedSize(queryCache.getCacheSize()).setHitCount(queryCache.getHitCount())
+				.setMissCount(queryCache.getMissCount()).setEvictionCount(queryCache.getEvictionCount()).setRamBytesUsed(queryCache.ramBytesUsed()).build();
+	}
+
+	public static ZuliaBase.CacheStats add(ZuliaBase.CacheStats first, ZuliaBase.CacheStats second) {
+		return ZuliaBase.CacheStats.newBuilder().setEstimatedSize(first.getEstimatedSize() + second.getEstimatedSize())
+				.setHitCount(first.getHitCount() + second.getHitCount()).setMissCount(first.getMissCount() + second.getMissCount())
+				.setLoadSuccessCount(first.getLoadSuccessCount() + second.getLoadSuccessCount())
+				.setLoadFailureCount(first.getLoadFailureCount() + second.getLoadFailureCount())
+				.setTotalLoadTime(first.getTotalLoadTime() + second.getTotalLoadTime()).setEvictionCount(first.getEvictionCount() + second.getEvictionCount())
+				.setEvictionWeight(first.getEvictionWeight() + second.getEvictionWeight()).setRamBytesUsed(first.getRamBytesUsed() + second.getRamBytesUsed())
+				.build();
+	}
+}
@@ -0,0 +1,30 @@
+package io.zulia.server.util;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import io.zulia.server.config.ServerIndexConfig;
+import io.zulia.server.index.DocumentContainer;
+
+public class ContentHashUtil {
+
+	private static final HashFunction CONTENT_HASH = Hashing.murmur3_128();
+
+	/**
+	 * @return a hash of the document and metadata bytes as stored and of the field configs they are indexed with, so a document stored again after a
+	 * field config change is not skipped.  The lengths are included so moving bytes between the document and metadata changes the hash
+	 */
+	public static byte[] getContentHash(ServerIndexConfig indexConfig, ByteString mongoDocument, ByteString metadata) {
+		return CONTENT_HASH.newHasher().putLong(indexConfig.getIndexingChecksum()).putInt(mongoDocument.size()).putBytes(mongoDocument.asReadOnlyByteBuffer())
+				.putInt(metadata.size()).putBytes(metadata.asReadOnlyByteBuffer()).hash().asBytes();
+	}
+
+	public static byte[] getContentHash(ServerIndexConfig indexConfig, DocumentContainer mongoDocument, DocumentContainer metadata) {
+		return getContentHash(indexConfig, toByteString(mongoDocument), toByteString(metadata));
+	}
+
+	public static ByteString toByteString(DocumentContainer documentContainer) {
+		return documentContainer.hasDocument() ? UnsafeByteOperations.unsafeWrap(documentContainer.getByteArray()) : ByteString.EMPTY;
+	}
+}
@@ -98,7 +98,7 @@ public class AliasTest {
 
 		ResultDocBuilder resultDocumentBuilder = ResultDocBuilder.newBuilder().setDocument(mongoDocument);
 		s.setResultDocument(resultDocumentBuilder);
-		zuliaWorkPool.store(s);
+		zuliaWorkPool.store(s.setWaitForVisibility(true));
 
 	}
 
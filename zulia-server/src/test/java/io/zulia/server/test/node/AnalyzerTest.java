@@ -85,7 +85,7 @@ public class AnalyzerTest {
 
 		ResultDocBuilder resultDocumentBuilder = ResultDocBuilder.newBuilder().setDocument(mongoDocument);
 		s.setResultDocument(resultDocumentBuilder);
-		zuliaWorkPool.store(s);
+		zuliaWorkPool.store(s.setWaitForVisibility(true));
 
 	}
 
@@ -0,0 +1,169 @@
+package io.zulia.server.test.node;
+
+import io.zulia.DefaultAnalyzers;
+import io.zulia.client.command.BatchStore;
+import io.zulia.client.command.Store;
+import io.zulia.client.command.UpdateIndex;
+import io.zulia.client.command.builder.FilterQuery;
+import io.zulia.client.command.builder.Search;
+import io.zulia.client.config.ClientIndexConfig;
+import io.zulia.client.pool.ZuliaWorkPool;
+import io.zulia.client.result.BatchStoreResult;
+import io.zulia.client.result.SearchResult;
+import io.zulia.doc.ResultDocBuilder;
+import io.zulia.fields.FieldConfigBuilder;
+import io.zulia.message.ZuliaServiceOuterClass.StoreResponse;
+import io.zulia.server.test.node.shared.NodeExtension;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class BatchStoreTest {
+
+	@RegisterExtension
+	static final NodeExtension nodeExtension = new NodeExtension(3);
+
+	public static final String BATCH_STORE_TEST_INDEX = "batchStoreTest";
+
+	private static final int docCount = 2500;
+
+	@Test
+	@Order(1)
+	public void createIndex() throws Exception {
+
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		ClientIndexConfig indexConfig = new ClientIndexConfig();
+		indexConfig.addDefaultSearchField("title");
+		indexConfig.addFieldConfig(FieldConfigBuilder.createString("id").indexAs(DefaultAnalyzers.LC_KEYWORD).sort());
+		indexConfig.addFieldConfig(FieldConfigBuilder.createString("title").indexAs(DefaultAnalyzers.STANDARD));
+		indexConfig.addFieldConfig(FieldConfigBuilder.createInt("rating").index().sort());
+		indexConfig.setIndexName(BATCH_STORE_TEST_INDEX);
+		indexConfig.setNumberOfShards(4);
+		indexConfig.setShardCommitInterval(300);
+
+		zuliaWorkPool.createIndex(indexConfig);
+	}
+
+	@Test
+	@Order(2)
+	public void batchStore() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		BatchStore batchStore = new BatchStore();
+		List<String> uniqueIds = new ArrayList<>();
+		for (int i = 0; i < docCount; i++) {
+			if (i == docCount / 2) {
+				batchStore.addStore(getStore("missing", "missingIndex", 0));
+				uniqueIds.add("missing");
+			}
+			batchStore.addStore(getStore(String.valueOf(i), BATCH_STORE_TEST_INDEX, i % 10));
+			uniqueIds.add(String.valueOf(i));
+		}
+
+		BatchStoreResult batchStoreResult = zuliaWorkPool.batchStore(batchStore);
+		Assertions.assertEquals(docCount + 1, batchStoreResult.getStoreResponses().size());
+
+		// responses are in the order of the stores even though the documents are grouped by node and shard
+		Assertions.assertEquals(uniqueIds, batchStoreResult.getStoreResponses().stream().map(StoreResponse::getUniqueId).toList());
+
+		List<StoreResponse> failures = batchStoreResult.getFailures();
+		Assertions.assertEquals(1, failures.size());
+		Assertions.assertEquals("missing", failures.getFirst().getUniqueId());
+		Assertions.assertEquals("Index <missingIndex> does not exist", failures.getFirst().getErrorMessage());
+	}
+
+	@Test
+	@Order(3)
+	public void searchTest() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		SearchResult searchResult = zuliaWorkPool.search(new Search(BATCH_STORE_TEST_INDEX));
+		Assertions.assertEquals(docCount, searchResult.getTotalHits());
+
+		searchResult = zuliaWorkPool.search(new Search(BATCH_STORE_TEST_INDEX).addQuery(new FilterQuery("rating:3")));
+		Assertions.assertEquals(docCount / 10, searchResult.getTotalHits());
+	}
+
+	@Test
+	@Order(4)
+	public void unchangedStoreTest() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		BatchStore batchStore = new BatchStore();
+		for (int i = 0; i < 100; i++) {
+			batchStore.addStore(getStore(String.valueOf(i), BATCH_STORE_TEST_INDEX, i % 10));
+		}
+		batchStore.addStore(getStore("100", BATCH_STORE_TEST_INDEX, 3));
+
+		BatchStoreResult batchStoreResult = zuliaWorkPool.batchStore(batchStore);
+		Assertions.assertFalse(batchStoreResult.hasFailures());
+		Assertions.assertEquals(100, batchStoreResult.getSkipped().size());
+
+		Assertions.assertTrue(zuliaWorkPool.store(getStore("5", BATCH_STORE_TEST_INDEX, 5)).isSkipped());
+		Assertions.assertFalse(zuliaWorkPool.store(getStore("5", BATCH_STORE_TEST_INDEX, 3)).isSkipped());
+
+		SearchResult searchResult = zuliaWorkPool.search(new Search(BATCH_STORE_TEST_INDEX).addQuery(new FilterQuery("rating:3")));
+		Assertions.assertEquals(docCount / 10 + 2, searchResult.getTotalHits());
+	}
+
+	@Test
+	@Order(5)
+	public void repeatedInBatchTest() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		// each store of a document repeated in a batch is compared to the previous version in the batch
+		BatchStore batchStore = new BatchStore();
+		batchStore.addStore(getStore("repeated", BATCH_STORE_TEST_INDEX, 1));
+		batchStore.addStore(getStore("repeated", BATCH_STORE_TEST_INDEX, 1));
+		batchStore.addStore(getStore("repeated", BATCH_STORE_TEST_INDEX, 2));
+		batchStore.addStore(getStore("5", BATCH_STORE_TEST_INDEX, 3));
+
+		BatchStoreResult batchStoreResult = zuliaWorkPool.batchStore(batchStore);
+		Assertions.assertFalse(batchStoreResult.hasFailures());
+		Assertions.assertEquals(List.of(false, true, false, true), batchStoreResult.getStoreResponses().stream().map(StoreResponse::getSkipped).toList());
+
+		SearchResult searchResult = zuliaWorkPool.search(new Search(BATCH_STORE_TEST_INDEX).addQuery(new FilterQuery("id:repeated")));
+		Assertions.assertEquals(1, searchResult.getTotalHits());
+		Assertions.assertEquals(2, searchResult.getFirstDocument().getInteger("rating"));
+	}
+
+	@Test
+	@Order(6)
+	public void fieldConfigChangeTest() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		Assertions.assertTrue(zuliaWorkPool.store(getStore("6", BATCH_STORE_TEST_INDEX, 6)).isSkipped());
+
+		// the content hash includes the field configs so a document stored again after a change is indexed with the new config
+		UpdateIndex updateIndex = new UpdateIndex(BATCH_STORE_TEST_INDEX);
+		updateIndex.mergeFieldConfig(FieldConfigBuilder.createString("title").indexAs(DefaultAnalyzers.STANDARD).sort());
+		zuliaWorkPool.updateIndex(updateIndex);
+
+		BatchStore batchStore = new BatchStore();
+		batchStore.addStore(getStore("6", BATCH_STORE_TEST_INDEX, 6));
+		BatchStoreResult batchStoreResult = zuliaWorkPool.batchStore(batchStore);
+		Assertions.assertFalse(batchStoreResult.hasFailures());
+		Assertions.assertTrue(batchStoreResult.getSkipped().isEmpty());
+
+		Assertions.assertTrue(zuliaWorkPool.store(getStore("6", BATCH_STORE_TEST_INDEX, 6)).isSkipped());
+	}
+
+	private static Store getStore(String uniqueId, String indexName, int rating) {
+		Document mongoDocument = new Document();
+		mongoDocument.put("id", uniqueId);
+		mongoDocument.put("title", "batch " + uniqueId);
+		mongoDocument.put("rating", rating);
+
+		// each shard batch waits for visibility once so the documents are searchable when the batch store returns
+		return new Store(uniqueId, indexName, ResultDocBuilder.newBuilder().setDocument(mongoDocument)).setWaitForVisibility(true);
+	}
+}
@@ -104,7 +104,7 @@ public class CacheTest {
 
 		ResultDocBuilder resultDocumentBuilder = ResultDocBuilder.newBuilder().setDocument(mongoDocument);
 		s.setResultDocument(resultDocumentBuilder);
-		zuliaWorkPool.store(s);
+		zuliaWorkPool.store(s.setWaitForVisibility(true));
 
 	}
 
@@ -0,0 +1,192 @@
+package io.zulia.server.test.node;
+
+import io.zulia.DefaultAnalyzers;
+import io.zulia.client.command.Store;
+import io.zulia.client.command.builder.CountFacet;
+import io.zulia.client.command.builder.DrillDown;
+import io.zulia.client.command.builder.Search;
+import io.zulia.client.command.builder.StatFacet;
+import io.zulia.client.config.ClientIndexConfig;
+import io.zulia.client.pool.ZuliaWorkPool;
+import io.zulia.client.result.SearchResult;
+import io.zulia.doc.ResultDocBuilder;
+import io.zulia.fields.FieldConfigBuilder;
+import io.zulia.message.ZuliaIndex.FacetAs;
+import io.zulia.message.ZuliaIndex.FieldConfig;
+import io.zulia.message.ZuliaQuery.FacetCount;
+import io.zulia.message.ZuliaQuery.FacetStats;
+import io.zulia.server.test.node.shared.NodeExtension;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class DocValuesFacetTest {
+
+	@RegisterExtension
+	static final NodeExtension nodeExtension = new NodeExtension(1);
+
+	public static final String DOC_VALUES_FACET_TEST_INDEX = "docValuesFacetTest";
+
+	private static final int repeatCount = 20;
+
+	@Test
+	@Order(1)
+	public void createIndex() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		ClientIndexConfig indexConfig = new ClientIndexConfig();
+		indexConfig.addDefaultSearchField("title");
+		indexConfig.addFieldConfig(FieldConfigBuilder.createString("id").indexAs(DefaultAnalyzers.LC_KEYWORD).sort());
+		indexConfig.addFieldConfig(FieldConfigBuilder.createString("category").indexAs(DefaultAnalyzers.LC_KEYWORD).facet().facetAsDocValues("categoryDv"));
+		indexConfig.addFieldConfig(FieldConfigBuilder.createDouble("rating").index().sort());
+		indexConfig.setIndexName(DOC_VALUES_FACET_TEST_INDEX);
+		indexConfig.setNumberOfShards(2);
+		indexConfig.setShardCommitInterval(10); //force some commits
+
+		zuliaWorkPool.createIndex(indexConfig);
+
+		FieldConfig categoryConfig = zuliaWorkPool.getIndexConfig(DOC_VALUES_FACET_TEST_INDEX).getIndexConfig().getFieldConfig("category");
+		Map<String, FacetAs> facetAsByName = categoryConfig.getFacetAsList().stream().collect(Collectors.toMap(FacetAs::getFacetName, facetAs -> facetAs));
+		Assertions.assertFalse(facetAsByName.get("category").getDocValues());
+		Assertions.assertTrue(facetAsByName.get("categoryDv").getDocValues());
+		Assertions.assertFalse(facetAsByName.get("categoryDv").getHierarchical());
+	}
+
+	@Test
+	@Order(2)
+	public void builderTest() {
+		FacetAs facetAs = FieldConfigBuilder.createString("category").facetDocValues().build().getFacetAs(0);
+		Assertions.assertEquals("category", facetAs.getFacetName());
+		Assertions.assertTrue(facetAs.getDocValues());
+		Assertions.assertFalse(facetAs.getHierarchical());
+
+		facetAs = FieldConfigBuilder.createString("category").facetAsDocValues("other").build().getFacetAs(0);
+		Assertions.assertEquals("other", facetAs.getFacetName());
+		Assertions.assertTrue(facetAs.getDocValues());
+
+		Assertions.assertFalse(FieldConfigBuilder.createString("category").facet().build().getFacetAs(0).getDocValues());
+	}
+
+	@Test
+	@Order(3)
+	public void hierarchicalDocValuesRejected() {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		ClientIndexConfig indexConfig = new ClientIndexConfig();
+		indexConfig.addDefaultSearchField("title");
+		indexConfig.addFieldConfig(FieldConfigBuilder.createString("path").indexAs(DefaultAnalyzers.LC_KEYWORD)
+				.facetAs(FacetAs.newBuilder().setFacetName("path").setHierarchical(true).setDocValues(true).build()));
+		indexConfig.setIndexName("hierarchicalDocValuesTest");
+
+		Exception exception = Assertions.assertThrows(Exception.class, () -> zuliaWorkPool.createIndex(indexConfig));
+		Assertions.assertTrue(exception.getMessage().contains("can not be both hierarchical and doc values"), exception.getMessage());
+	}
+
+	@Test
+	@Order(4)
+	public void index() throws Exception {
+		for (int i = 0; i < repeatCount; i++) {
+			int uniqueDocs = 5;
+			indexRecord(i * uniqueDocs, List.of("foo"), 1.0);
+			indexRecord(i * uniqueDocs + 1, List.of("foo"), 3.0);
+			indexRecord(i * uniqueDocs + 2, List.of("bar"), 2.0);
+			indexRecord(i * uniqueDocs + 3, List.of("bar", "baz"), 4.0);
+			indexRecord(i * uniqueDocs + 4, List.of(), 5.0);
+		}
+	}
+
+	private void indexRecord(int id, List<String> categories, double rating) throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+		String uniqueId = "" + id;
+
+		Document mongoDocument = new Document();
+		mongoDocument.put("id", uniqueId);
+		mongoDocument.put("category", categories);
+		mongoDocument.put("rating", rating);
+
+		Store s = new Store(uniqueId, DOC_VALUES_FACET_TEST_INDEX);
+		s.setResultDocument(ResultDocBuilder.from(mongoDocument));
+		zuliaWorkPool.store(s.setWaitForVisibility(true));
+	}
+
+	@Test
+	@Order(5)
+	public void countTest() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		Search search = new Search(DOC_VALUES_FACET_TEST_INDEX).addCountFacet(new CountFacet("categoryDv")).addCountFacet(new CountFacet("category"));
+		SearchResult searchResult = zuliaWorkPool.search(search);
+		Assertions.assertEquals(5L * repeatCount, searchResult.getTotalHits());
+
+		// foo and bar tie so the counts are checked by facet
+		List<FacetCount> docValuesCounts = searchResult.getFacetCounts("categoryDv");
+		Map<String, Long> docValuesCountByFacet = docValuesCounts.stream().collect(Collectors.toMap(FacetCount::getFacet, FacetCount::getCount));
+		Assertions.assertEquals(Map.of("foo", 2L * repeatCount, "bar", 2L * repeatCount, "baz", (long) repeatCount), docValuesCountByFacet);
+		Assertions.assertEquals("baz", docValuesCounts.get(2).getFacet());
+
+		// the taxonomy facet of the same values gives the same counts
+		Map<String, Long> taxonomyCountByFacet = searchResult.getFacetCounts("category").stream()
+				.collect(Collectors.toMap(FacetCount::getFacet, FacetCount::getCount));
+		Assertions.assertEquals(taxonomyCountByFacet, docValuesCountByFacet);
+
+		// drill down terms are still indexed for a doc values facet
+		search = new Search(DOC_VALUES_FACET_TEST_INDEX).addFacetDrillDown(new DrillDown("categoryDv").addValue("baz"))
+				.addCountFacet(new CountFacet("categoryDv"));
+		searchResult = zuliaWorkPool.search(search);
+		Assertions.assertEquals(repeatCount, searchResult.getTotalHits());
+		docValuesCounts = searchResult.getFacetCounts("categoryDv");
+		Assertions.assertEquals(2, docValuesCounts.size());
+		Assertions.assertEquals(repeatCount, docValuesCounts.get(0).getCount());
+		Assertions.assertEquals(repeatCount, docValuesCounts.get(1).getCount());
+	}
+
+	@Test
+	@Order(6)
+	public void statTest() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		Search search = new Search(DOC_VALUES_FACET_TEST_INDEX).addStat(new StatFacet("rating", "categoryDv"));
+		SearchResult searchResult = zuliaWorkPool.search(search);
+
+		Map<String, FacetStats> statsByFacet = searchResult.getFacetFieldStat("rating", "categoryDv").stream()
+				.collect(Collectors.toMap(FacetStats::getFacet, facetStats -> facetStats));
+		Assertions.assertEquals(3, statsByFacet.size());
+
+		FacetStats foo = statsByFacet.get("foo");
+		Assertions.assertEquals(2L * repeatCount, foo.getDocCount());
+		Assertions.assertEquals(1.0, foo.getMin().getDoubleValue(), 0.001);
+		Assertions.assertEquals(3.0, foo.getMax().getDoubleValue(), 0.001);
+		Assertions.assertEquals(4.0 * repeatCount, foo.getSum().getDoubleValue(), 0.001);
+
+		FacetStats bar = statsByFacet.get("bar");
+		Assertions.assertEquals(2L * repeatCount, bar.getDocCount());
+		Assertions.assertEquals(2.0, bar.getMin().getDoubleValue(), 0.001);
+		Assertions.assertEquals(4.0, bar.getMax().getDoubleValue(), 0.001);
+		Assertions.assertEquals(6.0 * repeatCount, bar.getSum().getDoubleValue(), 0.001);
+
+		FacetStats baz = statsByFacet.get("baz");
+		Assertions.assertEquals(repeatCount, baz.getDocCount());
+		Assertions.assertEquals(4.0, baz.getMin().getDoubleValue(), 0.001);
+		Assertions.assertEquals(4.0, baz.getMax().getDoubleValue(), 0.001);
+		Assertions.assertEquals(4.0 * repeatCount, baz.getSum().getDoubleValue(), 0.001);
+
+		// the same stats as the taxonomy facet of the same values
+		search = new Search(DOC_VALUES_FACET_TEST_INDEX).addStat(new StatFacet("rating", "category"));
+		searchResult = zuliaWorkPool.search(search);
+		for (FacetStats taxonomyStats : searchResult.getFacetFieldStat("rating", "category")) {
+			FacetStats docValuesStats = statsByFacet.get(taxonomyStats.getFacet());
+			Assertions.assertEquals(taxonomyStats.getDocCount(), docValuesStats.getDocCount());
+			Assertions.assertEquals(taxonomyStats.getSum().getDoubleValue(), docValuesStats.getSum().getDoubleValue(), 0.001);
+		}
+	}
+
+}
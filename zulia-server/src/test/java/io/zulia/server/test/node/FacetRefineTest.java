@@ -0,0 +1,115 @@
+package io.zulia.server.test.node;
+
+import io.zulia.DefaultAnalyzers;
+import io.zulia.client.command.Store;
+import io.zulia.client.command.builder.CountFacet;
+import io.zulia.client.command.builder.Search;
+import io.zulia.client.config.ClientIndexConfig;
+import io.zulia.client.pool.ZuliaWorkPool;
+import io.zulia.client.result.SearchResult;
+import io.zulia.doc.ResultDocBuilder;
+import io.zulia.fields.FieldConfigBuilder;
+import io.zulia.message.ZuliaQuery;
+import io.zulia.server.test.node.shared.NodeExtension;
+import io.zulia.util.ShardUtil;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class FacetRefineTest {
+
+	@RegisterExtension
+	static final NodeExtension nodeExtension = new NodeExtension(1);
+
+	public static final String FACET_REFINE_TEST_INDEX = "facetRefineTest";
+
+	private static int nextId = 0;
+
+	@Test
+	@Order(1)
+	public void createIndex() throws Exception {
+
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		ClientIndexConfig indexConfig = new ClientIndexConfig();
+		indexConfig.addDefaultSearchField("title");
+		indexConfig.addFieldConfig(FieldConfigBuilder.createString("category").indexAs(DefaultAnalyzers.LC_KEYWORD).facet());
+		indexConfig.setIndexName(FACET_REFINE_TEST_INDEX);
+		indexConfig.setNumberOfShards(2);
+
+		zuliaWorkPool.createIndex(indexConfig);
+	}
+
+	@Test
+	@Order(2)
+	public void index() throws Exception {
+		// the top category differs between the shards so each shard only returns one of the two top categories with a shard top N of 1
+		indexRecords(0, "a", 3);
+		indexRecords(0, "b", 2);
+		indexRecords(1, "b", 3);
+		indexRecords(1, "a", 2);
+	}
+
+	private void indexRecords(int shard, String category, int count) throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+		for (int i = 0; i < count; i++) {
+			String uniqueId = nextUniqueIdForShard(shard);
+			Document mongoDocument = new Document("id", uniqueId).append("category", category);
+			Store s = new Store(uniqueId, FACET_REFINE_TEST_INDEX).setResultDocument(ResultDocBuilder.newBuilder().setDocument(mongoDocument));
+			zuliaWorkPool.store(s.setWaitForVisibility(true));
+		}
+	}
+
+	private static String nextUniqueIdForShard(int shard) {
+		String uniqueId;
+		do {
+			uniqueId = String.valueOf(nextId++);
+		}
+		while (ShardUtil.findShardForUniqueId(uniqueId, 2) != shard);
+		return uniqueId;
+	}
+
+	@Test
+	@Order(3)
+	public void refineTest() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		{
+			Search search = new Search(FACET_REFINE_TEST_INDEX).addCountFacet(new CountFacet("category").setTopN(2).setTopNShard(1));
+			SearchResult searchResult = zuliaWorkPool.search(search);
+			Assertions.assertEquals(10, searchResult.getTotalHits());
+
+			// each category is only counted on the shard that returned it
+			List<ZuliaQuery.FacetCount> categoryCounts = searchResult.getFacetCounts("category");
+			Assertions.assertEquals(2, categoryCounts.size());
+			for (ZuliaQuery.FacetCount categoryCount : categoryCounts) {
+				Assertions.assertEquals(3, categoryCount.getCount());
+			}
+		}
+
+		for (int i = 0; i < 2; i++) {
+			// the second search is answered from the cache of the first round, the refinement round still runs and is not cached
+			Search search = new Search(FACET_REFINE_TEST_INDEX).addCountFacet(new CountFacet("category").setTopN(2).setTopNShard(1).setRefine(true));
+			SearchResult searchResult = zuliaWorkPool.search(search);
+
+			// both categories tie so only the counts are checked, not the order
+			List<ZuliaQuery.FacetCount> categoryCounts = searchResult.getFacetCounts("category");
+			Assertions.assertEquals(2, categoryCounts.size());
+			Assertions.assertEquals(Set.of("a", "b"), categoryCounts.stream().map(ZuliaQuery.FacetCount::getFacet).collect(Collectors.toSet()));
+			for (ZuliaQuery.FacetCount categoryCount : categoryCounts) {
+				Assertions.assertEquals(5, categoryCount.getCount());
+				Assertions.assertEquals(0, categoryCount.getMaxError());
+			}
+		}
+	}
+
+}
@@ -1,9 +1,11 @@
 package io.zulia.server.test.node;
 
 import io.zulia.DefaultAnalyzers;
+import io.zulia.client.command.BatchStore;
 import io.zulia.client.command.Store;
 import io.zulia.client.command.builder.CountFacet;
 import io.zulia.client.command.builder.Search;
+import io.zulia.client.command.builder.StatFacet;
 import io.zulia.client.config.ClientIndexConfig;
 import io.zulia.client.pool.ZuliaWorkPool;
 import io.zulia.client.result.SearchResult;
@@ -19,7 +21,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 import org.junit.jupiter.api.extension.RegisterExtension;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 public class FacetTest {
@@ -28,6 +32,9 @@ public class FacetTest {
 	static final NodeExtension nodeExtension = new NodeExtension(1);
 
 	public static final String FACET_TEST_INDEX = "facetTest";
+	public static final String FACET_SAMPLE_TEST_INDEX = "facetSampleTest";
+
+	private static final int sampleDocCount = 4000;
 
 	@Test
 	@Order(1)
@@ -50,6 +57,14 @@ public class FacetTest {
 		indexConfig.setShardCommitInterval(5); //force some commits
 
 		zuliaWorkPool.createIndex(indexConfig);
+		ClientIndexConfig sampleIndexConfig = new ClientIndexConfig();
+		sampleIndexConfig.addDefaultSearchField("title");
+		sampleIndexConfig.addFieldConfig(FieldConfigBuilder.createString("category").indexAs(DefaultAnalyzers.LC_KEYWORD).facet());
+		sampleIndexConfig.addFieldConfig(FieldConfigBuilder.createDouble("rating").index());
+		sampleIndexConfig.setIndexName(FACET_SAMPLE_TEST_INDEX);
+		sampleIndexConfig.setNumberOfShards(1);
+
+		zuliaWorkPool.createIndex(sampleIndexConfig);
 	}
 
 	@Test
@@ -70,6 +85,27 @@ public class FacetTest {
 		indexRecord(12, null, null, null, null, null, null, null, null);
 		indexRecord(13, null, "!!", null, null, null, null, null, null);
 
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+		BatchStore batchStore = new BatchStore();
+		for (int i = 0; i < sampleDocCount; i++) {
+			Document mongoDocument = new Document("id", String.valueOf(i)).append("category", getSampleCategory(i)).append("rating", (double) (i % 7));
+			Store store = new Store(String.valueOf(i), FACET_SAMPLE_TEST_INDEX, ResultDocBuilder.newBuilder().setDocument(mongoDocument));
+			batchStore.addStore(store.setWaitForVisibility(true));
+		}
+		Assertions.assertFalse(zuliaWorkPool.batchStore(batchStore).hasFailures());
+
+	}
+
+	private static String getSampleCategory(int i) {
+		// half a, three tenths b and a tenth each of c and d
+		int bucket = i % 10;
+		if (bucket < 5) {
+			return "a";
+		}
+		else if (bucket < 8) {
+			return "b";
+		}
+		return bucket == 8 ? "c" : "d";
 	}
 
 	private void indexRecord(int id, String stringField1, String stringField2, String stringField3, String stringField4, String stringField5, Integer intField1,
@@ -103,7 +139,7 @@ public class FacetTest {
 
 		ResultDocBuilder resultDocumentBuilder = ResultDocBuilder.newBuilder().setDocument(mongoDocument);
 		s.setResultDocument(resultDocumentBuilder);
-		zuliaWorkPool.store(s);
+		zuliaWorkPool.store(s.setWaitForVisibility(true));
 
 	}
 
@@ -319,14 +355,115 @@ public class FacetTest {
 		Assertions.assertEquals(3L, intField2Count2.getCount());
 	}
 
+	@Test
+	@Order(4)
+	public void repeatedCountTest() throws Exception {
+
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		// different amounts are different queries that share the cached segment counts of match all
+		for (int amount = 0; amount < 3; amount++) {
+			Search search = new Search(FACET_TEST_INDEX).setAmount(amount).setDontCache(true).addCountFacet(new CountFacet("stringField2"))
+					.addCountFacet(new CountFacet("boolField1"));
+			SearchResult searchResult = zuliaWorkPool.search(search);
+
+			verifyString2NoQuery(searchResult);
+			verifyBool1NoQuery(searchResult);
+		}
+	}
+
 	@Test
 	@Order(5)
+	public void sampleTest() throws Exception {
+
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		{
+			// a sample larger than the hits counts every matching doc
+			Search search = new Search(FACET_TEST_INDEX).setAmount(0).setFacetSampleSize(100).addCountFacet(new CountFacet("stringField2"));
+			SearchResult searchResult = zuliaWorkPool.search(search);
+			verifyString2NoQuery(searchResult);
+			Assertions.assertEquals(0, searchResult.getFacetGroups().getFirst().getSampleRate());
+		}
+
+		{
+			Search search = new Search(FACET_TEST_INDEX).setAmount(0).setFacetSampleSize(5).addCountFacet(new CountFacet("stringField2"));
+			SearchResult searchResult = zuliaWorkPool.search(search);
+			Assertions.assertEquals(13, searchResult.getTotalHits());
+			double sampleRate = searchResult.getFacetGroups().getFirst().getSampleRate();
+			Assertions.assertTrue(sampleRate > 0 && sampleRate < 1);
+		}
+
+		Map<String, Long> exactCounts = new HashMap<>();
+		Map<String, Double> exactSums = new HashMap<>();
+		for (int i = 0; i < sampleDocCount; i++) {
+			exactCounts.merge(getSampleCategory(i), 1L, Long::sum);
+			exactSums.merge(getSampleCategory(i), (double) (i % 7), Double::sum);
+		}
+
+		{
+			// a single shard that is not sampled returns its exact counts
+			Search search = new Search(FACET_SAMPLE_TEST_INDEX).setAmount(0).setFacetSampleSize(sampleDocCount).addCountFacet(new CountFacet("category"))
+					.addStat(new StatFacet("rating", "category"));
+			SearchResult searchResult = zuliaWorkPool.search(search);
+			Assertions.assertEquals(sampleDocCount, searchResult.getTotalHits());
+			Assertions.assertEquals(0, searchResult.getFacetGroups().getFirst().getSampleRate());
+
+			List<ZuliaQuery.FacetCount> categoryCounts = searchResult.getFacetCounts("category");
+			Assertions.assertEquals(exactCounts.size(), categoryCounts.size());
+			for (ZuliaQuery.FacetCount categoryCount : categoryCounts) {
+				Assertions.assertEquals(exactCounts.get(categoryCount.getFacet()), categoryCount.getCount());
+				Assertions.assertEquals(0, categoryCount.getStandardError());
+			}
+
+			for (ZuliaQuery.FacetStats facetStats : searchResult.getFacetFieldStat("rating", "category")) {
+				Assertions.assertEquals(0, facetStats.getSampleRate());
+				Assertions.assertEquals(exactCounts.get(facetStats.getFacet()), facetStats.getDocCount());
+				Assertions.assertEquals(exactSums.get(facetStats.getFacet()), facetStats.getSum().getDoubleValue(), 0.001);
+			}
+		}
+
+		{
+			int sampleSize = sampleDocCount / 4;
+			Search search = new Search(FACET_SAMPLE_TEST_INDEX).setAmount(0).setFacetSampleSize(sampleSize).addCountFacet(new CountFacet("category"))
+					.addStat(new StatFacet("rating", "category"));
+			SearchResult searchResult = zuliaWorkPool.search(search);
+			Assertions.assertEquals(sampleDocCount, searchResult.getTotalHits());
+			Assertions.assertEquals((double) sampleSize / sampleDocCount, searchResult.getFacetGroups().getFirst().getSampleRate(), 0.0001);
+
+			// the scaled counts are estimates of the exact counts within the reported standard error, four standard errors keeps the check from
+			// depending on which docs the sample happened to keep
+			List<ZuliaQuery.FacetCount> categoryCounts = searchResult.getFacetCounts("category");
+			Assertions.assertEquals(exactCounts.size(), categoryCounts.size());
+			for (ZuliaQuery.FacetCount categoryCount : categoryCounts) {
+				long exactCount = exactCounts.get(categoryCount.getFacet());
+				double standardError = categoryCount.getStandardError();
+				Assertions.assertTrue(standardError > 0, "Expected a standard error for sampled facet <" + categoryCount.getFacet() + ">");
+				Assertions.assertEquals(exactCount, categoryCount.getCount(), 4 * standardError,
+						"Facet <" + categoryCount.getFacet() + "> count <" + categoryCount.getCount() + "> exact <" + exactCount + "> standard error <"
+								+ standardError + ">");
+			}
+
+			for (ZuliaQuery.FacetStats facetStats : searchResult.getFacetFieldStat("rating", "category")) {
+				long exactCount = exactCounts.get(facetStats.getFacet());
+				double exactSum = exactSums.get(facetStats.getFacet());
+				Assertions.assertEquals((double) sampleSize / sampleDocCount, facetStats.getSampleRate(), 0.0001);
+				Assertions.assertTrue(facetStats.getDocCountStandardError() > 0);
+				Assertions.assertTrue(facetStats.getSumStandardError() > 0);
+				Assertions.assertEquals(exactCount, facetStats.getDocCount(), 4 * facetStats.getDocCountStandardError());
+				Assertions.assertEquals(exactSum, facetStats.getSum().getDoubleValue(), 4 * facetStats.getSumStandardError());
+			}
+		}
+	}
+
+	@Test
+	@Order(6)
 	public void restart() throws Exception {
 		nodeExtension.restartNodes();
 	}
 
 	@Test
-	@Order(6)
+	@Order(7)
 	public void confirm() throws Exception {
 		searchTest();
 	}
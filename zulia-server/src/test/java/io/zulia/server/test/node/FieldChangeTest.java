@@ -47,7 +47,7 @@ public class FieldChangeTest {
 			mongoDocument.put("field1", "someValue");
 			mongoDocument.put("field2", 123);
 			mongoDocument.put("field3", "hello");
-			zuliaWorkPool.store(new Store(uniqueId, INDEX_NAME, ResultDocBuilder.from(mongoDocument)));
+			zuliaWorkPool.store(new Store(uniqueId, INDEX_NAME, ResultDocBuilder.from(mongoDocument)).setWaitForVisibility(true));
 		}
 
 		indexConfig.addFieldConfig(FieldConfigBuilder.createString("id").indexAs(DefaultAnalyzers.LC_KEYWORD).sort());
@@ -66,7 +66,7 @@ public class FieldChangeTest {
 			mongoDocument.put("field1", 4343);
 			mongoDocument.put("field2", "important value");
 			mongoDocument.put("field3", true);
-			zuliaWorkPool.store(new Store(uniqueId, INDEX_NAME, ResultDocBuilder.from(mongoDocument)));
+			zuliaWorkPool.store(new Store(uniqueId, INDEX_NAME, ResultDocBuilder.from(mongoDocument)).setWaitForVisibility(true));
 
 			uniqueId = "" + 2;
 			mongoDocument = new Document();
@@ -74,7 +74,7 @@ public class FieldChangeTest {
 			mongoDocument.put("field1", 555);
 			mongoDocument.put("field2", "some value");
 			mongoDocument.put("field3", false);
-			zuliaWorkPool.store(new Store(uniqueId, INDEX_NAME, ResultDocBuilder.from(mongoDocument)));
+			zuliaWorkPool.store(new Store(uniqueId, INDEX_NAME, ResultDocBuilder.from(mongoDocument)).setWaitForVisibility(true));
 
 			uniqueId = "" + 3;
 			mongoDocument = new Document();
@@ -82,7 +82,7 @@ public class FieldChangeTest {
 			mongoDocument.put("field1", 4);
 			mongoDocument.put("field2", "abcd");
 			mongoDocument.put("field3", "yes");
-			zuliaWorkPool.store(new Store(uniqueId, INDEX_NAME, ResultDocBuilder.from(mongoDocument)));
+			zuliaWorkPool.store(new Store(uniqueId, INDEX_NAME, ResultDocBuilder.from(mongoDocument)).setWaitForVisibility(true));
 		}
 	}
 
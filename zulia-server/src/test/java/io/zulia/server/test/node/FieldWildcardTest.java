@@ -112,10 +112,10 @@ public class FieldWildcardTest {
 				  ]
 				}""";
 
-		zuliaWorkPool.store(new Store("1", WILDCARD_JSON_TEST_INDEX).setResultDocument(json1));
-		zuliaWorkPool.store(new Store("2", WILDCARD_JSON_TEST_INDEX).setResultDocument(json2));
-		zuliaWorkPool.store(new Store("3", WILDCARD_JSON_TEST_INDEX).setResultDocument(json3));
-		zuliaWorkPool.store(new Store("4", WILDCARD_JSON_TEST_INDEX).setResultDocument(json4));
+		zuliaWorkPool.store(new Store("1", WILDCARD_JSON_TEST_INDEX).setResultDocument(json1).setWaitForVisibility(true));
+		zuliaWorkPool.store(new Store("2", WILDCARD_JSON_TEST_INDEX).setResultDocument(json2).setWaitForVisibility(true));
+		zuliaWorkPool.store(new Store("3", WILDCARD_JSON_TEST_INDEX).setResultDocument(json3).setWaitForVisibility(true));
+		zuliaWorkPool.store(new Store("4", WILDCARD_JSON_TEST_INDEX).setResultDocument(json4).setWaitForVisibility(true));
 
 	}
 
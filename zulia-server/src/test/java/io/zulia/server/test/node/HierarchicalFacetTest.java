@@ -115,7 +115,7 @@ public class HierarchicalFacetTest {
 
 		ResultDocBuilder resultDocumentBuilder = ResultDocBuilder.newBuilder().setDocument(mongoDocument);
 		s.setResultDocument(resultDocumentBuilder);
-		zuliaWorkPool.store(s);
+		zuliaWorkPool.store(s.setWaitForVisibility(true));
 
 	}
 
@@ -171,6 +171,8 @@ public class IndexTest {
 			UpdateIndex updateIndex = new UpdateIndex(INDEX_TEST);
 			updateIndex.setIndexWeight(4);
 			updateIndex.setDisableCompression(true);
+			updateIndex.setSearchSliceMaxSegments(2);
+			updateIndex.setFilterCacheMinFrequency(3);
 
 			FieldConfigBuilder newField = FieldConfigBuilder.createString("newField").indexAs(DefaultAnalyzers.LC_KEYWORD).sort();
 			updateIndex.mergeFieldConfig(newField);
@@ -185,6 +187,10 @@ public class IndexTest {
 
 			Assertions.assertEquals(4, indexConfigFromServer.getIndexWeight());
 			Assertions.assertTrue(indexConfigFromServer.getDisableCompression());
+			Assertions.assertEquals(2, indexConfigFromServer.getSearchSliceMaxSegments());
+			Assertions.assertEquals(250_000, indexConfigFromServer.getSearchSliceMaxDocs());
+			Assertions.assertEquals(3, indexConfigFromServer.getFilterCacheMinFrequency());
+			Assertions.assertFalse(indexConfigFromServer.getDisableFilterCache());
 			Assertions.assertEquals(4, indexConfigFromServer.getFieldConfigMap().size());
 			ZuliaIndex.FieldConfig newField = indexConfigFromServer.getFieldConfig("newField");
 			Assertions.assertEquals(1, newField.getSortAsCount());
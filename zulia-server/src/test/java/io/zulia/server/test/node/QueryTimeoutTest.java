@@ -0,0 +1,105 @@
+package io.zulia.server.test.node;
+
+import io.zulia.DefaultAnalyzers;
+import io.zulia.client.command.BatchStore;
+import io.zulia.client.command.Store;
+import io.zulia.client.command.builder.Search;
+import io.zulia.client.command.builder.Sort;
+import io.zulia.client.config.ClientIndexConfig;
+import io.zulia.client.pool.ZuliaWorkPool;
+import io.zulia.client.result.SearchResult;
+import io.zulia.doc.ResultDocBuilder;
+import io.zulia.fields.FieldConfigBuilder;
+import io.zulia.server.test.node.shared.NodeExtension;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class QueryTimeoutTest {
+
+	@RegisterExtension
+	static final NodeExtension nodeExtension = new NodeExtension(2);
+
+	public static final String QUERY_TIMEOUT_TEST_INDEX = "queryTimeoutTest";
+
+	private static final int docCount = 20000;
+
+	@Test
+	@Order(1)
+	public void createIndex() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		ClientIndexConfig indexConfig = new ClientIndexConfig();
+		indexConfig.addDefaultSearchField("title");
+		indexConfig.addFieldConfig(FieldConfigBuilder.createString("id").indexAs(DefaultAnalyzers.LC_KEYWORD).sort());
+		indexConfig.addFieldConfig(FieldConfigBuilder.createString("title").indexAs(DefaultAnalyzers.STANDARD));
+		indexConfig.addFieldConfig(FieldConfigBuilder.createInt("rating").index().sort());
+		indexConfig.setIndexName(QUERY_TIMEOUT_TEST_INDEX);
+		indexConfig.setNumberOfShards(4);
+
+		zuliaWorkPool.createIndex(indexConfig);
+	}
+
+	@Test
+	@Order(2)
+	public void index() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		BatchStore batchStore = new BatchStore();
+		for (int i = 0; i < docCount; i++) {
+			Document mongoDocument = new Document("id", String.valueOf(i)).append("title", "timeout " + i).append("rating", i % 100);
+			Store store = new Store(String.valueOf(i), QUERY_TIMEOUT_TEST_INDEX, ResultDocBuilder.newBuilder().setDocument(mongoDocument));
+			batchStore.addStore(store.setWaitForVisibility(true));
+		}
+		Assertions.assertFalse(zuliaWorkPool.batchStore(batchStore).hasFailures());
+	}
+
+	@Test
+	@Order(3)
+	public void queryThenFetchWithinDeadline() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		// the fetch round of query then fetch runs under the same deadline as the query round
+		Search search = new Search(QUERY_TIMEOUT_TEST_INDEX).setAmount(50).setQueryThenFetch(true).setTimeoutMS(60000).setDontCache(true)
+				.addSort(new Sort("rating").descending());
+		SearchResult searchResult = zuliaWorkPool.search(search);
+		Assertions.assertFalse(searchResult.isPartialResults());
+		Assertions.assertEquals(docCount, searchResult.getTotalHits());
+		Assertions.assertEquals(50, searchResult.getDocuments().size());
+		Assertions.assertEquals(99, searchResult.getFirstDocument().getInteger("rating"));
+	}
+
+	@Test
+	@Order(4)
+	public void partialResults() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		int partialCount = 0;
+		for (int i = 0; i < 10; i++) {
+			// a deadline that passes before the shards finish returns the hits collected so far instead of failing the query
+			Search search = new Search(QUERY_TIMEOUT_TEST_INDEX).setAmount(10).setQueryThenFetch(true).setTimeoutMS(1).setDontCache(true)
+					.addSort(new Sort("rating").descending());
+			SearchResult searchResult = zuliaWorkPool.search(search);
+			if (searchResult.isPartialResults()) {
+				partialCount++;
+				Assertions.assertTrue(searchResult.getTotalHits() <= docCount);
+			}
+			else {
+				Assertions.assertEquals(docCount, searchResult.getTotalHits());
+			}
+		}
+		Assertions.assertTrue(partialCount > 0, "Expected a query with a 1ms timeout over " + docCount + " documents to return partial results");
+
+		// the results of a timed out query are not cached so the same query without a timeout is complete
+		Search search = new Search(QUERY_TIMEOUT_TEST_INDEX).setAmount(10).addSort(new Sort("rating").descending());
+		SearchResult searchResult = zuliaWorkPool.search(search);
+		Assertions.assertFalse(searchResult.isPartialResults());
+		Assertions.assertEquals(docCount, searchResult.getTotalHits());
+	}
+
+}
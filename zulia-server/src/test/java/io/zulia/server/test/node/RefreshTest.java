@@ -0,0 +1,83 @@
+package io.zulia.server.test.node;
+
+import io.zulia.DefaultAnalyzers;
+import io.zulia.client.command.Store;
+import io.zulia.client.command.builder.Search;
+import io.zulia.client.config.ClientIndexConfig;
+import io.zulia.client.pool.ZuliaWorkPool;
+import io.zulia.doc.ResultDocBuilder;
+import io.zulia.fields.FieldConfigBuilder;
+import io.zulia.server.test.node.shared.NodeExtension;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class RefreshTest {
+
+	@RegisterExtension
+	static final NodeExtension nodeExtension = new NodeExtension(1);
+
+	private static final String INDEX_NAME = "refreshTest";
+
+	private static final int REFRESH_INTERVAL_MS = 1000;
+
+	// the refresh timer checks every 100ms if the refresh interval has elapsed, the rest is for the refresh and the search
+	private static final int REFRESH_SLACK_MS = 500;
+
+	@Test
+	@Order(1)
+	public void indexingTest() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+		ClientIndexConfig indexConfig = new ClientIndexConfig();
+		indexConfig.addDefaultSearchField("title");
+		indexConfig.addFieldConfig(FieldConfigBuilder.createString("title").indexAs(DefaultAnalyzers.STANDARD));
+		indexConfig.setIndexName(INDEX_NAME);
+		indexConfig.setNumberOfShards(1);
+		indexConfig.setRefreshIntervalMS(REFRESH_INTERVAL_MS);
+		zuliaWorkPool.createIndex(indexConfig);
+	}
+
+	@Test
+	@Order(2)
+	public void backgroundRefreshTest() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		store(zuliaWorkPool, "1");
+		long visibleMS = waitForHits(zuliaWorkPool, 1);
+		Assertions.assertTrue(visibleMS < REFRESH_INTERVAL_MS + REFRESH_SLACK_MS, "Store visible after <" + visibleMS + "ms>");
+
+		// the shard just refreshed for the first store, a search does not refresh again before the interval has elapsed
+		store(zuliaWorkPool, "2");
+		Assertions.assertEquals(1, getTotalHits(zuliaWorkPool));
+		visibleMS = waitForHits(zuliaWorkPool, 2);
+		Assertions.assertTrue(visibleMS < REFRESH_INTERVAL_MS + REFRESH_SLACK_MS, "Store visible after <" + visibleMS + "ms>");
+	}
+
+	private static void store(ZuliaWorkPool zuliaWorkPool, String uniqueId) throws Exception {
+		Document mongoDocument = new Document("title", "some title");
+		zuliaWorkPool.store(new Store(uniqueId, INDEX_NAME, ResultDocBuilder.from(mongoDocument)));
+	}
+
+	/**
+	 * @return the milliseconds until the search returned the expected hits
+	 */
+	private static long waitForHits(ZuliaWorkPool zuliaWorkPool, long expectedHits) throws Exception {
+		long start = System.currentTimeMillis();
+		long deadline = start + REFRESH_INTERVAL_MS * 5;
+		while (getTotalHits(zuliaWorkPool) != expectedHits) {
+			Assertions.assertTrue(System.currentTimeMillis() < deadline, "Store was never visible");
+			Thread.sleep(20);
+		}
+		return System.currentTimeMillis() - start;
+	}
+
+	private static long getTotalHits(ZuliaWorkPool zuliaWorkPool) throws Exception {
+		return zuliaWorkPool.search(new Search(INDEX_NAME).setAmount(0).setDontCache(true)).getTotalHits();
+	}
+
+}
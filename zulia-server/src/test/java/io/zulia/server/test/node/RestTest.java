@@ -11,10 +11,12 @@ import io.zulia.client.rest.options.TermsRESTOptions;
 import io.zulia.fields.FieldConfigBuilder;
 import io.zulia.message.ZuliaServiceOuterClass.RestIndexSettingsResponse;
 import io.zulia.rest.dto.AssociatedMetadataDTO;
+import io.zulia.rest.dto.CacheStatsDTO;
 import io.zulia.rest.dto.FacetDTO;
 import io.zulia.rest.dto.FacetsDTO;
 import io.zulia.rest.dto.FieldsDTO;
 import io.zulia.rest.dto.HighlightDTO;
+import io.zulia.rest.dto.IndexCacheStatsDTO;
 import io.zulia.rest.dto.IndexMappingDTO;
 import io.zulia.rest.dto.IndexesResponseDTO;
 import io.zulia.rest.dto.NodeDTO;
@@ -78,20 +80,20 @@ public class RestTest {
 		{
 			Store store = new Store("123", "index1");
 			store.setResultDocument(new Document("id", "123").append("title", "test").append("notIndexed", "some value").append("year", 2022));
-			zuliaWorkPool.store(store);
+			zuliaWorkPool.store(store.setWaitForVisibility(true));
 		}
 
 		{
 			Store store = new Store("456", "index1");
 			store.setResultDocument(new Document("id", "456").append("title", "some value").append("notIndexed", "the best value").append("year", 2022));
-			zuliaWorkPool.store(store);
+			zuliaWorkPool.store(store.setWaitForVisibility(true));
 		}
 
 		{
 			Store store = new Store("789", "index1");
 			store.setResultDocument(
 					new Document("id", "789").append("title", "a totally different place and time").append("notIndexed", "random stuff").append("year", 2021));
-			zuliaWorkPool.store(store);
+			zuliaWorkPool.store(store.setWaitForVisibility(true));
 		}
 
 	}
@@ -164,6 +166,8 @@ public class RestTest {
 		ZuliaRESTClient restClient = restNodeExtension.getRESTClient();
 		StatsDTO statsDTO = restClient.getStats();
 		Assertions.assertEquals(statsDTO.getZuliaVersion(), ZuliaVersion.getVersion());
+		Assertions.assertNotNull(statsDTO.getFilterCache());
+		Assertions.assertNotNull(statsDTO.getFacetCountCache());
 	}
 
 	@Test
@@ -406,4 +410,22 @@ public class RestTest {
 
 	}
 
+	@Test
+	@Order(8)
+	public void cacheStatTest() {
+		ZuliaRESTClient restClient = restNodeExtension.getRESTClient();
+		StatsDTO statsDTO = restClient.getStats();
+
+		IndexCacheStatsDTO index1CacheStats = statsDTO.getIndexCacheStats().stream().filter(stats -> stats.getIndexName().equals("index1")).findFirst()
+				.orElseThrow();
+
+		// the search test repeats title:value so its parsed query is reused
+		CacheStatsDTO parsedQueryCache = index1CacheStats.getParsedQueryCache();
+		Assertions.assertTrue(parsedQueryCache.getHitCount() > 0, "Expected parsed query cache hits in <" + parsedQueryCache + ">");
+		Assertions.assertTrue(parsedQueryCache.getEstimatedSize() > 0, "Expected parsed queries in <" + parsedQueryCache + ">");
+		Assertions.assertNotNull(index1CacheStats.getGeneralCache());
+		Assertions.assertNotNull(index1CacheStats.getPinnedCache());
+		Assertions.assertNotNull(index1CacheStats.getSegmentCache());
+	}
+
 }
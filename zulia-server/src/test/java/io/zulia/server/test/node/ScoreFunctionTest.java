@@ -0,0 +1,117 @@
+package io.zulia.server.test.node;
+
+import io.zulia.DefaultAnalyzers;
+import io.zulia.client.command.Store;
+import io.zulia.client.command.builder.ScoredQuery;
+import io.zulia.client.command.builder.Search;
+import io.zulia.client.config.ClientIndexConfig;
+import io.zulia.client.pool.ZuliaWorkPool;
+import io.zulia.client.result.SearchResult;
+import io.zulia.doc.ResultDocBuilder;
+import io.zulia.fields.FieldConfigBuilder;
+import io.zulia.message.ZuliaQuery.ScoredResult;
+import io.zulia.rest.dto.IndexCacheStatsDTO;
+import io.zulia.server.test.node.shared.RestNodeExtension;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.function.IntToDoubleFunction;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class ScoreFunctionTest {
+
+	@RegisterExtension
+	static final RestNodeExtension restNodeExtension = new RestNodeExtension(1);
+
+	private static final String INDEX_NAME = "scoreFunctionTest";
+
+	private static final String SCORE_FUNCTION = "rating * 2";
+
+	private static final int DOCS = 5;
+
+	@Test
+	@Order(1)
+	public void indexingTest() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = restNodeExtension.getGrpcClient();
+		ClientIndexConfig indexConfig = getIndexConfig();
+		indexConfig.addFieldConfig(FieldConfigBuilder.createInt("rating").sort());
+		zuliaWorkPool.createIndex(indexConfig);
+
+		for (int id = 1; id <= DOCS; id++) {
+			Document mongoDocument = new Document("title", "some title").append("rating", id);
+			zuliaWorkPool.store(new Store(String.valueOf(id), INDEX_NAME, ResultDocBuilder.from(mongoDocument)).setWaitForVisibility(true));
+		}
+	}
+
+	@Test
+	@Order(2)
+	public void reuseTest() throws Exception {
+		IndexCacheStatsDTO before = getIndexCacheStats();
+		assertScores("title:some", id -> id * 2);
+		IndexCacheStatsDTO afterFirst = getIndexCacheStats();
+		Assertions.assertEquals(1, afterFirst.getScoreFunctionCache().getMissCount() - before.getScoreFunctionCache().getMissCount());
+		Assertions.assertEquals(1, afterFirst.getCompiledScoreFunctionCache().getMissCount() - before.getCompiledScoreFunctionCache().getMissCount());
+
+		// a different query with the same score function reuses the bound function without compiling it again
+		assertScores("title:title", id -> id * 2);
+		IndexCacheStatsDTO afterSecond = getIndexCacheStats();
+		Assertions.assertEquals(1, afterSecond.getScoreFunctionCache().getHitCount() - afterFirst.getScoreFunctionCache().getHitCount());
+		Assertions.assertEquals(afterFirst.getScoreFunctionCache().getMissCount(), afterSecond.getScoreFunctionCache().getMissCount());
+		Assertions.assertEquals(afterFirst.getCompiledScoreFunctionCache().getMissCount(), afterSecond.getCompiledScoreFunctionCache().getMissCount());
+	}
+
+	@Test
+	@Order(3)
+	public void fieldTypeChangeTest() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = restNodeExtension.getGrpcClient();
+		ClientIndexConfig indexConfig = getIndexConfig();
+		indexConfig.addFieldConfig(FieldConfigBuilder.createDouble("rating").sort());
+		zuliaWorkPool.createIndex(indexConfig);
+
+		for (int id = 1; id <= DOCS; id++) {
+			Document mongoDocument = new Document("title", "some title").append("rating", id + 0.5);
+			zuliaWorkPool.store(new Store(String.valueOf(id), INDEX_NAME, ResultDocBuilder.from(mongoDocument)).setWaitForVisibility(true));
+		}
+
+		// the function is bound again to the double sort field while the compiled expression is reused
+		IndexCacheStatsDTO before = getIndexCacheStats();
+		assertScores("title:some", id -> (id + 0.5) * 2);
+		IndexCacheStatsDTO after = getIndexCacheStats();
+		Assertions.assertEquals(1, after.getScoreFunctionCache().getMissCount() - before.getScoreFunctionCache().getMissCount());
+		Assertions.assertEquals(1, after.getCompiledScoreFunctionCache().getHitCount() - before.getCompiledScoreFunctionCache().getHitCount());
+		Assertions.assertEquals(before.getCompiledScoreFunctionCache().getMissCount(), after.getCompiledScoreFunctionCache().getMissCount());
+	}
+
+	private static ClientIndexConfig getIndexConfig() {
+		ClientIndexConfig indexConfig = new ClientIndexConfig();
+		indexConfig.addDefaultSearchField("title");
+		indexConfig.addFieldConfig(FieldConfigBuilder.createString("title").indexAs(DefaultAnalyzers.STANDARD));
+		indexConfig.setIndexName(INDEX_NAME);
+		indexConfig.setNumberOfShards(1);
+		return indexConfig;
+	}
+
+	private static void assertScores(String query, IntToDoubleFunction expectedScore) throws Exception {
+		ZuliaWorkPool zuliaWorkPool = restNodeExtension.getGrpcClient();
+		SearchResult searchResult = zuliaWorkPool.search(new Search(INDEX_NAME).addQuery(new ScoredQuery(query).setScoreFunction(SCORE_FUNCTION)).setAmount(DOCS));
+		Assertions.assertEquals(DOCS, searchResult.getTotalHits());
+
+		int expectedId = DOCS;
+		for (ScoredResult scoredResult : searchResult.getResults()) {
+			Assertions.assertEquals(String.valueOf(expectedId), scoredResult.getUniqueId());
+			Assertions.assertEquals(expectedScore.applyAsDouble(expectedId), scoredResult.getScore(), 0.0001);
+			expectedId--;
+		}
+	}
+
+	private static IndexCacheStatsDTO getIndexCacheStats() {
+		return restNodeExtension.getRESTClient().getStats().getIndexCacheStats().stream().filter(stats -> stats.getIndexName().equals(INDEX_NAME))
+				.findFirst().orElseThrow();
+	}
+
+}
@@ -0,0 +1,169 @@
+package io.zulia.server.test.node;
+
+import io.zulia.DefaultAnalyzers;
+import io.zulia.client.command.Store;
+import io.zulia.client.command.builder.Search;
+import io.zulia.client.command.builder.Sort;
+import io.zulia.client.config.ClientIndexConfig;
+import io.zulia.client.pool.ZuliaWorkPool;
+import io.zulia.client.result.SearchResult;
+import io.zulia.doc.ResultDocBuilder;
+import io.zulia.fields.FieldConfigBuilder;
+import io.zulia.message.ZuliaQuery.ScoredResult;
+import io.zulia.message.ZuliaQuery.SortValue;
+import io.zulia.server.test.node.shared.NodeExtension;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class ShardMergeSortTest {
+
+	@RegisterExtension
+	static final NodeExtension nodeExtension = new NodeExtension(1);
+
+	private static final String INDEX_NAME = "shardMergeSortTest";
+
+	private static final int DOCS = 120;
+	private static final int MISSING = DOCS / 10;
+
+	private static final Comparator<String> MISSING_LAST = Comparator.nullsLast(Comparator.naturalOrder());
+	private static final Comparator<String> MISSING_FIRST = Comparator.nullsFirst(Comparator.naturalOrder());
+
+	@Test
+	@Order(1)
+	public void indexingTest() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+		ClientIndexConfig indexConfig = new ClientIndexConfig();
+		indexConfig.addDefaultSearchField("title");
+		indexConfig.addFieldConfig(FieldConfigBuilder.createString("title").indexAs(DefaultAnalyzers.STANDARD));
+		indexConfig.addFieldConfig(FieldConfigBuilder.createString("category").indexAs(DefaultAnalyzers.LC_KEYWORD).sort());
+		indexConfig.setIndexName(INDEX_NAME);
+		indexConfig.setNumberOfShards(4);
+
+		zuliaWorkPool.createIndex(indexConfig);
+
+		for (int id = 0; id < DOCS; id++) {
+			// three categories so most of the order comes from ties, every tenth document has no category
+			String category = id % 10 == 0 ? null : "c" + (id % 3);
+			Document mongoDocument = new Document("title", "some title").append("category", category);
+			zuliaWorkPool.store(new Store(String.valueOf(id), INDEX_NAME, ResultDocBuilder.from(mongoDocument)).setWaitForVisibility(true));
+		}
+	}
+
+	@Test
+	@Order(2)
+	public void tieTest() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		SearchResult searchResult = zuliaWorkPool.search(new Search(INDEX_NAME).setAmount(DOCS).addSort(new Sort("category").missingLast()));
+		List<ScoredResult> results = searchResult.getResults();
+		Assertions.assertEquals(DOCS, results.size());
+		assertSorted(results, MISSING_LAST);
+		assertTiesInShardOrder(results);
+
+		// the same query merges the same way every time
+		SearchResult again = zuliaWorkPool.search(new Search(INDEX_NAME).setAmount(DOCS).addSort(new Sort("category").missingLast()).setDontCache(true));
+		Assertions.assertEquals(getUniqueIds(results), getUniqueIds(again.getResults()));
+	}
+
+	@Test
+	@Order(3)
+	public void missingTest() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		List<ScoredResult> missingLast = zuliaWorkPool.search(new Search(INDEX_NAME).setAmount(DOCS).addSort(new Sort("category").missingLast()))
+				.getResults();
+		for (int i = 0; i < DOCS; i++) {
+			Assertions.assertEquals(i < DOCS - MISSING, getCategory(missingLast.get(i)) != null, "Unexpected category at <" + i + ">");
+		}
+
+		List<ScoredResult> missingFirst = zuliaWorkPool.search(new Search(INDEX_NAME).setAmount(DOCS).addSort(new Sort("category").missingFirst()))
+				.getResults();
+		assertSorted(missingFirst, MISSING_FIRST);
+		for (int i = 0; i < DOCS; i++) {
+			Assertions.assertEquals(i >= MISSING, getCategory(missingFirst.get(i)) != null, "Unexpected category at <" + i + ">");
+		}
+	}
+
+	@Test
+	@Order(4)
+	public void pagingTest() throws Exception {
+		assertPaging(new Sort("category").missingLast(), MISSING_LAST);
+		assertPaging(new Sort("category").missingFirst(), MISSING_FIRST);
+	}
+
+	private static void assertPaging(Sort sort, Comparator<String> comparator) throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		Search search = new Search(INDEX_NAME).setAmount(7).addSort(sort);
+		List<ScoredResult> pagedResults = new ArrayList<>();
+		SearchResult searchResult = zuliaWorkPool.search(search);
+		while (searchResult.hasResults()) {
+			Assertions.assertEquals(DOCS, searchResult.getTotalHits());
+			assertTiesInShardOrder(searchResult.getResults());
+			pagedResults.addAll(searchResult.getResults());
+			search.setLastResult(searchResult);
+			searchResult = zuliaWorkPool.search(search);
+		}
+
+		// every document once and each page continues from where the last page left off, including across the missing values
+		Assertions.assertEquals(DOCS, pagedResults.size());
+		Assertions.assertEquals(DOCS, new HashSet<>(getUniqueIds(pagedResults)).size());
+		assertSorted(pagedResults, comparator);
+	}
+
+	private static void assertSorted(List<ScoredResult> results, Comparator<String> comparator) {
+		for (int i = 1; i < results.size(); i++) {
+			String previous = getCategory(results.get(i - 1));
+			String current = getCategory(results.get(i));
+			Assertions.assertTrue(comparator.compare(previous, current) <= 0, "Category <" + current + "> at <" + i + "> sorted after <" + previous + ">");
+		}
+	}
+
+	/**
+	 * Results with the same sort values come from one shard at a time in the order of the shard responses and in doc id order within a shard
+	 */
+	private static void assertTiesInShardOrder(List<ScoredResult> results) {
+		Set<Integer> finishedShards = new HashSet<>();
+		for (int i = 1; i < results.size(); i++) {
+			ScoredResult previous = results.get(i - 1);
+			ScoredResult current = results.get(i);
+			if (!Objects.equals(getCategory(previous), getCategory(current))) {
+				finishedShards.clear();
+				continue;
+			}
+
+			if (previous.getShard() == current.getShard()) {
+				Assertions.assertTrue(previous.getLuceneShardId() < current.getLuceneShardId(),
+						"Doc <" + current.getLuceneShardId() + "> after <" + previous.getLuceneShardId() + "> on shard <" + current.getShard() + ">");
+			}
+			else {
+				finishedShards.add(previous.getShard());
+				Assertions.assertFalse(finishedShards.contains(current.getShard()),
+						"Shard <" + current.getShard() + "> returned again for category <" + getCategory(current) + ">");
+			}
+		}
+	}
+
+	private static String getCategory(ScoredResult scoredResult) {
+		SortValue sortValue = scoredResult.getSortValues().getSortValue(0);
+		return sortValue.getExists() ? sortValue.getStringValue() : null;
+	}
+
+	private static List<String> getUniqueIds(List<ScoredResult> results) {
+		return results.stream().map(ScoredResult::getUniqueId).toList();
+	}
+
+}
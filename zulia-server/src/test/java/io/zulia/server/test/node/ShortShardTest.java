@@ -0,0 +1,103 @@
+package io.zulia.server.test.node;
+
+import io.zulia.DefaultAnalyzers;
+import io.zulia.client.command.Store;
+import io.zulia.client.command.builder.Search;
+import io.zulia.client.command.builder.Sort;
+import io.zulia.client.config.ClientIndexConfig;
+import io.zulia.client.pool.ZuliaWorkPool;
+import io.zulia.client.result.SearchResult;
+import io.zulia.doc.ResultDocBuilder;
+import io.zulia.fields.FieldConfigBuilder;
+import io.zulia.message.ZuliaQuery.ScoredResult;
+import io.zulia.rest.dto.CacheStatsDTO;
+import io.zulia.server.index.MasterSlaveSelector;
+import io.zulia.server.test.node.shared.RestNodeExtension;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.List;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class ShortShardTest {
+
+	@RegisterExtension
+	static final RestNodeExtension restNodeExtension = new RestNodeExtension(1);
+
+	private static final String INDEX_NAME = "shortShardTest";
+
+	private static final int NUMBER_OF_SHARDS = 4;
+	private static final int DOCS = 200;
+	private static final int AMOUNT = 20;
+
+	// the only shard with ranked documents, all other shards tie at a rank of zero
+	private static final int SKEWED_SHARD = 0;
+
+	@Test
+	@Order(1)
+	public void indexingTest() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = restNodeExtension.getGrpcClient();
+		ClientIndexConfig indexConfig = new ClientIndexConfig();
+		indexConfig.addDefaultSearchField("title");
+		indexConfig.addFieldConfig(FieldConfigBuilder.createString("title").indexAs(DefaultAnalyzers.STANDARD));
+		indexConfig.addFieldConfig(FieldConfigBuilder.createInt("rank").index().sort());
+		indexConfig.setIndexName(INDEX_NAME);
+		indexConfig.setNumberOfShards(NUMBER_OF_SHARDS);
+		// (20 / 4 + 1) * 1 = 6 results from each shard in the first round
+		indexConfig.setRequestFactor(1.0);
+		indexConfig.setMinShardRequest(1);
+
+		zuliaWorkPool.createIndex(indexConfig);
+
+		int skewedDocs = 0;
+		for (int id = 0; id < DOCS; id++) {
+			String uniqueId = String.valueOf(id);
+			int rank = 0;
+			if (MasterSlaveSelector.getShardForUniqueId(uniqueId, NUMBER_OF_SHARDS) == SKEWED_SHARD) {
+				rank = 1000 + id;
+				skewedDocs++;
+			}
+
+			Document mongoDocument = new Document("title", "some title").append("rank", rank);
+			zuliaWorkPool.store(new Store(uniqueId, INDEX_NAME, ResultDocBuilder.from(mongoDocument)).setWaitForVisibility(true));
+		}
+
+		Assertions.assertTrue(skewedDocs > AMOUNT, "Expected more than <" + AMOUNT + "> documents on shard <" + SKEWED_SHARD + "> found <" + skewedDocs + ">");
+	}
+
+	@Test
+	@Order(2)
+	public void shortShardTest() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = restNodeExtension.getGrpcClient();
+
+		CacheStatsDTO before = getGeneralCacheStats();
+		SearchResult searchResult = zuliaWorkPool.search(new Search(INDEX_NAME).setAmount(AMOUNT).addSort(new Sort("rank").descending()));
+		CacheStatsDTO after = getGeneralCacheStats();
+
+		// every shard is searched once and only the skewed shard is searched again for the rest of the amount
+		Assertions.assertEquals(NUMBER_OF_SHARDS + 1, after.getMissCount() - before.getMissCount());
+
+		Assertions.assertEquals(DOCS, searchResult.getTotalHits());
+		List<ScoredResult> results = searchResult.getResults();
+		Assertions.assertEquals(AMOUNT, results.size());
+		for (ScoredResult scoredResult : results) {
+			Assertions.assertEquals(SKEWED_SHARD, scoredResult.getShard());
+		}
+
+		// requesting every document from every shard can not be short
+		SearchResult fullResult = zuliaWorkPool.search(new Search(INDEX_NAME).setAmount(DOCS).addSort(new Sort("rank").descending()));
+		List<String> expectedIds = fullResult.getResults().stream().limit(AMOUNT).map(ScoredResult::getUniqueId).toList();
+		Assertions.assertEquals(expectedIds, results.stream().map(ScoredResult::getUniqueId).toList());
+	}
+
+	private static CacheStatsDTO getGeneralCacheStats() {
+		return restNodeExtension.getRESTClient().getStats().getIndexCacheStats().stream().filter(stats -> stats.getIndexName().equals(INDEX_NAME))
+				.findFirst().orElseThrow().getGeneralCache();
+	}
+
+}
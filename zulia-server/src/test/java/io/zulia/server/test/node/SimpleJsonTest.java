@@ -111,10 +111,10 @@ public class SimpleJsonTest {
 				  "email":["some.dude@hotmail.com"]
 				}""";
 
-		zuliaWorkPool.store(new Store("1", SIMPLE_JSON_TEST_INDEX).setResultDocument(json1));
-		zuliaWorkPool.store(new Store("2", SIMPLE_JSON_TEST_INDEX).setResultDocument(json2));
-		zuliaWorkPool.store(new Store("3", SIMPLE_JSON_TEST_INDEX).setResultDocument(json3));
-		zuliaWorkPool.store(new Store("4", SIMPLE_JSON_TEST_INDEX).setResultDocument(json4));
+		zuliaWorkPool.store(new Store("1", SIMPLE_JSON_TEST_INDEX).setResultDocument(json1).setWaitForVisibility(true));
+		zuliaWorkPool.store(new Store("2", SIMPLE_JSON_TEST_INDEX).setResultDocument(json2).setWaitForVisibility(true));
+		zuliaWorkPool.store(new Store("3", SIMPLE_JSON_TEST_INDEX).setResultDocument(json3).setWaitForVisibility(true));
+		zuliaWorkPool.store(new Store("4", SIMPLE_JSON_TEST_INDEX).setResultDocument(json4).setWaitForVisibility(true));
 
 	}
 
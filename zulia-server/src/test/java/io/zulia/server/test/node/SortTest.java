@@ -158,7 +158,7 @@ public class SortTest {
 			mongoDocument.put("stringList", stringList);
 			mongoDocument.put("intList", intList);
 
-			zuliaWorkPool.store(new Store(uniqueId, INDEX_NAME, ResultDocBuilder.from(mongoDocument)));
+			zuliaWorkPool.store(new Store(uniqueId, INDEX_NAME, ResultDocBuilder.from(mongoDocument)).setWaitForVisibility(true));
 
 		}
 
@@ -683,7 +683,7 @@ public class SortTest {
 			}
 
 			Document mongoDocument = new Document().append("id", id).append("magicNumber", magicNumber);
-			zuliaWorkPool.store(new Store(String.valueOf(id), "anotherIndex", ResultDocBuilder.from(mongoDocument)));
+			zuliaWorkPool.store(new Store(String.valueOf(id), "anotherIndex", ResultDocBuilder.from(mongoDocument)).setWaitForVisibility(true));
 		}
 
 		for (int id = 0; id < 100; id++) {
@@ -691,7 +691,7 @@ public class SortTest {
 			int magicNumber = (id % 10) + 5;
 
 			Document mongoDocument = new Document().append("id", id).append("magicNumber", magicNumber);
-			zuliaWorkPool.store(new Store(String.valueOf(id), "anotherIndex2", ResultDocBuilder.from(mongoDocument)));
+			zuliaWorkPool.store(new Store(String.valueOf(id), "anotherIndex2", ResultDocBuilder.from(mongoDocument)).setWaitForVisibility(true));
 		}
 
 		SearchResult searchResult;
@@ -199,7 +199,7 @@ public class StartStopTest {
 
 		s.setResultDocument(resultDocumentBuilder);
 
-		zuliaWorkPool.store(s);
+		zuliaWorkPool.store(s.setWaitForVisibility(true));
 
 	}
 
@@ -645,6 +645,13 @@ public class StartStopTest {
 			Assertions.assertEquals(59, sr.getDocuments().get(0).get("an"), "First AN should be 59");
 			Assertions.assertEquals(50, sr.getDocuments().get(9).get("an"), "Tenth AN should be 50");
 
+			s.setQueryThenFetch(true);
+			sr = zuliaWorkPool.search(s);
+
+			Assertions.assertEquals(10, sr.getDocuments().size(), "Ten records should be returned");
+			Assertions.assertEquals(59, sr.getDocuments().get(0).get("an"), "First AN should be 59");
+			Assertions.assertEquals(50, sr.getDocuments().get(9).get("an"), "Tenth AN should be 50");
+
 		}
 
 		{
@@ -2,8 +2,11 @@ package io.zulia.server.test.node;
 
 import io.zulia.DefaultAnalyzers;
 import io.zulia.client.command.Store;
+import io.zulia.client.command.builder.Cardinality;
 import io.zulia.client.command.builder.FilterQuery;
+import io.zulia.client.command.builder.Histogram;
 import io.zulia.client.command.builder.MatchAllQuery;
+import io.zulia.client.command.builder.NumericRanges;
 import io.zulia.client.command.builder.NumericStat;
 import io.zulia.client.command.builder.Search;
 import io.zulia.client.command.builder.StatFacet;
@@ -14,6 +17,7 @@ import io.zulia.client.pool.ZuliaWorkPool;
 import io.zulia.client.result.SearchResult;
 import io.zulia.doc.ResultDocBuilder;
 import io.zulia.fields.FieldConfigBuilder;
+import io.zulia.message.ZuliaQuery.Bucket;
 import io.zulia.message.ZuliaQuery.FacetStats;
 import io.zulia.server.test.node.shared.NodeExtension;
 import org.bson.Document;
@@ -88,7 +92,7 @@ public class StatTest {
 
 		Store s = new Store(uniqueId, STAT_TEST_INDEX);
 		s.setResultDocument(ResultDocBuilder.from(mongoDocument));
-		zuliaWorkPool.store(s);
+		zuliaWorkPool.store(s.setWaitForVisibility(true));
 
 	}
 
@@ -244,6 +248,80 @@ public class StatTest {
 
 	@Test
 	@Order(4)
+	public void cardinalityTest() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		Search search = new Search(STAT_TEST_INDEX);
+		search.addCardinality(new Cardinality("normalFacet"));
+		search.addCardinality(new Cardinality("pathFacet"));
+		search.addCardinality(new Cardinality("rating"));
+		search.addCardinality(new Cardinality("id"));
+		SearchResult searchResult = zuliaWorkPool.search(search);
+
+		Assertions.assertEquals(3, searchResult.getCardinality("normalFacet"));
+		// every level of a hierarchical facet path is a distinct value
+		Assertions.assertEquals(14, searchResult.getCardinality("pathFacet"));
+		Assertions.assertEquals(6, searchResult.getCardinality("rating"));
+		Assertions.assertEquals(7 * repeatCount, searchResult.getCardinality("id"), 7 * repeatCount * 0.03);
+
+		search.addQuery(new FilterQuery("title:boring"));
+		searchResult = zuliaWorkPool.search(search);
+		Assertions.assertEquals(1, searchResult.getCardinality("normalFacet"));
+		Assertions.assertEquals(repeatCount, searchResult.getCardinality("id"), repeatCount * 0.03);
+
+		search = new Search(STAT_TEST_INDEX);
+		search.addCardinality(new Cardinality("title").setPrecision(10));
+		searchResult = zuliaWorkPool.search(search);
+		Assertions.assertEquals(4, searchResult.getCardinality("title"));
+
+		search = new Search(STAT_TEST_INDEX);
+		search.addCardinality(new Cardinality("madeUp"));
+		Search finalSearch = search;
+		Assertions.assertThrows(Exception.class, () -> zuliaWorkPool.search(finalSearch),
+				"Expecting: Cardinality field <madeUp> must be a facet or a sortable field");
+	}
+
+	@Test
+	@Order(5)
+	public void bucketTest() throws Exception {
+		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
+
+		Search search = new Search(STAT_TEST_INDEX);
+		search.addHistogram(new Histogram("rating", 1.0));
+		search.addRanges(new NumericRanges("rating").addRange("low", null, 1).addRange(1, 3).addRange(3, null));
+		SearchResult searchResult = zuliaWorkPool.search(search);
+
+		// a document with two values in a bucket is only counted once
+		List<Bucket> histogram = searchResult.getHistogram("rating");
+		Assertions.assertEquals(4, histogram.size());
+		Assertions.assertEquals(0, histogram.get(0).getFrom(), 0.001);
+		Assertions.assertEquals(2L * repeatCount, histogram.get(0).getCount());
+		Assertions.assertEquals(1, histogram.get(1).getFrom(), 0.001);
+		Assertions.assertEquals(repeatCount, histogram.get(1).getCount());
+		Assertions.assertEquals(2, histogram.get(2).getFrom(), 0.001);
+		Assertions.assertEquals(repeatCount, histogram.get(2).getCount());
+		Assertions.assertEquals(3, histogram.get(3).getFrom(), 0.001);
+		Assertions.assertEquals(4, histogram.get(3).getTo(), 0.001);
+		Assertions.assertEquals(2L * repeatCount, histogram.get(3).getCount());
+
+		List<Bucket> ranges = searchResult.getRanges("rating");
+		Assertions.assertEquals(3, ranges.size());
+		Assertions.assertEquals("low", ranges.get(0).getLabel());
+		Assertions.assertEquals(2L * repeatCount, ranges.get(0).getCount());
+		Assertions.assertEquals("1.0-3.0", ranges.get(1).getLabel());
+		Assertions.assertEquals(2L * repeatCount, ranges.get(1).getCount());
+		Assertions.assertEquals("3.0-*", ranges.get(2).getLabel());
+		Assertions.assertEquals(2L * repeatCount, ranges.get(2).getCount());
+
+		search = new Search(STAT_TEST_INDEX);
+		search.addHistogram(new Histogram("rating", 0.001).setMaxBuckets(100));
+		Search finalSearch = search;
+		Assertions.assertThrows(Exception.class, () -> zuliaWorkPool.search(finalSearch),
+				"Expecting: Histogram for field <rating> with interval <0.001> needs more than <100> buckets");
+	}
+
+	@Test
+	@Order(6)
 	public void testRangeFilters() throws Exception {
 		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
 		SearchResult searchResult;
@@ -299,7 +377,7 @@ public class StatTest {
 	}
 
 	@Test
-	@Order(5)
+	@Order(7)
 	public void reindex() throws Exception {
 
 		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
@@ -323,13 +401,13 @@ public class StatTest {
 	}
 
 	@Test
-	@Order(6)
+	@Order(8)
 	public void restart() throws Exception {
 		nodeExtension.restartNodes();
 	}
 
 	@Test
-	@Order(7)
+	@Order(9)
 	public void confirm() throws Exception {
 		ZuliaWorkPool zuliaWorkPool = nodeExtension.getClient();
 		Search search = new Search(STAT_TEST_INDEX);
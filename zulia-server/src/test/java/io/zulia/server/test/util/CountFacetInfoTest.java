@@ -0,0 +1,89 @@
+package io.zulia.server.test.util;
+
+import io.zulia.server.search.aggregation.facets.CountFacetInfo;
+import io.zulia.server.search.aggregation.facets.SegmentFacetCounts;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CountFacetInfoTest {
+
+	private static final int DENSE_TAXONOMY_SIZE = 1000;
+
+	// larger than any taxonomy counted in an array
+	private static final int SPARSE_TAXONOMY_SIZE = 1 << 23;
+
+	private static final int[] ORDINALS = new int[] { 5, 900, 5, 17, 900, 5 };
+
+	@Test
+	public void testDenseAndSparseCounts() {
+		for (int taxonomySize : new int[] { DENSE_TAXONOMY_SIZE, SPARSE_TAXONOMY_SIZE }) {
+			CountFacetInfo countFacetInfo = count(taxonomySize, ORDINALS);
+			assertCounts(countFacetInfo.toSegmentFacetCounts(), new int[] { 5, 17, 900 }, new int[] { 3, 1, 2 });
+			Assertions.assertEquals(3, countFacetInfo.getOrdinalCount(5));
+			Assertions.assertEquals(0, countFacetInfo.getOrdinalCount(6));
+		}
+	}
+
+	@Test
+	public void testMerge() {
+		for (int taxonomySize : new int[] { DENSE_TAXONOMY_SIZE, SPARSE_TAXONOMY_SIZE }) {
+			for (int otherTaxonomySize : new int[] { DENSE_TAXONOMY_SIZE, SPARSE_TAXONOMY_SIZE }) {
+				CountFacetInfo countFacetInfo = count(taxonomySize, ORDINALS);
+				countFacetInfo.merge(count(otherTaxonomySize, 17, 3, 900));
+				assertCounts(countFacetInfo.toSegmentFacetCounts(), new int[] { 3, 5, 17, 900 }, new int[] { 1, 3, 2, 3 });
+
+				// an ordinal only counted in the merged counts is merged again from the result
+				CountFacetInfo merged = count(taxonomySize);
+				merged.merge(countFacetInfo);
+				assertCounts(merged.toSegmentFacetCounts(), new int[] { 3, 5, 17, 900 }, new int[] { 1, 3, 2, 3 });
+			}
+		}
+	}
+
+	@Test
+	public void testMergeLargerOrdinal() {
+		// partials cached for a segment can come from a newer taxonomy than the array was sized for
+		CountFacetInfo countFacetInfo = count(DENSE_TAXONOMY_SIZE, ORDINALS);
+		countFacetInfo.merge(new SegmentFacetCounts(new int[] { 5, DENSE_TAXONOMY_SIZE + 10 }, new int[] { 1, 4 }));
+		assertCounts(countFacetInfo.toSegmentFacetCounts(), new int[] { 5, 17, 900, DENSE_TAXONOMY_SIZE + 10 }, new int[] { 4, 1, 2, 4 });
+	}
+
+	@Test
+	public void testCompact() {
+		CountFacetInfo countFacetInfo = count(DENSE_TAXONOMY_SIZE, ORDINALS);
+		long denseBytes = countFacetInfo.getBytes();
+		countFacetInfo.compact();
+		Assertions.assertTrue(countFacetInfo.getBytes() < denseBytes, "compact <" + countFacetInfo.getBytes() + "> dense <" + denseBytes + ">");
+		Assertions.assertEquals(2, countFacetInfo.getOrdinalCount(900));
+		assertCounts(countFacetInfo.toSegmentFacetCounts(), new int[] { 5, 17, 900 }, new int[] { 3, 1, 2 });
+
+		CountFacetInfo merged = count(DENSE_TAXONOMY_SIZE, 17);
+		merged.merge(countFacetInfo);
+		assertCounts(merged.toSegmentFacetCounts(), new int[] { 5, 17, 900 }, new int[] { 3, 2, 2 });
+	}
+
+	@Test
+	public void testEmpty() {
+		for (int taxonomySize : new int[] { DENSE_TAXONOMY_SIZE, SPARSE_TAXONOMY_SIZE }) {
+			CountFacetInfo countFacetInfo = count(taxonomySize);
+			assertCounts(countFacetInfo.toSegmentFacetCounts(), new int[0], new int[0]);
+		}
+	}
+
+	private static CountFacetInfo count(int taxonomySize, int... ordinals) {
+		CountFacetInfo countFacetInfo = new CountFacetInfo();
+		countFacetInfo.addFacet("category", 1);
+		countFacetInfo.computeSortedOrdinalArray();
+		countFacetInfo.initCounts(taxonomySize);
+		for (int ordinal : ordinals) {
+			countFacetInfo.handleOrdinal(ordinal);
+		}
+		return countFacetInfo;
+	}
+
+	private static void assertCounts(SegmentFacetCounts segmentFacetCounts, int[] expectedOrdinals, int[] expectedCounts) {
+		Assertions.assertArrayEquals(expectedOrdinals, segmentFacetCounts.ordinals());
+		Assertions.assertArrayEquals(expectedCounts, segmentFacetCounts.counts());
+	}
+
+}
@@ -0,0 +1,146 @@
+package io.zulia.server.test.util;
+
+import io.zulia.ZuliaFieldConstants;
+import io.zulia.client.config.ClientIndexConfig;
+import io.zulia.fields.FieldConfigBuilder;
+import io.zulia.message.ZuliaBase;
+import io.zulia.message.ZuliaBase.ResultDocument;
+import io.zulia.server.analysis.ZuliaPerFieldAnalyzer;
+import io.zulia.server.config.ServerIndexConfig;
+import io.zulia.server.index.DocumentConversionPool;
+import io.zulia.server.index.IndexedDocuments;
+import io.zulia.server.index.ShardWriteManager;
+import io.zulia.server.index.StoreDocument;
+import io.zulia.util.ZuliaUtil;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class DocumentConversionPoolTest {
+
+	@Test
+	public void testCallerRuns() throws Exception {
+		DocumentConversionPool documentConversionPool = new DocumentConversionPool(1);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			List<Future<Thread>> blocked = new ArrayList<>();
+			blocked.add(documentConversionPool.submit(() -> {
+				started.countDown();
+				release.await();
+				return Thread.currentThread();
+			}));
+			Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+			// the queue holds 16 conversions for each thread
+			for (int i = 0; i < 16; i++) {
+				blocked.add(documentConversionPool.submit(() -> {
+					release.await();
+					return Thread.currentThread();
+				}));
+			}
+			Assertions.assertEquals(1, documentConversionPool.getActiveCount());
+			Assertions.assertEquals(16, documentConversionPool.getQueueDepth());
+
+			// a full queue runs the conversion on the submitting thread before submit returns
+			Future<Thread> callerRuns = documentConversionPool.submit(Thread::currentThread);
+			Assertions.assertTrue(callerRuns.isDone());
+			Assertions.assertSame(Thread.currentThread(), callerRuns.get());
+
+			release.countDown();
+			for (Future<Thread> conversion : blocked) {
+				Assertions.assertNotSame(Thread.currentThread(), conversion.get(10, TimeUnit.SECONDS));
+			}
+			Assertions.assertEquals(0, documentConversionPool.getQueueDepth());
+		}
+		finally {
+			release.countDown();
+			documentConversionPool.shutdown();
+		}
+	}
+
+	@Test
+	public void testFailedConversionInWindow(@TempDir Path shardPath) throws Exception {
+		// two threads convert up to four documents ahead of the writer
+		DocumentConversionPool documentConversionPool = new DocumentConversionPool(2);
+		int failedPosition = 5;
+		try {
+			ClientIndexConfig indexConfig = new ClientIndexConfig();
+			indexConfig.setIndexName("conversionTest");
+			indexConfig.addFieldConfig(FieldConfigBuilder.createInt("rating").sort());
+
+			ServerIndexConfig serverIndexConfig = new ServerIndexConfig(indexConfig.getIndexSettings());
+			ShardWriteManager shardWriteManager = new ShardWriteManager(0, shardPath.resolve("index"), shardPath.resolve("taxo"),
+					shardPath.resolve("translog"), serverIndexConfig, new ZuliaPerFieldAnalyzer(serverIndexConfig), documentConversionPool);
+
+			List<StoreDocument> storeDocuments = new ArrayList<>();
+			for (int i = 0; i < 12; i++) {
+				Object rating = i == failedPosition ? "not a number" : i;
+				ResultDocument resultDocument = ResultDocument.newBuilder().setUniqueId(String.valueOf(i)).setIndexName("conversionTest")
+						.setDocument(ZuliaUtil.mongoDocumentToByteString(new Document("rating", rating))).build();
+				storeDocuments.add(new StoreDocument(String.valueOf(i), resultDocument, new byte[0]));
+			}
+
+			IndexedDocuments indexedDocuments = shardWriteManager.indexDocuments(storeDocuments, 100);
+			Assertions.assertTrue(indexedDocuments.sequenceNumber() >= 0);
+			for (int i = 0; i < storeDocuments.size(); i++) {
+				if (i == failedPosition) {
+					Assertions.assertNotNull(indexedDocuments.getFailure(i));
+					Assertions.assertTrue(indexedDocuments.getFailure(i).getMessage().contains("not a number"), indexedDocuments.getFailure(i).getMessage());
+				}
+				else {
+					Assertions.assertNull(indexedDocuments.getFailure(i), "Unexpected failure for <" + i + ">");
+				}
+			}
+			shardWriteManager.close();
+		}
+		finally {
+			documentConversionPool.shutdown();
+		}
+
+		// every document but the failed one is written, including the documents converted after it
+		Set<String> expectedIds = new TreeSet<>();
+		for (int i = 0; i < 12; i++) {
+			if (i != failedPosition) {
+				expectedIds.add(String.valueOf(i));
+			}
+		}
+		Assertions.assertEquals(expectedIds, getUniqueIds(shardPath.resolve("index")));
+	}
+
+	private static Set<String> getUniqueIds(Path indexPath) throws Exception {
+		Set<String> uniqueIds = new TreeSet<>();
+		try (DirectoryReader indexReader = DirectoryReader.open(FSDirectory.open(indexPath))) {
+			for (LeafReaderContext leaf : indexReader.leaves()) {
+				Bits liveDocs = leaf.reader().getLiveDocs();
+				BinaryDocValues idInfos = DocValues.getBinary(leaf.reader(), ZuliaFieldConstants.STORED_ID_FIELD);
+				for (int doc = 0; doc < leaf.reader().maxDoc(); doc++) {
+					if (liveDocs != null && !liveDocs.get(doc)) {
+						continue;
+					}
+					Assertions.assertTrue(idInfos.advanceExact(doc));
+					uniqueIds.add(ZuliaBase.IdInfo.parseFrom(BytesRef.deepCopyOf(idInfos.binaryValue()).bytes).getId());
+				}
+			}
+		}
+		return uniqueIds;
+	}
+
+}
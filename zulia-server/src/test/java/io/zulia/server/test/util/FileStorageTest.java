@@ -143,7 +143,7 @@ public class FileStorageTest {
 	private void indexDocument(Document document) throws Exception {
 		Store store = new Store(document.getString("id"), TEST_INDEX);
 		store.setResultDocument(new ResultDocBuilder().setDocument(document));
-		zuliaWorkPool.store(store);
+		zuliaWorkPool.store(store.setWaitForVisibility(true));
 	}
 
 	private String getRandomString() {
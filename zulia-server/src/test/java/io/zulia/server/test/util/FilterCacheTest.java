@@ -0,0 +1,105 @@
+package io.zulia.server.test.util;
+
+import com.google.protobuf.ByteString;
+import io.zulia.client.config.ClientIndexConfig;
+import io.zulia.fields.FieldConfigBuilder;
+import io.zulia.message.ZuliaBase;
+import io.zulia.message.ZuliaIndex.FieldConfig.FieldType;
+import io.zulia.message.ZuliaQuery;
+import io.zulia.server.analysis.ZuliaPerFieldAnalyzer;
+import io.zulia.server.config.ServerIndexConfig;
+import io.zulia.server.field.FieldTypeUtil;
+import io.zulia.server.index.DocumentContainer;
+import io.zulia.server.index.DocumentConversionPool;
+import io.zulia.server.index.ShardWriteManager;
+import io.zulia.server.index.ZuliaShard;
+import io.zulia.server.search.FacetCountCache;
+import io.zulia.server.search.IndexFilterCachingPolicy;
+import io.zulia.server.search.ShardQuery;
+import io.zulia.server.search.aggregation.stats.StatSketchBudget;
+import io.zulia.util.ZuliaUtil;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class FilterCacheTest {
+
+	private static final int MB = 1024 * 1024;
+
+	// the node wide filter cache only caches segments with at least 10,000 documents
+	private static final int DOCS = 12000;
+
+	private static final int REPEATS = 5;
+
+	@Test
+	public void testRepeatedFilterHits(@TempDir Path shardPath) throws Exception {
+		ZuliaBase.CacheStats filterCacheStats = runRepeatedFilter(shardPath, false);
+		Assertions.assertTrue(filterCacheStats.getEstimatedSize() > 0, "Expected a cached filter in <" + filterCacheStats + ">");
+		Assertions.assertTrue(filterCacheStats.getHitCount() > 0, "Expected filter cache hits in <" + filterCacheStats + ">");
+	}
+
+	@Test
+	public void testDisabledFilterCache(@TempDir Path shardPath) throws Exception {
+		ZuliaBase.CacheStats filterCacheStats = runRepeatedFilter(shardPath, true);
+		Assertions.assertEquals(0, filterCacheStats.getEstimatedSize());
+		Assertions.assertEquals(0, filterCacheStats.getHitCount());
+		Assertions.assertEquals(0, filterCacheStats.getRamBytesUsed());
+	}
+
+	private static ZuliaBase.CacheStats runRepeatedFilter(Path shardPath, boolean disableFilterCache) throws Exception {
+		DocumentConversionPool documentConversionPool = new DocumentConversionPool(1);
+		ExecutorService searchPool = Executors.newFixedThreadPool(1);
+		try {
+			ClientIndexConfig indexConfig = new ClientIndexConfig();
+			indexConfig.setIndexName("filterCacheTest");
+			indexConfig.addFieldConfig(FieldConfigBuilder.createInt("rating").index());
+			indexConfig.setDisableFilterCache(disableFilterCache);
+			indexConfig.setFilterCacheMinFrequency(2);
+
+			ServerIndexConfig serverIndexConfig = new ServerIndexConfig(indexConfig.getIndexSettings());
+			ShardWriteManager shardWriteManager = new ShardWriteManager(0, shardPath.resolve("index"), shardPath.resolve("taxo"),
+					shardPath.resolve("translog"), serverIndexConfig, new ZuliaPerFieldAnalyzer(serverIndexConfig), documentConversionPool);
+			ZuliaShard shard = new ZuliaShard(shardWriteManager, searchPool, 1, new LRUQueryCache(100, MB), new IndexFilterCachingPolicy(serverIndexConfig),
+					new FacetCountCache(MB), new StatSketchBudget(MB), MB, true);
+
+			for (int i = 0; i < DOCS; i++) {
+				Document document = new Document("rating", i % 100);
+				shard.index(String.valueOf(i), 100, new DocumentContainer(ZuliaUtil.mongoDocumentToByteString(document)),
+						new DocumentContainer(ByteString.EMPTY));
+			}
+			shard.optimize(1);
+
+			// a costly filter is cached once it is used as often as the min frequency of the index, the shard query cache is skipped so every query runs
+			Query ratingFilter = IntPoint.newRangeQuery(FieldTypeUtil.getIndexField("rating", FieldType.NUMERIC_INT), 10, 19);
+			Query query = new BooleanQuery.Builder().add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST).add(ratingFilter, BooleanClause.Occur.FILTER)
+					.build();
+			for (int i = 0; i < REPEATS; i++) {
+				ShardQuery shardQuery = new ShardQuery(query, Collections.emptyMap(), 10, Collections.emptyMap(), ZuliaQuery.FacetRequest.getDefaultInstance(),
+						null, null, ZuliaQuery.FetchType.NONE, Collections.emptyList(), Collections.emptyList(), Collections.emptyList(),
+						Collections.emptyList(), false, null);
+				Assertions.assertEquals(DOCS / 10, shard.queryShard(shardQuery).getTotalHits());
+			}
+
+			ZuliaBase.CacheStats filterCacheStats = shard.getShardCacheStats().getFilterCache();
+			shard.close();
+			return filterCacheStats;
+		}
+		finally {
+			searchPool.shutdown();
+			documentConversionPool.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,108 @@
+package io.zulia.server.test.util;
+
+import io.zulia.server.search.aggregation.ordinal.OrdinalBuffer;
+import io.zulia.server.search.aggregation.ordinal.OrdinalConsumer;
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class OrdinalBufferTest {
+
+	private static final int[] DIM_ORDINALS = new int[] { 0, 3, 200 };
+	private static final int[][] ORDINALS_FOR_DIMS = new int[][] { { 1, 2, 127 }, { 128, 16384, 16385 }, { 5, Integer.MAX_VALUE } };
+
+	@Test
+	public void testCompactRoundTrip() {
+		BytesRef encoded = OrdinalBuffer.encode(DIM_ORDINALS, ORDINALS_FOR_DIMS);
+		Assertions.assertEquals(OrdinalBuffer.COMPACT_VERSION, encoded.bytes[encoded.offset]);
+
+		checkDecode(new OrdinalBuffer(encoded));
+	}
+
+	@Test
+	public void testLegacyDecode() {
+		// buffers written before the compact format are still read
+		BytesRef legacy = encodeLegacy(DIM_ORDINALS, ORDINALS_FOR_DIMS);
+		Assertions.assertNotEquals(OrdinalBuffer.COMPACT_VERSION, legacy.bytes[legacy.offset]);
+
+		checkDecode(new OrdinalBuffer(legacy));
+	}
+
+	@Test
+	public void testCompactSmallerThanLegacy() {
+		BytesRef encoded = OrdinalBuffer.encode(DIM_ORDINALS, ORDINALS_FOR_DIMS);
+		BytesRef legacy = encodeLegacy(DIM_ORDINALS, ORDINALS_FOR_DIMS);
+		Assertions.assertTrue(encoded.length < legacy.length, "compact <" + encoded.length + "> legacy <" + legacy.length + ">");
+	}
+
+	@Test
+	public void testEmpty() {
+		BytesRef encoded = OrdinalBuffer.encode(new int[0], new int[0][]);
+		Assertions.assertEquals(0, encoded.length);
+		Assertions.assertEquals(List.of(), decode(new OrdinalBuffer(encoded), 0, 3));
+	}
+
+	@Test
+	public void testResetWithOffset() {
+		// doc values return slices of a shared block so the encoded bytes do not start at zero
+		OrdinalBuffer ordinalBuffer = new OrdinalBuffer();
+		for (BytesRef bytesRef : List.of(OrdinalBuffer.encode(DIM_ORDINALS, ORDINALS_FOR_DIMS), encodeLegacy(DIM_ORDINALS, ORDINALS_FOR_DIMS))) {
+			byte[] padded = new byte[bytesRef.length + 7];
+			System.arraycopy(bytesRef.bytes, bytesRef.offset, padded, 3, bytesRef.length);
+			ordinalBuffer.reset(new BytesRef(padded, 3, bytesRef.length));
+			checkDecode(ordinalBuffer);
+		}
+	}
+
+	private static void checkDecode(OrdinalBuffer ordinalBuffer) {
+		Assertions.assertEquals(List.of(1, 2, 127, 128, 16384, 16385, 5, Integer.MAX_VALUE), decode(ordinalBuffer, 0, 3, 200));
+
+		// dimensions that are not requested are skipped
+		Assertions.assertEquals(List.of(128, 16384, 16385), decode(ordinalBuffer, 3));
+		Assertions.assertEquals(List.of(5, Integer.MAX_VALUE), decode(ordinalBuffer, 200));
+		Assertions.assertEquals(List.of(1, 2, 127, 5, Integer.MAX_VALUE), decode(ordinalBuffer, 0, 200));
+
+		// dimensions without ordinals for the document
+		Assertions.assertEquals(List.of(), decode(ordinalBuffer, 1, 2, 201));
+		Assertions.assertEquals(List.of(128, 16384, 16385), decode(ordinalBuffer, 1, 3, 199, 201));
+	}
+
+	private static List<Integer> decode(OrdinalBuffer ordinalBuffer, int... requestedDimOrdinals) {
+		List<Integer> ordinals = new ArrayList<>();
+		ordinalBuffer.handleFacets(new OrdinalConsumer() {
+
+			@Override
+			public void handleOrdinal(int ordinal) {
+				ordinals.add(ordinal);
+			}
+
+			@Override
+			public int[] requestedDimensionOrdinals() {
+				return requestedDimOrdinals;
+			}
+		});
+		return ordinals;
+	}
+
+	private static BytesRef encodeLegacy(int[] dimOrdinals, int[][] ordinalsForDims) {
+		int ints = 0;
+		for (int[] ordinals : ordinalsForDims) {
+			ints += 2 + ordinals.length;
+		}
+
+		ByteBuffer byteBuffer = ByteBuffer.allocate(ints * Integer.BYTES);
+		for (int i = 0; i < dimOrdinals.length; i++) {
+			byteBuffer.putInt(dimOrdinals[i]);
+			byteBuffer.putInt(ordinalsForDims[i].length);
+			for (int ordinal : ordinalsForDims[i]) {
+				byteBuffer.putInt(ordinal);
+			}
+		}
+		return new BytesRef(byteBuffer.array());
+	}
+
+}
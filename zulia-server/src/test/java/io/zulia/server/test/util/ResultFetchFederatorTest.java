@@ -0,0 +1,241 @@
+package io.zulia.server.test.util;
+
+import io.grpc.Deadline;
+import io.zulia.message.ZuliaBase.MasterSlaveSettings;
+import io.zulia.message.ZuliaBase.Node;
+import io.zulia.message.ZuliaBase.ResultDocument;
+import io.zulia.message.ZuliaIndex.IndexShardMapping;
+import io.zulia.message.ZuliaIndex.ShardMapping;
+import io.zulia.message.ZuliaQuery.FetchType;
+import io.zulia.message.ZuliaQuery.ScoredResult;
+import io.zulia.message.ZuliaServiceOuterClass.BatchFetchRequest;
+import io.zulia.message.ZuliaServiceOuterClass.BatchFetchResponse;
+import io.zulia.message.ZuliaServiceOuterClass.FetchRequest;
+import io.zulia.message.ZuliaServiceOuterClass.FetchResponse;
+import io.zulia.server.index.MasterSlaveSelector;
+import io.zulia.server.index.federator.ResultFetchFederator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class ResultFetchFederatorTest {
+
+	private static final String INDEX_NAME = "fetchTest";
+
+	private static final int NUMBER_OF_SHARDS = 6;
+
+	private static final Node LOCAL_NODE = Node.newBuilder().setServerAddress("localhost").setServicePort(32191).build();
+	private static final Node OTHER_NODE = Node.newBuilder().setServerAddress("localhost").setServicePort(32192).build();
+
+	/**
+	 * Answers fetches from the documents it was given instead of an index, a node can be made to respond slowly
+	 */
+	private static class TestFetchFederator extends ResultFetchFederator {
+
+		private final Set<String> storedIds;
+		private final Map<Node, List<BatchFetchRequest>> batches;
+		private volatile long delayMS;
+		private volatile Node slowNode;
+
+		public TestFetchFederator(Set<String> storedIds, ExecutorService pool) {
+			super(LOCAL_NODE, List.of(OTHER_NODE), MasterSlaveSettings.MASTER_ONLY, List.of(getIndexShardMapping()), pool, null);
+			this.storedIds = storedIds;
+			this.batches = new ConcurrentHashMap<>();
+		}
+
+		public void setSlowNode(Node slowNode, long delayMS) {
+			this.slowNode = slowNode;
+			this.delayMS = delayMS;
+		}
+
+		@Override
+		protected BatchFetchResponse processExternal(Node node, BatchFetchRequest request) throws Exception {
+			return fetch(node, request);
+		}
+
+		@Override
+		protected BatchFetchResponse processInternal(Node node, BatchFetchRequest request) throws Exception {
+			return fetch(node, request);
+		}
+
+		private BatchFetchResponse fetch(Node node, BatchFetchRequest request) throws Exception {
+			batches.computeIfAbsent(node, k -> new ArrayList<>()).add(request);
+			if (node.equals(slowNode)) {
+				Thread.sleep(delayMS);
+			}
+
+			BatchFetchResponse.Builder batchFetchResponse = BatchFetchResponse.newBuilder();
+			for (FetchRequest fetchRequest : request.getFetchRequestList()) {
+				FetchResponse.Builder fetchResponse = FetchResponse.newBuilder();
+				if (storedIds.contains(fetchRequest.getUniqueId())) {
+					fetchResponse.setResultDocument(ResultDocument.newBuilder().setUniqueId(fetchRequest.getUniqueId()).setIndexName(INDEX_NAME));
+				}
+				batchFetchResponse.addFetchResponse(fetchResponse);
+			}
+			return batchFetchResponse.build();
+		}
+
+		public Map<Node, List<BatchFetchRequest>> getBatches() {
+			return batches;
+		}
+	}
+
+	@Test
+	public void testBatchByNode() throws Exception {
+		ExecutorService pool = Executors.newCachedThreadPool();
+		try {
+			List<ScoredResult> results = getResults(60);
+			Set<String> storedIds = new HashSet<>();
+			for (ScoredResult scoredResult : results) {
+				storedIds.add(scoredResult.getUniqueId());
+			}
+
+			TestFetchFederator fetchFederator = new TestFetchFederator(storedIds, pool);
+			List<ScoredResult> fetched = fetchFederator.fetchDocuments(results, getFetchRequest(), null);
+			Assertions.assertFalse(fetchFederator.isPartialResults());
+			assertDocumentsInOrder(results, fetched, Set.of());
+
+			// one batch for each node with the results of all of the shards the node owns
+			MasterSlaveSelector masterSlaveSelector = new MasterSlaveSelector(MasterSlaveSettings.MASTER_ONLY, List.of(LOCAL_NODE, OTHER_NODE),
+					getIndexShardMapping());
+			Assertions.assertEquals(Set.of(LOCAL_NODE, OTHER_NODE), fetchFederator.getBatches().keySet());
+			for (Map.Entry<Node, List<BatchFetchRequest>> nodeBatches : fetchFederator.getBatches().entrySet()) {
+				Assertions.assertEquals(1, nodeBatches.getValue().size());
+
+				Set<Integer> shards = new HashSet<>();
+				List<String> expectedIds = new ArrayList<>();
+				for (ScoredResult scoredResult : results) {
+					if (masterSlaveSelector.getNodeForUniqueId(scoredResult.getUniqueId()).equals(nodeBatches.getKey())) {
+						expectedIds.add(scoredResult.getUniqueId());
+						shards.add(MasterSlaveSelector.getShardForUniqueId(scoredResult.getUniqueId(), NUMBER_OF_SHARDS));
+					}
+				}
+				Assertions.assertEquals(NUMBER_OF_SHARDS / 2, shards.size());
+
+				BatchFetchRequest batchFetchRequest = nodeBatches.getValue().getFirst();
+				Assertions.assertEquals(expectedIds, batchFetchRequest.getFetchRequestList().stream().map(FetchRequest::getUniqueId).toList());
+				for (FetchRequest fetchRequest : batchFetchRequest.getFetchRequestList()) {
+					Assertions.assertEquals(INDEX_NAME, fetchRequest.getIndexName());
+					Assertions.assertEquals(FetchType.FULL, fetchRequest.getResultFetchType());
+				}
+			}
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testDeletedBeforeFetch() throws Exception {
+		ExecutorService pool = Executors.newCachedThreadPool();
+		try {
+			List<ScoredResult> results = getResults(20);
+			Set<String> deletedIds = Set.of(results.get(0).getUniqueId(), results.get(7).getUniqueId(), results.get(19).getUniqueId());
+			Set<String> storedIds = new HashSet<>();
+			for (ScoredResult scoredResult : results) {
+				if (!deletedIds.contains(scoredResult.getUniqueId())) {
+					storedIds.add(scoredResult.getUniqueId());
+				}
+			}
+
+			// a document deleted after the query keeps its place in the results without a document and does not make the results partial
+			TestFetchFederator fetchFederator = new TestFetchFederator(storedIds, pool);
+			List<ScoredResult> fetched = fetchFederator.fetchDocuments(results, getFetchRequest(), null);
+			Assertions.assertFalse(fetchFederator.isPartialResults());
+			assertDocumentsInOrder(results, fetched, deletedIds);
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testFetchTimeout() throws Exception {
+		ExecutorService pool = Executors.newCachedThreadPool();
+		try {
+			List<ScoredResult> results = getResults(40);
+			Set<String> storedIds = new HashSet<>();
+			for (ScoredResult scoredResult : results) {
+				storedIds.add(scoredResult.getUniqueId());
+			}
+
+			MasterSlaveSelector masterSlaveSelector = new MasterSlaveSelector(MasterSlaveSettings.MASTER_ONLY, List.of(LOCAL_NODE, OTHER_NODE),
+					getIndexShardMapping());
+			Set<String> slowIds = new HashSet<>();
+			for (ScoredResult scoredResult : results) {
+				if (masterSlaveSelector.getNodeForUniqueId(scoredResult.getUniqueId()).equals(OTHER_NODE)) {
+					slowIds.add(scoredResult.getUniqueId());
+				}
+			}
+			Assertions.assertFalse(slowIds.isEmpty());
+
+			// the other node answers well after the deadline and the grace period, its results are returned without documents
+			TestFetchFederator fetchFederator = new TestFetchFederator(storedIds, pool);
+			fetchFederator.setSlowNode(OTHER_NODE, 10000);
+			long start = System.currentTimeMillis();
+			List<ScoredResult> fetched = fetchFederator.fetchDocuments(results, getFetchRequest(), Deadline.after(100, TimeUnit.MILLISECONDS));
+			Assertions.assertTrue(System.currentTimeMillis() - start < 5000, "Fetch waited for the slow node");
+			Assertions.assertTrue(fetchFederator.isPartialResults());
+			assertDocumentsInOrder(results, fetched, slowIds);
+
+			// a fetch that finishes in time is complete again
+			fetchFederator.setSlowNode(null, 0);
+			fetched = fetchFederator.fetchDocuments(results, getFetchRequest(), Deadline.after(10, TimeUnit.SECONDS));
+			Assertions.assertFalse(fetchFederator.isPartialResults());
+			assertDocumentsInOrder(results, fetched, Set.of());
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static void assertDocumentsInOrder(List<ScoredResult> results, List<ScoredResult> fetched, Set<String> missingIds) {
+		Assertions.assertEquals(results.size(), fetched.size());
+		for (int i = 0; i < results.size(); i++) {
+			ScoredResult fetchedResult = fetched.get(i);
+			Assertions.assertEquals(results.get(i), fetchedResult.toBuilder().clearResultDocument().build());
+			if (missingIds.contains(fetchedResult.getUniqueId())) {
+				Assertions.assertFalse(fetchedResult.hasResultDocument(), "Unexpected document for <" + fetchedResult.getUniqueId() + ">");
+			}
+			else {
+				Assertions.assertEquals(fetchedResult.getUniqueId(), fetchedResult.getResultDocument().getUniqueId());
+			}
+		}
+	}
+
+	private static List<ScoredResult> getResults(int count) {
+		List<ScoredResult> results = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			String uniqueId = "id" + i;
+			results.add(ScoredResult.newBuilder().setUniqueId(uniqueId).setIndexName(INDEX_NAME)
+					.setShard(MasterSlaveSelector.getShardForUniqueId(uniqueId, NUMBER_OF_SHARDS)).setResultIndex(i).setScore(count - i).build());
+		}
+		return results;
+	}
+
+	private static FetchRequest getFetchRequest() {
+		return FetchRequest.newBuilder().setResultFetchType(FetchType.FULL).setAssociatedFetchType(FetchType.NONE)
+				.setMasterSlaveSettings(MasterSlaveSettings.MASTER_ONLY).build();
+	}
+
+	/**
+	 * @return a mapping with the even shards on the local node and the odd shards on the other node
+	 */
+	private static IndexShardMapping getIndexShardMapping() {
+		IndexShardMapping.Builder indexShardMapping = IndexShardMapping.newBuilder().setIndexName(INDEX_NAME).setNumberOfShards(NUMBER_OF_SHARDS);
+		for (int shard = 0; shard < NUMBER_OF_SHARDS; shard++) {
+			indexShardMapping.addShardMapping(ShardMapping.newBuilder().setShardNumber(shard).setPrimaryNode(shard % 2 == 0 ? LOCAL_NODE : OTHER_NODE));
+		}
+		return indexShardMapping.build();
+	}
+
+}
@@ -0,0 +1,130 @@
+package io.zulia.server.test.util;
+
+import com.google.protobuf.ByteString;
+import io.zulia.DefaultAnalyzers;
+import io.zulia.client.config.ClientIndexConfig;
+import io.zulia.fields.FieldConfigBuilder;
+import io.zulia.server.analysis.ZuliaPerFieldAnalyzer;
+import io.zulia.server.config.ServerIndexConfig;
+import io.zulia.server.index.DocumentContainer;
+import io.zulia.server.index.DocumentConversionPool;
+import io.zulia.server.index.IndexResult;
+import io.zulia.server.index.ShardWriteManager;
+import io.zulia.server.index.ZuliaShard;
+import io.zulia.server.search.FacetCountCache;
+import io.zulia.server.search.IndexFilterCachingPolicy;
+import io.zulia.server.search.aggregation.stats.StatSketchBudget;
+import io.zulia.util.ZuliaUtil;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.store.FSDirectory;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ShardCommitTest {
+
+	private static final int MB = 1024 * 1024;
+
+	@Test
+	public void testWaitForCommit(@TempDir Path shardPath) throws Exception {
+		DocumentConversionPool documentConversionPool = new DocumentConversionPool(1);
+		ExecutorService searchPool = Executors.newFixedThreadPool(1);
+		try {
+			ShardWriteManager shardWriteManager = openShardWriteManager(shardPath, documentConversionPool);
+			ZuliaShard shard = openShard(shardWriteManager, searchPool);
+
+			IndexResult first = shard.index("1", 100, document("first"), new DocumentContainer(ByteString.EMPTY));
+			// nothing reaches a commit threshold so only waiting for the commit makes the store durable
+			shard.tryCommit();
+			Assertions.assertTrue(shardWriteManager.getCommittedSequenceNumber() < first.sequenceNumber());
+
+			shard.waitForCommit(first.sequenceNumber());
+			long committedSequenceNumber = shardWriteManager.getCommittedSequenceNumber();
+			Assertions.assertTrue(committedSequenceNumber >= first.sequenceNumber(),
+					"Committed <" + committedSequenceNumber + "> store <" + first.sequenceNumber() + ">");
+			assertCommittedDocs(shardPath, 1);
+
+			// a store already covered by a commit does not commit again
+			shard.waitForCommit(first.sequenceNumber());
+			Assertions.assertEquals(committedSequenceNumber, shardWriteManager.getCommittedSequenceNumber());
+
+			IndexResult second = shard.index("2", 100, document("second"), new DocumentContainer(ByteString.EMPTY));
+			Assertions.assertTrue(second.sequenceNumber() > committedSequenceNumber);
+			shard.waitForCommit(second.sequenceNumber());
+			Assertions.assertTrue(shardWriteManager.getCommittedSequenceNumber() >= second.sequenceNumber());
+			assertCommittedDocs(shardPath, 2);
+
+			shard.close();
+		}
+		finally {
+			searchPool.shutdown();
+			documentConversionPool.shutdown();
+		}
+	}
+
+	@Test
+	public void testByteThresholdCommit(@TempDir Path shardPath) throws Exception {
+		DocumentConversionPool documentConversionPool = new DocumentConversionPool(1);
+		ExecutorService searchPool = Executors.newFixedThreadPool(1);
+		try {
+			ShardWriteManager shardWriteManager = openShardWriteManager(shardPath, documentConversionPool);
+			ZuliaShard shard = openShard(shardWriteManager, searchPool);
+
+			IndexResult small = shard.index("1", 100, document("small"), new DocumentContainer(ByteString.EMPTY));
+			Assertions.assertFalse(shardWriteManager.needsCommit());
+			shard.tryCommit();
+			Assertions.assertTrue(shardWriteManager.getCommittedSequenceNumber() < small.sequenceNumber());
+
+			// more stored bytes than the one MB threshold starts a commit on the next check of the commit timer
+			IndexResult large = shard.index("2", 100, document("x".repeat(2 * MB)), new DocumentContainer(ByteString.EMPTY));
+			Assertions.assertTrue(shardWriteManager.needsCommit());
+			shard.tryCommit();
+			Assertions.assertTrue(shardWriteManager.getCommittedSequenceNumber() >= large.sequenceNumber());
+			Assertions.assertFalse(shardWriteManager.needsCommit());
+			assertCommittedDocs(shardPath, 2);
+
+			shard.close();
+		}
+		finally {
+			searchPool.shutdown();
+			documentConversionPool.shutdown();
+		}
+	}
+
+	private static void assertCommittedDocs(Path shardPath, int expectedDocs) throws Exception {
+		try (DirectoryReader indexReader = DirectoryReader.open(FSDirectory.open(shardPath.resolve("index")))) {
+			Assertions.assertEquals(expectedDocs, indexReader.numDocs());
+		}
+	}
+
+	private static DocumentContainer document(String title) {
+		return new DocumentContainer(ZuliaUtil.mongoDocumentToByteString(new Document("title", title)));
+	}
+
+	private static ZuliaShard openShard(ShardWriteManager shardWriteManager, ExecutorService searchPool) throws Exception {
+		return new ZuliaShard(shardWriteManager, searchPool, 1, new LRUQueryCache(100, MB), new IndexFilterCachingPolicy(shardWriteManager.getIndexConfig()),
+				new FacetCountCache(MB), new StatSketchBudget(MB), MB, true);
+	}
+
+	private static ShardWriteManager openShardWriteManager(Path shardPath, DocumentConversionPool documentConversionPool) throws Exception {
+		ClientIndexConfig indexConfig = new ClientIndexConfig();
+		indexConfig.setIndexName("commitTest");
+		indexConfig.addFieldConfig(FieldConfigBuilder.createString("title").indexAs(DefaultAnalyzers.STANDARD));
+		// only the byte threshold or an explicit wait commits the shard
+		indexConfig.setShardCommitInterval(1000);
+		indexConfig.setShardCommitMB(1);
+		indexConfig.setMaxTimeWithoutCommit(3600);
+		indexConfig.setIdleTimeWithoutCommit(0);
+
+		ServerIndexConfig serverIndexConfig = new ServerIndexConfig(indexConfig.getIndexSettings());
+		return new ShardWriteManager(0, shardPath.resolve("index"), shardPath.resolve("taxo"), shardPath.resolve("translog"), serverIndexConfig,
+				new ZuliaPerFieldAnalyzer(serverIndexConfig), documentConversionPool);
+	}
+
+}
@@ -0,0 +1,221 @@
+package io.zulia.server.test.util;
+
+import com.google.protobuf.ByteString;
+import io.zulia.client.config.ClientIndexConfig;
+import io.zulia.fields.FieldConfigBuilder;
+import io.zulia.message.ZuliaBase;
+import io.zulia.message.ZuliaQuery;
+import io.zulia.message.ZuliaServiceOuterClass.QueryRequest;
+import io.zulia.server.analysis.ZuliaPerFieldAnalyzer;
+import io.zulia.server.config.ServerIndexConfig;
+import io.zulia.server.index.DocumentContainer;
+import io.zulia.server.index.DocumentConversionPool;
+import io.zulia.server.index.ShardWriteManager;
+import io.zulia.server.index.ZuliaShard;
+import io.zulia.server.search.FacetCountCache;
+import io.zulia.server.search.IndexFilterCachingPolicy;
+import io.zulia.server.search.QueryCacheKey;
+import io.zulia.server.search.SegmentKey;
+import io.zulia.server.search.SegmentQueryResult;
+import io.zulia.server.search.ShardQuery;
+import io.zulia.server.search.ShardQueryCache;
+import io.zulia.server.search.ShardQueryCacheEntry;
+import io.zulia.server.search.aggregation.stats.StatSketchBudget;
+import io.zulia.util.ZuliaUtil;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ShardQueryCacheTest {
+
+	private static final int MB = 1024 * 1024;
+
+	private static final int PAGE_SIZE = 10;
+
+	// few distinct ratings so most of the order comes from the doc id tie break
+	private static final int RATINGS = 3;
+
+	@Test
+	public void testSegmentReuse(@TempDir Path shardPath) throws Exception {
+		DocumentConversionPool documentConversionPool = new DocumentConversionPool(1);
+		ExecutorService searchPool = Executors.newFixedThreadPool(2);
+		try {
+			ShardWriteManager shardWriteManager = openShardWriteManager(shardPath, documentConversionPool);
+			ZuliaShard shard = new ZuliaShard(shardWriteManager, searchPool, 2, new LRUQueryCache(100, MB),
+					new IndexFilterCachingPolicy(shardWriteManager.getIndexConfig()), new FacetCountCache(MB), new StatSketchBudget(MB), MB, true);
+
+			// two segments
+			store(shard, 0, 20);
+			shard.refresh();
+			store(shard, 20, 40);
+			shard.refresh();
+
+			ZuliaQuery.ShardQueryResponse firstPage = assertSameAsUncached(shard, null, 0, 2);
+			Assertions.assertEquals(40, firstPage.getTotalHits());
+			ZuliaQuery.ScoredResult lastOfFirstPage = firstPage.getScoredResult(PAGE_SIZE - 1);
+			assertSameAsUncached(shard, lastOfFirstPage, 0, 2);
+
+			// a third segment only has to be searched for both pages, the pages are keyed by the last result so the second page is reused with the after
+			// doc id that was global when it was cached
+			store(shard, 40, 60);
+			shard.refresh();
+
+			firstPage = assertSameAsUncached(shard, null, 2, 1);
+			Assertions.assertEquals(60, firstPage.getTotalHits());
+			ZuliaQuery.ShardQueryResponse secondPage = assertSameAsUncached(shard, lastOfFirstPage, 2, 1);
+			Assertions.assertEquals(60, secondPage.getTotalHits());
+			Assertions.assertEquals(PAGE_SIZE, secondPage.getScoredResultCount());
+			Assertions.assertTrue(secondPage.getScoredResult(0).getLuceneShardId() > lastOfFirstPage.getLuceneShardId());
+
+			// the same reader returns the whole cached response without searching any segment
+			ZuliaBase.CacheStats before = shard.getShardCacheStats().getSegmentCache();
+			Assertions.assertTrue(shard.queryShard(shardQuery(null, true)).getCached());
+			assertSegmentStats(shard, before, 0, 0);
+
+			// the merged segment is new to every entry and the results of the merged away segments are dropped
+			shard.optimize(1);
+			assertSameAsUncached(shard, null, 0, 1);
+			assertSameAsUncached(shard, lastOfFirstPage, 0, 1);
+
+			shard.close();
+		}
+		finally {
+			searchPool.shutdown();
+			documentConversionPool.shutdown();
+		}
+	}
+
+	@Test
+	public void testRetainSegments() throws Exception {
+		try (ByteBuffersDirectory directory = new ByteBuffersDirectory(); IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig())) {
+			for (int i = 0; i < 3; i++) {
+				org.apache.lucene.document.Document document = new org.apache.lucene.document.Document();
+				document.add(new StringField("id", String.valueOf(i), Field.Store.NO));
+				indexWriter.addDocument(document);
+				indexWriter.commit();
+			}
+
+			ShardQueryCache shardQueryCache = new ShardQueryCache(10, MB);
+			QueryCacheKey queryCacheKey = new QueryCacheKey(QueryRequest.newBuilder().setAmount(PAGE_SIZE).build());
+			ShardQueryCacheEntry cacheEntry = shardQueryCache.getOrCreate(queryCacheKey);
+
+			List<SegmentKey> oldSegments = new ArrayList<>();
+			try (DirectoryReader indexReader = DirectoryReader.open(directory)) {
+				for (LeafReaderContext leaf : indexReader.leaves()) {
+					SegmentKey segmentKey = SegmentKey.of(leaf);
+					oldSegments.add(segmentKey);
+					TopDocs topDocs = new TopDocs(new TotalHits(1, TotalHits.Relation.EQUAL_TO), new ScoreDoc[] { new ScoreDoc(0, 1) });
+					cacheEntry.putSegmentResult(segmentKey, new SegmentQueryResult(topDocs, null));
+				}
+			}
+			Assertions.assertEquals(3, oldSegments.size());
+			shardQueryCache.updateWeight(queryCacheKey, cacheEntry, false);
+			long oldBytes = cacheEntry.getBytes();
+
+			indexWriter.forceMerge(1);
+			indexWriter.commit();
+
+			Set<SegmentKey> currentSegments = new HashSet<>();
+			try (DirectoryReader indexReader = DirectoryReader.open(directory)) {
+				for (LeafReaderContext leaf : indexReader.leaves()) {
+					currentSegments.add(SegmentKey.of(leaf));
+				}
+			}
+			shardQueryCache.retainSegments(currentSegments);
+
+			for (SegmentKey oldSegment : oldSegments) {
+				Assertions.assertNull(cacheEntry.getSegmentResult(oldSegment));
+			}
+			Assertions.assertTrue(cacheEntry.getBytes() < oldBytes, "Retained <" + cacheEntry.getBytes() + "> before <" + oldBytes + ">");
+			Assertions.assertSame(cacheEntry, shardQueryCache.getOrCreate(queryCacheKey));
+		}
+	}
+
+	/**
+	 * Runs the query once with the cache and once without and checks the responses are identical and the cached run searched only the expected segments
+	 */
+	private static ZuliaQuery.ShardQueryResponse assertSameAsUncached(ZuliaShard shard, ZuliaQuery.ScoredResult lastResult, int expectedSegmentHits,
+			int expectedSegmentMisses) throws Exception {
+		ZuliaBase.CacheStats before = shard.getShardCacheStats().getSegmentCache();
+		ZuliaQuery.ShardQueryResponse cached = shard.queryShard(shardQuery(lastResult, true));
+		assertSegmentStats(shard, before, expectedSegmentHits, expectedSegmentMisses);
+		Assertions.assertFalse(cached.getCached());
+
+		ZuliaQuery.ShardQueryResponse uncached = shard.queryShard(shardQuery(lastResult, false));
+		Assertions.assertEquals(uncached, cached);
+		Assertions.assertEquals(uncached.toByteString(), cached.toByteString());
+		Assertions.assertEquals(PAGE_SIZE, cached.getScoredResultCount());
+		Assertions.assertTrue(cached.hasNext());
+		return cached;
+	}
+
+	private static void assertSegmentStats(ZuliaShard shard, ZuliaBase.CacheStats before, int expectedSegmentHits, int expectedSegmentMisses) {
+		ZuliaBase.CacheStats after = shard.getShardCacheStats().getSegmentCache();
+		Assertions.assertEquals(expectedSegmentHits, after.getHitCount() - before.getHitCount());
+		Assertions.assertEquals(expectedSegmentMisses, after.getMissCount() - before.getMissCount());
+	}
+
+	private static ShardQuery shardQuery(ZuliaQuery.ScoredResult lastResult, boolean cache) {
+		ZuliaQuery.SortRequest sortRequest = ZuliaQuery.SortRequest.newBuilder()
+				.addFieldSort(ZuliaQuery.FieldSort.newBuilder().setSortField("rating").setDirection(ZuliaQuery.FieldSort.Direction.ASCENDING)).build();
+		QueryRequest.Builder queryRequest = QueryRequest.newBuilder().setAmount(PAGE_SIZE).setSortRequest(sortRequest)
+				.setResultFetchType(ZuliaQuery.FetchType.NONE);
+
+		Map<Integer, FieldDoc> shardToAfter = Collections.emptyMap();
+		if (lastResult != null) {
+			queryRequest.setLastResult(ZuliaQuery.LastResult.newBuilder()
+					.addLastIndexResult(ZuliaQuery.LastIndexResult.newBuilder().setIndexName("segmentCacheTest").addLastForShard(lastResult)));
+			Object[] sortTerms = new Object[] { lastResult.getSortValues().getSortValue(0).getIntegerValue() };
+			shardToAfter = Map.of(lastResult.getShard(), new FieldDoc(lastResult.getLuceneShardId(), lastResult.getScore(), sortTerms, lastResult.getShard()));
+		}
+
+		QueryCacheKey queryCacheKey = cache ? new QueryCacheKey(queryRequest.build()) : null;
+		return new ShardQuery(new MatchAllDocsQuery(), Collections.emptyMap(), PAGE_SIZE, shardToAfter, ZuliaQuery.FacetRequest.getDefaultInstance(),
+				sortRequest, queryCacheKey, ZuliaQuery.FetchType.NONE, Collections.emptyList(), Collections.emptyList(), Collections.emptyList(),
+				Collections.emptyList(), false, null);
+	}
+
+	private static void store(ZuliaShard shard, int start, int end) throws Exception {
+		for (int i = start; i < end; i++) {
+			Document document = new Document("id", String.valueOf(i)).append("rating", i % RATINGS);
+			shard.index(String.valueOf(i), 100, new DocumentContainer(ZuliaUtil.mongoDocumentToByteString(document)), new DocumentContainer(ByteString.EMPTY));
+		}
+	}
+
+	private static ShardWriteManager openShardWriteManager(Path shardPath, DocumentConversionPool documentConversionPool) throws Exception {
+		ClientIndexConfig indexConfig = new ClientIndexConfig();
+		indexConfig.setIndexName("segmentCacheTest");
+		indexConfig.addFieldConfig(FieldConfigBuilder.createInt("rating").index().sort());
+		indexConfig.setShardQueryCacheSize(10);
+		indexConfig.setShardQueryCacheMaxAmount(100);
+
+		ServerIndexConfig serverIndexConfig = new ServerIndexConfig(indexConfig.getIndexSettings());
+		return new ShardWriteManager(0, shardPath.resolve("index"), shardPath.resolve("taxo"), shardPath.resolve("translog"), serverIndexConfig,
+				new ZuliaPerFieldAnalyzer(serverIndexConfig), documentConversionPool);
+	}
+
+}
@@ -0,0 +1,74 @@
+package io.zulia.server.test.util;
+
+import io.zulia.client.config.ClientIndexConfig;
+import io.zulia.server.config.ServerIndexConfig;
+import io.zulia.server.index.ShardRequestTuner;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ShardRequestTunerTest {
+
+	private static final int NUMBER_OF_SHARDS = 4;
+
+	@Test
+	public void testGrowth() throws Exception {
+		ShardRequestTuner shardRequestTuner = createTuner();
+		Assertions.assertEquals(2, shardRequestTuner.getRequestFactor());
+		Assertions.assertEquals((100 / NUMBER_OF_SHARDS + 2) * 2, shardRequestTuner.getShardAmount(100));
+
+		shardRequestTuner.recordQuery(true);
+		Assertions.assertEquals(3, shardRequestTuner.getRequestFactor());
+
+		// capped at the number of shards
+		shardRequestTuner.recordQuery(true);
+		Assertions.assertEquals(NUMBER_OF_SHARDS, shardRequestTuner.getRequestFactor());
+		shardRequestTuner.recordQuery(true);
+		Assertions.assertEquals(NUMBER_OF_SHARDS, shardRequestTuner.getRequestFactor());
+
+		// (25 + 2) * 4 is more than the full amount a single shard could contribute
+		Assertions.assertEquals(100, shardRequestTuner.getShardAmount(100));
+		Assertions.assertEquals(3, shardRequestTuner.getShardAmount(3));
+
+		shardRequestTuner.reset();
+		Assertions.assertEquals(2, shardRequestTuner.getRequestFactor());
+	}
+
+	@Test
+	public void testDecay() throws Exception {
+		ShardRequestTuner shardRequestTuner = createTuner();
+		shardRequestTuner.recordQuery(true);
+		shardRequestTuner.recordQuery(true);
+		Assertions.assertEquals(NUMBER_OF_SHARDS, shardRequestTuner.getRequestFactor());
+
+		// two short queries put the short rate at 0.0975, it takes 45 queries that are not short for the rate to fall below 1%
+		for (int i = 0; i < 44; i++) {
+			shardRequestTuner.recordQuery(false);
+			Assertions.assertEquals(NUMBER_OF_SHARDS, shardRequestTuner.getRequestFactor());
+		}
+		shardRequestTuner.recordQuery(false);
+		Assertions.assertEquals(NUMBER_OF_SHARDS * 0.98, shardRequestTuner.getRequestFactor(), 0.000001);
+		shardRequestTuner.recordQuery(false);
+		Assertions.assertEquals(NUMBER_OF_SHARDS * 0.98 * 0.98, shardRequestTuner.getRequestFactor(), 0.000001);
+
+		// never requests less than an even share plus the min shard request
+		for (int i = 0; i < 1000; i++) {
+			shardRequestTuner.recordQuery(false);
+		}
+		Assertions.assertEquals(1, shardRequestTuner.getRequestFactor());
+		Assertions.assertEquals(100 / NUMBER_OF_SHARDS + 2, shardRequestTuner.getShardAmount(100));
+
+		// a short query grows from the floor again
+		shardRequestTuner.recordQuery(true);
+		Assertions.assertEquals(1.5, shardRequestTuner.getRequestFactor());
+	}
+
+	private static ShardRequestTuner createTuner() throws Exception {
+		ClientIndexConfig indexConfig = new ClientIndexConfig();
+		indexConfig.setIndexName("tunerTest");
+		indexConfig.setNumberOfShards(NUMBER_OF_SHARDS);
+		indexConfig.setRequestFactor(2.0);
+		indexConfig.setMinShardRequest(2);
+		return new ShardRequestTuner(new ServerIndexConfig(indexConfig.getIndexSettings()), NUMBER_OF_SHARDS);
+	}
+
+}
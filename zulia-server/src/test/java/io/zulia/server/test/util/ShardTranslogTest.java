@@ -0,0 +1,282 @@
+package io.zulia.server.test.util;
+
+import com.google.protobuf.ByteString;
+import io.zulia.DefaultAnalyzers;
+import io.zulia.ZuliaFieldConstants;
+import io.zulia.client.config.ClientIndexConfig;
+import io.zulia.fields.FieldConfigBuilder;
+import io.zulia.message.ZuliaBase;
+import io.zulia.server.analysis.ZuliaPerFieldAnalyzer;
+import io.zulia.server.config.ServerIndexConfig;
+import io.zulia.server.index.DocumentContainer;
+import io.zulia.server.index.DocumentConversionPool;
+import io.zulia.server.index.ShardTranslog;
+import io.zulia.server.index.ShardWriteManager;
+import io.zulia.util.ZuliaUtil;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ShardTranslogTest {
+
+	@TempDir
+	Path translogPath;
+
+	@Test
+	public void testReplay() throws Exception {
+
+		ShardTranslog translog = new ShardTranslog(translogPath);
+		translog.logStore(1, "1", 100, ZuliaUtil.mongoDocumentToByteString(new Document("title", "first")), ByteString.EMPTY);
+		translog.logDelete(2, "2");
+		translog.sync();
+
+		long generation = translog.roll();
+		translog.logStore(3, "3", 200, ZuliaUtil.mongoDocumentToByteString(new Document("title", "third")), ByteString.EMPTY);
+		translog.logDeleteAll(4);
+		translog.close();
+
+		// a write torn by a crash after the last acknowledged operation
+		Files.write(translogPath.resolve("translog-" + generation + ".tlog"), new byte[] { 0, 0, 1, 0, 5 }, StandardOpenOption.APPEND);
+
+		List<String> operations = new ArrayList<>();
+		ShardTranslog reopened = new ShardTranslog(translogPath);
+		long replayed = reopened.replay(new ShardTranslog.OperationHandler() {
+
+			@Override
+			public void store(String uniqueId, long timestamp, DocumentContainer mongoDocument, DocumentContainer metadata) {
+				operations.add("store " + uniqueId + " " + timestamp + " " + mongoDocument.getDocument().getString("title"));
+				Assertions.assertFalse(metadata.hasDocument());
+			}
+
+			@Override
+			public void delete(String uniqueId) {
+				operations.add("delete " + uniqueId);
+			}
+
+			@Override
+			public void deleteAll() {
+				operations.add("deleteAll");
+			}
+		});
+
+		Assertions.assertEquals(4, replayed);
+		Assertions.assertEquals(List.of("store 1 100 first", "delete 2", "store 3 200 third", "deleteAll"), operations);
+
+		reopened.deleteBefore(reopened.roll());
+		reopened.close();
+		try (var files = Files.list(translogPath)) {
+			Assertions.assertEquals(1, files.count());
+		}
+	}
+
+	@Test
+	public void testReplayInSequenceOrder() throws Exception {
+
+		// concurrent writers can log in a different order than the index writer applied their changes
+		ShardTranslog translog = new ShardTranslog(translogPath);
+		translog.logStore(5, "1", 100, ZuliaUtil.mongoDocumentToByteString(new Document("title", "second")), ByteString.EMPTY);
+		translog.logStore(3, "1", 100, ZuliaUtil.mongoDocumentToByteString(new Document("title", "first")), ByteString.EMPTY);
+		translog.logDeleteAll(4);
+		translog.logStore(1, "2", 100, ZuliaUtil.mongoDocumentToByteString(new Document("title", "other")), ByteString.EMPTY);
+		translog.logDelete(2, "2");
+		translog.close();
+
+		List<String> operations = new ArrayList<>();
+		ShardTranslog reopened = new ShardTranslog(translogPath);
+		reopened.replay(new ShardTranslog.OperationHandler() {
+
+			@Override
+			public void store(String uniqueId, long timestamp, DocumentContainer mongoDocument, DocumentContainer metadata) {
+				operations.add("store " + uniqueId + " " + mongoDocument.getDocument().getString("title"));
+			}
+
+			@Override
+			public void delete(String uniqueId) {
+				operations.add("delete " + uniqueId);
+			}
+
+			@Override
+			public void deleteAll() {
+				operations.add("deleteAll");
+			}
+		});
+		reopened.close();
+
+		Assertions.assertEquals(List.of("store 2 other", "delete 2", "store 1 first", "deleteAll", "store 1 second"), operations);
+	}
+
+	@Test
+	public void testConcurrentReplay(@TempDir Path shardPath, @TempDir Path replayPath) throws Exception {
+
+		DocumentConversionPool documentConversionPool = new DocumentConversionPool(1);
+		ExecutorService writers = Executors.newFixedThreadPool(4);
+		try {
+			ShardWriteManager shardWriteManager = openShardWriteManager(shardPath, documentConversionPool);
+
+			List<Future<Void>> writes = new ArrayList<>();
+			for (int w = 0; w < 3; w++) {
+				int writer = w;
+				writes.add(writers.submit(() -> {
+					for (int i = 0; i < 300; i++) {
+						// the version of the shared id that survives depends on the order the index writer applied the stores
+						store(shardWriteManager, "same", "writer " + writer + " " + i);
+						store(shardWriteManager, "writer " + writer + " " + i, "own");
+					}
+					return null;
+				}));
+			}
+			writes.add(writers.submit(() -> {
+				for (int i = 0; i < 20; i++) {
+					shardWriteManager.deleteAll();
+					Thread.sleep(1);
+				}
+				return null;
+			}));
+			for (Future<Void> write : writes) {
+				write.get();
+			}
+
+			// every change was synced before it returned so a copy of the translog is what a crash would leave behind
+			Files.createDirectories(replayPath.resolve("translog"));
+			try (var files = Files.list(shardPath.resolve("translog"))) {
+				for (Path file : files.toList()) {
+					Files.copy(file, replayPath.resolve("translog").resolve(file.getFileName()));
+				}
+			}
+
+			// closing the index writer commits the state the writes left
+			shardWriteManager.close();
+			Map<String, String> expected = getTitles(shardPath.resolve("index"));
+			Assertions.assertFalse(expected.isEmpty());
+
+			ShardWriteManager replayed = openShardWriteManager(replayPath, documentConversionPool);
+			replayed.close();
+			Assertions.assertEquals(expected, getTitles(replayPath.resolve("index")));
+		}
+		finally {
+			writers.shutdown();
+			documentConversionPool.shutdown();
+		}
+	}
+
+	private static Map<String, String> getTitles(Path indexPath) throws Exception {
+		Map<String, String> titles = new TreeMap<>();
+		try (DirectoryReader indexReader = DirectoryReader.open(FSDirectory.open(indexPath))) {
+			for (LeafReaderContext leaf : indexReader.leaves()) {
+				Bits liveDocs = leaf.reader().getLiveDocs();
+				BinaryDocValues idInfos = DocValues.getBinary(leaf.reader(), ZuliaFieldConstants.STORED_ID_FIELD);
+				BinaryDocValues documents = DocValues.getBinary(leaf.reader(), ZuliaFieldConstants.STORED_DOC_FIELD);
+				for (int doc = 0; doc < leaf.reader().maxDoc(); doc++) {
+					if (liveDocs != null && !liveDocs.get(doc)) {
+						continue;
+					}
+					Assertions.assertTrue(idInfos.advanceExact(doc) && documents.advanceExact(doc));
+					String uniqueId = ZuliaBase.IdInfo.parseFrom(BytesRef.deepCopyOf(idInfos.binaryValue()).bytes).getId();
+					Document mongoDocument = ZuliaUtil.byteArrayToMongoDocument(BytesRef.deepCopyOf(documents.binaryValue()).bytes);
+					titles.put(uniqueId, mongoDocument.getString("title"));
+				}
+			}
+		}
+		return titles;
+	}
+
+	@Test
+	public void testReplayRejectedOperation(@TempDir Path shardPath) throws Exception {
+
+		ShardTranslog translog = new ShardTranslog(shardPath.resolve("translog"));
+		translog.logStore(1, "1", 100, ZuliaUtil.mongoDocumentToByteString(new Document("title", "first")), ByteString.EMPTY);
+		// logged by a version that logged before indexing, the keyword term is longer than the index writer accepts
+		translog.logStore(2, "2", 100, ZuliaUtil.mongoDocumentToByteString(new Document("title", "x".repeat(40000))), ByteString.EMPTY);
+		translog.logStore(3, "3", 100, ZuliaUtil.mongoDocumentToByteString(new Document("title", "third")), ByteString.EMPTY);
+		translog.close();
+
+		DocumentConversionPool documentConversionPool = new DocumentConversionPool(1);
+		try {
+			ShardWriteManager shardWriteManager = openShardWriteManager(shardPath, documentConversionPool);
+			shardWriteManager.close();
+		}
+		finally {
+			documentConversionPool.shutdown();
+		}
+
+		try (DirectoryReader indexReader = DirectoryReader.open(FSDirectory.open(shardPath.resolve("index")))) {
+			Assertions.assertEquals(2, indexReader.numDocs());
+		}
+	}
+
+	@Test
+	public void testRejectedStoreNotLogged(@TempDir Path shardPath) throws Exception {
+
+		DocumentConversionPool documentConversionPool = new DocumentConversionPool(1);
+		try {
+			ShardWriteManager shardWriteManager = openShardWriteManager(shardPath, documentConversionPool);
+			store(shardWriteManager, "1", "first");
+			Assertions.assertThrows(IllegalArgumentException.class, () -> store(shardWriteManager, "2", "x".repeat(40000)));
+			store(shardWriteManager, "3", "third");
+			shardWriteManager.close();
+		}
+		finally {
+			documentConversionPool.shutdown();
+		}
+
+		List<String> stored = new ArrayList<>();
+		ShardTranslog reopened = new ShardTranslog(shardPath.resolve("translog"));
+		reopened.replay(new ShardTranslog.OperationHandler() {
+
+			@Override
+			public void store(String uniqueId, long timestamp, DocumentContainer mongoDocument, DocumentContainer metadata) {
+				stored.add(uniqueId);
+			}
+
+			@Override
+			public void delete(String uniqueId) {
+
+			}
+
+			@Override
+			public void deleteAll() {
+
+			}
+		});
+		reopened.close();
+
+		Assertions.assertEquals(List.of("1", "3"), stored);
+	}
+
+	private static ShardWriteManager openShardWriteManager(Path shardPath, DocumentConversionPool documentConversionPool) throws Exception {
+		ClientIndexConfig indexConfig = new ClientIndexConfig();
+		indexConfig.setIndexName("translogTest");
+		indexConfig.addFieldConfig(FieldConfigBuilder.createString("title").indexAs(DefaultAnalyzers.KEYWORD));
+		indexConfig.setDisableCompression(true);
+
+		ServerIndexConfig serverIndexConfig = new ServerIndexConfig(indexConfig.getIndexSettings());
+		return new ShardWriteManager(0, shardPath.resolve("index"), shardPath.resolve("taxo"), shardPath.resolve("translog"), serverIndexConfig,
+				new ZuliaPerFieldAnalyzer(serverIndexConfig), documentConversionPool);
+	}
+
+	private static void store(ShardWriteManager shardWriteManager, String uniqueId, String title) throws Exception {
+		DocumentContainer mongoDocument = new DocumentContainer(ZuliaUtil.mongoDocumentToByteString(new Document("title", title)));
+		DocumentContainer metadata = new DocumentContainer(ByteString.EMPTY);
+		shardWriteManager.indexDocument(uniqueId, 100, new byte[0], mongoDocument, metadata);
+	}
+
+}